@@ -0,0 +1,116 @@
+package peersim.edsim;
+
+import java.util.Properties;
+import java.util.Random;
+
+import peersim.config.Configuration;
+import peersim.core.Node;
+
+/**
+ * Microbenchmark comparing {@link Heap}, {@link PeekableHeap} and
+ * {@link FourAryHeap}, outside of a simulation. Two workloads are measured:
+ * <ol>
+ * <li><b>hold:</b> the queue is filled with <i>size</i> events, and then each
+ * operation removes the first event and schedules a new one a random delay
+ * after it, which is what a transport-heavy event-driven run does;</li>
+ * <li><b>bulk:</b> rounds of <i>batch</i> events with a handful of distinct
+ * times are added and then drained, so that many events share their
+ * time.</li>
+ * </ol>
+ * Prints millions of events per second, and a checksum of the removed times
+ * which must be the same for all queues.<BR>
+ * <BR>
+ * Usage: <code>EventQueueBenchmark [size] [operations] [batch] [rounds]</code>
+ *
+ * @author giuliano
+ */
+public class EventQueueBenchmark {
+
+	private static final String[] QUEUES = { "heap", "peekable", "4ary" };
+
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int operations = args.length > 1 ? Integer.parseInt(args[1]) : 5000000;
+		int batch = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+		Configuration.setConfig(new Properties());
+
+		System.out.println("queue workload round mevents_s checksum");
+		for (int round = 0; round < rounds; round++) {
+			for (String queue : QUEUES) {
+				long start = System.nanoTime();
+				long checksum = hold(create(queue), size, operations);
+				print(queue, "hold", round, operations, start, checksum);
+
+				start = System.nanoTime();
+				checksum = bulk(create(queue), batch, operations / batch);
+				print(queue, "bulk", round, operations, start, checksum);
+			}
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static PriorityQ create(String queue) {
+		if (queue.equals("heap")) {
+			return new Heap();
+		} else if (queue.equals("peekable")) {
+			return new PeekableHeap();
+		}
+		return new FourAryHeap();
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static long hold(PriorityQ queue, int size, int operations) {
+		Random random = new Random(42);
+		for (int i = 0; i < size; i++) {
+			queue.add(random.nextInt(1000000), null, null, (byte) 0);
+		}
+
+		long checksum = 0;
+		for (int i = 0; i < operations; i++) {
+			long time = queue.removeFirst().time;
+			checksum += time;
+			queue.add(time + 1 + random.nextInt(1000), null, null, (byte) 0);
+		}
+		return checksum;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static long bulk(PriorityQ queue, int batch, int rounds) {
+		Random random = new Random(42);
+		long[] times = new long[batch];
+		Object[] events = new Object[batch];
+		Node[] nodes = new Node[batch];
+		byte[] pids = new byte[batch];
+
+		long checksum = 0;
+		long now = 0;
+		for (int i = 0; i < rounds; i++) {
+			for (int j = 0; j < batch; j++) {
+				times[j] = now + random.nextInt(8);
+			}
+
+			for (int j = 0; j < batch; j++) {
+				queue.add(times[j], events[j], nodes[j], pids[j]);
+			}
+			while (queue.size() != 0) {
+				checksum += queue.removeFirst().time;
+			}
+			now += 8;
+		}
+		return checksum;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static void print(String queue, String workload, int round,
+			int operations, long start, long checksum) {
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(queue + " " + workload + " " + round + " "
+				+ (operations / seconds / 1e6) + " " + checksum);
+	}
+}
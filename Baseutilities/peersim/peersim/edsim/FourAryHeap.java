@@ -0,0 +1,290 @@
+package peersim.edsim;
+
+import java.util.Arrays;
+
+import peersim.config.Configuration;
+import peersim.config.IllegalParameterException;
+import peersim.core.CommonState;
+import peersim.core.Node;
+
+/**
+ * {@link PriorityQ} backed by a 4-ary heap. Like {@link Heap}, it orders
+ * events by a single <code>long</code> key combining time and priority, but
+ * the heap itself only holds the keys and the index of the slot where the
+ * rest of the event is stored, so that sifting moves two arrays instead of
+ * four, over half as many levels. Slots are recycled as events are removed,
+ * and arrays grow by half of their size rather than doubling.<BR>
+ * <BR>
+ * Use it by setting <code>simulation.eventqueue</code> to
+ * <code>peersim.edsim.FourAryHeap</code>. It takes the same parameters as
+ * {@link Heap}.
+ *
+ * @author giuliano
+ */
+public class FourAryHeap implements PriorityQ {
+
+	/**
+	 * Same as in {@link Heap}.
+	 *
+	 * @config
+	 */
+	private static final String PAR_PBITS = "pbits";
+	private static final String PAR_PBITS_LEGACY = "simulation.timebits";
+
+	/**
+	 * Specifies the initial capacity of the heap. Defaults to 65536.
+	 *
+	 * @config
+	 */
+	private static final String PAR_SIZE = "size";
+
+	// ----------------------------------------------------------------------
+
+	/** Heap-ordered keys, (time << pbits) | priority. */
+	private long[] fKeys;
+
+	/** Slot of the event at the same heap position. */
+	private int[] fSlots;
+
+	private Object[] fEvents;
+
+	private Node[] fNodes;
+
+	private byte[] fPids;
+
+	/** Stack of slots freed by removed events. */
+	private int[] fFree;
+
+	private int fFreeCount;
+
+	/** Slots below this value have been handed out at least once. */
+	private int fUsedSlots;
+
+	private int fSize;
+
+	/** Singleton returned by {@link #removeFirst()}, as in {@link Heap}. */
+	private final Event fEvent = new Event();
+
+	private final int fPbits;
+
+	private final long fOverflowMask;
+
+	// ----------------------------------------------------------------------
+
+	public FourAryHeap() {
+		this(""); // "" is not a valid prefix for a component
+	}
+
+	// ----------------------------------------------------------------------
+
+	public FourAryHeap(String prefix) {
+		int size = Configuration.getInt(prefix + "." + PAR_SIZE, 65536);
+
+		if (!Configuration.contains(PAR_PBITS_LEGACY)) {
+			fPbits = Configuration.getInt(prefix + "." + PAR_PBITS, 8);
+		} else {
+			fPbits = Configuration.getInt(PAR_PBITS_LEGACY);
+			if (Configuration.contains(prefix + "." + PAR_PBITS)) {
+				throw new IllegalParameterException(PAR_PBITS_LEGACY,
+						"Your configuration file contains both " + prefix + "."
+								+ PAR_PBITS + " and " + PAR_PBITS_LEGACY
+								+ "; please remove " + PAR_PBITS_LEGACY);
+			}
+		}
+
+		if (fPbits < 8 || fPbits >= 31) {
+			throw new IllegalParameterException(prefix + "." + PAR_PBITS,
+					"This parameter should be >= 8 or < 31");
+		}
+
+		fOverflowMask = ~maxTime();
+		size = Math.max(size, 16);
+		fKeys = new long[size];
+		fSlots = new int[size];
+		fEvents = new Object[size];
+		fNodes = new Node[size];
+		fPids = new byte[size];
+		fFree = new int[size];
+	}
+
+	// ----------------------------------------------------------------------
+
+	public int size() {
+		return fSize;
+	}
+
+	// ----------------------------------------------------------------------
+
+	public void add(long time, Object event, Node node, byte pid) {
+		add(time, event, node, pid, CommonState.r.nextInt(1 << fPbits));
+	}
+
+	// ----------------------------------------------------------------------
+
+	public void add(long time, Object event, Node node, byte pid,
+			long priority) {
+		ensureCapacity(fSize + 1);
+		siftUp(fSize++, key(time, priority), store(event, node, pid));
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Removes the first event. As with {@link Heap}, the returned object is a
+	 * singleton which is overwritten by the next call.
+	 */
+	public Event removeFirst() {
+		if (fSize == 0) {
+			return null;
+		}
+
+		int slot = fSlots[0];
+		fEvent.time = fKeys[0] >> fPbits;
+		fEvent.event = fEvents[slot];
+		fEvent.node = fNodes[slot];
+		fEvent.pid = fPids[slot];
+		release(slot);
+		removeRoot();
+		return fEvent;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Returns the time of the next event returned by {@link #removeFirst()},
+	 * or {@link Long#MAX_VALUE} if the heap is empty.
+	 */
+	public long peek() {
+		return fSize == 0 ? Long.MAX_VALUE : fKeys[0] >> fPbits;
+	}
+
+	// ----------------------------------------------------------------------
+
+	public long maxTime() {
+		return Long.MAX_VALUE >> fPbits;
+	}
+
+	// ----------------------------------------------------------------------
+
+	public long maxPriority() {
+		return (1L << fPbits) - 1;
+	}
+
+	// ----------------------------------------------------------------------
+
+	public String toString() {
+		StringBuffer buffer = new StringBuffer();
+		buffer.append("[Size: " + fSize + " Times: ");
+		for (int i = 0; i < fSize; i++) {
+			buffer.append(fKeys[i] + ",");
+		}
+		buffer.append("]");
+		return buffer.toString();
+	}
+
+	// ----------------------------------------------------------------------
+	// Private helpers.
+	// ----------------------------------------------------------------------
+
+	private long key(long time, long priority) {
+		if ((time & fOverflowMask) != 0) {
+			throw new IllegalArgumentException("Time overflow: time=" + time);
+		}
+		return (time << fPbits) | priority;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void removeRoot() {
+		int last = --fSize;
+		if (last > 0) {
+			siftDown(0, fKeys[last], fSlots[last]);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void siftUp(int pos, long key, int slot) {
+		long[] keys = fKeys;
+		int[] slots = fSlots;
+		while (pos > 0) {
+			int parent = (pos - 1) >> 2;
+			long parentKey = keys[parent];
+			if (parentKey <= key) {
+				break;
+			}
+			keys[pos] = parentKey;
+			slots[pos] = slots[parent];
+			pos = parent;
+		}
+		keys[pos] = key;
+		slots[pos] = slot;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void siftDown(int pos, long key, int slot) {
+		long[] keys = fKeys;
+		int[] slots = fSlots;
+		int size = fSize;
+		while (true) {
+			int child = (pos << 2) + 1;
+			if (child >= size) {
+				break;
+			}
+			int end = Math.min(child + 4, size);
+			int min = child;
+			long minKey = keys[child];
+			for (int i = child + 1; i < end; i++) {
+				if (keys[i] < minKey) {
+					min = i;
+					minKey = keys[i];
+				}
+			}
+			if (minKey >= key) {
+				break;
+			}
+			keys[pos] = minKey;
+			slots[pos] = slots[min];
+			pos = min;
+		}
+		keys[pos] = key;
+		slots[pos] = slot;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private int store(Object event, Node node, byte pid) {
+		int slot = fFreeCount > 0 ? fFree[--fFreeCount] : fUsedSlots++;
+		fEvents[slot] = event;
+		fNodes[slot] = node;
+		fPids[slot] = pid;
+		return slot;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void release(int slot) {
+		// Lets events be collected.
+		fEvents[slot] = null;
+		fNodes[slot] = null;
+		fFree[fFreeCount++] = slot;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void ensureCapacity(int size) {
+		// Slots in use never exceed the heap size, so one check covers all
+		// arrays.
+		if (size <= fKeys.length) {
+			return;
+		}
+		int capacity = Math.max(size, fKeys.length + (fKeys.length >> 1));
+		fKeys = Arrays.copyOf(fKeys, capacity);
+		fSlots = Arrays.copyOf(fSlots, capacity);
+		fEvents = Arrays.copyOf(fEvents, capacity);
+		fNodes = Arrays.copyOf(fNodes, capacity);
+		fPids = Arrays.copyOf(fPids, capacity);
+		fFree = Arrays.copyOf(fFree, capacity);
+	}
+}
@@ -22,7 +22,7 @@ public class LoadReparse implements ITransformer {
 
 	@Override
 	public void execute(InputStream is, OutputStream oup) throws Exception {
-		TableReader reader = new TableReader(is);
+		TableReader reader = TableReader.open(is);
 		ITableWriter writer = new TableWriter(new PrintStream(oup),
 				new String[] { "root", "degree", "delivered", "root_uptime",
 						"zero_uptime", "residue", "corrected_residue",
@@ -1,15 +1,23 @@
 package it.unitn.disi.logparse;
 
 import it.unitn.disi.cli.ITransformer;
+import it.unitn.disi.utils.tabular.ChunkedTableReader;
+import it.unitn.disi.utils.tabular.ChunkedTableReader.IChunkProcessor;
 import it.unitn.disi.utils.tabular.ITableWriter;
 import it.unitn.disi.utils.tabular.TableReader;
 import it.unitn.disi.utils.tabular.TableWriter;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import peersim.config.Attribute;
 import peersim.config.AutoConfig;
 
 /**
@@ -20,57 +28,121 @@ import peersim.config.AutoConfig;
 @AutoConfig
 public class NodeLoadAggregates implements ITransformer {
 
+	/**
+	 * If set, reads this (uncompressed) file in parallel instead of the input
+	 * stream.
+	 */
+	@Attribute(value = "file", defaultValue = Attribute.VALUE_NULL)
+	private String fFile;
+
+	/**
+	 * Number of threads for reading {@link #fFile}.
+	 */
+	@Attribute(value = "threads", defaultValue = "1")
+	private int fThreads;
+
+	private final AtomicBoolean fCompatibility = new AtomicBoolean();
+
 	@Override
 	public void execute(InputStream is, OutputStream oup) throws Exception {
-		HashMap<Long, NodeData> nodes = new HashMap<Long, NodeData>();
-		TableReader reader = new TableReader(is);
+		HashMap<Long, NodeData> nodes;
+		if (fFile == null) {
+			TableReader reader = TableReader.open(is);
+			checkCompatibility(reader.columns());
+			nodes = aggregate(reader);
+		} else {
+			nodes = parallelAggregate(new File(fFile));
+		}
+
 		ITableWriter writer = new TableWriter(new PrintStream(oup),
 				new String[] { "id", "posts", "sent", "sent_as_root",
 						"received", "total", "disseminated", "updates",
 						"dups_generated", "dups_received", "experiments" });
 
-		boolean printWarning = true;
+		for (Long id : nodes.keySet()) {
+			NodeData data = nodes.get(id);
+			writer.set("id", id);
+			writer.set("posts", data.posts());
+			writer.set("sent", data.sent());
+			writer.set("sent_as_root", data.sentAsRoot());
+			writer.set("received", data.received());
+			writer.set("total", data.sent() + data.received());
+			writer.set("disseminated", data.disseminated());
+			writer.set("updates", data.updates());
+			writer.set("dups_generated", data.duplicatesSent());
+			writer.set("dups_received", data.duplicatesReceived());
+			writer.set("experiments", data.experiments());
+			writer.emmitRow();
+		}
+	}
+
+	private HashMap<Long, NodeData> parallelAggregate(File file)
+			throws Exception {
+		ChunkedTableReader chunks = new ChunkedTableReader(file, fThreads);
+		checkCompatibility(chunks.columns());
+
+		HashMap<Long, NodeData> nodes = new HashMap<Long, NodeData>();
+		for (HashMap<Long, NodeData> partial : chunks.process(
+				new IChunkProcessor<HashMap<Long, NodeData>>() {
+					@Override
+					public HashMap<Long, NodeData> process(TableReader chunk)
+							throws IOException {
+						return aggregate(chunk);
+					}
+				}, fThreads)) {
+			for (Map.Entry<Long, NodeData> entry : partial.entrySet()) {
+				getCreate(nodes, entry.getKey()).merge(entry.getValue());
+			}
+		}
+		return nodes;
+	}
+
+	private HashMap<Long, NodeData> aggregate(TableReader reader)
+			throws IOException {
+		HashMap<Long, NodeData> nodes = new HashMap<Long, NodeData>();
+		int idCol = reader.indexOf("id");
+		int rootCol = reader.indexOf("root");
+		int sentCol = reader.indexOf("sent");
+		int recvCol = reader.indexOf("received");
+		int dupsCol = reader.indexOf("dups_sent");
 
 		while (reader.hasNext()) {
 			reader.next();
-			long id = Long.parseLong(reader.get("id"));
-			long root = Long.parseLong(reader.get("root"));
+			long id = reader.getLong(idCol);
+			long root = reader.getLong(rootCol);
 			NodeData exp = getCreate(nodes, id);
 
 			// Compatibility with older datasets.
 			int dupsSent = 0;
-			try {
-				dupsSent = Integer.parseInt(reader.get("dups_sent"));
-			} catch (Exception ex) {
-				if (printWarning) {
-					System.err.println("Compatibility mode on.");
-					printWarning = false;
+			if (dupsCol != -1) {
+				try {
+					dupsSent = reader.getInt(dupsCol);
+				} catch (NumberFormatException ex) {
+					compatibilityMode();
 				}
 			}
 
-			int sent = Integer.parseInt(reader.get("sent"));
-			int recv = Integer.parseInt(reader.get("received"));
+			int sent = reader.getInt(sentCol);
+			int recv = reader.getInt(recvCol);
 			if (id == root) {
 				exp.addAsRoot(sent, dupsSent);
 			} else {
 				exp.add(sent, recv, dupsSent);
 			}
 		}
+		return nodes;
+	}
 
-		for (Long id : nodes.keySet()) {
-			NodeData data = nodes.get(id);
-			writer.set("id", id);
-			writer.set("posts", data.posts());
-			writer.set("sent", data.sent());
-			writer.set("sent_as_root", data.sentAsRoot());
-			writer.set("received", data.received());
-			writer.set("total", data.sent() + data.received());
-			writer.set("disseminated", data.disseminated());
-			writer.set("updates", data.updates());
-			writer.set("dups_generated", data.duplicatesSent());
-			writer.set("dups_received", data.duplicatesReceived());
-			writer.set("experiments", data.experiments());
-			writer.emmitRow();
+	private void checkCompatibility(List<String> columns) {
+		if (!columns.contains("dups_sent")) {
+			compatibilityMode();
+		}
+	}
+
+	private void compatibilityMode() {
+		// Chunks are aggregated concurrently, but should warn only once.
+		if (fCompatibility.compareAndSet(false, true)) {
+			System.err.println("Compatibility mode on.");
 		}
 	}
 
@@ -118,6 +190,18 @@ public class NodeLoadAggregates implements ITransformer {
 			fExperiments++;
 		}
 
+		public void merge(NodeData other) {
+			fExperiments += other.fExperiments;
+			fSent += other.fSent;
+			fSentAsRoot += other.fSentAsRoot;
+			fDupsAsRoot += other.fDupsAsRoot;
+			fWasRoot += other.fWasRoot;
+			fReceived += other.fReceived;
+			fUpdates += other.fUpdates;
+			fDuplicatesReceived += other.fDuplicatesReceived;
+			fDuplicatesSent += other.fDuplicatesSent;
+		}
+
 		public void addAsRoot(int sent, int duplicatesSent) {
 			add(sent, 0, duplicatesSent);
 			fSentAsRoot += sent;
@@ -23,7 +23,7 @@ public class SRFairness implements ITransformer {
 
 	@Override
 	public void execute(InputStream is, OutputStream oup) throws Exception {
-		TableReader reader = new TableReader(is);
+		TableReader reader = TableReader.open(is);
 		ITableWriter writer = new TableWriter(new PrintStream(oup),
 				new String[] { "root", "send_fairness", "recv_fairness",
 						"tot_fairness" });
@@ -156,8 +156,8 @@ public class TableAggregate implements IMultiTransformer {
 	private TableReader[] openTables(String[] files) throws IOException {
 		TableReader[] readers = new TableReader[files.length];
 		for (int i = 0; i < files.length; i++) {
-			readers[i] = new TableReader(
-					new FileInputStream(new File(files[i])));
+			readers[i] = TableReader.open(new FileInputStream(new File(
+					files[i])));
 		}
 		return readers;
 	}
@@ -217,17 +217,17 @@ public class TableAggregate implements IMultiTransformer {
 		public String aggregate(TableReader[] readers, String fieldKey) {
 			double aggregate = 0.0;
 			for (TableReader reader : readers) {
-				String value = reader.get(fieldKey);
+				int column = reader.indexOf(fieldKey);
 				double doubleValue;
 				// XXX resolving default values doesn't really belong here,
 				// but to a wrapping layer over TableReader.
-				if (value == null) {
+				if (column == -1) {
 					if (fDefault == null) {
 						throw new IllegalArgumentException("Unknown field " + fieldKey + ".");
 					}
 					doubleValue = fDefault;
 				} else {
-					doubleValue = Double.parseDouble(value);
+					doubleValue = reader.getDouble(column);
 				}
 				aggregate += doubleValue;
 			}
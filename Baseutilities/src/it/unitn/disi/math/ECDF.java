@@ -46,7 +46,7 @@ public class ECDF implements ITransformer {
 		}
 
 		SparseMultiCounter<String> counter = new SparseMultiCounter<String>();
-		TableReader reader = new TableReader(is);
+		TableReader reader = TableReader.open(is);
 
 		System.err.print("Computing knots and frequencies...");
 		while (reader.hasNext()) {
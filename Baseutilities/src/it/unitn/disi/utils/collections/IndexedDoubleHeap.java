@@ -0,0 +1,244 @@
+package it.unitn.disi.utils.collections;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Indexed d-ary min-heap over the integers <code>[0, capacity)</code>, keyed
+ * by <code>double</code>s. Each element knows its position in the heap, so
+ * that {@link #decreaseKey(int, double)} and {@link #contains(int)} run in
+ * logarithmic and constant time, respectively. All state is kept in primitive
+ * arrays which are allocated once, and the heap can be reused across runs
+ * as long as it is emptied (or {@link #clear()}ed) in between.<BR>
+ * <BR>
+ * Ties between equal keys are broken arbitrarily.
+ *
+ * @author giuliano
+ */
+public class IndexedDoubleHeap {
+
+	public static final int DEFAULT_ARITY = 4;
+
+	private static final int ABSENT = -1;
+
+	private final int fArity;
+
+	private int[] fHeap;
+
+	private int[] fPosition;
+
+	private double[] fKeys;
+
+	private int fSize;
+
+	public IndexedDoubleHeap(int capacity) {
+		this(capacity, DEFAULT_ARITY);
+	}
+
+	public IndexedDoubleHeap(int capacity, int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("Arity must be at least 2.");
+		}
+		fArity = arity;
+		fHeap = new int[capacity];
+		fKeys = new double[capacity];
+		fPosition = new int[capacity];
+		Arrays.fill(fPosition, ABSENT);
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Grows the heap so that it can hold elements up to
+	 * <code>capacity - 1</code>.
+	 */
+	public void ensureCapacity(int capacity) {
+		int old = fPosition.length;
+		if (capacity <= old) {
+			return;
+		}
+		fHeap = Arrays.copyOf(fHeap, capacity);
+		fKeys = Arrays.copyOf(fKeys, capacity);
+		fPosition = Arrays.copyOf(fPosition, capacity);
+		Arrays.fill(fPosition, old, capacity, ABSENT);
+	}
+
+	// -------------------------------------------------------------------------
+
+	public int capacity() {
+		return fPosition.length;
+	}
+
+	// -------------------------------------------------------------------------
+
+	public int size() {
+		return fSize;
+	}
+
+	// -------------------------------------------------------------------------
+
+	public boolean isEmpty() {
+		return fSize == 0;
+	}
+
+	// -------------------------------------------------------------------------
+
+	public boolean contains(int element) {
+		return fPosition[element] != ABSENT;
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the key of an element currently in the heap.
+	 */
+	public double key(int element) {
+		checkContains(element);
+		return fKeys[element];
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Adds an element which is not in the heap.
+	 */
+	public void add(int element, double key) {
+		if (contains(element)) {
+			throw new IllegalArgumentException("Element " + element
+					+ " is already in the heap.");
+		}
+		fKeys[element] = key;
+		siftUp(element, fSize++);
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Decreases the key of an element which is already in the heap.
+	 */
+	public void decreaseKey(int element, double key) {
+		checkContains(element);
+		if (key > fKeys[element]) {
+			throw new IllegalArgumentException("New key " + key
+					+ " is larger than current key " + fKeys[element] + ".");
+		}
+		fKeys[element] = key;
+		siftUp(element, fPosition[element]);
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Adds an element if it is not in the heap, or decreases its key
+	 * otherwise.
+	 */
+	public void addOrDecrease(int element, double key) {
+		if (contains(element)) {
+			decreaseKey(element, key);
+		} else {
+			add(element, key);
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the element with the smallest key, without removing it.
+	 */
+	public int peek() {
+		if (fSize == 0) {
+			throw new NoSuchElementException();
+		}
+		return fHeap[0];
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Removes and returns the element with the smallest key.
+	 */
+	public int poll() {
+		int head = peek();
+		fPosition[head] = ABSENT;
+		int last = fHeap[--fSize];
+		if (fSize > 0) {
+			siftDown(last, 0);
+		}
+		return head;
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Empties the heap, in time proportional to its current size.
+	 */
+	public void clear() {
+		for (int i = 0; i < fSize; i++) {
+			fPosition[fHeap[i]] = ABSENT;
+		}
+		fSize = 0;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void siftUp(int element, int hole) {
+		double key = fKeys[element];
+		while (hole > 0) {
+			int parent = (hole - 1) / fArity;
+			int pElement = fHeap[parent];
+			if (fKeys[pElement] <= key) {
+				break;
+			}
+			place(pElement, hole);
+			hole = parent;
+		}
+		place(element, hole);
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void siftDown(int element, int hole) {
+		double key = fKeys[element];
+		while (true) {
+			int first = hole * fArity + 1;
+			if (first >= fSize) {
+				break;
+			}
+
+			int end = Math.min(first + fArity, fSize);
+			int child = first;
+			double cKey = fKeys[fHeap[first]];
+			for (int i = first + 1; i < end; i++) {
+				double candidate = fKeys[fHeap[i]];
+				if (candidate < cKey) {
+					child = i;
+					cKey = candidate;
+				}
+			}
+
+			if (key <= cKey) {
+				break;
+			}
+
+			place(fHeap[child], hole);
+			hole = child;
+		}
+		place(element, hole);
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void place(int element, int position) {
+		fHeap[position] = element;
+		fPosition[element] = position;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void checkContains(int element) {
+		if (!contains(element)) {
+			throw new NoSuchElementException("Element " + element
+					+ " is not in the heap.");
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package it.unitn.disi.utils.collections;
+
+import java.util.Arrays;
+
+/**
+ * Bloom filter over primitive <code>long</code> keys, backed by a
+ * <code>long[]</code> bitset. The k bit positions for a key are derived by
+ * double hashing from the two halves of a single 64-bit mix of the key, so
+ * adds and lookups neither box nor allocate.<BR>
+ * <BR>
+ * Filters can be {@link #reset(int, int)} to a new geometry without
+ * reallocating, as long as the bitset is large enough, which allows instances
+ * to be pooled and reused.
+ *
+ * @author giuliano
+ */
+public class LongBloomFilter {
+
+	private static final double LN_OF_TWO_SQUARED = Math.pow(Math.log(2), 2.0);
+
+	private long[] fBits;
+
+	private int fSize;
+
+	private int fWords;
+
+	private int fK;
+
+	private int fExpectedElements;
+
+	/**
+	 * @param bitSetSize
+	 *            the number of bits in the filter.
+	 * @param expectedElements
+	 *            the maximum number of elements the filter is expected to
+	 *            contain.
+	 */
+	public LongBloomFilter(int bitSetSize, int expectedElements) {
+		fBits = new long[words(bitSetSize)];
+		reset(bitSetSize, expectedElements);
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Empties the filter and changes its geometry, reusing the current bitset
+	 * if it is large enough.
+	 */
+	public void reset(int bitSetSize, int expectedElements) {
+		fSize = Math.max(1, bitSetSize);
+		fWords = words(fSize);
+		fExpectedElements = Math.max(1, expectedElements);
+		fK = Math.max(1, (int) Math.round(((double) fSize / fExpectedElements)
+				* Math.log(2.0)));
+		if (fBits.length < fWords) {
+			fBits = new long[fWords];
+		} else {
+			clear();
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	public void add(long key) {
+		long hash = mix(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < fK; i++) {
+			int bit = index(h1 + i * h2);
+			fBits[bit >>> 6] |= 1L << bit;
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	public boolean contains(long key) {
+		long hash = mix(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < fK; i++) {
+			int bit = index(h1 + i * h2);
+			if ((fBits[bit >>> 6] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Adds, in place, all elements of another filter to this one. Both
+	 * filters must have the same geometry.
+	 */
+	public void merge(LongBloomFilter other) {
+		checkCompatible(other);
+		long[] bits = fBits;
+		long[] otherBits = other.fBits;
+		for (int i = 0; i < fWords; i++) {
+			bits[i] |= otherBits[i];
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Turns this filter into a copy of another filter, reusing the current
+	 * bitset if it is large enough.
+	 */
+	public void copyFrom(LongBloomFilter other) {
+		fSize = other.fSize;
+		fWords = other.fWords;
+		fK = other.fK;
+		fExpectedElements = other.fExpectedElements;
+		if (fBits.length < fWords) {
+			fBits = new long[fWords];
+		} else {
+			Arrays.fill(fBits, fWords, fBits.length, 0L);
+		}
+		System.arraycopy(other.fBits, 0, fBits, 0, fWords);
+	}
+
+	// -------------------------------------------------------------------------
+
+	public void clear() {
+		Arrays.fill(fBits, 0, fWords, 0L);
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the number of bits in the filter.
+	 */
+	public int size() {
+		return fSize;
+	}
+
+	// -------------------------------------------------------------------------
+
+	public int getExpectedNumberOfElements() {
+		return fExpectedElements;
+	}
+
+	// -------------------------------------------------------------------------
+
+	public int getK() {
+		return fK;
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Same as {@link com.skjegstad.utils.BloomFilter#requiredBitSetSizeFor}.
+	 */
+	public static long requiredBitSetSizeFor(double p, int n) {
+		return (long) -Math.ceil((n * Math.log(p)) / (LN_OF_TWO_SQUARED));
+	}
+
+	// -------------------------------------------------------------------------
+
+	private int index(int hash) {
+		// Clears the sign bit rather than taking abs, which can overflow.
+		return (hash & Integer.MAX_VALUE) % fSize;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void checkCompatible(LongBloomFilter other) {
+		if (other.fSize != fSize || other.fK != fK) {
+			throw new IllegalArgumentException(
+					"Cannot merge filters of different geometries.");
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	private static int words(int bits) {
+		return (Math.max(1, bits) + Long.SIZE - 1) >>> 6;
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * MurmurHash3's 64-bit finalizer.
+	 */
+	private static long mix(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return key;
+	}
+}
@@ -0,0 +1,137 @@
+package it.unitn.disi.utils.collections;
+
+import java.util.Arrays;
+
+/**
+ * Map from primitive <code>long</code> keys to <code>int</code> values, backed
+ * by an open-addressing table with linear probing. Keys and values are kept in
+ * primitive arrays, so lookups and insertions neither box nor allocate, except
+ * when the table grows.<BR>
+ * <BR>
+ * Entries cannot be removed. Lookups for missing keys return a caller-supplied
+ * value instead of <code>null</code>.
+ *
+ * @author giuliano
+ */
+public class LongIntHashMap {
+
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private long[] fKeys;
+
+	private int[] fValues;
+
+	private boolean[] fUsed;
+
+	private int fMask;
+
+	private int fSize;
+
+	private int fThreshold;
+
+	public LongIntHashMap() {
+		this(16);
+	}
+
+	/**
+	 * @param expected
+	 *            the number of entries the map is expected to hold. The map
+	 *            grows past it if needed.
+	 */
+	public LongIntHashMap(int expected) {
+		allocate(capacityFor(expected));
+	}
+
+	/**
+	 * @return the value mapped to a key, or <code>missing</code> if there is
+	 *         none.
+	 */
+	public int get(long key, int missing) {
+		int slot = slot(key);
+		return fUsed[slot] ? fValues[slot] : missing;
+	}
+
+	public boolean containsKey(long key) {
+		return fUsed[slot(key)];
+	}
+
+	/**
+	 * Maps a key to a value, replacing the previous value if there was one.
+	 */
+	public void put(long key, int value) {
+		int slot = slot(key);
+		fValues[slot] = value;
+		if (fUsed[slot]) {
+			return;
+		}
+
+		fKeys[slot] = key;
+		fUsed[slot] = true;
+		if (++fSize > fThreshold) {
+			grow();
+		}
+	}
+
+	public int size() {
+		return fSize;
+	}
+
+	public void clear() {
+		Arrays.fill(fUsed, false);
+		fSize = 0;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the slot holding a key, or the empty slot where it would go.
+	 */
+	private int slot(long key) {
+		int slot = (int) mix(key) & fMask;
+		while (fUsed[slot] && fKeys[slot] != key) {
+			slot = (slot + 1) & fMask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		long[] keys = fKeys;
+		int[] values = fValues;
+		boolean[] used = fUsed;
+
+		allocate(keys.length * 2);
+		for (int i = 0; i < keys.length; i++) {
+			if (used[i]) {
+				int slot = slot(keys[i]);
+				fKeys[slot] = keys[i];
+				fValues[slot] = values[i];
+				fUsed[slot] = true;
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		fKeys = new long[capacity];
+		fValues = new int[capacity];
+		fUsed = new boolean[capacity];
+		fMask = capacity - 1;
+		fThreshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private static int capacityFor(int expected) {
+		int capacity = 16;
+		while (capacity * LOAD_FACTOR < expected) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static long mix(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return key;
+	}
+}
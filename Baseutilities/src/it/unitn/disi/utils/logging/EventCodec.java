@@ -6,6 +6,9 @@ import it.unitn.disi.utils.streams.SafeBufferReader;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -15,7 +18,13 @@ import java.util.NoSuchElementException;
 
 /**
  * Helper class for type-checked, safe structured encoding and decoding of
- * binary events.
+ * binary events.<BR>
+ * <BR>
+ * Events can be handled either as sequences of {@link Number}s, with
+ * {@link #encodeEvent(byte[], int, Number...)} and {@link DecodingStream}, or
+ * one primitive at a time, with {@link RecordEncoder} and {@link RecordReader}.
+ * The latter do not allocate per event, and should be preferred for large
+ * logs. They require byte event types.
  * 
  * @author giuliano
  */
@@ -38,10 +47,39 @@ public class EventCodec {
 		fBuffer = new byte[max];
 	}
 
+	// ----------------------------------------------------------------------
+	// Component tags for the unboxed API.
+	// ----------------------------------------------------------------------
+
+	private static final byte BYTE = 1;
+
+	private static final byte INT = 2;
+
+	private static final byte LONG = 3;
+
+	private static final byte DOUBLE = 4;
+
+	private static final String[] TAG_NAMES = { null, "byte", "int", "long",
+			"double" };
+
+	// ----------------------------------------------------------------------
+
 	private final Map<Number, IBinaryRecordType> fTypes = new HashMap<Number, IBinaryRecordType>();
 
 	private final IPrimitiveCodec fTypeDecoder;
 
+	/**
+	 * Record types, component tags and payload sizes, indexed by unsigned
+	 * event type.
+	 */
+	private final IBinaryRecordType[] fRecordTypes = new IBinaryRecordType[256];
+
+	private final byte[][] fLayouts = new byte[256][];
+
+	private final int[] fSizes = new int[256];
+
+	private int fLargest;
+
 	public EventCodec(Class<? extends Number> typeClass, IBinaryRecordType[] types) {
 		fTypeDecoder = lookupDecoder(typeClass);
 		for (IBinaryRecordType type : types) {
@@ -53,6 +91,16 @@ public class EventCodec {
 		return new DecodingStream(is);
 	}
 
+	public RecordReader recordReader(InputStream is) {
+		checkByteTypes();
+		return new RecordReader(is);
+	}
+
+	public RecordEncoder recordEncoder() {
+		checkByteTypes();
+		return new RecordEncoder();
+	}
+
 	public int encodeEvent(byte[] buffer, int startingOffset, Number... event) {
 		IBinaryRecordType type = typeCheck(event);
 
@@ -120,6 +168,50 @@ public class EventCodec {
 			list.add(lookupDecoder(klass));
 		}
 		fTypes.put(type.magicNumber(), type);
+
+		List<Class<? extends Number>> components = type.components();
+		byte[] layout = new byte[components.size()];
+		int size = 0;
+		for (int i = 0; i < layout.length; i++) {
+			layout[i] = tag(components.get(i));
+			size += lookupDecoder(components.get(i)).size();
+		}
+
+		int index = type.magicNumber().byteValue() & 0xff;
+		fRecordTypes[index] = type;
+		fLayouts[index] = layout;
+		fSizes[index] = size;
+		fLargest = Math.max(fLargest, size + 1);
+	}
+
+	private byte tag(Class<? extends Number> klass) {
+		if (klass == Byte.class) {
+			return BYTE;
+		} else if (klass == Integer.class) {
+			return INT;
+		} else if (klass == Long.class) {
+			return LONG;
+		} else if (klass == Double.class) {
+			return DOUBLE;
+		}
+		throw new NoSuchElementException("Don't know how to decode "
+				+ klass.getName() + ".");
+	}
+
+	private void checkByteTypes() {
+		if (fTypeDecoder.getType() != Byte.class) {
+			throw new IllegalStateException(
+					"Unboxed encoding requires byte event types.");
+		}
+	}
+
+	private IBinaryRecordType checkedType(byte type) {
+		IBinaryRecordType recordType = fRecordTypes[type & 0xff];
+		if (recordType == null) {
+			throw new NoSuchElementException("Unknown event type (" + type
+					+ ").");
+		}
+		return recordType;
 	}
 
 	private IPrimitiveCodec lookupDecoder(Class<? extends Number> klass) {
@@ -249,6 +341,320 @@ public class EventCodec {
 			return buffer;
 		}
 	}
+
+	/**
+	 * Reads events one record at a time, and their components as primitives.
+	 * Calls to {@link #next()} position the reader at the start of the next
+	 * record, skipping whatever was not read of the current one. Components
+	 * must then be read in order, with the method matching their type:
+	 * 
+	 * <pre>
+	 * RecordReader reader = codec.recordReader(stream);
+	 * int type;
+	 * while ((type = reader.next()) != -1) {
+	 * 	switch (type) {
+	 * 	case 3:
+	 * 		long id = reader.readLong();
+	 * 		int seq = reader.readInt();
+	 * 		...
+	 * 	}
+	 * }
+	 * </pre>
+	 * 
+	 * Records are buffered whole, so that reading their components can neither
+	 * block nor fail on a truncated stream.
+	 */
+	public class RecordReader {
+
+		private static final int BUFFER_SIZE = 65536;
+
+		private final InputStream fStream;
+
+		private final ByteBuffer fBuffer;
+
+		private IBinaryRecordType fType;
+
+		private byte[] fLayout;
+
+		private int fComponent;
+
+		private int fEnd;
+
+		private RecordReader(InputStream stream) {
+			fStream = stream;
+			fBuffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, fLargest))
+					.order(ByteOrder.LITTLE_ENDIAN);
+			fBuffer.limit(0);
+		}
+
+		/**
+		 * Advances to the next record.
+		 * 
+		 * @return the (unsigned) type of the record, or -1 if the stream is
+		 *         over.
+		 * 
+		 * @throws NoSuchElementException
+		 *             if the type of the record is unknown.
+		 * @throws EOFException
+		 *             if the stream ends in the middle of a record.
+		 */
+		public int next() throws IOException {
+			fBuffer.position(fEnd);
+			if (!fill(1, false)) {
+				fType = null;
+				fLayout = null;
+				return -1;
+			}
+
+			byte type = fBuffer.get();
+			fType = checkedType(type);
+			fLayout = fLayouts[type & 0xff];
+			fComponent = 0;
+
+			int size = fSizes[type & 0xff];
+			fill(size, true);
+			fEnd = fBuffer.position() + size;
+			return type & 0xff;
+		}
+
+		/**
+		 * @return the type of the current record, or <code>null</code> if
+		 *         {@link #next()} has not been called, or returned -1.
+		 */
+		public IBinaryRecordType type() {
+			return fType;
+		}
+
+		public byte readByte() {
+			check(BYTE);
+			return fBuffer.get();
+		}
+
+		public int readInt() {
+			check(INT);
+			return fBuffer.getInt();
+		}
+
+		public long readLong() {
+			check(LONG);
+			return fBuffer.getLong();
+		}
+
+		public double readDouble() {
+			check(DOUBLE);
+			return fBuffer.getDouble();
+		}
+
+		private void check(byte tag) {
+			if (fLayout == null) {
+				throw new IllegalStateException("No current record.");
+			}
+
+			if (fComponent == fLayout.length) {
+				throw new NoSuchElementException("Record " + fType
+						+ " has no more components.");
+			}
+
+			if (fLayout[fComponent] != tag) {
+				throw new IllegalArgumentException("Component " + fComponent
+						+ " of " + fType + " is a(n) "
+						+ TAG_NAMES[fLayout[fComponent]] + ", not a(n) "
+						+ TAG_NAMES[tag] + ".");
+			}
+
+			fComponent++;
+		}
+
+		/**
+		 * Makes sure that a number of bytes are buffered past the current
+		 * position.
+		 * 
+		 * @return <code>false</code> if the stream ended before the first
+		 *         byte, and the bytes were not <code>required</code>.
+		 */
+		private boolean fill(int bytes, boolean required) throws IOException {
+			if (fBuffer.remaining() >= bytes) {
+				return true;
+			}
+
+			fBuffer.compact();
+			byte[] array = fBuffer.array();
+			while (fBuffer.position() < bytes) {
+				int read = fStream.read(array, fBuffer.position(),
+						fBuffer.capacity() - fBuffer.position());
+				if (read == -1) {
+					break;
+				}
+				fBuffer.position(fBuffer.position() + read);
+			}
+			fBuffer.flip();
+
+			if (fBuffer.remaining() >= bytes) {
+				return true;
+			}
+
+			if (fBuffer.remaining() == 0 && !required) {
+				return false;
+			}
+
+			throw new EOFException("Unexpected end-of-file while decoding.");
+		}
+	}
+
+	/**
+	 * Encodes events one primitive at a time into an internal buffer, which
+	 * is reused for every event:
+	 * 
+	 * <pre>
+	 * encoder.begin(type).put(id).put(seq).put(time).writeTo(stream);
+	 * </pre>
+	 * 
+	 * Components are type-checked as they are added.
+	 */
+	public class RecordEncoder {
+
+		private final ByteBuffer fBuffer;
+
+		private IBinaryRecordType fType;
+
+		private byte[] fLayout;
+
+		private int fComponent;
+
+		private RecordEncoder() {
+			fBuffer = ByteBuffer.allocate(fLargest).order(
+					ByteOrder.LITTLE_ENDIAN);
+		}
+
+		/**
+		 * Starts a new event, discarding the current one.
+		 */
+		public RecordEncoder begin(byte type) {
+			fType = checkedType(type);
+			fLayout = fLayouts[type & 0xff];
+			fComponent = 0;
+			fBuffer.clear();
+			fBuffer.put(type);
+			return this;
+		}
+
+		public RecordEncoder begin(IBinaryRecordType type) {
+			return begin(type.magicNumber().byteValue());
+		}
+
+		public RecordEncoder put(byte value) {
+			check(BYTE);
+			fBuffer.put(value);
+			return this;
+		}
+
+		public RecordEncoder put(int value) {
+			check(INT);
+			fBuffer.putInt(value);
+			return this;
+		}
+
+		public RecordEncoder put(long value) {
+			check(LONG);
+			fBuffer.putLong(value);
+			return this;
+		}
+
+		public RecordEncoder put(double value) {
+			check(DOUBLE);
+			fBuffer.putDouble(value);
+			return this;
+		}
+
+		/**
+		 * @return the length of the encoded event, which starts at the
+		 *         beginning of {@link #buffer()}.
+		 * 
+		 * @throws IllegalStateException
+		 *             if components are missing.
+		 */
+		public int length() {
+			checkComplete();
+			return fBuffer.position();
+		}
+
+		public byte[] buffer() {
+			return fBuffer.array();
+		}
+
+		/**
+		 * Writes the encoded event to a stream.
+		 * 
+		 * @return the number of bytes written.
+		 */
+		public int writeTo(OutputStream stream) throws IOException {
+			int length = length();
+			stream.write(fBuffer.array(), 0, length);
+			return length;
+		}
+
+		/**
+		 * @return a string representation of the encoded event, as given by
+		 *         {@link EventCodec#toString(Number...)}.
+		 */
+		@Override
+		public String toString() {
+			checkComplete();
+			ByteBuffer buffer = ByteBuffer.wrap(fBuffer.array(), 1,
+					fBuffer.position() - 1).order(ByteOrder.LITTLE_ENDIAN);
+			Number[] event = new Number[fLayout.length + 1];
+			event[0] = fType.magicNumber();
+			for (int i = 0; i < fLayout.length; i++) {
+				switch (fLayout[i]) {
+				case BYTE:
+					event[i + 1] = buffer.get();
+					break;
+				case INT:
+					event[i + 1] = buffer.getInt();
+					break;
+				case LONG:
+					event[i + 1] = buffer.getLong();
+					break;
+				case DOUBLE:
+					event[i + 1] = buffer.getDouble();
+					break;
+				}
+			}
+			return EventCodec.this.toString(event);
+		}
+
+		private void check(byte tag) {
+			if (fLayout == null) {
+				throw new IllegalStateException("No event started.");
+			}
+
+			if (fComponent == fLayout.length) {
+				throw new IllegalArgumentException("Expected "
+						+ (fLayout.length + 1) + " parameters, got more.");
+			}
+
+			if (fLayout[fComponent] != tag) {
+				throw new IllegalArgumentException("Component " + fComponent
+						+ " of " + fType + " is a(n) "
+						+ TAG_NAMES[fLayout[fComponent]] + ", not a(n) "
+						+ TAG_NAMES[tag] + ".");
+			}
+
+			fComponent++;
+		}
+
+		private void checkComplete() {
+			if (fLayout == null) {
+				throw new IllegalStateException("No event started.");
+			}
+
+			if (fComponent != fLayout.length) {
+				throw new IllegalStateException("Expected "
+						+ (fLayout.length + 1) + " parameters, got "
+						+ (fComponent + 1) + " instead.");
+			}
+		}
+	}
 }
 
 interface IPrimitiveCodec {
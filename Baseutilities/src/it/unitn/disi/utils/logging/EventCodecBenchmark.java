@@ -0,0 +1,200 @@
+package it.unitn.disi.utils.logging;
+
+import it.unitn.disi.utils.logging.EventCodec.DecodingStream;
+import it.unitn.disi.utils.logging.EventCodec.RecordEncoder;
+import it.unitn.disi.utils.logging.EventCodec.RecordReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Microbenchmark comparing the boxed ({@link EventCodec#encodeEvent},
+ * {@link DecodingStream}) and unboxed ({@link RecordEncoder},
+ * {@link RecordReader}) APIs of {@link EventCodec}, on a log with the shapes
+ * of the message logs: a mix of short and long records of longs and ints, and
+ * some with doubles.<BR>
+ * <BR>
+ * Prints millions of records per second, and a checksum of the decoded
+ * values which must be the same for both APIs.<BR>
+ * <BR>
+ * Usage: <code>EventCodecBenchmark [records] [rounds]</code>
+ *
+ * @author giuliano
+ */
+public class EventCodecBenchmark {
+
+	@SuppressWarnings("unchecked")
+	private static enum Events implements IBinaryRecordType {
+		SHORT((byte) 0, Long.class, Integer.class, Long.class),
+
+		LONG((byte) 1, Long.class, Long.class, Long.class, Integer.class,
+				Long.class),
+
+		MEASURE((byte) 2, Long.class, Double.class);
+
+		private final byte fType;
+
+		private final List<Class<? extends Number>> fComponents;
+
+		private Events(byte type, Class<? extends Number>... components) {
+			fType = type;
+			fComponents = CodecUtils.mkROCollection(components);
+		}
+
+		public Byte magicNumber() {
+			return fType;
+		}
+
+		public List<Class<? extends Number>> components() {
+			return fComponents;
+		}
+
+		public String formattingString() {
+			return null;
+		}
+
+		public RecordTypeSet<? extends Enum<? extends IBinaryRecordType>> eventSet() {
+			return null;
+		}
+	}
+
+	private static final EventCodec fCodec = new EventCodec(Byte.class,
+			Events.values());
+
+	public static void main(String[] args) throws IOException {
+		int records = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		System.out.println("api operation round mrecords_s checksum");
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			byte[] boxed = encodeBoxed(records);
+			print("boxed", "encode", round, records, start, boxed.length);
+
+			start = System.nanoTime();
+			byte[] unboxed = encodeUnboxed(records);
+			print("unboxed", "encode", round, records, start, unboxed.length);
+
+			start = System.nanoTime();
+			long checksum = decodeBoxed(boxed);
+			print("boxed", "decode", round, records, start, checksum);
+
+			start = System.nanoTime();
+			checksum = decodeUnboxed(unboxed);
+			print("unboxed", "decode", round, records, start, checksum);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static byte[] encodeBoxed(int records) {
+		Random random = new Random(42);
+		ByteArrayOutputStream output = new ByteArrayOutputStream(records * 30);
+		byte[] buffer = new byte[64];
+		for (int i = 0; i < records; i++) {
+			int length;
+			switch (random.nextInt(3)) {
+			case 0:
+				length = fCodec.encodeEvent(buffer, 0, Events.SHORT
+						.magicNumber(), (long) random.nextInt(100000), i,
+						(long) i);
+				break;
+			case 1:
+				length = fCodec.encodeEvent(buffer, 0, Events.LONG
+						.magicNumber(), (long) random.nextInt(100000),
+						(long) random.nextInt(100000), (long) random
+								.nextInt(100000), i, (long) i);
+				break;
+			default:
+				length = fCodec.encodeEvent(buffer, 0, Events.MEASURE
+						.magicNumber(), (long) i, random.nextDouble());
+				break;
+			}
+			output.write(buffer, 0, length);
+		}
+		return output.toByteArray();
+	}
+
+	private static byte[] encodeUnboxed(int records) throws IOException {
+		Random random = new Random(42);
+		ByteArrayOutputStream output = new ByteArrayOutputStream(records * 30);
+		RecordEncoder encoder = fCodec.recordEncoder();
+		for (int i = 0; i < records; i++) {
+			switch (random.nextInt(3)) {
+			case 0:
+				encoder.begin(Events.SHORT).put(
+						(long) random.nextInt(100000)).put(i).put((long) i);
+				break;
+			case 1:
+				encoder.begin(Events.LONG).put(
+						(long) random.nextInt(100000)).put(
+						(long) random.nextInt(100000)).put(
+						(long) random.nextInt(100000)).put(i).put((long) i);
+				break;
+			default:
+				encoder.begin(Events.MEASURE).put((long) i).put(
+						random.nextDouble());
+				break;
+			}
+			encoder.writeTo(output);
+		}
+		return output.toByteArray();
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static long decodeBoxed(byte[] log) {
+		DecodingStream stream = fCodec.decodingStream(new ByteArrayInputStream(
+				log));
+		long checksum = 0;
+		while (stream.hasNext()) {
+			Number value = stream.next();
+			if (value instanceof Double) {
+				checksum += Double.doubleToLongBits(value.doubleValue());
+			} else {
+				checksum += value.longValue();
+			}
+		}
+		return checksum;
+	}
+
+	private static long decodeUnboxed(byte[] log) throws IOException {
+		RecordReader reader = fCodec.recordReader(new ByteArrayInputStream(log));
+		long checksum = 0;
+		int type;
+		while ((type = reader.next()) != -1) {
+			checksum += type;
+			switch (type) {
+			case 0:
+				checksum += reader.readLong();
+				checksum += reader.readInt();
+				checksum += reader.readLong();
+				break;
+			case 1:
+				checksum += reader.readLong();
+				checksum += reader.readLong();
+				checksum += reader.readLong();
+				checksum += reader.readInt();
+				checksum += reader.readLong();
+				break;
+			case 2:
+				checksum += reader.readLong();
+				checksum += Double.doubleToLongBits(reader.readDouble());
+				break;
+			}
+		}
+		return checksum;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static void print(String api, String operation, int round,
+			int records, long start, long checksum) {
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(api + " " + operation + " " + round + " "
+				+ (records / seconds / 1e6) + " " + checksum);
+	}
+}
@@ -0,0 +1,234 @@
+package it.unitn.disi.utils.tabular;
+
+import it.unitn.disi.utils.MiscUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a large, uncompressed text table into chunks of about the same size,
+ * cut at line boundaries, so that they can be read and aggregated by several
+ * threads at once. Each chunk is read with its own {@link TableReader}, which
+ * shares the header of the table.<BR>
+ * <BR>
+ * Lines are assumed to end with '\n' (or "\r\n"), and the file to be in an
+ * encoding in which that byte cannot be part of another character, such as
+ * ASCII or UTF-8.
+ * 
+ * @author giuliano
+ */
+public class ChunkedTableReader {
+
+	private static final int SCAN_BUFFER = 8192;
+
+	private final File fFile;
+
+	private final List<String> fHeader;
+
+	/**
+	 * Chunk i spans bytes [fBoundaries[i], fBoundaries[i + 1]).
+	 */
+	private final long[] fBoundaries;
+
+	public ChunkedTableReader(File file, int chunks) throws IOException {
+		fFile = file;
+
+		TableReader reader = new TableReader(new FileInputStream(file));
+		boolean headerLine;
+		try {
+			fHeader = reader.columns();
+			headerLine = reader.hasHeaderLine();
+		} finally {
+			reader.close();
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			fBoundaries = boundaries(raf, headerLine, Math.max(1, chunks));
+		} finally {
+			raf.close();
+		}
+	}
+
+	public List<String> columns() {
+		return fHeader;
+	}
+
+	public int chunks() {
+		return fBoundaries.length - 1;
+	}
+
+	/**
+	 * @return a {@link TableReader} for the rows in a chunk.
+	 */
+	public TableReader chunk(int chunk) throws IOException {
+		FileInputStream stream = new FileInputStream(fFile);
+		stream.getChannel().position(fBoundaries[chunk]);
+		return new TableReader(new RangeInputStream(stream,
+				fBoundaries[chunk + 1] - fBoundaries[chunk]), fHeader);
+	}
+
+	/**
+	 * Runs a processor over every chunk, on a given number of threads.
+	 * 
+	 * @return the results of the processor, in chunk order.
+	 * 
+	 * @throws Exception
+	 *             the first exception thrown by the processor, if any.
+	 */
+	public <T> List<T> process(final IChunkProcessor<T> processor, int threads)
+			throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+				Math.min(threads, chunks())));
+		try {
+			ArrayList<Future<T>> futures = new ArrayList<Future<T>>();
+			for (int i = 0; i < chunks(); i++) {
+				final int chunk = i;
+				futures.add(executor.submit(new Callable<T>() {
+					@Override
+					public T call() throws Exception {
+						TableReader reader = chunk(chunk);
+						try {
+							return processor.process(reader);
+						} finally {
+							reader.close();
+						}
+					}
+				}));
+			}
+
+			ArrayList<T> results = new ArrayList<T>();
+			for (Future<T> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException ex) {
+					Throwable cause = ex.getCause();
+					if (cause instanceof Exception) {
+						throw (Exception) cause;
+					}
+					throw MiscUtils.nestRuntimeException(ex);
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private long[] boundaries(RandomAccessFile raf, boolean headerLine,
+			int chunks) throws IOException {
+		long length = raf.length();
+		long start = headerLine ? lineStart(raf, 0) : 0;
+
+		long[] boundaries = new long[chunks + 1];
+		boundaries[0] = start;
+		boundaries[chunks] = length;
+		for (int i = 1; i < chunks; i++) {
+			long cut = start + (length - start) * i / chunks;
+			boundaries[i] = Math.max(boundaries[i - 1],
+					lineStart(raf, Math.max(start, cut)));
+		}
+		return boundaries;
+	}
+
+	/**
+	 * @return the offset of the first line starting after a given offset, or
+	 *         the end of the file if there is none.
+	 */
+	private long lineStart(RandomAccessFile raf, long offset)
+			throws IOException {
+		byte[] buffer = new byte[SCAN_BUFFER];
+		raf.seek(offset);
+		long position = offset;
+		int read;
+		while ((read = raf.read(buffer)) > 0) {
+			for (int i = 0; i < read; i++) {
+				if (buffer[i] == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return position;
+	}
+
+	// -------------------------------------------------------------------------
+
+	public static interface IChunkProcessor<T> {
+		/**
+		 * Processes the rows of a chunk. Called concurrently for different
+		 * chunks.
+		 * 
+		 * @param chunk
+		 *            a reader over the rows in the chunk.
+		 * 
+		 * @return the result for the chunk.
+		 */
+		public T process(TableReader chunk) throws Exception;
+	}
+
+	/**
+	 * Reads at most a given number of bytes from a stream.
+	 */
+	private static class RangeInputStream extends FilterInputStream {
+
+		private long fRemaining;
+
+		public RangeInputStream(InputStream in, long length) {
+			super(in);
+			fRemaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (fRemaining <= 0) {
+				return -1;
+			}
+			int read = super.read();
+			if (read != -1) {
+				fRemaining--;
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (fRemaining <= 0) {
+				return -1;
+			}
+			int read = super.read(b, off, (int) Math.min(len, fRemaining));
+			if (read != -1) {
+				fRemaining -= read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(Math.min(n, fRemaining));
+			fRemaining -= skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(super.available(), fRemaining);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
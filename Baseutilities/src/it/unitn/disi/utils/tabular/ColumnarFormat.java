@@ -0,0 +1,105 @@
+package it.unitn.disi.utils.tabular;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Constants and encoding helpers shared by {@link ColumnarTableWriter} and
+ * {@link ColumnarTableReader}.<BR>
+ * <BR>
+ * A columnar table file starts with {@link #MAGIC}, a version byte, the
+ * number of columns and their names. It is followed by blocks of rows, each
+ * of which has a row count, the length of its column data before and after
+ * compression, and the deflated column data. Within a block, each column
+ * stores a type byte, an encoding byte and its values, in the encoding that
+ * fits best:
+ * <ul>
+ * <li>integral columns are stored as zig-zag varint deltas, or as runs of
+ * equal values when there are few of them (e.g. ids);</li>
+ * <li>floating point columns are stored as raw bits;</li>
+ * <li>booleans are bit-packed;</li>
+ * <li>strings are stored as runs of equal values.</li>
+ * </ul>
+ * Columns whose values were set with different types within a block are
+ * stored as strings.<BR>
+ * <BR>
+ * A file may hold several sections, each made of a header and its blocks, as
+ * when tables are appended to it. Since row counts are always smaller than
+ * {@link #MAGIC}, a header can be told apart from the row count of a block.
+ * 
+ * @author giuliano
+ */
+class ColumnarFormat {
+
+	/**
+	 * "TCOL".
+	 */
+	static final int MAGIC = 0x54434F4C;
+
+	static final byte VERSION = 1;
+
+	static final byte T_INT = 0;
+	static final byte T_LONG = 1;
+	static final byte T_FLOAT = 2;
+	static final byte T_DOUBLE = 3;
+	static final byte T_BOOLEAN = 4;
+	static final byte T_STRING = 5;
+
+	static final byte E_PLAIN = 0;
+	static final byte E_DELTA = 1;
+	static final byte E_RLE = 2;
+
+	static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		int shift = 0;
+		while (true) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+			shift += 7;
+			if (shift > 63) {
+				throw new IOException("Malformed varint.");
+			}
+		}
+	}
+
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * @return the textual form of a value, as {@link TableWriter} would have
+	 *         printed it.
+	 */
+	static String format(byte type, long bits) {
+		switch (type) {
+		case T_INT:
+			return Integer.toString((int) bits);
+		case T_LONG:
+			return Long.toString(bits);
+		case T_FLOAT:
+			return Float.toString(Float.intBitsToFloat((int) bits));
+		case T_DOUBLE:
+			return Double.toString(Double.longBitsToDouble(bits));
+		case T_BOOLEAN:
+			return Boolean.toString(bits != 0);
+		default:
+			throw new IllegalArgumentException("Not a primitive type: " + type);
+		}
+	}
+}
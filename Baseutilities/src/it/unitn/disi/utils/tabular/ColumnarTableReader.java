@@ -0,0 +1,517 @@
+package it.unitn.disi.utils.tabular;
+
+import static it.unitn.disi.utils.tabular.ColumnarFormat.*;
+
+import it.unitn.disi.utils.exception.ParseException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * {@link TableReader} for files written by {@link ColumnarTableWriter}. Blocks
+ * are decoded one at a time, and values are turned into strings only when
+ * they are asked for, in the same form {@link TableWriter} would have
+ * written them in.<BR>
+ * <BR>
+ * Numbers are read back from their binary form by the primitive accessors.
+ * Files holding several sections with the same columns read as a single
+ * table. When a section with different columns is reached, {@link #next()}
+ * throws a {@link ParseException}, as text readers do when the width of the
+ * table changes, and {@link #fromCurrentRow()} returns a reader for the new
+ * section.
+ * 
+ * @author giuliano
+ */
+public class ColumnarTableReader extends TableReader {
+
+	private final InputStream fSource;
+
+	private DataInputStream fStream;
+
+	private final Inflater fInflater;
+
+	private byte[] fCompressed = new byte[0];
+
+	private byte[] fRaw = new byte[0];
+
+	private final byte[] fTypes;
+
+	private final long[][] fBits;
+
+	private final String[][] fStrings;
+
+	/**
+	 * Rows in the current block, and position of the current row in it.
+	 */
+	private int fBlockRows;
+
+	private int fBlockRow = -1;
+
+	/**
+	 * Rows in the next block, or zero if there are no more blocks in this
+	 * section.
+	 */
+	private int fNextRows;
+
+	/**
+	 * Columns of the next section, if it has different columns than this
+	 * one.
+	 */
+	private ArrayList<String> fNextHeader;
+
+	private int fRow;
+
+	public ColumnarTableReader(InputStream stream) throws IOException {
+		this(stream, new DataInputStream(new BufferedInputStream(stream)));
+	}
+
+	private ColumnarTableReader(InputStream source, DataInputStream stream)
+			throws IOException {
+		this(source, stream, new Inflater(), readHeader(stream));
+	}
+
+	private ColumnarTableReader(InputStream source, DataInputStream stream,
+			Inflater inflater, List<String> header) throws IOException {
+		super(header);
+		fSource = source;
+		fStream = stream;
+		fInflater = inflater;
+		int columns = header.size();
+		fTypes = new byte[columns];
+		fBits = new long[columns][0];
+		fStrings = new String[columns][];
+		fNextRows = readRowCount();
+	}
+
+	/**
+	 * Takes over the stream and the current block of another reader.
+	 */
+	private ColumnarTableReader(ColumnarTableReader other) {
+		super(other.columns());
+		fSource = other.fSource;
+		fStream = other.fStream;
+		fInflater = other.fInflater;
+		fCompressed = other.fCompressed;
+		fRaw = other.fRaw;
+		fTypes = other.fTypes;
+		fBits = other.fBits;
+		fStrings = other.fStrings;
+		fBlockRows = other.fBlockRows;
+		fBlockRow = other.fBlockRow;
+		fNextRows = other.fNextRows;
+		fNextHeader = other.fNextHeader;
+	}
+
+	private static ArrayList<String> readHeader(DataInputStream stream)
+			throws IOException {
+		if (stream.readInt() != MAGIC) {
+			throw new ParseException("Not a columnar table.");
+		}
+		return readSection(stream);
+	}
+
+	/**
+	 * Reads the rest of a header, after its magic number.
+	 */
+	private static ArrayList<String> readSection(DataInputStream stream)
+			throws IOException {
+		byte version = stream.readByte();
+		if (version != VERSION) {
+			throw new ParseException("Unsupported columnar table version "
+					+ version + ".");
+		}
+		int columns = stream.readInt();
+		ArrayList<String> header = new ArrayList<String>();
+		for (int i = 0; i < columns; i++) {
+			header.add(stream.readUTF());
+		}
+		return header;
+	}
+
+	/**
+	 * Scans a columnar table file, which may end in a header or block torn by
+	 * a writer that crashed, and returns the length of its longest prefix
+	 * made of whole headers and blocks. Blocks are inflated to check that
+	 * they are whole, but not decoded. Once truncated to that length, the
+	 * file can be appended to and read to the end.
+	 */
+	public static long completeLength(File file) throws IOException {
+		DataInputStream stream = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		Inflater inflater = new Inflater();
+		try {
+			long length = 0;
+			long available = file.length();
+			boolean header = false;
+			byte[] compressed = new byte[0];
+			byte[] raw = new byte[0];
+			while (available >= 4) {
+				int rows = stream.readInt();
+				long size;
+				if (rows == MAGIC) {
+					size = headerLength(stream, available);
+					header = true;
+				} else if (header && rows > 0 && available >= 12) {
+					// Blocks are only valid after a header.
+					int rawLength = stream.readInt();
+					int compressedLength = stream.readInt();
+					size = 12 + (long) compressedLength;
+					if (rawLength <= 0 || compressedLength < 0
+							|| size > available) {
+						break;
+					}
+					if (compressed.length < compressedLength) {
+						compressed = new byte[compressedLength];
+					}
+					if (raw.length < rawLength) {
+						raw = new byte[rawLength];
+					}
+					stream.readFully(compressed, 0, compressedLength);
+					inflater.reset();
+					inflater.setInput(compressed, 0, compressedLength);
+					try {
+						if (inflater.inflate(raw, 0, rawLength) != rawLength
+								|| !inflater.finished()) {
+							break;
+						}
+					} catch (DataFormatException ex) {
+						break;
+					}
+				} else {
+					break;
+				}
+
+				if (size < 0) {
+					break;
+				}
+				length += size;
+				available -= size;
+			}
+			return length;
+		} finally {
+			inflater.end();
+			stream.close();
+		}
+	}
+
+	/**
+	 * Skips the rest of a header, after its magic number.
+	 * 
+	 * @return the length of the header, or -1 if it is longer than
+	 *         <code>available</code> bytes or is not a valid header.
+	 */
+	private static long headerLength(DataInputStream stream, long available)
+			throws IOException {
+		// Magic number, version and column count.
+		long size = 9;
+		if (available < size || stream.readByte() != VERSION) {
+			return -1;
+		}
+		int columns = stream.readInt();
+		if (columns < 0) {
+			return -1;
+		}
+		for (int i = 0; i < columns; i++) {
+			if (available < size + 2) {
+				return -1;
+			}
+			int utf = stream.readUnsignedShort();
+			size += 2 + utf;
+			if (available < size) {
+				return -1;
+			}
+			stream.skipBytes(utf);
+		}
+		return size;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return fBlockRow + 1 < fBlockRows || fNextRows != 0
+				|| fNextHeader != null;
+	}
+
+	@Override
+	public void next() throws IOException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		if (fBlockRow + 1 == fBlockRows) {
+			if (fNextRows == 0) {
+				throw new ParseException("Table columns changed.");
+			}
+			readBlock(fNextRows);
+			fNextRows = readRowCount();
+		} else {
+			fBlockRow++;
+		}
+		fRow++;
+	}
+
+	@Override
+	public String get(int column) {
+		if (fBlockRow < 0) {
+			return null;
+		}
+		byte type = fTypes[column];
+		return type == T_STRING ? fStrings[column][fBlockRow] : format(type,
+				fBits[column][fBlockRow]);
+	}
+
+	@Override
+	public int getInt(int column) {
+		switch (fTypes[column]) {
+		case T_INT:
+			return (int) fBits[column][fBlockRow];
+		case T_LONG:
+			long value = fBits[column][fBlockRow];
+			if (value == (int) value) {
+				return (int) value;
+			}
+		}
+		return Integer.parseInt(get(column));
+	}
+
+	@Override
+	public long getLong(int column) {
+		switch (fTypes[column]) {
+		case T_INT:
+		case T_LONG:
+			return fBits[column][fBlockRow];
+		}
+		return Long.parseLong(get(column));
+	}
+
+	@Override
+	public double getDouble(int column) {
+		switch (fTypes[column]) {
+		case T_INT:
+		case T_LONG:
+			return fBits[column][fBlockRow];
+		case T_DOUBLE:
+			return Double.longBitsToDouble(fBits[column][fBlockRow]);
+		}
+		// Floats read back as their decimal form, as in text tables.
+		return Double.parseDouble(get(column));
+	}
+
+	@Override
+	public String currentLine() {
+		StringBuffer line = new StringBuffer();
+		for (int i = 0; i < fTypes.length; i++) {
+			if (i != 0) {
+				line.append(FS);
+			}
+			line.append(get(i));
+		}
+		return line.toString();
+	}
+
+	@Override
+	public int currentRow() {
+		return fRow;
+	}
+
+	@Override
+	public void close() throws IOException {
+		fInflater.end();
+		fStream.close();
+	}
+
+	/**
+	 * @return a reader which continues from the current position of this
+	 *         one, which should not be used anymore. If {@link #next()} has
+	 *         failed because a section with different columns starts, the
+	 *         new reader reads that section. Otherwise, it has the same
+	 *         columns, and the current row is skipped, as text readers would
+	 *         take it to be a header.
+	 */
+	@Override
+	public TableReader fromCurrentRow() {
+		if (fBlockRow + 1 == fBlockRows && fNextRows == 0
+				&& fNextHeader != null) {
+			try {
+				return new ColumnarTableReader(fSource, fStream, fInflater,
+						fNextHeader);
+			} catch (IOException ex) {
+				throw new RuntimeException(ex);
+			}
+		}
+		return new ColumnarTableReader(this);
+	}
+
+	/**
+	 * Tells the reader that its underlying stream has been repositioned, at
+	 * the start of a block or of a section with the same columns. Block
+	 * boundaries can be found by recording the size of the output of a
+	 * {@link ColumnarTableWriter} after each call to
+	 * {@link ColumnarTableWriter#endBlock()}.
+	 */
+	@Override
+	public void streamRepositioned() throws IOException {
+		fStream = new DataInputStream(new BufferedInputStream(fSource));
+		fBlockRows = 0;
+		fBlockRow = -1;
+		fNextHeader = null;
+		fNextRows = readRowCount();
+	}
+
+	// -------------------------------------------------------------------------
+	// Decoding.
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the number of rows in the block starting at the current stream
+	 *         position, or zero if there are no more blocks in this section.
+	 *         Headers of sections with the same columns are skipped.
+	 */
+	private int readRowCount() throws IOException {
+		while (true) {
+			int rows;
+			try {
+				rows = fStream.readInt();
+			} catch (EOFException ex) {
+				return 0;
+			}
+
+			if (rows != MAGIC) {
+				return rows;
+			}
+
+			ArrayList<String> header = readSection(fStream);
+			if (!header.equals(columns())) {
+				fNextHeader = header;
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Decodes the block starting after its row count, and makes its first row
+	 * the current one.
+	 */
+	private void readBlock(int rows) throws IOException {
+		int rawLength = fStream.readInt();
+		int compressedLength = fStream.readInt();
+		if (fCompressed.length < compressedLength) {
+			fCompressed = new byte[compressedLength];
+		}
+		if (fRaw.length < rawLength) {
+			fRaw = new byte[rawLength];
+		}
+		fStream.readFully(fCompressed, 0, compressedLength);
+
+		fInflater.reset();
+		fInflater.setInput(fCompressed, 0, compressedLength);
+		try {
+			if (fInflater.inflate(fRaw, 0, rawLength) != rawLength) {
+				throw new ParseException("Truncated block.");
+			}
+		} catch (DataFormatException ex) {
+			throw new ParseException("Corrupt block: " + ex.getMessage());
+		}
+
+		DataInputStream raw = new DataInputStream(new ByteArrayInputStream(
+				fRaw, 0, rawLength));
+		for (int i = 0; i < fTypes.length; i++) {
+			readColumn(raw, i, rows);
+		}
+
+		fBlockRows = rows;
+		fBlockRow = 0;
+	}
+
+	private void readColumn(DataInputStream raw, int column, int rows)
+			throws IOException {
+		byte type = raw.readByte();
+		byte encoding = raw.readByte();
+		fTypes[column] = type;
+
+		// Strings are always run-length encoded.
+		if (type == T_STRING) {
+			readStrings(raw, column, rows);
+			return;
+		}
+
+		long[] values = fBits[column];
+		if (values.length < rows) {
+			values = fBits[column] = new long[rows];
+		}
+
+		switch (encoding) {
+		case E_RLE:
+			long runs = readVarLong(raw);
+			long value = 0;
+			for (int i = 0, j = 0; i < runs; i++) {
+				value += unzigzag(readVarLong(raw));
+				long length = readVarLong(raw);
+				for (int k = 0; k < length; k++) {
+					values[j++] = value;
+				}
+			}
+			break;
+		case E_DELTA:
+			long previous = 0;
+			for (int i = 0; i < rows; i++) {
+				previous = values[i] = previous + unzigzag(readVarLong(raw));
+			}
+			break;
+		default:
+			readPlain(raw, type, values, rows);
+		}
+	}
+
+	private void readPlain(DataInputStream raw, byte type, long[] values,
+			int rows) throws IOException {
+		switch (type) {
+		case T_FLOAT:
+			for (int i = 0; i < rows; i++) {
+				values[i] = raw.readInt();
+			}
+			break;
+		case T_DOUBLE:
+			for (int i = 0; i < rows; i++) {
+				values[i] = raw.readLong();
+			}
+			break;
+		case T_BOOLEAN:
+			int packed = 0;
+			for (int i = 0; i < rows; i++) {
+				if ((i & 7) == 0) {
+					packed = raw.readUnsignedByte();
+				}
+				values[i] = (packed >> (i & 7)) & 1;
+			}
+			break;
+		default:
+			throw new ParseException("Unknown column type " + type + ".");
+		}
+	}
+
+	private void readStrings(DataInputStream raw, int column, int rows)
+			throws IOException {
+		String[] values = fStrings[column];
+		if (values == null || values.length < rows) {
+			values = fStrings[column] = new String[rows];
+		}
+		long runs = readVarLong(raw);
+		for (int i = 0, j = 0; i < runs; i++) {
+			String value = raw.readUTF();
+			long length = readVarLong(raw);
+			for (int k = 0; k < length; k++) {
+				values[j++] = value;
+			}
+		}
+	}
+}
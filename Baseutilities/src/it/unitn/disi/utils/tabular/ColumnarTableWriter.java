@@ -0,0 +1,391 @@
+package it.unitn.disi.utils.tabular;
+
+import static it.unitn.disi.utils.tabular.ColumnarFormat.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * {@link ITableWriter} which writes typed, block-compressed columnar binary
+ * files, to be read back with {@link ColumnarTableReader} (or
+ * {@link TableReader#open(java.io.InputStream)}). Values keep the type of the
+ * <code>set</code> method they were given with, so that numbers are never
+ * formatted unless they are read back as text, in which case they read the
+ * same as if they had been written by {@link TableWriter}.<BR>
+ * <BR>
+ * Rows are buffered and written in blocks of <code>blockRows</code> rows, as
+ * compression and run-length encoding work best on long blocks.
+ * {@link #flush()} only flushes the underlying stream; {@link #endBlock()}
+ * writes the rows buffered so far as a (shorter) block, and {@link #close()}
+ * must be called for the last rows to be written.<BR>
+ * <BR>
+ * Each writer starts its output with a header, so that tables can be
+ * appended to existing files: readers go through the resulting sections as a
+ * single table if they have the same columns. The file format is described
+ * in {@link ColumnarFormat}.
+ * 
+ * @author giuliano
+ */
+public class ColumnarTableWriter implements ITableWriter, Flushable, Closeable {
+
+	public static final int DEFAULT_BLOCK_ROWS = 8192;
+
+	private final DataOutputStream fOut;
+
+	private final String[] fFields;
+
+	private final int fBlockRows;
+
+	/**
+	 * Type of each value in the current block, column-major.
+	 */
+	private final byte[][] fTypes;
+
+	/**
+	 * Primitive values, as raw bits.
+	 */
+	private final long[][] fBits;
+
+	/**
+	 * String values.
+	 */
+	private final String[][] fStrings;
+
+	private final boolean[] fSet;
+
+	private int fRows;
+
+	private boolean fHeaderWritten;
+
+	private final ByteArrayOutputStream fRaw = new ByteArrayOutputStream();
+
+	private final DataOutputStream fRawOut = new DataOutputStream(fRaw);
+
+	private final Deflater fDeflater = new Deflater(Deflater.BEST_SPEED);
+
+	private byte[] fCompressed = new byte[65536];
+
+	public ColumnarTableWriter(OutputStream output, String... fields) {
+		this(output, DEFAULT_BLOCK_ROWS, fields);
+	}
+
+	public ColumnarTableWriter(OutputStream output, int blockRows,
+			String... fields) {
+		// Row counts must not be mistaken for the header of a new section.
+		if (blockRows <= 0 || blockRows >= MAGIC) {
+			throw new IllegalArgumentException("Bad block size " + blockRows
+					+ ".");
+		}
+		fOut = new DataOutputStream(output);
+		fFields = fields;
+		fBlockRows = blockRows;
+		fTypes = new byte[fields.length][blockRows];
+		fBits = new long[fields.length][blockRows];
+		fStrings = new String[fields.length][];
+		fSet = new boolean[fields.length];
+	}
+
+	@Override
+	public boolean set(String key, String value) {
+		int idx = indexOf(key);
+		if (idx == -1) {
+			return false;
+		}
+		if (fStrings[idx] == null) {
+			fStrings[idx] = new String[fBlockRows];
+		}
+		fStrings[idx][fRows] = value;
+		fTypes[idx][fRows] = T_STRING;
+		fSet[idx] = true;
+		return true;
+	}
+
+	@Override
+	public boolean set(String key, int value) {
+		return set(key, T_INT, value);
+	}
+
+	@Override
+	public boolean set(String key, long value) {
+		return set(key, T_LONG, value);
+	}
+
+	@Override
+	public boolean set(String key, double value) {
+		return set(key, T_DOUBLE, Double.doubleToRawLongBits(value));
+	}
+
+	@Override
+	public boolean set(String key, float value) {
+		return set(key, T_FLOAT, Float.floatToRawIntBits(value));
+	}
+
+	@Override
+	public boolean set(String key, boolean value) {
+		return set(key, T_BOOLEAN, value ? 1 : 0);
+	}
+
+	@Override
+	public boolean set(String key, Object object) {
+		return set(key, object.toString());
+	}
+
+	private boolean set(String key, byte type, long bits) {
+		int idx = indexOf(key);
+		if (idx == -1) {
+			return false;
+		}
+		fBits[idx][fRows] = bits;
+		fTypes[idx][fRows] = type;
+		fSet[idx] = true;
+		return true;
+	}
+
+	@Override
+	public void newRow() {
+		Arrays.fill(fSet, false);
+	}
+
+	@Override
+	public void emmitRow() {
+		for (int i = 0; i < fSet.length; i++) {
+			if (!fSet[i]) {
+				throw new IllegalStateException("Record field \"" + fFields[i]
+						+ "\" not set.");
+			}
+		}
+
+		fRows++;
+		newRow();
+		if (fRows == fBlockRows) {
+			try {
+				writeBlock();
+			} catch (IOException ex) {
+				throw new RuntimeException(ex);
+			}
+		}
+	}
+
+	@Override
+	public String[] fields() {
+		String[] copy = new String[fFields.length];
+		System.arraycopy(fFields, 0, copy, 0, fFields.length);
+		return copy;
+	}
+
+	public int indexOf(String key) {
+		for (int i = 0; i < fFields.length; i++) {
+			if (fFields[i].equals(key)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Flushes the underlying stream. Rows in the current block are not
+	 * written; see {@link #endBlock()}.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (!fHeaderWritten) {
+			writeHeader();
+		}
+		fOut.flush();
+	}
+
+	/**
+	 * Writes the buffered rows as a block, and flushes the underlying stream.
+	 * Short blocks compress poorly, so this should be called sparingly.
+	 */
+	public void endBlock() throws IOException {
+		writeBlock();
+		fOut.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		endBlock();
+		fDeflater.end();
+		fOut.close();
+	}
+
+	// -------------------------------------------------------------------------
+	// Encoding.
+	// -------------------------------------------------------------------------
+
+	private void writeHeader() throws IOException {
+		fOut.writeInt(MAGIC);
+		fOut.writeByte(VERSION);
+		fOut.writeInt(fFields.length);
+		for (String field : fFields) {
+			fOut.writeUTF(field);
+		}
+		fHeaderWritten = true;
+	}
+
+	private void writeBlock() throws IOException {
+		if (!fHeaderWritten) {
+			writeHeader();
+		}
+
+		if (fRows == 0) {
+			return;
+		}
+
+		fRaw.reset();
+		for (int i = 0; i < fFields.length; i++) {
+			writeColumn(i);
+		}
+		fRawOut.flush();
+
+		byte[] raw = fRaw.toByteArray();
+		fDeflater.reset();
+		fDeflater.setInput(raw);
+		fDeflater.finish();
+		int compressed = 0;
+		while (!fDeflater.finished()) {
+			if (compressed == fCompressed.length) {
+				fCompressed = Arrays.copyOf(fCompressed, fCompressed.length * 2);
+			}
+			compressed += fDeflater.deflate(fCompressed, compressed,
+					fCompressed.length - compressed);
+		}
+
+		fOut.writeInt(fRows);
+		fOut.writeInt(raw.length);
+		fOut.writeInt(compressed);
+		fOut.write(fCompressed, 0, compressed);
+
+		for (String[] strings : fStrings) {
+			if (strings != null) {
+				Arrays.fill(strings, 0, fRows, null);
+			}
+		}
+		fRows = 0;
+	}
+
+	private void writeColumn(int column) throws IOException {
+		byte type = columnType(column);
+		fRawOut.writeByte(type);
+		switch (type) {
+		case T_INT:
+		case T_LONG:
+			writeIntegral(fBits[column]);
+			break;
+		case T_FLOAT:
+			fRawOut.writeByte(E_PLAIN);
+			for (int i = 0; i < fRows; i++) {
+				fRawOut.writeInt((int) fBits[column][i]);
+			}
+			break;
+		case T_DOUBLE:
+			fRawOut.writeByte(E_PLAIN);
+			for (int i = 0; i < fRows; i++) {
+				fRawOut.writeLong(fBits[column][i]);
+			}
+			break;
+		case T_BOOLEAN:
+			fRawOut.writeByte(E_PLAIN);
+			writeBooleans(fBits[column]);
+			break;
+		default:
+			writeStrings(column);
+		}
+	}
+
+	/**
+	 * @return the type of a column in the current block. Integer columns
+	 *         holding some longs are widened; any other mix falls back to
+	 *         strings.
+	 */
+	private byte columnType(int column) {
+		byte[] types = fTypes[column];
+		byte type = types[0];
+		for (int i = 1; i < fRows; i++) {
+			if (types[i] == type) {
+				continue;
+			}
+			if ((type == T_INT || type == T_LONG)
+					&& (types[i] == T_INT || types[i] == T_LONG)) {
+				type = T_LONG;
+				continue;
+			}
+			return T_STRING;
+		}
+		return type;
+	}
+
+	private void writeIntegral(long[] values) throws IOException {
+		int runs = 1;
+		for (int i = 1; i < fRows; i++) {
+			if (values[i] != values[i - 1]) {
+				runs++;
+			}
+		}
+
+		long previous = 0;
+		if (runs * 2 <= fRows) {
+			fRawOut.writeByte(E_RLE);
+			writeVarLong(fRawOut, runs);
+			int start = 0;
+			for (int i = 1; i <= fRows; i++) {
+				if (i == fRows || values[i] != values[start]) {
+					writeVarLong(fRawOut, zigzag(values[start] - previous));
+					writeVarLong(fRawOut, i - start);
+					previous = values[start];
+					start = i;
+				}
+			}
+		} else {
+			fRawOut.writeByte(E_DELTA);
+			for (int i = 0; i < fRows; i++) {
+				writeVarLong(fRawOut, zigzag(values[i] - previous));
+				previous = values[i];
+			}
+		}
+	}
+
+	private void writeBooleans(long[] values) throws IOException {
+		int packed = 0;
+		for (int i = 0; i < fRows; i++) {
+			packed |= (int) values[i] << (i & 7);
+			if ((i & 7) == 7) {
+				fRawOut.writeByte(packed);
+				packed = 0;
+			}
+		}
+		if ((fRows & 7) != 0) {
+			fRawOut.writeByte(packed);
+		}
+	}
+
+	private void writeStrings(int column) throws IOException {
+		fRawOut.writeByte(E_RLE);
+		String[] values = new String[fRows];
+		int runs = 1;
+		for (int i = 0; i < fRows; i++) {
+			values[i] = fTypes[column][i] == T_STRING ? fStrings[column][i]
+					: format(fTypes[column][i], fBits[column][i]);
+			if (i > 0 && !values[i].equals(values[i - 1])) {
+				runs++;
+			}
+		}
+
+		writeVarLong(fRawOut, runs);
+		int start = 0;
+		for (int i = 1; i <= fRows; i++) {
+			if (i == fRows || !values[i].equals(values[start])) {
+				fRawOut.writeUTF(values[start]);
+				writeVarLong(fRawOut, i - start);
+				start = i;
+			}
+		}
+	}
+}
@@ -52,7 +52,7 @@ public class Filter implements ITransformer {
 		int processed = 0;
 		int filtered = 0;
 		System.err.print("Process input...");
-		TableReader table = new TableReader(is);
+		TableReader table = TableReader.open(is);
 		while (table.hasNext()) {
 			processed++;
 			table.next();
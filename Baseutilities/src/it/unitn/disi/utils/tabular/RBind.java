@@ -3,7 +3,6 @@ package it.unitn.disi.utils.tabular;
 import it.unitn.disi.cli.ITransformer;
 import it.unitn.disi.utils.exception.ParseException;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -32,7 +31,7 @@ public class RBind implements ITransformer {
 
 	@Override
 	public void execute(InputStream is, OutputStream oup) throws Exception {
-		TableReader reader = new TableReader(new BufferedInputStream(is));
+		TableReader reader = TableReader.open(is);
 		String[] header = reader.columns().toArray(new String[] {});
 		ITableWriter writer = new TableWriter(new PrintStream(
 				new BufferedOutputStream(oup)), header);
@@ -2,18 +2,28 @@ package it.unitn.disi.utils.tabular;
 
 import it.unitn.disi.utils.exception.ParseException;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.Closeable;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
- * Utility class which allows tabular data to be read in a simple way.
+ * Utility class which allows tabular data to be read in a simple way.<BR>
+ * <BR>
+ * Lines are read into reused character buffers, and fields are only turned
+ * into strings when they are asked for. Readers of large tables should
+ * resolve the columns they need once, with {@link #indexOf(String)}, and
+ * then read them with {@link #get(int)}, or with {@link #getInt(int)},
+ * {@link #getLong(int)} and {@link #getDouble(int)}, which parse numbers
+ * straight from the buffer.
  * 
  * @author giuliano
  */
@@ -21,20 +31,54 @@ public class TableReader {
 
 	public static final String FS = " ";
 
+	private static final char SEPARATOR = FS.charAt(0);
+
 	private final ILineReader fReader;
 
 	private final ArrayList<String> fHeader;
 
 	private final List<String> fROHeader;
 
-	private String fUnparsedCurrent;
+	private Line fCurrent = new Line();
+
+	private Line fNext = new Line();
 
-	private String[] fCurrent;
+	private boolean fHasNext;
 
-	private String fNext;
+	private boolean fDefaultHeader;
 
 	private int fRow = -1;
 
+	/**
+	 * Attaches a {@link TableReader} to an input stream which may contain
+	 * either text or columnar (see {@link ColumnarTableWriter}) table data.
+	 * 
+	 * @param stream
+	 *            stream containing table data.
+	 * 
+	 * @return a {@link ColumnarTableReader} if the stream contains columnar
+	 *         data, or a plain {@link TableReader} otherwise.
+	 * 
+	 * @throws IOException
+	 */
+	public static TableReader open(InputStream stream) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream(stream);
+		buffered.mark(4);
+		DataInputStream data = new DataInputStream(buffered);
+		int magic;
+		try {
+			magic = data.readInt();
+		} catch (IOException ex) {
+			magic = 0;
+		}
+		buffered.reset();
+
+		if (magic == ColumnarFormat.MAGIC) {
+			return new ColumnarTableReader(buffered);
+		}
+		return new TableReader(buffered);
+	}
+
 	/**
 	 * Attaches a {@link TableReader} to an input stream.
 	 * 
@@ -53,19 +97,43 @@ public class TableReader {
 		fROHeader = Collections.unmodifiableList(fHeader);
 	}
 
-	private TableReader(ILineReader reader, String[] header, String next) {
+	/**
+	 * Constructor for subclasses which do their own reading, and override all
+	 * row access methods.
+	 */
+	protected TableReader(List<String> header) {
+		fReader = null;
+		fHeader = new ArrayList<String>(header);
+		fROHeader = Collections.unmodifiableList(fHeader);
+	}
+
+	/**
+	 * Attaches a {@link TableReader} to a stream which contains rows only,
+	 * with a known header. Used by {@link ChunkedTableReader}.
+	 */
+	TableReader(InputStream stream, List<String> header) throws IOException {
+		fReader = new InputStreamLR(stream);
+		fHeader = new ArrayList<String>(header);
+		fROHeader = Collections.unmodifiableList(fHeader);
+		fHasNext = read(fNext);
+		fRow = 0;
+	}
+
+	private TableReader(ILineReader reader, Line header, Line next,
+			boolean hasNext) {
 		fReader = reader;
 		fHeader = new ArrayList<String>();
-		for (String key : header) {
-			fHeader.add(key);
+		for (int i = 0; i < header.fields; i++) {
+			fHeader.add(header.value(i));
 		}
 		fROHeader = Collections.unmodifiableList(fHeader);
-		fUnparsedCurrent = fNext = next;
+		fNext.copy(next);
+		fHasNext = hasNext;
 	}
 
 	public void streamRepositioned() throws IOException {
 		fReader.flushBuffers();
-		readLine(); // Buffers the next line, if any.
+		advance(); // Buffers the next line, if any.
 	}
 
 	public List<String> columns() {
@@ -73,29 +141,75 @@ public class TableReader {
 	}
 
 	public boolean hasNext() {
-		return fNext != null;
+		return fHasNext;
 	}
 
 	public void next() throws IOException {
 		if (!hasNext()) {
 			throw new NoSuchElementException();
 		}
-		readLine();
-		if (fCurrent.length != fHeader.size()) {
+		advance();
+		if (fCurrent.fields != fHeader.size()) {
 			throw new ParseException("Table width changed.");
 		}
 	}
 
 	public String currentLine() {
-		return fUnparsedCurrent;
+		return fCurrent.text();
 	}
 
 	public String get(String key) {
-		int idx = fHeader.indexOf(key);
+		int idx = indexOf(key);
 		if (idx == -1) {
 			return null;
 		}
-		return fCurrent[idx];
+		return get(idx);
+	}
+
+	/**
+	 * @return the index of a column, to be used with the indexed accessors,
+	 *         or -1 if the table has no such column.
+	 */
+	public int indexOf(String key) {
+		return fHeader.indexOf(key);
+	}
+
+	/**
+	 * @return the value of a column in the current row.
+	 */
+	public String get(int column) {
+		return fCurrent.value(column);
+	}
+
+	/**
+	 * Parses the value of a column in the current row as an integer, without
+	 * creating a string for it.
+	 * 
+	 * @throws NumberFormatException
+	 *             if the value is not an integer.
+	 */
+	public int getInt(int column) {
+		long value = getLong(column);
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw fCurrent.malformed(column);
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Same as {@link #getInt(int)}, for longs.
+	 */
+	public long getLong(int column) {
+		return fCurrent.parseLong(column);
+	}
+
+	/**
+	 * Same as {@link #getInt(int)}, for doubles. Values which cannot be
+	 * parsed exactly from the buffer are handed over to
+	 * {@link Double#parseDouble(String)}.
+	 */
+	public double getDouble(int column) {
+		return fCurrent.parseDouble(column);
 	}
 
 	public void close() throws IOException {
@@ -110,29 +224,46 @@ public class TableReader {
 	}
 
 	public TableReader fromCurrentRow() {
-		return new TableReader(fReader, fCurrent, fNext);
+		return new TableReader(fReader, fCurrent, fNext, fHasNext);
+	}
+
+	/**
+	 * @return whether the first line of the table was a header, rather than
+	 *         data.
+	 */
+	boolean hasHeaderLine() {
+		return !fDefaultHeader;
 	}
 
 	private ArrayList<String> readHeader() throws IOException {
 		// Fills in the readahead slot.
-		readLine();
+		if (!read(fNext)) {
+			throw new ParseException("Table is empty.");
+		}
+		fHasNext = true;
+		fRow++;
 
 		// Reads the first line.
 		ArrayList<String> header = new ArrayList<String>();
-		String[] headerParts = fNext.split(FS);
+		String[] headerParts = fNext.text().split(FS);
 
 		for (int i = 0; i < headerParts.length; i++) {
 			String part = headerParts[i].trim();
 			if (isInt(part)) {
 				ArrayList<String> defaultHeader = defaultHeader(headerParts.length);
-				fCurrent = defaultHeader.toArray(new String[defaultHeader
-						.size()]);
+				StringBuffer names = new StringBuffer();
+				for (String name : defaultHeader) {
+					names.append(name);
+					names.append(FS);
+				}
+				fCurrent.set(names.toString().trim());
+				fDefaultHeader = true;
 				return defaultHeader;
 			}
 			header.add(part);
 		}
-		
-		fCurrent = readLine();
+
+		advance();
 		return header;
 	}
 
@@ -144,18 +275,29 @@ public class TableReader {
 		return header;
 	}
 
-	private String[] readLine() throws IOException {
-		String nextLine = fReader.readLine(); 
-		if (fNext != null) {
-			fUnparsedCurrent = fNext;
-			fCurrent = fNext.split(FS);
-		} else {
-			fUnparsedCurrent = nextLine;
-		}
-		
-		fNext = nextLine;
+	/**
+	 * Makes the readahead line current, and reads the next one into the
+	 * buffer of the previous current line.
+	 */
+	private void advance() throws IOException {
+		Line current = fCurrent;
+		fCurrent = fNext;
+		fNext = current;
+		fHasNext = read(fNext);
 		fRow++;
-		return fCurrent;
+	}
+
+	private boolean read(Line line) throws IOException {
+		if (fReader instanceof InputStreamLR) {
+			return ((InputStreamLR) fReader).readLine(line);
+		}
+
+		String text = fReader.readLine();
+		if (text == null) {
+			return false;
+		}
+		line.set(text);
+		return true;
 	}
 
 	private boolean isInt(String string) {
@@ -167,6 +309,260 @@ public class TableReader {
 		}
 	}
 
+	// -------------------------------------------------------------------------
+	// Line buffers.
+	// -------------------------------------------------------------------------
+
+	/**
+	 * A line, and the bounds of its fields. Fields are split as
+	 * {@link String#split(String)} would split them on {@link #FS}, and are
+	 * only turned into strings when asked for.
+	 */
+	private static class Line {
+
+		/**
+		 * Powers of ten which are exactly representable as doubles.
+		 */
+		private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5,
+				1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+				1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+		/**
+		 * Mantissas with up to this many digits are exactly representable as
+		 * doubles.
+		 */
+		private static final int EXACT_DIGITS = 15;
+
+		char[] chars = new char[128];
+
+		int length;
+
+		int fields;
+
+		private int[] fStarts = new int[16];
+
+		private int[] fEnds = new int[16];
+
+		private String[] fValues = new String[16];
+
+		private String fText;
+
+		void clear() {
+			length = 0;
+		}
+
+		void append(char[] source, int offset, int count) {
+			if (length + count > chars.length) {
+				chars = Arrays.copyOf(chars,
+						Math.max(length + count, chars.length * 2));
+			}
+			System.arraycopy(source, offset, chars, length, count);
+			length += count;
+		}
+
+		void set(String text) {
+			clear();
+			if (text.length() > chars.length) {
+				chars = new char[Math.max(text.length(), chars.length * 2)];
+			}
+			text.getChars(0, text.length(), chars, 0);
+			length = text.length();
+			parse();
+			fText = text;
+		}
+
+		void copy(Line other) {
+			clear();
+			append(other.chars, 0, other.length);
+			parse();
+		}
+
+		void parse() {
+			fText = null;
+			fields = 0;
+			int start = 0;
+			for (int i = 0; i <= length; i++) {
+				if (i == length || chars[i] == SEPARATOR) {
+					addField(start, i);
+					start = i + 1;
+				}
+			}
+
+			// Like String#split, drops trailing empty fields, unless the
+			// whole line is empty.
+			while (fields > 0 && fStarts[fields - 1] == fEnds[fields - 1]) {
+				fields--;
+			}
+			if (length == 0) {
+				fields = 1;
+			}
+
+			Arrays.fill(fValues, 0, fields, null);
+		}
+
+		private void addField(int start, int end) {
+			if (fields == fStarts.length) {
+				int size = fields * 2;
+				fStarts = Arrays.copyOf(fStarts, size);
+				fEnds = Arrays.copyOf(fEnds, size);
+				fValues = new String[size];
+			}
+			fStarts[fields] = start;
+			fEnds[fields] = end;
+			fields++;
+		}
+
+		String text() {
+			if (fText == null) {
+				fText = new String(chars, 0, length);
+			}
+			return fText;
+		}
+
+		String value(int field) {
+			if (field >= fields) {
+				throw new ArrayIndexOutOfBoundsException(field);
+			}
+			String value = fValues[field];
+			if (value == null) {
+				value = fValues[field] = new String(chars, fStarts[field],
+						fEnds[field] - fStarts[field]);
+			}
+			return value;
+		}
+
+		long parseLong(int field) {
+			int pos = start(field);
+			int end = fEnds[field];
+			if (pos == end) {
+				throw malformed(field);
+			}
+
+			boolean negative = false;
+			char sign = chars[pos];
+			if (sign == '-' || sign == '+') {
+				negative = sign == '-';
+				if (++pos == end) {
+					throw malformed(field);
+				}
+			}
+
+			// Accumulates negatively, as Long#parseLong does, so that
+			// Long.MIN_VALUE can be parsed.
+			long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+			long multmin = limit / 10;
+			long result = 0;
+			for (; pos < end; pos++) {
+				int digit = chars[pos] - '0';
+				if (digit < 0 || digit > 9 || result < multmin) {
+					throw malformed(field);
+				}
+				result *= 10;
+				if (result < limit + digit) {
+					throw malformed(field);
+				}
+				result -= digit;
+			}
+			return negative ? result : -result;
+		}
+
+		double parseDouble(int field) {
+			int pos = start(field);
+			int end = fEnds[field];
+
+			boolean negative = false;
+			if (pos < end && (chars[pos] == '-' || chars[pos] == '+')) {
+				negative = chars[pos] == '-';
+				pos++;
+			}
+
+			long mantissa = 0;
+			int digits = 0;
+			int scale = 0;
+			boolean seenDigit = false;
+			boolean seenDot = false;
+			for (; pos < end; pos++) {
+				char c = chars[pos];
+				if (c >= '0' && c <= '9') {
+					seenDigit = true;
+					if (seenDot) {
+						scale--;
+					}
+					// Leading zeroes are not significant.
+					if (mantissa == 0 && c == '0') {
+						continue;
+					}
+					if (++digits > EXACT_DIGITS) {
+						return slowDouble(field);
+					}
+					mantissa = mantissa * 10 + (c - '0');
+				} else if (c == '.' && !seenDot) {
+					seenDot = true;
+				} else {
+					break;
+				}
+			}
+
+			if (!seenDigit) {
+				return slowDouble(field);
+			}
+
+			if (pos < end) {
+				if (chars[pos] != 'e' && chars[pos] != 'E') {
+					return slowDouble(field);
+				}
+				pos++;
+				boolean negativeExp = false;
+				if (pos < end && (chars[pos] == '-' || chars[pos] == '+')) {
+					negativeExp = chars[pos] == '-';
+					pos++;
+				}
+				if (pos == end) {
+					return slowDouble(field);
+				}
+				int exponent = 0;
+				for (; pos < end; pos++) {
+					int digit = chars[pos] - '0';
+					if (digit < 0 || digit > 9 || exponent > POW10.length) {
+						return slowDouble(field);
+					}
+					exponent = exponent * 10 + digit;
+				}
+				scale += negativeExp ? -exponent : exponent;
+			}
+
+			// Both the mantissa and the power of ten are exact, so a single
+			// multiplication or division rounds correctly.
+			double value;
+			if (mantissa == 0) {
+				value = 0.0;
+			} else if (scale >= 0 && scale < POW10.length) {
+				value = mantissa * POW10[scale];
+			} else if (scale < 0 && -scale < POW10.length) {
+				value = mantissa / POW10[-scale];
+			} else {
+				return slowDouble(field);
+			}
+			return negative ? -value : value;
+		}
+
+		private double slowDouble(int field) {
+			return Double.parseDouble(value(field));
+		}
+
+		private int start(int field) {
+			if (field >= fields) {
+				throw new ArrayIndexOutOfBoundsException(field);
+			}
+			return fStarts[field];
+		}
+
+		NumberFormatException malformed(int field) {
+			return new NumberFormatException("For input string: \""
+					+ value(field) + "\"");
+		}
+	}
+
 	// -------------------------------------------------------------------------
 	// Extra interfaces to make it more extensible.
 	// -------------------------------------------------------------------------
@@ -189,12 +585,27 @@ public class TableReader {
 		public void flushBuffers() throws IOException;
 	}
 
+	/**
+	 * {@link ILineReader} which can also read lines straight into a
+	 * {@link Line}. Lines end at '\n', '\r' or "\r\n", as with
+	 * {@link java.io.BufferedReader#readLine()}.
+	 */
 	private static class InputStreamLR implements ILineReader {
 
-		private BufferedReader fReader;
+		private final char[] fBuffer = new char[8192];
+
+		private final Line fScratch = new Line();
+
+		private Reader fReader;
 
 		private InputStream fStream;
 
+		private int fPosition;
+
+		private int fLimit;
+
+		private boolean fSkipLF;
+
 		public InputStreamLR(InputStream is) {
 			fStream = is;
 			flushBuffers();
@@ -207,12 +618,55 @@ public class TableReader {
 
 		@Override
 		public String readLine() throws IOException {
-			return fReader.readLine();
+			return readLine(fScratch) ? fScratch.text() : null;
+		}
+
+		boolean readLine(Line line) throws IOException {
+			line.clear();
+			boolean read = false;
+			while (true) {
+				if (fPosition == fLimit) {
+					fPosition = 0;
+					fLimit = Math.max(0, fReader.read(fBuffer));
+					if (fLimit == 0) {
+						// EOF: the last line may have no terminator.
+						if (read) {
+							line.parse();
+						}
+						return read;
+					}
+				}
+
+				if (fSkipLF) {
+					fSkipLF = false;
+					if (fBuffer[fPosition] == '\n') {
+						fPosition++;
+						continue;
+					}
+				}
+
+				read = true;
+				int start = fPosition;
+				while (fPosition < fLimit) {
+					char c = fBuffer[fPosition];
+					if (c == '\n' || c == '\r') {
+						line.append(fBuffer, start, fPosition - start);
+						fPosition++;
+						fSkipLF = c == '\r';
+						line.parse();
+						return true;
+					}
+					fPosition++;
+				}
+				line.append(fBuffer, start, fPosition - start);
+			}
 		}
 
 		@Override
 		public void flushBuffers() {
-			fReader = new BufferedReader(new InputStreamReader(fStream));
+			fReader = new InputStreamReader(fStream);
+			fPosition = fLimit = 0;
+			fSkipLF = false;
 		}
 	}
 
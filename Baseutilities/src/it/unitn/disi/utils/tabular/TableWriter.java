@@ -1,5 +1,6 @@
 package it.unitn.disi.utils.tabular;
 
+import java.io.Flushable;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
@@ -14,7 +15,7 @@ import java.util.Arrays;
  * 
  * @author giuliano
  */
-public class TableWriter implements ITableWriter {
+public class TableWriter implements ITableWriter, Flushable {
 
 	private static final String FS = " ";
 
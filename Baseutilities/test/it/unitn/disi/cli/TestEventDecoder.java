@@ -3,12 +3,19 @@ package it.unitn.disi.cli;
 import it.unitn.disi.utils.logging.CodecUtils;
 import it.unitn.disi.utils.logging.EventCodec;
 import it.unitn.disi.utils.logging.EventCodec.DecodingStream;
+import it.unitn.disi.utils.logging.EventCodec.RecordEncoder;
+import it.unitn.disi.utils.logging.EventCodec.RecordReader;
 import it.unitn.disi.utils.logging.RecordTypeSet;
 import it.unitn.disi.utils.logging.IBinaryRecordType;
 
+import it.unitn.disi.utils.streams.EOFException;
+
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import junit.framework.Assert;
 
@@ -64,6 +71,101 @@ public class TestEventDecoder {
 		Assert.assertEquals(15, i);
 	}
 	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testRecordEncodingAndDecoding() throws Exception {
+		EventCodec codec = new EventCodec(Byte.class, new IBinaryRecordType[] {
+			new TestEvent((byte)0, Long.class, Long.class, Integer.class, Long.class),
+			new TestEvent((byte)1, Long.class, Integer.class),
+			new TestEvent((byte)-2, Double.class, Byte.class)
+		});
+		
+		ByteArrayOutputStream oup = new ByteArrayOutputStream();
+		RecordEncoder encoder = codec.recordEncoder();
+		encoder.begin((byte)0).put(1L).put(2L).put(3).put(4L).writeTo(oup);
+		encoder.begin((byte)-2).put(0.5).put((byte)7).writeTo(oup);
+		encoder.begin((byte)1).put(5L).put(6).writeTo(oup);
+		
+		// Same bytes as the boxed encoder.
+		byte [] boxed = new byte[64];
+		int len = codec.encodeEvent(boxed, 0, (byte)0, 1L, 2L, 3, 4L);
+		len = codec.encodeEvent(boxed, len, (byte)-2, 0.5, (byte)7);
+		len = codec.encodeEvent(boxed, len, (byte)1, 5L, 6);
+		Assert.assertTrue(Arrays.equals(Arrays.copyOf(boxed, len), oup.toByteArray()));
+		
+		RecordReader reader = codec.recordReader(new ByteArrayInputStream(oup.toByteArray()));
+		Assert.assertEquals(0, reader.next());
+		Assert.assertEquals(1L, reader.readLong());
+		Assert.assertEquals(2L, reader.readLong());
+		// Skips the rest of the record.
+		Assert.assertEquals(254, reader.next());
+		Assert.assertEquals(0.5, reader.readDouble());
+		Assert.assertEquals(7, reader.readByte());
+		Assert.assertEquals(1, reader.next());
+		Assert.assertEquals(5L, reader.readLong());
+		Assert.assertEquals(6, reader.readInt());
+		Assert.assertEquals(-1, reader.next());
+		Assert.assertNull(reader.type());
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testRecordErrors() throws Exception {
+		EventCodec codec = new EventCodec(Byte.class, new IBinaryRecordType[] {
+			new TestEvent((byte)1, Long.class, Integer.class)
+		});
+		
+		RecordEncoder encoder = codec.recordEncoder();
+		try {
+			encoder.begin((byte)1).put(5);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+		
+		try {
+			encoder.begin((byte)1).put(5L).length();
+			Assert.fail();
+		} catch (IllegalStateException ex) {
+			// Expected.
+		}
+		
+		byte [] record = new byte[13];
+		int len = encoder.begin((byte)1).put(5L).put(6).length();
+		System.arraycopy(encoder.buffer(), 0, record, 0, len);
+		
+		// Truncated record.
+		RecordReader reader = codec.recordReader(new ByteArrayInputStream(
+				Arrays.copyOf(record, 10)));
+		try {
+			reader.next();
+			Assert.fail();
+		} catch (EOFException ex) {
+			// Expected.
+		}
+		
+		// Unknown type.
+		record[0] = 2;
+		reader = codec.recordReader(new ByteArrayInputStream(record));
+		try {
+			reader.next();
+			Assert.fail();
+		} catch (NoSuchElementException ex) {
+			// Expected.
+		}
+		
+		// Wrong component type.
+		record[0] = 1;
+		reader = codec.recordReader(new ByteArrayInputStream(record));
+		reader.next();
+		try {
+			reader.readInt();
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+	}
+	
 	private int append(Number number, byte[] buffer, int offset) {
 		if (number instanceof Long) {
 			return CodecUtils.append((Long) number, buffer, offset);
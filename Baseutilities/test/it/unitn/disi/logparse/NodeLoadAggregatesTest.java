@@ -0,0 +1,37 @@
+package it.unitn.disi.logparse;
+
+import it.unitn.disi.utils.tabular.TableReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class NodeLoadAggregatesTest {
+
+	@Test
+	public void nonNumericDuplicatesCountAsZero() throws Exception {
+		String log = "id root sent received dups_sent\n" + "1 1 4 0 1\n"
+				+ "2 1 3 1 NA\n" + "2 2 5 0 2\n" + "1 2 2 1 none\n";
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new NodeLoadAggregates().execute(new ByteArrayInputStream(log
+				.getBytes()), output);
+
+		TableReader reader = new TableReader(new ByteArrayInputStream(output
+				.toByteArray()));
+		int rows = 0;
+		while (reader.hasNext()) {
+			reader.next();
+			rows++;
+			long id = Long.parseLong(reader.get("id"));
+			Assert.assertEquals(id == 1 ? "6" : "8", reader.get("sent"));
+			Assert.assertEquals(id == 1 ? "1" : "2", reader
+					.get("dups_generated"));
+			Assert.assertEquals("2", reader.get("experiments"));
+		}
+		Assert.assertEquals(2, rows);
+	}
+}
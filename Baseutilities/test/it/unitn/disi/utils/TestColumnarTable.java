@@ -0,0 +1,323 @@
+package it.unitn.disi.utils;
+
+import it.unitn.disi.utils.exception.ParseException;
+import it.unitn.disi.utils.streams.ResettableFileInputStream;
+import it.unitn.disi.utils.tabular.ColumnarTableReader;
+import it.unitn.disi.utils.tabular.ColumnarTableWriter;
+import it.unitn.disi.utils.tabular.ITableWriter;
+import it.unitn.disi.utils.tabular.RBind;
+import it.unitn.disi.utils.tabular.TableReader;
+import it.unitn.disi.utils.tabular.TableWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class TestColumnarTable {
+
+	@Test
+	public void readsBackAsText() throws IOException {
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		ByteArrayOutputStream columnar = new ByteArrayOutputStream();
+
+		String[] fields = { "id", "node", "latency", "ratio", "up", "label" };
+		TableWriter tw = new TableWriter(text, fields);
+		// Small blocks, so that rows span several of them.
+		ColumnarTableWriter cw = new ColumnarTableWriter(columnar, 7, fields);
+
+		for (int i = 0; i < 50; i++) {
+			write(tw, i);
+			write(cw, i);
+		}
+		tw.flush();
+		cw.close();
+
+		TableReader expected = new TableReader(new ByteArrayInputStream(
+				text.toByteArray()));
+		TableReader actual = TableReader.open(new ByteArrayInputStream(
+				columnar.toByteArray()));
+
+		Assert.assertTrue(actual instanceof ColumnarTableReader);
+		Assert.assertEquals(expected.columns(), actual.columns());
+
+		while (expected.hasNext()) {
+			Assert.assertTrue(actual.hasNext());
+			expected.next();
+			actual.next();
+			for (String field : fields) {
+				Assert.assertEquals(expected.get(field), actual.get(field));
+			}
+			Assert.assertEquals(expected.currentLine(), actual.currentLine());
+			for (String field : new String[] { "id", "node" }) {
+				int column = actual.indexOf(field);
+				Assert.assertEquals(expected.getLong(column),
+						actual.getLong(column));
+				Assert.assertEquals(expected.getInt(column),
+						actual.getInt(column));
+			}
+			for (String field : new String[] { "latency", "ratio" }) {
+				int column = actual.indexOf(field);
+				Assert.assertEquals(expected.getDouble(column),
+						actual.getDouble(column));
+			}
+		}
+
+		Assert.assertFalse(actual.hasNext());
+		try {
+			actual.next();
+			Assert.fail();
+		} catch (NoSuchElementException ex) {
+
+		}
+	}
+
+	@Test
+	public void mixedTypesFallBackToText() throws IOException {
+		ByteArrayOutputStream columnar = new ByteArrayOutputStream();
+		ColumnarTableWriter cw = new ColumnarTableWriter(columnar, "a", "b");
+
+		cw.set("a", 1);
+		cw.set("b", 2);
+		cw.emmitRow();
+		cw.set("a", 5000000000L);
+		cw.set("b", "x");
+		cw.emmitRow();
+		cw.close();
+
+		TableReader reader = TableReader.open(new ByteArrayInputStream(
+				columnar.toByteArray()));
+		reader.next();
+		Assert.assertEquals("1", reader.get("a"));
+		Assert.assertEquals("2", reader.get("b"));
+		reader.next();
+		Assert.assertEquals("5000000000", reader.get("a"));
+		Assert.assertEquals("x", reader.get("b"));
+		Assert.assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void emptyTable() throws IOException {
+		ByteArrayOutputStream columnar = new ByteArrayOutputStream();
+		new ColumnarTableWriter(columnar, "a").close();
+
+		TableReader reader = TableReader.open(new ByteArrayInputStream(
+				columnar.toByteArray()));
+		Assert.assertEquals(1, reader.columns().size());
+		Assert.assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void appendedSectionsReadAsOne() throws IOException {
+		ByteArrayOutputStream columnar = new ByteArrayOutputStream();
+		for (int section = 0; section < 3; section++) {
+			ColumnarTableWriter cw = new ColumnarTableWriter(columnar, 4, "a");
+			for (int i = 0; i < 5; i++) {
+				cw.set("a", section * 5 + i);
+				cw.emmitRow();
+			}
+			cw.close();
+		}
+
+		TableReader reader = TableReader.open(new ByteArrayInputStream(
+				columnar.toByteArray()));
+		for (int i = 0; i < 15; i++) {
+			reader.next();
+			Assert.assertEquals(i, reader.getInt(0));
+			Assert.assertEquals(i + 1, reader.currentRow());
+		}
+		Assert.assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void fromCurrentRowReadsNextSection() throws Exception {
+		ByteArrayOutputStream columnar = new ByteArrayOutputStream();
+		ColumnarTableWriter first = new ColumnarTableWriter(columnar, "a", "b");
+		for (int i = 0; i < 3; i++) {
+			first.set("a", i);
+			first.set("b", "x" + i);
+			first.emmitRow();
+		}
+		first.close();
+		ColumnarTableWriter second = new ColumnarTableWriter(columnar, "c",
+				"b", "a");
+		second.set("a", 3);
+		second.set("b", "x3");
+		second.set("c", true);
+		second.emmitRow();
+		second.close();
+
+		TableReader reader = TableReader.open(new ByteArrayInputStream(
+				columnar.toByteArray()));
+		for (int i = 0; i < 3; i++) {
+			reader.next();
+		}
+		Assert.assertTrue(reader.hasNext());
+		try {
+			reader.next();
+			Assert.fail();
+		} catch (ParseException ex) {
+			// Expected.
+		}
+
+		reader = reader.fromCurrentRow();
+		Assert.assertEquals(Arrays.asList("c", "b", "a"), reader.columns());
+		reader.next();
+		Assert.assertEquals("true", reader.get("c"));
+		Assert.assertEquals(3, reader.getInt(reader.indexOf("a")));
+		Assert.assertFalse(reader.hasNext());
+
+		// RBind goes through the sections as it does through text tables.
+		ByteArrayOutputStream bound = new ByteArrayOutputStream();
+		new RBind().execute(new ByteArrayInputStream(columnar.toByteArray()),
+				bound);
+		Assert.assertEquals("a b\n0 x0\n1 x1\n2 x2\n3 x3\n", bound
+				.toString().replace("\r", ""));
+	}
+
+	@Test
+	public void streamRepositioned() throws IOException {
+		File file = File.createTempFile("columnar", ".tcol");
+		file.deleteOnExit();
+
+		// Records the offset of each block.
+		ArrayList<Long> offsets = new ArrayList<Long>();
+		FileOutputStream out = new FileOutputStream(file);
+		ColumnarTableWriter cw = new ColumnarTableWriter(out, "a");
+		cw.flush();
+		for (int i = 0; i < 12; i++) {
+			if (i % 4 == 0) {
+				offsets.add(file.length());
+			}
+			cw.set("a", i);
+			cw.emmitRow();
+			if (i % 4 == 3) {
+				cw.endBlock();
+			}
+		}
+		cw.close();
+
+		ResettableFileInputStream stream = new ResettableFileInputStream(file);
+		TableReader reader = new ColumnarTableReader(stream);
+		for (int block = offsets.size() - 1; block >= 0; block--) {
+			stream.reposition(offsets.get(block));
+			reader.streamRepositioned();
+			for (int i = block * 4; i < 12; i++) {
+				reader.next();
+				Assert.assertEquals(i, reader.getInt(0));
+			}
+			Assert.assertFalse(reader.hasNext());
+		}
+		reader.close();
+	}
+
+	@Test
+	public void flushKeepsBlocksWhole() throws IOException {
+		ByteArrayOutputStream columnar = new ByteArrayOutputStream();
+		ColumnarTableWriter cw = new ColumnarTableWriter(columnar, 4, "a");
+		cw.flush();
+		int header = columnar.size();
+		for (int i = 0; i < 3; i++) {
+			cw.set("a", i);
+			cw.emmitRow();
+			cw.flush();
+			Assert.assertEquals(header, columnar.size());
+		}
+		cw.set("a", 3);
+		cw.emmitRow();
+		Assert.assertTrue(columnar.size() > header);
+		cw.close();
+	}
+
+	@Test
+	public void tornTailIsDropped() throws IOException {
+		File file = File.createTempFile("columnar", ".tcol");
+		file.deleteOnExit();
+
+		// Two whole sections, and the offset of each block boundary.
+		ArrayList<Long> boundaries = new ArrayList<Long>();
+		for (int section = 0; section < 2; section++) {
+			ColumnarTableWriter cw = new ColumnarTableWriter(
+					new FileOutputStream(file, true), 4, "a", "b");
+			for (int i = 0; i < 6; i++) {
+				cw.set("a", section * 6 + i);
+				cw.set("b", "x" + i);
+				cw.emmitRow();
+				if (i % 3 == 2) {
+					cw.endBlock();
+					boundaries.add(file.length());
+				}
+			}
+			cw.close();
+		}
+		long whole = file.length();
+		Assert.assertEquals(whole, ColumnarTableReader.completeLength(file));
+
+		// Any cut leaves the whole headers and blocks before it.
+		int header = 4 + 1 + 4 + 2 * 3;
+		boundaries.add(0, (long) header);
+		boundaries.add(3, boundaries.get(2) + header);
+		byte[] contents = new byte[(int) whole];
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		in.readFully(contents);
+		in.close();
+		for (int cut = 0; cut < whole; cut++) {
+			FileOutputStream out = new FileOutputStream(file);
+			out.write(contents, 0, cut);
+			out.close();
+			long expected = 0;
+			for (long boundary : boundaries) {
+				if (boundary <= cut) {
+					expected = boundary;
+				}
+			}
+			Assert.assertEquals("cut " + cut, expected, ColumnarTableReader
+					.completeLength(file));
+		}
+
+		// A torn block followed by an appended section.
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(contents, 0, (int) (boundaries.get(3) + 7));
+		out.close();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(ColumnarTableReader.completeLength(file));
+		raf.close();
+		ColumnarTableWriter cw = new ColumnarTableWriter(new FileOutputStream(
+				file, true), "a", "b");
+		cw.set("a", 100);
+		cw.set("b", "y");
+		cw.emmitRow();
+		cw.close();
+
+		TableReader reader = new ColumnarTableReader(new FileInputStream(file));
+		for (int i = 0; i < 6; i++) {
+			reader.next();
+			Assert.assertEquals(i, reader.getInt(0));
+		}
+		reader.next();
+		Assert.assertEquals(100, reader.getInt(0));
+		Assert.assertFalse(reader.hasNext());
+		reader.close();
+	}
+
+	private void write(ITableWriter writer, int i) {
+		writer.set("id", i / 10);
+		writer.set("node", (long) i * 31 % 17);
+		writer.set("latency", i * 0.37);
+		writer.set("ratio", i / 3.0f);
+		writer.set("up", i % 3 == 0);
+		writer.set("label", i < 25 ? "first" : "second");
+		writer.emmitRow();
+	}
+}
@@ -1,9 +1,16 @@
 package it.unitn.disi.utils;
 
+import it.unitn.disi.utils.tabular.ChunkedTableReader;
+import it.unitn.disi.utils.tabular.ChunkedTableReader.IChunkProcessor;
 import it.unitn.disi.utils.tabular.TableReader;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import junit.framework.Assert;
@@ -94,4 +101,102 @@ public class TestTableReader {
 		}
 
 	}
+
+	@Test
+	public void readPrimitives() throws IOException {
+		StringBuffer sb = new StringBuffer();
+		sb.append("i l d\r\n");
+		sb.append("-42 9223372036854775807 0.05\r\n");
+		sb.append("+7 -9223372036854775808 -1.5E-7\r");
+		sb.append("0 12 12345678901234567890.5\n");
+		sb.append("x 1.0 NaN");
+
+		TableReader tr = new TableReader(new ByteArrayInputStream(sb.toString()
+				.getBytes()));
+		int i = tr.indexOf("i");
+		int l = tr.indexOf("l");
+		int d = tr.indexOf("d");
+		Assert.assertEquals(-1, tr.indexOf("z"));
+
+		tr.next();
+		Assert.assertEquals(-42, tr.getInt(i));
+		Assert.assertEquals(Long.MAX_VALUE, tr.getLong(l));
+		Assert.assertEquals(0.05, tr.getDouble(d));
+		Assert.assertEquals("-42 9223372036854775807 0.05", tr.currentLine());
+
+		tr.next();
+		Assert.assertEquals(7, tr.getInt(i));
+		Assert.assertEquals(Long.MIN_VALUE, tr.getLong(l));
+		Assert.assertEquals(-1.5E-7, tr.getDouble(d));
+
+		tr.next();
+		Assert.assertEquals(0, tr.getInt(i));
+		Assert.assertEquals(12.0, tr.getDouble(l));
+		Assert.assertEquals(12345678901234567890.5, tr.getDouble(d));
+		try {
+			tr.getInt(d);
+			Assert.fail();
+		} catch (NumberFormatException ex) {
+
+		}
+
+		tr.next();
+		Assert.assertFalse(tr.hasNext());
+		Assert.assertEquals("x", tr.get(i));
+		Assert.assertTrue(Double.isNaN(tr.getDouble(d)));
+		try {
+			tr.getInt(i);
+			Assert.fail();
+		} catch (NumberFormatException ex) {
+
+		}
+		try {
+			tr.getLong(l);
+			Assert.fail();
+		} catch (NumberFormatException ex) {
+
+		}
+	}
+
+	@Test
+	public void readChunks() throws Exception {
+		File file = File.createTempFile("chunks", ".txt");
+		file.deleteOnExit();
+		PrintStream out = new PrintStream(new FileOutputStream(file));
+		out.println("id value");
+		long expected = 0;
+		for (int i = 0; i < 1000; i++) {
+			out.println(i + " " + (i * 3));
+			expected += i * 3;
+		}
+		out.close();
+
+		ChunkedTableReader reader = new ChunkedTableReader(file, 7);
+		Assert.assertEquals(7, reader.chunks());
+		Assert.assertEquals(Arrays.asList("id", "value"), reader.columns());
+
+		List<long[]> results = reader.process(
+				new IChunkProcessor<long[]>() {
+					@Override
+					public long[] process(TableReader chunk) throws Exception {
+						int value = chunk.indexOf("value");
+						long[] result = new long[2];
+						while (chunk.hasNext()) {
+							chunk.next();
+							result[0]++;
+							result[1] += chunk.getLong(value);
+						}
+						return result;
+					}
+				}, 3);
+
+		long rows = 0;
+		long sum = 0;
+		for (long[] result : results) {
+			rows += result[0];
+			sum += result[1];
+		}
+		Assert.assertEquals(1000, rows);
+		Assert.assertEquals(expected, sum);
+	}
 }
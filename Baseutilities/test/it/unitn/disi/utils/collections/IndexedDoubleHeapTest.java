@@ -0,0 +1,77 @@
+package it.unitn.disi.utils.collections;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class IndexedDoubleHeapTest {
+
+	@Test
+	public void testMatchesNaiveQueue() {
+		Random random = new Random(42);
+		for (int arity = 2; arity <= 8; arity++) {
+			int capacity = 200;
+			IndexedDoubleHeap heap = new IndexedDoubleHeap(capacity, arity);
+			double[] keys = new double[capacity];
+			boolean[] present = new boolean[capacity];
+
+			for (int step = 0; step < 20000; step++) {
+				int element = random.nextInt(capacity);
+				int action = random.nextInt(3);
+				if (action == 0 && !present[element]) {
+					keys[element] = random.nextDouble();
+					present[element] = true;
+					heap.add(element, keys[element]);
+				} else if (action == 1 && present[element]) {
+					keys[element] *= random.nextDouble();
+					heap.decreaseKey(element, keys[element]);
+				} else if (action == 2 && !heap.isEmpty()) {
+					int polled = heap.poll();
+					Assert.assertTrue(present[polled]);
+					Assert.assertEquals(minimum(keys, present), keys[polled]);
+					present[polled] = false;
+				}
+				Assert.assertEquals(present[element], heap.contains(element));
+			}
+
+			heap.clear();
+			Assert.assertTrue(heap.isEmpty());
+			for (int i = 0; i < capacity; i++) {
+				Assert.assertFalse(heap.contains(i));
+			}
+		}
+	}
+
+	@Test
+	public void testEnsureCapacity() {
+		IndexedDoubleHeap heap = new IndexedDoubleHeap(0);
+		heap.ensureCapacity(10);
+		heap.add(9, 1.0);
+		heap.add(3, 0.5);
+		heap.ensureCapacity(20);
+		heap.add(15, 0.75);
+		Assert.assertEquals(3, heap.poll());
+		Assert.assertEquals(15, heap.poll());
+		Assert.assertEquals(9, heap.poll());
+		Assert.assertTrue(heap.isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsIncrease() {
+		IndexedDoubleHeap heap = new IndexedDoubleHeap(2);
+		heap.add(0, 1.0);
+		heap.decreaseKey(0, 2.0);
+	}
+
+	private double minimum(double[] keys, boolean[] present) {
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < keys.length; i++) {
+			if (present[i]) {
+				min = Math.min(min, keys[i]);
+			}
+		}
+		return min;
+	}
+}
@@ -0,0 +1,80 @@
+package it.unitn.disi.utils.collections;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class LongBloomFilterTest {
+
+	@Test
+	public void testNoFalseNegatives() {
+		Random random = new Random(42);
+		int n = 1000;
+		LongBloomFilter filter = new LongBloomFilter(
+				(int) LongBloomFilter.requiredBitSetSizeFor(0.01, n), n);
+		Set<Long> added = new HashSet<Long>();
+		for (int i = 0; i < n; i++) {
+			long key = random.nextLong();
+			added.add(key);
+			filter.add(key);
+		}
+
+		for (long key : added) {
+			Assert.assertTrue(filter.contains(key));
+		}
+
+		// False positive rate should be in the ballpark of the target.
+		int positives = 0;
+		int probes = 100000;
+		for (int i = 0; i < probes; i++) {
+			long key = random.nextLong();
+			if (!added.contains(key) && filter.contains(key)) {
+				positives++;
+			}
+		}
+		Assert.assertTrue(positives < probes * 0.02);
+	}
+
+	@Test
+	public void testMergeAndCopy() {
+		LongBloomFilter f1 = new LongBloomFilter(1024, 50);
+		LongBloomFilter f2 = new LongBloomFilter(1024, 50);
+		for (long i = 0; i < 50; i++) {
+			(i % 2 == 0 ? f1 : f2).add(i);
+		}
+
+		LongBloomFilter copy = new LongBloomFilter(64, 1);
+		copy.copyFrom(f1);
+		copy.merge(f2);
+		for (long i = 0; i < 50; i++) {
+			Assert.assertTrue(copy.contains(i));
+		}
+
+		// The original must not have been touched by the merge.
+		Assert.assertFalse(f1.contains(1) && f1.contains(3) && f1.contains(5)
+				&& f1.contains(7) && f1.contains(9));
+	}
+
+	@Test
+	public void testResetReusesAndClears() {
+		LongBloomFilter filter = new LongBloomFilter(4096, 100);
+		for (long i = 0; i < 100; i++) {
+			filter.add(i);
+		}
+
+		filter.reset(512, 10);
+		Assert.assertEquals(512, filter.size());
+		for (long i = 0; i < 100; i++) {
+			Assert.assertFalse(filter.contains(i));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeDifferentSizes() {
+		new LongBloomFilter(1024, 50).merge(new LongBloomFilter(512, 50));
+	}
+}
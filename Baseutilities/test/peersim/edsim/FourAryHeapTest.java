@@ -0,0 +1,238 @@
+package peersim.edsim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import peersim.config.Configuration;
+import peersim.config.ParsedProperties;
+import peersim.core.CommonState;
+import peersim.core.GeneralNode;
+import peersim.core.Node;
+import peersim.util.ExtendedRandom;
+
+/**
+ * Runs random scripts of insertions and removals against {@link FourAryHeap}
+ * and {@link Heap}, and checks that they remove the same events in the same
+ * order. Scripts are generated while running on a {@link FourAryHeap}, and
+ * replayed on a {@link Heap}.
+ */
+public class FourAryHeapTest {
+
+	private static final long SEED = 42;
+
+	private static final int PBITS = 8;
+
+	private static final int ADD = 0;
+
+	private static final int ADD_PRIORITY = 1;
+
+	private static final int REMOVE = 2;
+
+	private Node[] fNodes;
+
+	private List<Integer> fEvents;
+
+	private List<Long> fTimes;
+
+	private List<Long> fPriorities;
+
+	private ExtendedRandom fReplay;
+
+	private int fPeak;
+
+	private int fEmptied;
+
+	@BeforeClass
+	public static void loadPeersimConfig() {
+		try {
+			// Starts small, so that the heap grows several times.
+			Configuration.setConfig(new ParsedProperties(
+					new String[] { "queue.size=16" }));
+		} catch (RuntimeException ex) {
+			if (!ex.getMessage().equals(
+					"Setting configuration was attempted twice.")) {
+				throw ex;
+			}
+		}
+	}
+
+	@Before
+	public void setUp() {
+		fNodes = new Node[7];
+		for (int i = 0; i < fNodes.length; i++) {
+			fNodes[i] = new GeneralNode("");
+		}
+
+		fEvents = new ArrayList<Integer>();
+		fTimes = new ArrayList<Long>();
+		fPriorities = new ArrayList<Long>();
+		fReplay = new ExtendedRandom(SEED);
+	}
+
+	@Test
+	public void matchesHeap() {
+		CommonState.initializeRandom(SEED);
+		List<long[]> single = new ArrayList<long[]>();
+		List<Op> script = generate(new FourAryHeap("queue"), new Random(43),
+				single);
+
+		// Slots reused across growth and shrinking.
+		Assert.assertTrue(fPeak > 1000);
+		Assert.assertEquals(4, fEmptied);
+
+		CommonState.initializeRandom(SEED);
+		List<long[]> heap = replay(new Heap("queue"), script);
+
+		Assert.assertEquals(fEvents.size(), single.size());
+
+		// Heap may break ties between events with the same time and priority
+		// differently, so only keys are compared position by position, and
+		// each event must come out exactly once.
+		Assert.assertEquals(heap.size(), single.size());
+		for (int i = 0; i < single.size(); i++) {
+			Assert.assertEquals(key(heap.get(i)), key(single.get(i)));
+		}
+		List<Long> ids = ids(single);
+		Assert.assertEquals(ids, ids(heap));
+		for (int i = 0; i < fEvents.size(); i++) {
+			Assert.assertEquals(i, ids.get(i).intValue());
+		}
+	}
+
+	@Test
+	public void emptyHeap() {
+		FourAryHeap heap = new FourAryHeap("queue");
+		Assert.assertNull(heap.removeFirst());
+		Assert.assertEquals(Long.MAX_VALUE, heap.peek());
+	}
+
+	private List<Op> generate(FourAryHeap queue, Random random,
+			List<long[]> trace) {
+		List<Op> script = new ArrayList<Op>();
+		int[] targets = { 3000, 0, 1500, 0, 300, 0, 300, 0 };
+		for (int phase = 0; phase < targets.length; phase++) {
+			boolean grow = targets[phase] > 0;
+			while (grow ? queue.size() < targets[phase] : queue.size() > 0) {
+				int dice = random.nextInt(100);
+				Op op;
+				if (dice < (grow ? 60 : 15)) {
+					op = add(random, ADD);
+				} else if (dice < (grow ? 85 : 20)) {
+					op = add(random, ADD_PRIORITY);
+				} else {
+					op = new Op(REMOVE, 1 + random.nextInt(grow ? 3 : 10));
+				}
+				script.add(op);
+				apply(queue, op, trace);
+				fPeak = Math.max(fPeak, queue.size());
+			}
+			if (queue.size() == 0) {
+				fEmptied++;
+			}
+		}
+		return script;
+	}
+
+	private Op add(Random random, int type) {
+		Op op = new Op(type, 1);
+		int id = fEvents.size();
+		op.id = id;
+		fEvents.add(Integer.valueOf(id));
+		// Few distinct times, so that many events share them.
+		fTimes.add((long) random.nextInt(64));
+		if (type == ADD_PRIORITY) {
+			fPriorities.add((long) random.nextInt(4));
+		} else {
+			// The priority the queue draws for it.
+			fPriorities.add((long) fReplay.nextInt(1 << PBITS));
+		}
+		return op;
+	}
+
+	private List<long[]> replay(PriorityQ queue, List<Op> script) {
+		List<long[]> trace = new ArrayList<long[]>();
+		for (Op op : script) {
+			apply(queue, op, trace);
+		}
+		Assert.assertEquals(0, queue.size());
+		return trace;
+	}
+
+	private void apply(PriorityQ queue, Op op, List<long[]> trace) {
+		switch (op.type) {
+		case ADD:
+			int id = op.id;
+			queue.add(fTimes.get(id), fEvents.get(id), node(id), pid(id));
+			break;
+
+		case ADD_PRIORITY:
+			id = op.id;
+			queue.add(fTimes.get(id), fEvents.get(id), node(id), pid(id),
+					fPriorities.get(id));
+			break;
+
+		case REMOVE:
+			int count = Math.min(op.count, queue.size());
+			long time = -1;
+			for (int i = 0; i < count; i++) {
+				PriorityQ.Event event = queue.removeFirst();
+				trace.add(record(event.time, event.event, event.node,
+						event.pid));
+				time = event.time;
+			}
+			if (queue instanceof FourAryHeap && count > 0) {
+				Assert.assertTrue(((FourAryHeap) queue).peek() >= time);
+			}
+			break;
+		}
+	}
+
+	private long[] record(long time, Object event, Node node, byte pid) {
+		int id = ((Integer) event).intValue();
+		Assert.assertSame(fEvents.get(id), event);
+		Assert.assertSame(node(id), node);
+		Assert.assertEquals(pid(id), pid);
+		Assert.assertEquals(fTimes.get(id).longValue(), time);
+		return new long[] { time, id };
+	}
+
+	private long key(long[] record) {
+		return (record[0] << PBITS) | fPriorities.get((int) record[1]);
+	}
+
+	private List<Long> ids(List<long[]> trace) {
+		List<Long> ids = new ArrayList<Long>();
+		for (long[] record : trace) {
+			ids.add(record[1]);
+		}
+		Collections.sort(ids);
+		return ids;
+	}
+
+	private Node node(int id) {
+		return fNodes[id % fNodes.length];
+	}
+
+	private byte pid(int id) {
+		return (byte) (id * 31);
+	}
+
+	private static class Op {
+		final int type;
+		final int count;
+		int id;
+
+		Op(int type, int count) {
+			this.type = type;
+			this.count = count;
+		}
+	}
+}
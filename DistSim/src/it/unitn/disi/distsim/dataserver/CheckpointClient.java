@@ -5,11 +5,17 @@ import it.unitn.disi.utils.collections.Pair;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 
@@ -24,6 +30,21 @@ public class CheckpointClient implements Runnable {
 
 	private final long fChkpInterval;
 
+	private final CheckpointDelta fCodec = new CheckpointDelta();
+
+	/**
+	 * Last snapshot shipped for each work unit, which is the base for the
+	 * next delta.
+	 */
+	private final Map<Integer, SnapshotBuffer> fBases = new HashMap<Integer, SnapshotBuffer>();
+
+	/**
+	 * Buffers of dropped bases, reused for the next snapshots.
+	 */
+	private final ArrayList<SnapshotBuffer> fFree = new ArrayList<SnapshotBuffer>();
+
+	private long fSequence;
+
 	public CheckpointClient(ControlClient client, Application app,
 			long chkpInterval) throws RemoteException, NotBoundException {
 		fManager = client.lookup("datamgr", IDataManager.class);
@@ -85,35 +106,151 @@ public class CheckpointClient implements Runnable {
 	}
 
 	private void checkpoint() throws RemoteException {
-		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-		ObjectOutputStream oup;
-
-		int wid;
+		ArrayList<Pair<Integer, SnapshotBuffer>> snapshots = new ArrayList<Pair<Integer, SnapshotBuffer>>();
 
+		// Only the snapshots happen while the application is stopped.
 		try {
 			fApp.checkpointStart();
 			fLogger.info("Start checkpoint.");
 
-			oup = new ObjectOutputStream(buffer);
-			Pair<Integer, Serializable> checkpoint = fApp.state();
-			if (checkpoint != null) {
-				oup.writeObject(checkpoint.b);
-				wid = checkpoint.a;
-				fManager.writeCheckpoint(wid, buffer.toByteArray());
+			List<Pair<Integer, Serializable>> states = fApp.state();
+			if (states == null) {
+				return;
+			}
+
+			for (Pair<Integer, Serializable> state : states) {
+				SnapshotBuffer snapshot = buffer();
+				snapshots.add(new Pair<Integer, SnapshotBuffer>(state.a,
+						snapshot));
+				ObjectOutputStream oup = new ObjectOutputStream(snapshot);
+				oup.writeObject(state.b);
+				oup.close();
 			}
 		} catch (Exception ex) {
-			fLogger.error("Error submitting checkpoint.", ex);
+			fLogger.error("Error taking checkpoint snapshot.", ex);
+			for (Pair<Integer, SnapshotBuffer> snapshot : snapshots) {
+				fFree.add(snapshot.b);
+			}
+			return;
 		} finally {
 			fApp.checkpointEnd();
 		}
-		
+
+		retain(snapshots);
+
+		// Encoding and shipping run concurrently with the application.
+		for (Pair<Integer, SnapshotBuffer> snapshot : snapshots) {
+			try {
+				submit(snapshot.a, snapshot.b);
+			} catch (Exception ex) {
+				fLogger.error("Error submitting checkpoint " + snapshot.a
+						+ ".", ex);
+				// Next checkpoint for this unit will be a full one.
+				release(fBases.remove(snapshot.a));
+				fFree.add(snapshot.b);
+			}
+		}
+
 		fLogger.info("Checkpoint done.");
 	}
 
+	private void submit(int wid, SnapshotBuffer snapshot) throws IOException {
+		SnapshotBuffer base = fBases.get(wid);
+		long sequence = fSequence + 1;
+
+		byte[] encoded = encode(snapshot, sequence, base);
+		try {
+			fManager.writeCheckpointDelta(wid, encoded);
+		} catch (StaleCheckpointException ex) {
+			fLogger.info("Data manager lost track of checkpoint "
+					+ base.sequence + ", sending full checkpoint.");
+			base = null;
+			encoded = encode(snapshot, sequence, null);
+			fManager.writeCheckpointDelta(wid, encoded);
+		}
+
+		fLogger.info("Sent " + (base != null ? "delta" : "full")
+				+ " checkpoint for " + wid + " (" + encoded.length + " of "
+				+ snapshot.size() + " bytes).");
+
+		// The snapshot becomes the base for the next delta.
+		snapshot.sequence = sequence;
+		release(fBases.put(wid, snapshot));
+		fSequence = sequence;
+	}
+
+	private byte[] encode(SnapshotBuffer snapshot, long sequence,
+			SnapshotBuffer base) throws IOException {
+		if (base == null) {
+			return fCodec.encode(snapshot.buffer(), snapshot.size(), sequence,
+					null, 0, 0);
+		}
+		return fCodec.encode(snapshot.buffer(), snapshot.size(), sequence,
+				base.buffer(), base.size(), base.sequence);
+	}
+
+	/**
+	 * Drops the bases of work units which are no longer being run.
+	 */
+	private void retain(List<Pair<Integer, SnapshotBuffer>> snapshots) {
+		Iterator<Map.Entry<Integer, SnapshotBuffer>> it = fBases.entrySet()
+				.iterator();
+		while (it.hasNext()) {
+			Map.Entry<Integer, SnapshotBuffer> entry = it.next();
+			boolean running = false;
+			for (Pair<Integer, SnapshotBuffer> snapshot : snapshots) {
+				if (snapshot.a.equals(entry.getKey())) {
+					running = true;
+					break;
+				}
+			}
+			if (!running) {
+				fFree.add(entry.getValue());
+				it.remove();
+			}
+		}
+	}
+
+	private SnapshotBuffer buffer() {
+		if (fFree.isEmpty()) {
+			return new SnapshotBuffer();
+		}
+		SnapshotBuffer buffer = fFree.remove(fFree.size() - 1);
+		buffer.reset();
+		return buffer;
+	}
+
+	private void release(SnapshotBuffer buffer) {
+		if (buffer != null) {
+			fFree.add(buffer);
+		}
+	}
+
+	/**
+	 * {@link ByteArrayOutputStream} which can be reused across checkpoints,
+	 * and gives access to its buffer without copying it.
+	 */
+	private static class SnapshotBuffer extends ByteArrayOutputStream {
+
+		/**
+		 * Sequence number this snapshot was shipped with.
+		 */
+		long sequence;
+
+		public byte[] buffer() {
+			return buf;
+		}
+	}
+
 	public static interface Application {
 		public void checkpointStart();
 
-		public Pair<Integer, Serializable> state();
+		/**
+		 * @return the state of each work unit currently being run, keyed by
+		 *         work unit id, or <code>null</code> if there is nothing to
+		 *         checkpoint.
+		 */
+		public List<Pair<Integer, Serializable>> state();
 
 		public void checkpointEnd();
 	}
@@ -0,0 +1,265 @@
+package it.unitn.disi.distsim.dataserver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary encoding for checkpoints that are sent as differences against the
+ * previous checkpoint of the same work unit. Checkpoint state is split into
+ * fixed-size blocks, and only the blocks that changed since the previous
+ * checkpoint are shipped, each of them deflated on its own. A checkpoint with
+ * no base carries all of its blocks, and can be applied over nothing.<BR>
+ * <BR>
+ * Layout:
+ *
+ * <pre>
+ * int  magic
+ * int  version
+ * long sequence number of this checkpoint
+ * long sequence number of the base checkpoint, or {@link #NO_BASE}
+ * int  total (uncompressed) length
+ * int  block size
+ * int  number of blocks that follow
+ * ( int block index, int compressed length, byte[] deflated block )*
+ * </pre>
+ *
+ * @author giuliano
+ */
+public class CheckpointDelta {
+
+	public static final long NO_BASE = -1;
+
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+	private static final int MAGIC = 0x434b5044;
+
+	private static final int VERSION = 1;
+
+	// -------------------------------------------------------------------------
+
+	private final int fBlockSize;
+
+	private final Deflater fDeflater = new Deflater(Deflater.BEST_SPEED);
+
+	private final byte[] fCompressed;
+
+	public CheckpointDelta() {
+		this(DEFAULT_BLOCK_SIZE);
+	}
+
+	public CheckpointDelta(int blockSize) {
+		fBlockSize = blockSize;
+		// Deflate can expand incompressible data by a few bytes per block.
+		fCompressed = new byte[blockSize + blockSize / 16 + 64];
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Encodes a checkpoint.
+	 *
+	 * @param state
+	 *            buffer with the checkpoint state.
+	 * @param length
+	 *            the length of the state within the buffer.
+	 * @param sequence
+	 *            the sequence number for this checkpoint.
+	 * @param base
+	 *            the previous state, or <code>null</code> if this is a full
+	 *            checkpoint.
+	 * @param baseLength
+	 *            the length of the previous state.
+	 * @param baseSequence
+	 *            the sequence number of the previous state, or
+	 *            {@link #NO_BASE}.
+	 * @return the encoded checkpoint.
+	 */
+	public byte[] encode(byte[] state, int length, long sequence, byte[] base,
+			int baseLength, long baseSequence) throws IOException {
+		if (base == null) {
+			baseSequence = NO_BASE;
+		}
+
+		int blocks = blocks(length);
+		int changed = 0;
+		boolean[] dirty = new boolean[blocks];
+		for (int i = 0; i < blocks; i++) {
+			dirty[i] = base == null
+					|| !sameBlock(state, length, base, baseLength, i);
+			changed += dirty[i] ? 1 : 0;
+		}
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		DataOutputStream oup = new DataOutputStream(buffer);
+		oup.writeInt(MAGIC);
+		oup.writeInt(VERSION);
+		oup.writeLong(sequence);
+		oup.writeLong(baseSequence);
+		oup.writeInt(length);
+		oup.writeInt(fBlockSize);
+		oup.writeInt(changed);
+
+		for (int i = 0; i < blocks; i++) {
+			if (!dirty[i]) {
+				continue;
+			}
+			int start = i * fBlockSize;
+			fDeflater.reset();
+			fDeflater.setInput(state, start, Math.min(fBlockSize, length
+					- start));
+			fDeflater.finish();
+			int compressed = 0;
+			while (!fDeflater.finished()) {
+				compressed += fDeflater.deflate(fCompressed, compressed,
+						fCompressed.length - compressed);
+				if (compressed == fCompressed.length) {
+					throw new IOException("Deflated block overflow.");
+				}
+			}
+
+			oup.writeInt(i);
+			oup.writeInt(compressed);
+			oup.write(fCompressed, 0, compressed);
+		}
+
+		oup.flush();
+		return buffer.toByteArray();
+	}
+
+	// -------------------------------------------------------------------------
+
+	private boolean sameBlock(byte[] state, int length, byte[] base,
+			int baseLength, int block) {
+		int start = block * fBlockSize;
+		int end = Math.min(start + fBlockSize, length);
+		if (end > baseLength) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (state[i] != base[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private int blocks(int length) {
+		return (length + fBlockSize - 1) / fBlockSize;
+	}
+
+	// -------------------------------------------------------------------------
+	// Decoding.
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the sequence number of an encoded checkpoint.
+	 */
+	public static long sequence(byte[] delta) throws IOException {
+		DataInputStream is = header(delta);
+		return is.readLong();
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the sequence number of the checkpoint an encoded checkpoint has
+	 *         to be applied over, or {@link #NO_BASE} if it is a full
+	 *         checkpoint.
+	 */
+	public static long baseSequence(byte[] delta) throws IOException {
+		DataInputStream is = header(delta);
+		is.readLong();
+		return is.readLong();
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Applies an encoded checkpoint over its base.
+	 *
+	 * @param base
+	 *            the state of the base checkpoint. Ignored for full
+	 *            checkpoints.
+	 * @param delta
+	 *            the encoded checkpoint.
+	 * @return the reconstructed checkpoint state.
+	 */
+	public static byte[] apply(byte[] base, byte[] delta) throws IOException {
+		DataInputStream is = header(delta);
+		is.readLong();
+		long baseSequence = is.readLong();
+		int length = is.readInt();
+		int blockSize = is.readInt();
+		int changed = is.readInt();
+
+		byte[] state;
+		if (baseSequence == NO_BASE) {
+			state = new byte[length];
+		} else {
+			if (base == null) {
+				throw new IOException("Missing base checkpoint.");
+			}
+			state = Arrays.copyOf(base, length);
+		}
+
+		Inflater inflater = new Inflater();
+		try {
+			byte[] compressed = new byte[0];
+			for (int i = 0; i < changed; i++) {
+				int start = is.readInt() * blockSize;
+				int size = is.readInt();
+				if (compressed.length < size) {
+					compressed = new byte[size];
+				}
+				is.readFully(compressed, 0, size);
+
+				inflater.reset();
+				inflater.setInput(compressed, 0, size);
+				int expected = Math.min(blockSize, length - start);
+				int inflated = 0;
+				while (inflated < expected && !inflater.finished()) {
+					int read = inflater.inflate(state, start + inflated,
+							expected - inflated);
+					if (read == 0 && inflater.needsInput()) {
+						break;
+					}
+					inflated += read;
+				}
+				if (inflated != expected) {
+					throw new IOException("Corrupt checkpoint block.");
+				}
+			}
+		} catch (DataFormatException ex) {
+			throw new IOException("Corrupt checkpoint block.", ex);
+		} finally {
+			inflater.end();
+		}
+
+		return state;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private static DataInputStream header(byte[] delta) throws IOException {
+		DataInputStream is = new DataInputStream(new ByteArrayInputStream(
+				delta));
+		if (is.readInt() != MAGIC) {
+			throw new IOException("Not a checkpoint delta.");
+		}
+		int version = is.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported checkpoint version " + version
+					+ ".");
+		}
+		return is;
+	}
+}
@@ -27,6 +27,13 @@ public class DataManagerImpl implements IDataManager {
 
 	private final ConcurrentHashMap<Integer, Boolean> fPending = new ConcurrentHashMap<Integer, Boolean>();
 
+	/**
+	 * Sequence number of the last delta checkpoint written for each work unit.
+	 * This is not persisted, so that after a restart clients are asked for full
+	 * checkpoints again.
+	 */
+	private final ConcurrentHashMap<Integer, Long> fSequences = new ConcurrentHashMap<Integer, Long>();
+
 	public DataManagerImpl(File chkpFolder, File configsFolder, String simId) {
 		fChkpFolder = chkpFolder;
 		fConfigsFolder = configsFolder;
@@ -37,20 +44,89 @@ public class DataManagerImpl implements IDataManager {
 	public void writeCheckpoint(int id, byte[] state) throws RemoteException {
 		acquire(id);
 
-		FileOutputStream oStream = null;
 		try {
-			oStream = new FileOutputStream(chkpFile(id));
-			oStream.write(state);
+			fSequences.remove(id);
+			writeFile(id, state);
 		} catch (IOException ex) {
 			fLogger.error("Failed to create checkpoint " + id + " for sim "
 					+ fSimId, ex);
 		} finally {
-			close(oStream);
 			release(id);
 		}
 
 	}
 
+	@Override
+	public void writeCheckpointDelta(int id, byte[] delta)
+			throws RemoteException {
+		acquire(id);
+
+		try {
+			long base = CheckpointDelta.baseSequence(delta);
+			byte[] previous = null;
+			if (base != CheckpointDelta.NO_BASE) {
+				Long last = fSequences.get(id);
+				File file = chkpFile(id);
+				if (last == null || last != base || !file.exists()) {
+					throw new StaleCheckpointException();
+				}
+				previous = readFile(file);
+			}
+
+			writeFile(id, CheckpointDelta.apply(previous, delta));
+			fSequences.put(id, CheckpointDelta.sequence(delta));
+		} catch (StaleCheckpointException ex) {
+			throw ex;
+		} catch (IOException ex) {
+			fSequences.remove(id);
+			fLogger.error("Failed to write delta checkpoint " + id
+					+ " for sim " + fSimId, ex);
+		} finally {
+			release(id);
+		}
+	}
+
+	/**
+	 * Writes the checkpoint into a temporary file first, so that a failure
+	 * halfway does not destroy the previous checkpoint.
+	 */
+	private void writeFile(int id, byte[] state) throws IOException {
+		File target = chkpFile(id);
+		File temp = new File(fChkpFolder, id + "." + CHK_EXTENSION + ".tmp");
+		FileOutputStream oStream = null;
+		try {
+			oStream = new FileOutputStream(temp);
+			oStream.write(state);
+		} finally {
+			close(oStream);
+		}
+
+		if (!temp.renameTo(target)) {
+			// Some platforms won't rename over an existing file.
+			target.delete();
+			if (!temp.renameTo(target)) {
+				throw new IOException("Failed to rename " + temp + " to "
+						+ target + ".");
+			}
+		}
+	}
+
+	private byte[] readFile(File f) throws IOException {
+		FileInputStream iStream = null;
+		try {
+			iStream = new FileInputStream(f);
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			byte[] block = new byte[64 * 1024];
+			int read;
+			while ((read = iStream.read(block)) != -1) {
+				buffer.write(block, 0, read);
+			}
+			return buffer.toByteArray();
+		} finally {
+			close(iStream);
+		}
+	}
+
 	@Override
 	public WorkUnit workUnit(int expId, String wtype) throws RemoteException {
 		try {
@@ -64,8 +140,6 @@ public class DataManagerImpl implements IDataManager {
 	private byte[] readCheckpoint(int id) throws RemoteException {
 		acquire(id);
 
-		FileInputStream iStream = null;
-
 		try {
 
 			File f = chkpFile(id);
@@ -73,22 +147,13 @@ public class DataManagerImpl implements IDataManager {
 				return null;
 			}
 
-			iStream = new FileInputStream(f);
-			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-
-			int read;
-			while ((read = iStream.read()) != -1) {
-				buffer.write(read);
-			}
-
-			return buffer.toByteArray();
+			return readFile(f);
 
 		} catch (IOException ex) {
 			fLogger.error("Failed to read checkpoint " + id + " for sim "
 					+ fSimId, ex);
 			return null;
 		} finally {
-			close(iStream);
 			release(id);
 		}
 	}
@@ -97,6 +162,7 @@ public class DataManagerImpl implements IDataManager {
 	public void clearCheckpoints(int wid) throws RemoteException {
 		acquire(wid);
 		try {
+			fSequences.remove(wid);
 			File file = chkpFile(wid);
 			if (file != null) {
 				file.delete();
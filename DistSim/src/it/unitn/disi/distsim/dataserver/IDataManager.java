@@ -20,6 +20,18 @@ public interface IDataManager extends Remote {
 	public WorkUnit workUnit(int wid, String wtype) throws RemoteException;
 
 	public void writeCheckpoint(int wid, byte[] state) throws RemoteException;
+
+	/**
+	 * Writes a checkpoint encoded with {@link CheckpointDelta}, applying it
+	 * over the last checkpoint received for the same work unit if it is a
+	 * delta.
+	 * 
+	 * @throws StaleCheckpointException
+	 *             if the delta is not based on the last checkpoint known to
+	 *             the manager. Clients should then send a full checkpoint.
+	 */
+	public void writeCheckpointDelta(int wid, byte[] delta)
+			throws RemoteException;
 	
 	public void clearCheckpoints(int wid) throws RemoteException;
 
@@ -0,0 +1,15 @@
+package it.unitn.disi.distsim.dataserver;
+
+import java.rmi.RemoteException;
+
+/**
+ * Thrown by {@link IDataManager#writeCheckpointDelta(int, byte[])} when a delta
+ * checkpoint is not based on the last checkpoint known to the data manager.
+ * 
+ * @author giuliano
+ */
+public class StaleCheckpointException extends RemoteException {
+
+	private static final long serialVersionUID = 1L;
+
+}
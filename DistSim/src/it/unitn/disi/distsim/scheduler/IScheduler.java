@@ -29,6 +29,20 @@ public interface IScheduler extends Remote {
 	public Pair<Integer, Integer> acquireExperiment(int workerId)
 			throws RemoteException;
 
+	/**
+	 * Asks for a batch of experiments, acquiring the obligation to run them.
+	 * Blocks until at least one experiment is available, or until all
+	 * experiments are done.
+	 * 
+	 * @param count
+	 *            the maximum number of experiments to lease.
+	 * 
+	 * @return a {@link Lease} with at most <code>count</code> experiments,
+	 *         which is empty if all experiments are done.
+	 */
+	public Lease acquireExperiments(int workerId, int count)
+			throws RemoteException;
+
 	/**
 	 * Method allowing clients to retrieve the number of remaining experiments
 	 * without having to acquire one. 
@@ -21,4 +21,10 @@ public interface ISchedulerClient {
 	 */
 	public abstract int size();
 
+	/**
+	 * Reports that an experiment handed out by the iterator has been run, for
+	 * clients that need to be told explicitly.
+	 */
+	public abstract void experimentDone(int id);
+
 }
\ No newline at end of file
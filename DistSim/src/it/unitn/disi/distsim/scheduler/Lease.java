@@ -0,0 +1,42 @@
+package it.unitn.disi.distsim.scheduler;
+
+import java.io.Serializable;
+
+/**
+ * A batch of experiments handed out to a worker by
+ * {@link IScheduler#acquireExperiments(int, int)}. The worker is expected to
+ * run them and report each with {@link IScheduler#experimentDone(Integer)}.
+ * The lease is renewed for as long as the worker can be reached; experiments
+ * of a worker whose lease expires are handed out to other workers.
+ * 
+ * @author giuliano
+ */
+public class Lease implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * IDs of the leased experiments. Empty if no experiments are left.
+	 */
+	public final int[] experiments;
+
+	/**
+	 * Number of remaining experiments (estimate).
+	 */
+	public final int remaining;
+
+	/**
+	 * How long the lease lasts without being renewed, in milliseconds.
+	 */
+	public final long duration;
+
+	public Lease(int[] experiments, int remaining, long duration) {
+		this.experiments = experiments;
+		this.remaining = remaining;
+		this.duration = duration;
+	}
+
+	public boolean isEmpty() {
+		return experiments.length == 0;
+	}
+}
@@ -11,6 +11,19 @@ import java.rmi.server.UnicastRemoteObject;
 
 import org.apache.log4j.Logger;
 
+import peersim.config.Attribute;
+
+/**
+ * {@link ISchedulerClient} which gets experiments from a remote
+ * {@link IScheduler}. Experiments are leased in batches of
+ * <code>lease_size</code>, which cuts down on round trips when experiments
+ * are short.<BR>
+ * <BR>
+ * By default, an experiment is reported as done when the next one is
+ * requested from the iterator. Clients which request experiments ahead of
+ * running them should instead construct this client with explicit completion,
+ * and report each experiment with {@link #experimentDone(int)}.
+ */
 public class RemoteSchedulerClient implements ISchedule, ISchedulerClient {
 
 	private static final Logger fLogger = Logger
@@ -20,13 +33,29 @@ public class RemoteSchedulerClient implements ISchedule, ISchedulerClient {
 	
 	private final IWorker fWorker;
 
+	private final boolean fExplicitDone;
+
+	/**
+	 * How many experiments to lease at once.
+	 */
+	@Attribute(value = "lease_size", defaultValue = "1")
+	private int fLeaseSize = 1;
+
+	private volatile IScheduler fMaster;
+
 	private int fWorkerId;
 
 	private Integer fInitialSize;
 
 	public RemoteSchedulerClient(ControlClient client, IWorker worker) {
+		this(client, worker, false);
+	}
+
+	public RemoteSchedulerClient(ControlClient client, IWorker worker,
+			boolean explicitDone) {
 		fClient = client;
 		fWorker = worker;
+		fExplicitDone = explicitDone;
 	}
 
 	/* (non-Javadoc)
@@ -37,9 +66,27 @@ public class RemoteSchedulerClient implements ISchedule, ISchedulerClient {
 		IWorker us = publish();
 		IScheduler master = connect();
 		register(master, us);
+		fMaster = master;
 		return new DistributedIterator(master);
 	}
 
+	/**
+	 * Reports an experiment as done. Has no effect unless this client has been
+	 * constructed with explicit completion.
+	 */
+	@Override
+	public void experimentDone(int id) {
+		if (!fExplicitDone) {
+			return;
+		}
+
+		try {
+			fMaster.experimentDone(id);
+		} catch (Exception ex) {
+			throw MiscUtils.nestRuntimeException(ex);
+		}
+	}
+
 	private void register(IScheduler master, IWorker worker) {
 		try {
 			fLogger.info("Registering worker reference with master.");
@@ -87,20 +134,32 @@ public class RemoteSchedulerClient implements ISchedule, ISchedulerClient {
 
 		private int fPrevious = Integer.MIN_VALUE;
 
+		private int[] fLeased = new int[0];
+
+		private int fNext;
+
 		protected DistributedIterator(IScheduler master) {
 			fMaster = master;
 		}
 
 		@Override
 		public Object nextIfAvailable() {
-			releasePrevious();
-			Pair<Integer, Integer> next = acquire();
-			refreshRemaining(next);
-			if (fRemaining == 0) {
-				return IScheduleIterator.DONE;
+			if (!fExplicitDone) {
+				releasePrevious();
+			}
+
+			if (fNext == fLeased.length) {
+				Lease lease = acquire();
+				fLeased = lease.experiments;
+				fNext = 0;
+				fRemaining = lease.remaining;
+				if (lease.isEmpty()) {
+					return IScheduleIterator.DONE;
+				}
 			}
 
-			return experimentId(next);
+			fPrevious = fLeased[fNext++];
+			return fPrevious;
 		}
 
 		@Override
@@ -108,15 +167,6 @@ public class RemoteSchedulerClient implements ISchedule, ISchedulerClient {
 			return fRemaining;
 		}
 
-		private Integer experimentId(Pair<Integer, Integer> pair) {
-			fPrevious = pair.a;
-			return fPrevious;
-		}
-
-		private void refreshRemaining(Pair<Integer, Integer> pair) {
-			fRemaining = pair.b;
-		}
-
 		private void releasePrevious() {
 			if (fPrevious != Integer.MIN_VALUE) {
 				try {
@@ -127,9 +177,9 @@ public class RemoteSchedulerClient implements ISchedule, ISchedulerClient {
 			}
 		}
 
-		private Pair<Integer, Integer> acquire() {
+		private Lease acquire() {
 			try {
-				return fMaster.acquireExperiment(fWorkerId);
+				return fMaster.acquireExperiments(fWorkerId, fLeaseSize);
 			} catch (Exception ex) {
 				throw MiscUtils.nestRuntimeException(ex);
 			}
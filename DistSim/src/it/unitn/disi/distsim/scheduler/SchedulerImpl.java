@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.rmi.RemoteException;
 import java.rmi.server.RemoteServer;
 import java.rmi.server.ServerNotActiveException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -21,11 +22,18 @@ import org.apache.log4j.Logger;
 public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 
 	private static enum ExperimentState {
-		assigned, done;
+		assigned, leased, done;
 	}
 
 	private static final int POLLING_INTERVAL = 1000;
 
+	/**
+	 * How long a lease lasts if the worker holding it cannot be reached.
+	 */
+	private static final long LEASE_DURATION = 10 * 60 * 1000;
+
+	private static final int[] NONE = new int[0];
+
 	private final Logger fAssignment;
 
 	private final Logger fOther;
@@ -37,8 +45,18 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 
 	private final ConcurrentHashMap<Integer, WorkerEntry> fWorkers = new ConcurrentHashMap<Integer, WorkerEntry>();
 
+	/**
+	 * All experiments, sorted by ID. Also the monitor guarding experiment and
+	 * lease state.
+	 */
 	private final ExperimentEntry[] fExperiments;
 
+	/**
+	 * Experiments which can be handed out. Entries are removed lazily, so
+	 * entries which have been leased or done in the meantime are skipped.
+	 */
+	private final ArrayDeque<ExperimentEntry> fFree = new ArrayDeque<ExperimentEntry>();
+
 	private final Thread fController;
 
 	private volatile TableWriter fWriter;
@@ -64,6 +82,7 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 						(Integer) iterator.nextIfAvailable());
 			}
 			Arrays.sort(fExperiments);
+			fFree.addAll(Arrays.asList(fExperiments));
 		}
 
 		fController = new Thread(new WorkerControl(POLLING_INTERVAL));
@@ -89,11 +108,14 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 	public void replayLog(TableReader log) throws IOException {
 		fOther.info("Replaying experiment log file...");
 		int done = 0;
+		int duplicates = 0;
+		int status = log.indexOf("status");
+		int experiment = log.indexOf("experiment");
 		while (log.hasNext()) {
 			log.next();
-			int id = Integer.parseInt(log.get("experiment"));
-			switch (ExperimentState.valueOf(log.get("status"))) {
+			switch (ExperimentState.valueOf(log.get(status))) {
 			case done:
+				int id = log.getInt(experiment);
 				synchronized (fExperiments) {
 					ExperimentEntry exp = experimentByID(id);
 					if (exp == null) {
@@ -101,30 +123,34 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 								+ id + ".");
 						continue;
 					}
+					if (exp.done) {
+						duplicates++;
+						continue;
+					}
 					exp.done = true;
 					done++;
 				}
+				break;
+			default:
+				// Assignments and leases are not replayed.
+				break;
 			}
 		}
 
-		if (done > fRemaining) {
-			fOther.error("Log contained inconsistencies (possibly duplicate" +
-					" experiment entries)");
+		if (duplicates > 0) {
+			fOther.error("Log contained inconsistencies (" + duplicates
+					+ " duplicate experiment entries)");
 		}
-		
-		fRemaining = Math.min(0, fRemaining - done);
+
+		fRemaining = Math.max(0, fRemaining - done);
 
 		fOther.info("Log replay complete. " + done
 				+ " experiments marked as done.");
 	}
 
 	private ExperimentEntry experimentByID(int id) {
-		for (ExperimentEntry entry : fExperiments) {
-			if (entry.id == id) {
-				return entry;
-			}
-		}
-		return null;
+		int idx = Arrays.binarySearch(fExperiments, id);
+		return idx < 0 ? null : fExperiments[idx];
 	}
 
 	@Override
@@ -143,10 +169,21 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 	@Override
 	public Pair<Integer, Integer> acquireExperiment(int workerId)
 			throws RemoteException {
-		Pair<Integer, Integer> acquired = null;
+		Lease lease = acquireExperiments(workerId, 1);
+		if (lease.isEmpty()) {
+			return ALL_DONE;
+		}
+		return new Pair<Integer, Integer>(lease.experiments[0],
+				lease.remaining);
+	}
 
+	@Override
+	public Lease acquireExperiments(int workerId, int count)
+			throws RemoteException {
 		synchronized (fExperiments) {
-			while ((acquired = tryAcquire(workerId)) == null && fRemaining > 0) {
+			WorkerEntry entry = worker(workerId);
+
+			while (!hasFree() && fRemaining > 0) {
 				try {
 					fOther.info("Worker " + workerId + " is waiting for jobs.");
 					fExperiments.wait();
@@ -156,20 +193,35 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 				}
 			}
 
-			if (fRemaining == 0) {
+			if (fRemaining == 0 || !hasFree()) {
 				fOther.info("Worker " + workerId + " has no more jobs to run.");
-				acquired = ALL_DONE;
-			} else {
-				fAssignment.info("Worker " + workerId + " assigned to job "
-						+ acquired.a + ".");
-				fWriter.set("experiment", id(acquired));
-				fWriter.set("status", ExperimentState.assigned);
-				fWriter.emmitRow();
-				fWriter.flush();
-				fActive++;
+				return new Lease(NONE, 0, LEASE_DURATION);
+			}
+
+			int[] leased = new int[Math.min(Math.max(count, 1), fFree.size())];
+			int size = 0;
+			while (size < leased.length && hasFree()) {
+				ExperimentEntry exp = fFree.poll();
+				exp.worker = entry;
+				entry.leases.add(exp);
+				leased[size++] = exp.id;
+			}
+			if (size < leased.length) {
+				leased = Arrays.copyOf(leased, size);
 			}
 
-			return acquired;
+			entry.renew();
+			fActive += size;
+
+			String ranges = ranges(leased);
+			fAssignment.info("Worker " + workerId + " leased jobs " + ranges
+					+ ".");
+			fWriter.set("experiment", ranges);
+			fWriter.set("status", ExperimentState.leased);
+			fWriter.emmitRow();
+			fWriter.flush();
+
+			return new Lease(leased, fRemaining, LEASE_DURATION);
 		}
 	}
 
@@ -178,40 +230,87 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 				+ "). Now checking if it had any experiments assigned to it.");
 		fWorkers.remove(entry.id);
 		synchronized (fExperiments) {
-			for (ExperimentEntry exp : fExperiments) {
-				if (exp.worker == entry) {
-					exp.worker = null;
-					fOther.info("Job " + exp.id
-							+ " has been returned to the pool.");
-					fActive--;
+			returnLeases(entry);
+		}
+	}
+
+	/**
+	 * Returns the experiments of workers whose lease has not been renewed in
+	 * time to the pool.
+	 */
+	protected void expireLeases() {
+		long now = System.currentTimeMillis();
+		synchronized (fExperiments) {
+			for (WorkerEntry entry : fWorkers.values()) {
+				if (!entry.leases.isEmpty() && entry.deadline < now) {
+					fOther.warn("Lease of worker " + entry.id + " expired.");
+					returnLeases(entry);
 				}
 			}
 		}
+	}
+
+	private void returnLeases(WorkerEntry entry) {
+		for (ExperimentEntry exp : entry.leases) {
+			exp.worker = null;
+			// Returned experiments go first, as they are the oldest.
+			fFree.addFirst(exp);
+			fOther.info("Job " + exp.id + " has been returned to the pool.");
+			fActive--;
+		}
 
+		if (!entry.leases.isEmpty()) {
+			entry.leases.clear();
+			fExperiments.notifyAll();
+		}
 	}
 
-	protected Pair<Integer, Integer> tryAcquire(int workerId)
-			throws RemoteException {
+	private WorkerEntry worker(int workerId) throws InvalidWorkerException {
 		WorkerEntry entry = fWorkers.get(workerId);
 		if (entry == null) {
 			throw new InvalidWorkerException("Worker " + workerId
 					+ " is not valid.");
 		}
+		return entry;
+	}
 
-		for (int i = 0; i < fExperiments.length; i++) {
-			ExperimentEntry exp = fExperiments[i];
-			if (exp.worker == null && !exp.done) {
-				fExperiments[i].worker = entry;
-				return new Pair<Integer, Integer>(fExperiments[i].id,
-						fRemaining);
-			}
+	/**
+	 * Drops stale entries from the head of the free list.
+	 * 
+	 * @return whether there are experiments to hand out.
+	 */
+	private boolean hasFree() {
+		ExperimentEntry head;
+		while ((head = fFree.peek()) != null
+				&& (head.done || head.worker != null)) {
+			fFree.poll();
 		}
-
-		return null;
+		return head != null;
 	}
 
-	private int id(Pair<Integer, Integer> pair) {
-		return pair.a;
+	/**
+	 * @return the experiment IDs as a comma-separated list of ranges, e.g.
+	 *         <code>1-4,7,9-10</code>.
+	 */
+	private String ranges(int[] ids) {
+		int[] sorted = ids.clone();
+		Arrays.sort(sorted);
+		StringBuffer buffer = new StringBuffer();
+		for (int i = 0; i < sorted.length; i++) {
+			int start = sorted[i];
+			while (i + 1 < sorted.length && sorted[i + 1] == sorted[i] + 1) {
+				i++;
+			}
+			if (buffer.length() > 0) {
+				buffer.append(',');
+			}
+			buffer.append(start);
+			if (sorted[i] != start) {
+				buffer.append('-');
+				buffer.append(sorted[i]);
+			}
+		}
+		return buffer.toString();
 	}
 
 	@Override
@@ -231,12 +330,21 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 
 			ExperimentEntry entry = fExperiments[idx];
 
+			if (entry.done) {
+				fAssignment.warn("Job " + entry.id
+						+ " reported as done twice. Ignoring.");
+				return;
+			}
+
 			if (entry.worker == null) {
 				fAssignment.error("Undead worker reporting completion of task "
 						+ entry.id + ". Task will be marked as complete.");
 			} else {
 				fAssignment.info("Worker " + entry.worker.id
 						+ " done with job " + entry.id + ".");
+				entry.worker.leases.remove(entry);
+				entry.worker.renew();
+				fActive--;
 			}
 
 			fWriter.set("experiment", entry.id);
@@ -247,7 +355,6 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 			entry.done = true;
 			entry.worker = null;
 			fRemaining--;
-			fActive--;
 
 			// No more experiments to run, wake up everyone who's
 			// waiting.
@@ -307,10 +414,23 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 
 		final String host;
 
+		/**
+		 * Experiments leased to this worker. Guarded by the experiment
+		 * monitor.
+		 */
+		final ArrayList<ExperimentEntry> leases = new ArrayList<ExperimentEntry>();
+
+		volatile long deadline;
+
 		public WorkerEntry(IWorker worker, String host, int id) {
 			this.worker = worker;
 			this.id = id;
 			this.host = host;
+			renew();
+		}
+
+		void renew() {
+			deadline = System.currentTimeMillis() + LEASE_DURATION;
 		}
 	}
 
@@ -354,6 +474,7 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 				for (WorkerEntry entry : fWorkers.values()) {
 					try {
 						entry.worker.echo();
+						entry.renew();
 					} catch (RemoteException ex) {
 						// Worker presumed dead.
 						// XXX maybe check exception type to see
@@ -362,6 +483,8 @@ public class SchedulerImpl implements IScheduler, ISchedulerAdmin {
 					}
 				}
 
+				expireLeases();
+
 				try {
 					Thread.sleep(fPollingInterval);
 				} catch (InterruptedException ex) {
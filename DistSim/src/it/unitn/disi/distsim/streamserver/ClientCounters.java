@@ -0,0 +1,65 @@
+package it.unitn.disi.distsim.streamserver;
+
+/**
+ * Traffic counters for a client of an {@link IStreamServer}. Counters are
+ * updated by a single thread, and can be read from any thread.
+ * 
+ * @author giuliano
+ */
+public class ClientCounters {
+
+	private final long fStart = System.currentTimeMillis();
+
+	private volatile String fClientId;
+
+	private volatile long fReceived;
+
+	private volatile long fWritten;
+
+	void clientId(String id) {
+		fClientId = id;
+	}
+
+	void received(long bytes) {
+		fReceived += bytes;
+	}
+
+	void written(long bytes) {
+		fWritten += bytes;
+	}
+
+	public String clientId() {
+		return fClientId;
+	}
+
+	/**
+	 * @return the number of bytes received from the client, before
+	 *         decompression.
+	 */
+	public long received() {
+		return fReceived;
+	}
+
+	/**
+	 * @return the number of bytes written to the output file.
+	 */
+	public long written() {
+		return fWritten;
+	}
+
+	/**
+	 * @return the average number of bytes received per second since the client
+	 *         connected.
+	 */
+	public double throughput() {
+		long elapsed = Math.max(1, System.currentTimeMillis() - fStart);
+		return (fReceived * 1000.0) / elapsed;
+	}
+
+	@Override
+	public String toString() {
+		return (fClientId == null ? "(preamble)" : fClientId) + " received="
+				+ fReceived + " written=" + fWritten + " bytes/s="
+				+ Math.round(throughput());
+	}
+}
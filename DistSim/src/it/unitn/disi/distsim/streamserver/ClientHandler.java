@@ -2,15 +2,16 @@ package it.unitn.disi.distsim.streamserver;
 
 import it.unitn.disi.utils.collections.Pair;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketAddress;
@@ -29,6 +30,8 @@ public class ClientHandler implements Runnable, Flushable {
 
 	private final StreamServerImpl fParent;
 
+	private final ClientCounters fCounters = new ClientCounters();
+
 	private volatile String fClientId;
 
 	private OutputStream fFile;
@@ -60,10 +63,11 @@ public class ClientHandler implements Runnable, Flushable {
 		InputStream is = null;
 
 		try {
-			is = fSocket.getInputStream();
-			Pair<String, Boolean> preamble = preamble(is);
+			is = new BufferedInputStream(fSocket.getInputStream());
+			Pair<String, Boolean> preamble = Preamble.read(is);
 
 			fClientId = preamble.a;
+			fCounters.clientId(fClientId);
 
 			fLogger.info("Servicing client " + fClientId + " at "
 					+ fSocket.getRemoteSocketAddress() + ".");
@@ -75,6 +79,7 @@ public class ClientHandler implements Runnable, Flushable {
 			fLogger.info("Output file is " + outFile + ".");
 			
 			// If gzipped, decompress.
+			is = new CountingInputStream(is);
 			if (preamble.b) {
 				fLogger.info(fClientId + " uses compression.");
 				is = new InflaterInputStream(is);
@@ -100,6 +105,7 @@ public class ClientHandler implements Runnable, Flushable {
 	private synchronized void writeToFile(byte[] buffer, int read)
 			throws IOException {
 		fFile.write(buffer, 0, read);
+		fCounters.written(read);
 	}
 
 	private synchronized void setFileStream(File outFile)
@@ -123,16 +129,14 @@ public class ClientHandler implements Runnable, Flushable {
 		}
 	}
 
-	private Pair<String, Boolean> preamble(InputStream is) throws IOException,
-			ClassNotFoundException {
-		ObjectInputStream stream = new ObjectInputStream(is);
-		return new Pair<String, Boolean>(stream.readUTF(), stream.readBoolean());
-	}
-
 	public String clientId() {
 		return fClientId;
 	}
 
+	public ClientCounters counters() {
+		return fCounters;
+	}
+
 	public SocketAddress clientAddress() {
 		return fSocket.getRemoteSocketAddress();
 	}
@@ -149,4 +153,32 @@ public class ClientHandler implements Runnable, Flushable {
 		}
 		fThread.join();
 	}
+
+	/**
+	 * Counts the bytes received from the socket, before decompression.
+	 */
+	private class CountingInputStream extends FilterInputStream {
+
+		public CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int c = super.read();
+			if (c != -1) {
+				fCounters.received(1);
+			}
+			return c;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				fCounters.received(read);
+			}
+			return read;
+		}
+	}
 }
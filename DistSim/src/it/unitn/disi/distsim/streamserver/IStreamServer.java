@@ -0,0 +1,29 @@
+package it.unitn.disi.distsim.streamserver;
+
+import java.util.List;
+
+/**
+ * Common interface to the stream server implementations, which receive the
+ * output streams of remote processes and store each into its own file.
+ * 
+ * @author giuliano
+ */
+public interface IStreamServer extends Runnable {
+
+	/**
+	 * @return the port the server is listening to, which might differ from the
+	 *         configured one if the latter was zero.
+	 */
+	public int getActualPort();
+
+	/**
+	 * Stops the server, and closes all client connections and files.
+	 */
+	public void stop();
+
+	/**
+	 * @return the counters of the clients currently connected.
+	 */
+	public List<ClientCounters> clients();
+
+}
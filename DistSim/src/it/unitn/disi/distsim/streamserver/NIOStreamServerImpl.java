@@ -0,0 +1,485 @@
+package it.unitn.disi.distsim.streamserver;
+
+import it.unitn.disi.utils.collections.Pair;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.log4j.Logger;
+
+/**
+ * {@link IStreamServer} which serves all clients from a single thread, with a
+ * {@link Selector}. Each client gets a ring of direct buffers which socket
+ * reads scatter into, and which are written to its file with a single gather
+ * write once they fill up, or once they have held data for longer than
+ * {@link #FLUSH_INTERVAL}. This spreads disk writes over time, instead of
+ * flushing every stream at once.<BR>
+ * <BR>
+ * Compressed streams are inflated into the ring, and are therefore copied
+ * once.
+ *
+ * @author giuliano
+ */
+public class NIOStreamServerImpl implements IStreamServer {
+
+	private static final int MAX_BACKLOG = 128;
+
+	/**
+	 * Maximum time data sits in a ring before being written, in milliseconds.
+	 */
+	public static final int FLUSH_INTERVAL = 5000;
+
+	public static final int RING_BUFFERS = 4;
+
+	public static final int BUFFER_SIZE = 65536;
+
+	private static final int MAX_PREAMBLE = 4 + 1 + 2 + 0xFFFF;
+
+	private static final Logger fLogger = Logger
+			.getLogger(NIOStreamServerImpl.class);
+
+	private final CopyOnWriteArrayList<Connection> fConnections = new CopyOnWriteArrayList<Connection>();
+
+	private final File fOutput;
+
+	private final int fPort;
+
+	private volatile boolean fShutdownSignalled;
+
+	private volatile Thread fShutdownHook;
+
+	private volatile Thread fMainThread;
+
+	private volatile ServerSocketChannel fServer;
+
+	private Selector fSelector;
+
+	public NIOStreamServerImpl(int port, File output) {
+		fPort = port;
+		fOutput = output;
+	}
+
+	public void run() {
+		if (!fOutput.isDirectory()) {
+			throw new RuntimeException(fOutput + " is not a valid folder.");
+		}
+
+		fLogger.info("Output folder is: " + fOutput + ".");
+		fMainThread = Thread.currentThread();
+
+		try {
+			serverChannelCreate();
+			fShutdownHook = new Thread(new Shutdown());
+			Runtime.getRuntime().addShutdownHook(fShutdownHook);
+			mainLoop();
+		} catch (Exception ex) {
+			if (!fShutdownSignalled) {
+				fLogger.error("Server terminating with error.", ex);
+			}
+		} finally {
+			closeAll();
+			serverChannelDestroy();
+		}
+	}
+
+	private void serverChannelCreate() throws IOException {
+		fSelector = Selector.open();
+		fServer = ServerSocketChannel.open();
+		fServer.socket().bind(new InetSocketAddress(fPort), MAX_BACKLOG);
+		fServer.configureBlocking(false);
+		fServer.register(fSelector, SelectionKey.OP_ACCEPT);
+	}
+
+	private void serverChannelDestroy() {
+		try {
+			if (fServer != null) {
+				fServer.close();
+			}
+			if (fSelector != null) {
+				fSelector.close();
+			}
+		} catch (IOException ex) {
+			fLogger.error("Error closing server channel.", ex);
+		}
+	}
+
+	public int getActualPort() {
+		ServerSocketChannel server = fServer;
+		if (server != null) {
+			return server.socket().getLocalPort();
+		}
+		return fPort;
+	}
+
+	public void stop() {
+		Runtime.getRuntime().removeShutdownHook(fShutdownHook);
+		fShutdownHook.run();
+	}
+
+	public List<ClientCounters> clients() {
+		List<ClientCounters> clients = new ArrayList<ClientCounters>();
+		for (Connection connection : fConnections) {
+			clients.add(connection.fCounters);
+		}
+		return clients;
+	}
+
+	private void mainLoop() throws IOException {
+		fLogger.info("Entering server main loop (listen port is "
+				+ getActualPort() + ").");
+
+		while (!Thread.interrupted() && !fShutdownSignalled) {
+			fSelector.select(FLUSH_INTERVAL);
+
+			Iterator<SelectionKey> it = fSelector.selectedKeys().iterator();
+			while (it.hasNext()) {
+				SelectionKey key = it.next();
+				it.remove();
+
+				if (!key.isValid()) {
+					continue;
+				}
+
+				if (key.isAcceptable()) {
+					accept();
+				} else if (key.isReadable()) {
+					Connection connection = (Connection) key.attachment();
+					try {
+						if (!connection.read()) {
+							close(connection, null);
+						}
+					} catch (Exception ex) {
+						close(connection, ex);
+					}
+				}
+			}
+
+			flushStale(System.currentTimeMillis());
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = fServer.accept();
+		if (channel == null) {
+			return;
+		}
+
+		fLogger.info("Accepted connection from "
+				+ channel.socket().getRemoteSocketAddress() + ".");
+		channel.configureBlocking(false);
+		Connection connection = new Connection(channel);
+		channel.register(fSelector, SelectionKey.OP_READ, connection);
+		fConnections.add(connection);
+	}
+
+	private void flushStale(long now) {
+		for (Connection connection : fConnections) {
+			if (connection.isStale(now)) {
+				try {
+					connection.flush();
+				} catch (Exception ex) {
+					close(connection, ex);
+				}
+			}
+		}
+	}
+
+	private void close(Connection connection, Exception ex) {
+		fConnections.remove(connection);
+		try {
+			connection.close();
+		} catch (IOException cex) {
+			fLogger.error("Error closing connection.", cex);
+		}
+
+		StringBuffer msg = new StringBuffer();
+		msg.append("Connection (");
+		msg.append(connection.clientAddress());
+		msg.append(", ");
+		msg.append(connection.fCounters.clientId());
+		msg.append(") terminated ");
+		msg.append(ex == null ? "normally" : "with an error.");
+
+		if (ex != null) {
+			fLogger.error(msg.toString(), ex);
+		} else {
+			fLogger.info(msg.toString());
+		}
+	}
+
+	private void closeAll() {
+		for (Connection connection : fConnections) {
+			close(connection, null);
+		}
+	}
+
+	/**
+	 * State of a single client.
+	 */
+	private class Connection {
+
+		private final SocketChannel fChannel;
+
+		private final ClientCounters fCounters = new ClientCounters();
+
+		/**
+		 * Holds what has been read until the preamble is complete.
+		 */
+		private ByteBuffer fPreamble = ByteBuffer.allocate(256);
+
+		private final ByteBuffer[] fRing = new ByteBuffer[RING_BUFFERS];
+
+		/**
+		 * Index of the ring buffer currently being filled.
+		 */
+		private int fFill;
+
+		/**
+		 * Time at which the ring got its first unwritten byte, or -1 if it's
+		 * empty.
+		 */
+		private long fDirtySince = -1;
+
+		private FileOutputStream fStream;
+
+		private FileChannel fFile;
+
+		private Inflater fInflater;
+
+		private ByteBuffer fCompressed;
+
+		private byte[] fInflated;
+
+		public Connection(SocketChannel channel) {
+			fChannel = channel;
+			for (int i = 0; i < fRing.length; i++) {
+				fRing[i] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			}
+		}
+
+		/**
+		 * Reads whatever is available from the socket.
+		 *
+		 * @return <code>false</code> if the client closed the connection.
+		 */
+		public boolean read() throws IOException, DataFormatException {
+			if (fFile == null) {
+				return readPreamble();
+			}
+
+			if (fInflater != null) {
+				int read = fChannel.read(fCompressed);
+				if (read > 0) {
+					fCounters.received(read);
+					fCompressed.flip();
+					inflate(fCompressed);
+					fCompressed.clear();
+				}
+				return read != -1;
+			}
+
+			long read = fChannel.read(fRing, fFill, fRing.length - fFill);
+			if (read > 0) {
+				fCounters.received(read);
+				dirty();
+				advance();
+			}
+			return read != -1;
+		}
+
+		private boolean readPreamble() throws IOException,
+				DataFormatException {
+			if (!fPreamble.hasRemaining()) {
+				if (fPreamble.capacity() == MAX_PREAMBLE) {
+					throw new IOException("Preamble too long.");
+				}
+				ByteBuffer larger = ByteBuffer.allocate(MAX_PREAMBLE);
+				fPreamble.flip();
+				larger.put(fPreamble);
+				fPreamble = larger;
+			}
+
+			int read = fChannel.read(fPreamble);
+			if (read == -1) {
+				return false;
+			}
+			fCounters.received(read);
+
+			fPreamble.flip();
+			Pair<String, Boolean> preamble = Preamble.parse(fPreamble);
+			if (preamble == null) {
+				fPreamble.compact();
+				return true;
+			}
+
+			open(preamble.a, preamble.b);
+
+			// Whatever followed the preamble is already part of the stream.
+			if (fInflater != null) {
+				inflate(fPreamble);
+			} else {
+				append(fPreamble);
+			}
+			fPreamble = null;
+			return true;
+		}
+
+		private void open(String clientId, boolean compressed)
+				throws IOException {
+			fCounters.clientId(clientId);
+			fLogger.info("Servicing client " + clientId + " at "
+					+ clientAddress() + ".");
+
+			File outFile = new File(fOutput, clientId);
+			fStream = new FileOutputStream(outFile);
+			fFile = fStream.getChannel();
+			fLogger.info("Output file is " + outFile + ".");
+
+			if (compressed) {
+				fLogger.info(clientId + " uses compression.");
+				fInflater = new Inflater();
+				fCompressed = ByteBuffer.allocate(BUFFER_SIZE);
+				fInflated = new byte[BUFFER_SIZE];
+			}
+		}
+
+		private void inflate(ByteBuffer compressed) throws IOException,
+				DataFormatException {
+			fInflater.setInput(compressed.array(), compressed.arrayOffset()
+					+ compressed.position(), compressed.remaining());
+			compressed.position(compressed.limit());
+
+			int inflated;
+			while ((inflated = fInflater.inflate(fInflated)) > 0) {
+				append(ByteBuffer.wrap(fInflated, 0, inflated));
+			}
+		}
+
+		/**
+		 * Copies data into the ring, writing it out as it fills.
+		 */
+		private void append(ByteBuffer data) throws IOException {
+			while (data.hasRemaining()) {
+				ByteBuffer target = fRing[fFill];
+				int chunk = Math.min(target.remaining(), data.remaining());
+				ByteBuffer slice = data.duplicate();
+				slice.limit(slice.position() + chunk);
+				target.put(slice);
+				data.position(data.position() + chunk);
+				dirty();
+				advance();
+			}
+		}
+
+		/**
+		 * Moves to the next buffer with room, writing the ring out if all are
+		 * full.
+		 */
+		private void advance() throws IOException {
+			while (fFill < fRing.length && !fRing[fFill].hasRemaining()) {
+				fFill++;
+			}
+			if (fFill == fRing.length) {
+				flush();
+			}
+		}
+
+		private void dirty() {
+			if (fDirtySince == -1) {
+				fDirtySince = System.currentTimeMillis();
+			}
+		}
+
+		public boolean isStale(long now) {
+			return fDirtySince != -1 && (now - fDirtySince) >= FLUSH_INTERVAL;
+		}
+
+		/**
+		 * Writes the ring to the file with a single gather write.
+		 */
+		public void flush() throws IOException {
+			if (fFile == null || fDirtySince == -1) {
+				return;
+			}
+
+			int used = Math.min(fFill + 1, fRing.length);
+			long pending = 0;
+			for (int i = 0; i < used; i++) {
+				fRing[i].flip();
+				pending += fRing[i].remaining();
+			}
+
+			while (pending > 0) {
+				long written = fFile.write(fRing, 0, used);
+				fCounters.written(written);
+				pending -= written;
+			}
+
+			for (int i = 0; i < used; i++) {
+				fRing[i].clear();
+			}
+			fFill = 0;
+			fDirtySince = -1;
+		}
+
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				fChannel.close();
+				if (fStream != null) {
+					fStream.close();
+				}
+				if (fInflater != null) {
+					fInflater.end();
+				}
+			}
+		}
+
+		public SocketAddress clientAddress() {
+			return fChannel.socket().getRemoteSocketAddress();
+		}
+	}
+
+	class Shutdown implements Runnable {
+
+		@Override
+		public void run() {
+			fLogger.info("Shutdown signalled.");
+			fShutdownSignalled = true;
+
+			fLogger.info("Stopping main loop.");
+			Thread main = fMainThread;
+			try {
+				fSelector.wakeup();
+			} catch (ClosedSelectorException ex) {
+				// Main loop is already done.
+			}
+
+			if (main != null && main != Thread.currentThread()) {
+				try {
+					main.join();
+				} catch (InterruptedException e) {
+					// Swallows and proceeds.
+				}
+			}
+			fLogger.info("Bye-bye.");
+		}
+	}
+}
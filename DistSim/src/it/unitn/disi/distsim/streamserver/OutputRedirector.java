@@ -58,6 +58,13 @@ public class OutputRedirector implements ITransformer {
 	@Attribute(value = "gzip", defaultValue = "false")
 	private boolean fGZip;
 
+	/**
+	 * Whether to send a compact {@link Preamble}. Servers older than the
+	 * compact preamble only understand the legacy one.
+	 */
+	@Attribute(value = "compact_preamble", defaultValue = "false")
+	private boolean fCompactPreamble;
+
 	@Attribute(value = "stream.port", defaultValue = "0")
 	private int fStreamPort;
 
@@ -240,6 +247,11 @@ public class OutputRedirector implements ITransformer {
 	}
 
 	private void sendPreamble(OutputStream oStream) throws IOException {
+		if (fCompactPreamble) {
+			Preamble.write(oStream, fJobId, fGZip);
+			return;
+		}
+
 		// Sends the id, and whether the log stream will be zipped or not.
 		ObjectOutputStream stream = new ObjectOutputStream(oStream);
 		stream.writeUTF(fJobId);
@@ -0,0 +1,146 @@
+package it.unitn.disi.distsim.streamserver;
+
+import it.unitn.disi.utils.collections.Pair;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * The preamble a client sends before its stream, carrying its id and whether
+ * the stream is compressed. Two encodings are understood by the servers:
+ * <ol>
+ * <li>the legacy one, written with an {@link java.io.ObjectOutputStream};</li>
+ * <li>the compact one, which is {@link #MAGIC}, a flags byte, and the id as
+ * UTF-8 prefixed by its length as an unsigned short.</li>
+ * </ol>
+ * 
+ * @author giuliano
+ */
+public class Preamble {
+
+	/**
+	 * "STR1". Cannot be confused with the stream header of an
+	 * {@link ObjectInputStream}, which starts with <code>0xACED</code>.
+	 */
+	public static final int MAGIC = 0x53545231;
+
+	public static final int FLAG_GZIP = 1;
+
+	private static final int LEGACY_MAGIC = 0xACED;
+
+	private static final byte TC_BLOCKDATA = 0x77;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Writes a compact preamble.
+	 */
+	public static void write(OutputStream oStream, String id, boolean gzip)
+			throws IOException {
+		byte[] encoded = id.getBytes(UTF8);
+		if (encoded.length > 0xFFFF) {
+			throw new IllegalArgumentException("Client id is too long.");
+		}
+
+		DataOutputStream stream = new DataOutputStream(oStream);
+		stream.writeInt(MAGIC);
+		stream.writeByte(gzip ? FLAG_GZIP : 0);
+		stream.writeShort(encoded.length);
+		stream.write(encoded);
+
+		// Don't close it or we close the socket.
+		stream.flush();
+	}
+
+	/**
+	 * Reads a preamble in either encoding from a stream, which must support
+	 * {@link InputStream#mark(int)}.
+	 * 
+	 * @return the client id and whether the stream is compressed.
+	 */
+	public static Pair<String, Boolean> read(InputStream is) throws IOException {
+		is.mark(4);
+		DataInputStream stream = new DataInputStream(is);
+		if (stream.readInt() != MAGIC) {
+			is.reset();
+			ObjectInputStream legacy = new ObjectInputStream(is);
+			return new Pair<String, Boolean>(legacy.readUTF(),
+					legacy.readBoolean());
+		}
+
+		int flags = stream.readUnsignedByte();
+		byte[] encoded = new byte[stream.readUnsignedShort()];
+		stream.readFully(encoded);
+		return new Pair<String, Boolean>(new String(encoded, UTF8),
+				(flags & FLAG_GZIP) != 0);
+	}
+
+	/**
+	 * Parses a preamble in either encoding from a buffer, without blocking.
+	 * 
+	 * @param buffer
+	 *            a buffer in read mode. If the preamble is parsed, its
+	 *            position is moved past it; otherwise, it is left unchanged.
+	 * 
+	 * @return the client id and whether the stream is compressed, or
+	 *         <code>null</code> if the buffer does not hold the whole preamble
+	 *         yet.
+	 * 
+	 * @throws IOException
+	 *             if the buffer does not start with a valid preamble.
+	 */
+	static Pair<String, Boolean> parse(ByteBuffer buffer) throws IOException {
+		int start = buffer.position();
+		int available = buffer.remaining();
+		if (available < 4) {
+			return null;
+		}
+
+		// ObjectOutputStream header, then a block holding the writeUTF and
+		// writeBoolean calls.
+		if ((buffer.getShort(start) & 0xFFFF) == LEGACY_MAGIC) {
+			if (available < 6) {
+				return null;
+			}
+			if (buffer.get(start + 4) != TC_BLOCKDATA) {
+				throw new IOException("Malformed legacy preamble.");
+			}
+			int length = 6 + (buffer.get(start + 5) & 0xFF);
+			if (available < length) {
+				return null;
+			}
+			int idLength = buffer.getShort(start + 6) & 0xFFFF;
+			buffer.position(start + length);
+			return new Pair<String, Boolean>(decode(buffer, start + 8,
+					idLength), buffer.get(start + 8 + idLength) != 0);
+		}
+
+		if (buffer.getInt(start) != MAGIC) {
+			throw new IOException("Unknown preamble.");
+		}
+		if (available < 7) {
+			return null;
+		}
+		int idLength = buffer.getShort(start + 5) & 0xFFFF;
+		if (available < 7 + idLength) {
+			return null;
+		}
+		buffer.position(start + 7 + idLength);
+		return new Pair<String, Boolean>(decode(buffer, start + 7, idLength),
+				(buffer.get(start + 4) & FLAG_GZIP) != 0);
+	}
+
+	private static String decode(ByteBuffer buffer, int offset, int length) {
+		byte[] encoded = new byte[length];
+		for (int i = 0; i < length; i++) {
+			encoded[i] = buffer.get(offset + i);
+		}
+		return new String(encoded, UTF8);
+	}
+}
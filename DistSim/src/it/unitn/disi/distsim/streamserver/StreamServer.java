@@ -3,6 +3,8 @@ package it.unitn.disi.distsim.streamserver;
 import it.unitn.disi.distsim.control.ISimulation;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.thoughtworks.xstream.annotations.XStreamAlias;
 import com.thoughtworks.xstream.annotations.XStreamOmitField;
@@ -16,11 +18,14 @@ public class StreamServer implements StreamServerMBean {
 	@XStreamAlias("port")
 	private int fPort;
 
+	@XStreamAlias("nonblocking")
+	private boolean fNonBlocking;
+
 	@XStreamOmitField
 	private ISimulation fParent;
 
 	@XStreamOmitField
-	private StreamServerImpl fServerImpl;
+	private IStreamServer fServerImpl;
 
 	@XStreamOmitField
 	private Thread fServerThread;
@@ -33,7 +38,9 @@ public class StreamServer implements StreamServerMBean {
 	@Override
 	public synchronized void start() {
 		checkNotRunning();
-		fServerImpl = new StreamServerImpl(fPort, checkOutputFolder());
+		fServerImpl = fNonBlocking ? new NIOStreamServerImpl(fPort,
+				checkOutputFolder()) : new StreamServerImpl(fPort,
+				checkOutputFolder());
 		fServerThread = new Thread(fServerImpl, "Stream Server Loop");
 		fRunning = true;
 		fServerThread.start();
@@ -91,6 +98,44 @@ public class StreamServer implements StreamServerMBean {
 		fParent.attributeListUpdated(this);
 	}
 
+	@Override
+	public synchronized boolean isNonBlocking() {
+		return fNonBlocking;
+	}
+
+	@Override
+	public synchronized void setNonBlocking(boolean nonBlocking) {
+		checkNotRunning();
+		fNonBlocking = nonBlocking;
+		fParent.attributeListUpdated(this);
+	}
+
+	@Override
+	public String[] getClientStatistics() {
+		List<ClientCounters> clients = clients();
+		String[] statistics = new String[clients.size()];
+		for (int i = 0; i < statistics.length; i++) {
+			statistics[i] = clients.get(i).toString();
+		}
+		return statistics;
+	}
+
+	@Override
+	public long getBytesReceived() {
+		long received = 0;
+		for (ClientCounters client : clients()) {
+			received += client.received();
+		}
+		return received;
+	}
+
+	private synchronized List<ClientCounters> clients() {
+		if (!isRunning()) {
+			return new ArrayList<ClientCounters>();
+		}
+		return fServerImpl.clients();
+	}
+
 	@Override
 	public synchronized File getOutputFolder() {
 		return new File(fParent.baseFolder(), "output");
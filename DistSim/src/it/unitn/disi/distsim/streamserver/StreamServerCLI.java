@@ -16,6 +16,9 @@ public class StreamServerCLI {
 	@Option(name = "-f", aliases = { "--folder" }, usage = "Folder where to store outputs.", required = true)
 	private File fOutput;
 
+	@Option(name = "-n", aliases = { "--nonblocking" }, usage = "Serves all clients from a single selector thread.", required = false)
+	private boolean fNonBlocking;
+
 	public static void main(String[] args) throws IOException {
 		new StreamServerCLI()._main(args);
 	}
@@ -37,7 +40,8 @@ public class StreamServerCLI {
 			System.exit(-1);
 		}
 
-		StreamServerImpl server = new StreamServerImpl(fPort, fOutput);
+		IStreamServer server = fNonBlocking ? new NIOStreamServerImpl(fPort,
+				fOutput) : new StreamServerImpl(fPort, fOutput);
 		server.run();
 
 	}
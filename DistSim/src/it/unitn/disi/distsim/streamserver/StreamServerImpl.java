@@ -7,11 +7,17 @@ import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.log4j.Logger;
 
-public class StreamServerImpl implements Runnable {
+/**
+ * {@link IStreamServer} which serves each client from its own thread, with
+ * blocking streams.
+ */
+public class StreamServerImpl implements IStreamServer {
 
 	private static final int MAX_BACKLOG = 128;
 
@@ -92,6 +98,14 @@ public class StreamServerImpl implements Runnable {
 		fShutdownHook.run();
 	}
 
+	public List<ClientCounters> clients() {
+		List<ClientCounters> clients = new ArrayList<ClientCounters>();
+		for (ClientHandler handler : fActiveHandlers) {
+			clients.add(handler.counters());
+		}
+		return clients;
+	}
+
 	private void mainLoop() throws IOException {
 		fLogger.info("Entering server main loop (listen port is " + fPort
 				+ ").");
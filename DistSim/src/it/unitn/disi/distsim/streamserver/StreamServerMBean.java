@@ -12,5 +12,24 @@ public interface StreamServerMBean extends ServiceMBean, ManagedService {
 	public void setPort(int port);
 
 	public File getOutputFolder();
-	
+
+	/**
+	 * @return whether clients are served by a single selector thread, rather
+	 *         than by a thread each.
+	 */
+	public boolean isNonBlocking();
+
+	public void setNonBlocking(boolean nonBlocking);
+
+	/**
+	 * @return one line per connected client, with its id, the bytes received
+	 *         and written to disk, and its average throughput.
+	 */
+	public String[] getClientStatistics();
+
+	/**
+	 * @return the number of bytes received from the connected clients.
+	 */
+	public long getBytesReceived();
+
 }
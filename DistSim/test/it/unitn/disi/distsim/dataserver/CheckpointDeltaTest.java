@@ -0,0 +1,151 @@
+package it.unitn.disi.distsim.dataserver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CheckpointDeltaTest {
+
+	private static final int BLOCK = 4096;
+
+	private static final int ID = 7;
+
+	private File fFolder;
+
+	@Before
+	public void setUp() throws IOException {
+		fFolder = File.createTempFile("checkpoints", "");
+		fFolder.delete();
+		Assert.assertTrue(fFolder.mkdir());
+	}
+
+	@After
+	public void tearDown() {
+		delete(fFolder);
+	}
+
+	@Test
+	public void deltasRestoreLikeFullCheckpoint() throws Exception {
+		Random random = new Random(42);
+		CheckpointDelta codec = new CheckpointDelta(BLOCK);
+		DataManagerImpl deltas = manager("deltas");
+
+		// The base checkpoint, from a reused buffer larger than the state.
+		byte[] state = new byte[20 * BLOCK + 123];
+		random.nextBytes(state);
+		byte[] buffer = Arrays.copyOf(state, state.length + BLOCK);
+		deltas.writeCheckpointDelta(ID, codec.encode(buffer, state.length, 0,
+				null, 0, CheckpointDelta.NO_BASE));
+
+		for (int sequence = 1; sequence <= 10; sequence++) {
+			byte[] next = mutate(state, random, sequence);
+			byte[] delta = codec.encode(next, next.length, sequence, state,
+					state.length, sequence - 1);
+			Assert.assertEquals(sequence, CheckpointDelta.sequence(delta));
+			Assert.assertEquals(sequence - 1, CheckpointDelta
+					.baseSequence(delta));
+			Assert.assertTrue(Arrays.equals(next, CheckpointDelta.apply(state,
+					delta)));
+			deltas.writeCheckpointDelta(ID, delta);
+			state = next;
+		}
+
+		DataManagerImpl full = manager("full");
+		full.writeCheckpoint(ID, state);
+
+		byte[] restored = deltas.workUnit(ID, "worker").checkpoint;
+		Assert.assertTrue(Arrays.equals(full.workUnit(ID, "worker").checkpoint,
+				restored));
+		Assert.assertTrue(Arrays.equals(state, restored));
+	}
+
+	@Test
+	public void sendsOnlyChangedBlocks() throws Exception {
+		CheckpointDelta codec = new CheckpointDelta(BLOCK);
+		byte[] base = new byte[32 * BLOCK];
+		new Random(43).nextBytes(base);
+		byte[] next = base.clone();
+		next[5 * BLOCK + 17]++;
+
+		byte[] full = codec.encode(base, base.length, 0, null, 0,
+				CheckpointDelta.NO_BASE);
+		byte[] delta = codec.encode(next, next.length, 1, base, base.length, 0);
+		Assert.assertTrue(delta.length < full.length / 16);
+		Assert.assertTrue(Arrays.equals(next, CheckpointDelta
+				.apply(base, delta)));
+	}
+
+	@Test
+	public void staleDeltasAreRejected() throws Exception {
+		CheckpointDelta codec = new CheckpointDelta(BLOCK);
+		byte[] base = new byte[3 * BLOCK];
+		byte[] next = base.clone();
+		next[0] = 1;
+
+		DataManagerImpl manager = manager("stale");
+		manager.writeCheckpointDelta(ID, codec.encode(base, base.length, 0,
+				null, 0, CheckpointDelta.NO_BASE));
+		try {
+			manager.writeCheckpointDelta(ID, codec.encode(next, next.length, 2,
+					base, base.length, 1));
+			Assert.fail();
+		} catch (StaleCheckpointException ex) {
+			// Expected.
+		}
+
+		// Sequence numbers are not persisted, so a restarted manager asks for
+		// a full checkpoint.
+		try {
+			manager("stale").writeCheckpointDelta(ID, codec.encode(next,
+					next.length, 1, base, base.length, 0));
+			Assert.fail();
+		} catch (StaleCheckpointException ex) {
+			// Expected.
+		}
+
+		Assert.assertTrue(Arrays.equals(base,
+				manager.workUnit(ID, "worker").checkpoint));
+	}
+
+	/**
+	 * Changes a few bytes of some blocks, and alternately grows and shrinks
+	 * the state.
+	 */
+	private byte[] mutate(byte[] state, Random random, int sequence) {
+		int length = state.length
+				+ (sequence % 2 == 0 ? 1 : -1) * random.nextInt(2 * BLOCK);
+		byte[] next = Arrays.copyOf(state, length);
+		if (length > state.length) {
+			byte[] tail = new byte[length - state.length];
+			random.nextBytes(tail);
+			System.arraycopy(tail, 0, next, state.length, tail.length);
+		}
+		for (int i = 0; i < 3; i++) {
+			next[random.nextInt(length)] ^= 1 + random.nextInt(255);
+		}
+		return next;
+	}
+
+	private void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private DataManagerImpl manager(String name) {
+		File folder = new File(fFolder, name);
+		folder.mkdir();
+		return new DataManagerImpl(folder, fFolder, "sim");
+	}
+}
@@ -2,6 +2,7 @@ package it.unitn.disi.graph.algorithms;
 
 import it.unitn.disi.graph.IndexedNeighborGraph;
 import it.unitn.disi.graph.algorithms.GraphAlgorithms.IEdgeFilter;
+import it.unitn.disi.utils.collections.IndexedDoubleHeap;
 
 import java.util.ArrayList;
 import java.util.BitSet;
@@ -35,6 +36,8 @@ public class DunnTopK implements ITopKEstimator {
 
 	private int[] fPrevious;
 
+	private IndexedDoubleHeap fQueue;
+
 	private IEdgeFilter fFilter = new IEdgeFilter() {
 		@Override
 		public boolean isForbidden(int i, int j) {
@@ -45,6 +48,7 @@ public class DunnTopK implements ITopKEstimator {
 	public DunnTopK(IndexedNeighborGraph graph, WeightMatrix weights, Mode mode) {
 		fPrevious = new int[graph.size()];
 		fMinDists = new double[graph.size()];
+		fQueue = new IndexedDoubleHeap(graph.size());
 		fForbiddenVertices = new BitSet();
 		fForbiddenEdges = new BitSet[graph.size()];
 		
@@ -84,7 +88,7 @@ public class DunnTopK implements ITopKEstimator {
 
 	private PathEntry selectPath(int source, int target) {
 		GraphAlgorithms.dijkstra(fGraph, fFilter, source, fWeights, fMinDists,
-				fPrevious);
+				fPrevious, fQueue);
 
 		int size = GraphAlgorithms.dijkstraPathSize(fPrevious, target);
 		if (size == -1) {
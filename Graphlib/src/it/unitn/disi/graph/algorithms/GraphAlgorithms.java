@@ -3,14 +3,14 @@ package it.unitn.disi.graph.algorithms;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.stack.array.TIntArrayStack;
 import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.graph.lightweight.CSRStaticGraph;
 import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
 import it.unitn.disi.utils.collections.DisjointSets;
+import it.unitn.disi.utils.collections.IndexedDoubleHeap;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.Comparator;
-import java.util.PriorityQueue;
 
 import peersim.graph.Graph;
 
@@ -119,6 +119,21 @@ public class GraphAlgorithms {
 		if (g.directed() || !g.isSimple()) {
 			throw new IllegalArgumentException();
 		}
+		return countTriads0(g, root);
+	}
+
+	// --------------------------------------------------------------------------
+
+	public static int countTriads(CSRStaticGraph g, int root) {
+		if (g.directed() || !g.isSimple()) {
+			throw new IllegalArgumentException();
+		}
+		return countTriads0(g, root);
+	}
+
+	// --------------------------------------------------------------------------
+
+	private static int countTriads0(IndexedNeighborGraph g, int root) {
 		// Assumes the graph is undirected and simple.
 		int triads = 0;
 		int degree = g.degree(root);
@@ -165,40 +180,50 @@ public class GraphAlgorithms {
 	 *            between each destination and the source.
 	 */
 	public static void dijkstra(IndexedNeighborGraph graph, IEdgeFilter filter,
-			int source, WeightMatrix weights, final double[] minDists,
+			int source, WeightMatrix weights, double[] minDists,
 			int[] previous) {
+		dijkstra(graph, filter, source, weights, minDists, previous,
+				new IndexedDoubleHeap(graph.size()));
+	}
+
+	// --------------------------------------------------------------------------
+
+	/**
+	 * Same as
+	 * {@link #dijkstra(IndexedNeighborGraph, IEdgeFilter, int, WeightMatrix, double[], int[])}
+	 * , but takes the priority queue from the caller, so that it can be reused
+	 * across calls. The heap is cleared and grown to the size of the graph as
+	 * required.
+	 */
+	public static void dijkstra(IndexedNeighborGraph graph, IEdgeFilter filter,
+			int source, WeightMatrix weights, double[] minDists,
+			int[] previous, IndexedDoubleHeap vertexQueue) {
 
 		Arrays.fill(previous, Integer.MAX_VALUE);
 		Arrays.fill(minDists, Double.POSITIVE_INFINITY);
 
-		minDists[source] = 0;
-		PriorityQueue<Integer> vertexQueue = new PriorityQueue<Integer>(10,
-				new Comparator<Integer>() {
-					@Override
-					public int compare(Integer o1, Integer o2) {
-						return (int) Math.signum(minDists[o1] - minDists[o2]);
-					}
-				});
+		vertexQueue.clear();
+		vertexQueue.ensureCapacity(graph.size());
 
-		vertexQueue.add(source);
+		minDists[source] = 0;
+		vertexQueue.add(source, 0);
 
 		while (!vertexQueue.isEmpty()) {
 			int u = vertexQueue.poll();
+			double distanceToU = minDists[u];
+			int degree = graph.degree(u);
 			// Visit each edge exiting u
-			for (int i = 0; i < graph.degree(u); i++) {
+			for (int i = 0; i < degree; i++) {
 				int v = graph.getNeighbor(u, i);
 				if (filter.isForbidden(u, v)) {
 					continue;
 				}
 				double weight = weights.get(u, v);
-				double distanceThroughU = minDists[u] + weight;
+				double distanceThroughU = distanceToU + weight;
 				if (distanceThroughU < minDists[v]) {
 					minDists[v] = distanceThroughU;
 					previous[v] = u;
-
-					// Increase key.
-					vertexQueue.remove(v);
-					vertexQueue.add(v);
+					vertexQueue.addOrDecrease(v, distanceThroughU);
 				}
 			}
 		}
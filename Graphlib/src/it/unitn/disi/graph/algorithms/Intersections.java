@@ -0,0 +1,125 @@
+package it.unitn.disi.graph.algorithms;
+
+/**
+ * Intersections of sorted neighbor lists. Ranges of similar length are
+ * intersected by merging them; when one is much longer than the other, the
+ * elements of the shorter one are looked up in the longer one by galloping
+ * (exponential, then binary, search), so that the cost grows with the length
+ * of the shorter range only.<BR>
+ * <BR>
+ * All ranges must be in strictly increasing order.
+ *
+ * @author giuliano
+ */
+public class Intersections {
+
+	/**
+	 * Length ratio past which intersections switch from merging to
+	 * galloping.
+	 */
+	private static final int GALLOP_RATIO = 16;
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the number of elements that <code>a[aFrom, aTo)</code> and
+	 *         <code>b[bFrom, bTo)</code> have in common.
+	 */
+	public static int count(int[] a, int aFrom, int aTo, int[] b, int bFrom,
+			int bTo) {
+		return intersect(a, aFrom, aTo, b, bFrom, bTo, null);
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Intersects <code>a[aFrom, aTo)</code> and <code>b[bFrom, bTo)</code>.
+	 *
+	 * @param out
+	 *            if not <code>null</code>, receives the common elements, in
+	 *            increasing order. Must be as long as the shorter range.
+	 *
+	 * @return the number of common elements.
+	 */
+	public static int intersect(int[] a, int aFrom, int aTo, int[] b,
+			int bFrom, int bTo, int[] out) {
+		int aLength = aTo - aFrom;
+		int bLength = bTo - bFrom;
+		if (aLength == 0 || bLength == 0) {
+			return 0;
+		}
+
+		if (aLength > bLength * GALLOP_RATIO) {
+			return gallop(b, bFrom, bTo, a, aFrom, aTo, out);
+		}
+		if (bLength > aLength * GALLOP_RATIO) {
+			return gallop(a, aFrom, aTo, b, bFrom, bTo, out);
+		}
+		return merge(a, aFrom, aTo, b, bFrom, bTo, out);
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static int merge(int[] a, int i, int aTo, int[] b, int j, int bTo,
+			int[] out) {
+		int count = 0;
+		while (i < aTo && j < bTo) {
+			int x = a[i];
+			int y = b[j];
+			if (x < y) {
+				i++;
+			} else if (x > y) {
+				j++;
+			} else {
+				if (out != null) {
+					out[count] = x;
+				}
+				count++;
+				i++;
+				j++;
+			}
+		}
+		return count;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static int gallop(int[] shorter, int i, int sTo, int[] longer,
+			int low, int lTo, int[] out) {
+		int count = 0;
+		for (; i < sTo && low < lTo; i++) {
+			int x = shorter[i];
+
+			// Finds a window [low, high] which must contain x, if present.
+			int step = 1;
+			int high = low;
+			while (high < lTo && longer[high] < x) {
+				low = high + 1;
+				high += step;
+				step <<= 1;
+			}
+			if (high >= lTo) {
+				high = lTo - 1;
+			}
+
+			// Then searches it.
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int value = longer[mid];
+				if (value < x) {
+					low = mid + 1;
+				} else if (value > x) {
+					high = mid - 1;
+				} else {
+					if (out != null) {
+						out[count] = x;
+					}
+					count++;
+					low = mid + 1;
+					break;
+				}
+			}
+		}
+		return count;
+	}
+}
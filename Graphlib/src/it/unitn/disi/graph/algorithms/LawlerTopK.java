@@ -2,6 +2,7 @@ package it.unitn.disi.graph.algorithms;
 
 import it.unitn.disi.graph.IndexedNeighborGraph;
 import it.unitn.disi.graph.algorithms.GraphAlgorithms.IEdgeFilter;
+import it.unitn.disi.utils.collections.IndexedDoubleHeap;
 
 import java.util.ArrayList;
 import java.util.BitSet;
@@ -31,6 +32,8 @@ public class LawlerTopK implements ITopKEstimator {
 
 	private int[] fPrevious;
 
+	private IndexedDoubleHeap fQueue;
+
 	private IEdgeFilter fFilter = new IEdgeFilter() {
 		@Override
 		public boolean isForbidden(int i, int j) {
@@ -42,6 +45,7 @@ public class LawlerTopK implements ITopKEstimator {
 		fBranchedEdges = new BitSet[graph.size()];
 		fPrevious = new int[graph.size()];
 		fMinDists = new double[graph.size()];
+		fQueue = new IndexedDoubleHeap(graph.size());
 		fCurrentRoot = new BitSet();
 		fGraph = graph;
 		fWeights = weights;
@@ -165,7 +169,7 @@ public class LawlerTopK implements ITopKEstimator {
 
 		// Finally, computes the spur.
 		GraphAlgorithms.dijkstra(fGraph, fFilter, branchVertex, fWeights,
-				fMinDists, fPrevious);
+				fMinDists, fPrevious, fQueue);
 
 		// Reconstructs the paths from the reverse tree returned by
 		// Dijkstra's algorithm.
@@ -191,8 +195,8 @@ public class LawlerTopK implements ITopKEstimator {
 	}
 
 	private PathEntry initialPath(int source, int destination) {
-		GraphAlgorithms
-				.dijkstra(fGraph, source, fWeights, fMinDists, fPrevious);
+		GraphAlgorithms.dijkstra(fGraph, GraphAlgorithms.NULL_FILTER, source,
+				fWeights, fMinDists, fPrevious, fQueue);
 		int size = GraphAlgorithms.dijkstraPathSize(fPrevious, destination);
 		if (size == -1) {
 			return null;
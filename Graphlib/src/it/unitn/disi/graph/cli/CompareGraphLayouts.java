@@ -0,0 +1,138 @@
+package it.unitn.disi.graph.cli;
+
+import it.unitn.disi.cli.ITransformer;
+import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.graph.codecs.GraphCodecHelper;
+import it.unitn.disi.graph.codecs.ResettableGraphDecoder;
+import it.unitn.disi.graph.lightweight.CSRStaticGraph;
+import it.unitn.disi.graph.lightweight.LSGLoader;
+import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
+import it.unitn.disi.utils.tabular.TableWriter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import peersim.config.Attribute;
+import peersim.config.AutoConfig;
+
+/**
+ * Loads the same graph as a {@link LightweightStaticGraph} and as a
+ * {@link CSRStaticGraph}, and prints, for each layout, the heap it takes and
+ * the time it takes to sweep over all neighbor lists, and to run a number of
+ * BFS traversals from random roots.
+ *
+ * @author giuliano
+ */
+@AutoConfig
+public class CompareGraphLayouts implements ITransformer {
+
+	@Attribute("decoder")
+	private String fDecoder;
+
+	@Attribute(value = "sweeps", defaultValue = "10")
+	private int fSweeps;
+
+	@Attribute(value = "bfs", defaultValue = "10")
+	private int fBFS;
+
+	@Attribute(value = "seed", defaultValue = "42")
+	private long fSeed;
+
+	@Override
+	public void execute(InputStream is, OutputStream oup) throws Exception {
+		ResettableGraphDecoder decoder = GraphCodecHelper.createDecoder(is,
+				fDecoder);
+
+		TableWriter writer = new TableWriter(oup, "layout", "heap",
+				"sweep", "bfs", "checksum");
+
+		long base = usedHeap();
+		LightweightStaticGraph lsg = new LSGLoader(decoder).create(true);
+		measure("adjacency", lsg, usedHeap() - base, writer);
+		lsg = null;
+
+		base = usedHeap();
+		CSRStaticGraph csr = new LSGLoader(decoder).createCompact(true);
+		measure("csr", csr, usedHeap() - base, writer);
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void measure(String layout, IndexedNeighborGraph graph,
+			long heap, TableWriter writer) {
+		long checksum = 0;
+
+		// Warms up.
+		checksum += sweep(graph);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < fSweeps; i++) {
+			checksum += sweep(graph);
+		}
+		long sweep = (System.nanoTime() - start) / Math.max(fSweeps, 1);
+
+		Random random = new Random(fSeed);
+		int[] queue = new int[graph.size()];
+		boolean[] seen = new boolean[graph.size()];
+		start = System.nanoTime();
+		for (int i = 0; i < fBFS; i++) {
+			checksum += bfs(graph, random.nextInt(graph.size()), queue, seen);
+		}
+		long bfs = (System.nanoTime() - start) / Math.max(fBFS, 1);
+
+		writer.set("layout", layout);
+		writer.set("heap", heap);
+		writer.set("sweep", sweep);
+		writer.set("bfs", bfs);
+		writer.set("checksum", checksum);
+		writer.emmitRow();
+	}
+
+	// -------------------------------------------------------------------------
+
+	private long sweep(IndexedNeighborGraph graph) {
+		long sum = 0;
+		for (int i = 0; i < graph.size(); i++) {
+			int degree = graph.degree(i);
+			for (int j = 0; j < degree; j++) {
+				sum += graph.getNeighbor(i, j);
+			}
+		}
+		return sum;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private int bfs(IndexedNeighborGraph graph, int root, int[] queue,
+			boolean[] seen) {
+		Arrays.fill(seen, false);
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = root;
+		seen[root] = true;
+		while (head < tail) {
+			int current = queue[head++];
+			int degree = graph.degree(current);
+			for (int j = 0; j < degree; j++) {
+				int neighbor = graph.getNeighbor(current, j);
+				if (!seen[neighbor]) {
+					seen[neighbor] = true;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+		return tail;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -2,17 +2,36 @@ package it.unitn.disi.graph.cli;
 
 import it.unitn.disi.cli.IMultiTransformer;
 import it.unitn.disi.cli.StreamProvider;
+import it.unitn.disi.graph.algorithms.Intersections;
 import it.unitn.disi.graph.codecs.GraphCodecHelper;
 import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
+import it.unitn.disi.utils.ParallelFor;
 
+import java.io.BufferedOutputStream;
 import java.io.PrintStream;
 
 import peersim.config.Attribute;
 import peersim.config.AutoConfig;
 
+/**
+ * For every edge of the one-hop graph, prints how many neighbors its
+ * endpoints have in common in the two-hop graph. Both graphs must have
+ * sorted neighbor lists without duplicates, as
+ * {@link LightweightStaticGraph}s loaded from simple graphs do.<BR>
+ * <BR>
+ * Intersections are computed by {@link Intersections} over blocks of
+ * vertices, with <code>threads</code> threads, and printed in vertex order.
+ */
 @AutoConfig
 public class ComputeIntersections implements IMultiTransformer {
 
+	/**
+	 * Number of vertices per block.
+	 */
+	private static final int BLOCK = 1 << 14;
+
+	private static final int CHUNK = 64;
+
 	public static enum Inputs {
 		ONE_HOP, TWO_HOP;
 	}
@@ -23,8 +42,12 @@ public class ComputeIntersections implements IMultiTransformer {
 
 	private String fDecoder;
 
-	public ComputeIntersections(@Attribute("decoder") String decoder) {
+	private int fThreads;
+
+	public ComputeIntersections(@Attribute("decoder") String decoder,
+			@Attribute(value = "threads", defaultValue = "1") int threads) {
 		fDecoder = decoder;
+		fThreads = threads;
 	}
 
 	@Override
@@ -35,35 +58,82 @@ public class ComputeIntersections implements IMultiTransformer {
 		LightweightStaticGraph twohop = LightweightStaticGraph
 				.load(GraphCodecHelper.createDecoder(p.input(Inputs.TWO_HOP),
 						fDecoder));
-		PrintStream ps = new PrintStream(p.output(Outputs.INTERSECTIONS));
+		PrintStream ps = new PrintStream(new BufferedOutputStream(p
+				.output(Outputs.INTERSECTIONS)));
+
+		ParallelFor loop = new ParallelFor(fThreads);
+		try {
+			int[] offsets = new int[BLOCK + 1];
+			int[] counts = new int[0];
+			StringBuilder line = new StringBuilder();
+			for (int start = 0; start < onehop.size(); start += BLOCK) {
+				int end = Math.min(onehop.size(), start + BLOCK);
+
+				// Each vertex owns a range of counts, one per one-hop edge.
+				for (int i = start; i < end; i++) {
+					offsets[i - start + 1] = offsets[i - start]
+							+ onehop.degree(i);
+				}
+				if (counts.length < offsets[end - start]) {
+					counts = new int[offsets[end - start]];
+				}
+
+				loop.run(start, end, CHUNK, new IntersectionCounter(onehop,
+						twohop, start, offsets, counts));
 
-		for (int i = 0; i < onehop.size(); i++) {
-			for (int j = 0; j < onehop.degree(i); j++) {
-				int neighbor = onehop.getNeighbor(i, j);
-				ps.println(i + " " + neighbor + " "
-						+ this.countIntersections(twohop, i, neighbor));
+				for (int i = start; i < end; i++) {
+					for (int j = 0; j < onehop.degree(i); j++) {
+						line.setLength(0);
+						line.append(i);
+						line.append(" ");
+						line.append(onehop.getNeighbor(i, j));
+						line.append(" ");
+						line.append(counts[offsets[i - start] + j]);
+						ps.println(line);
+					}
+				}
 			}
+		} finally {
+			loop.shutdown();
 		}
+		ps.flush();
 	}
 
-	private int countIntersections(LightweightStaticGraph graph, int v1, int v2) {
-		int u, v;
-		if (graph.degree(v1) > graph.degree(v2)) {
-			u = v2;
-			v = v1;
-		} else {
-			u = v1;
-			v = v2;
+	private static class IntersectionCounter implements ParallelFor.Body {
+
+		private final LightweightStaticGraph fOneHop;
+
+		private final LightweightStaticGraph fTwoHop;
+
+		private final int fStart;
+
+		private final int[] fOffsets;
+
+		private final int[] fCounts;
+
+		public IntersectionCounter(LightweightStaticGraph onehop,
+				LightweightStaticGraph twohop, int start, int[] offsets,
+				int[] counts) {
+			fOneHop = onehop;
+			fTwoHop = twohop;
+			fStart = start;
+			fOffsets = offsets;
+			fCounts = counts;
 		}
 
-		int count = 0;
-		for (int i = 0; i < graph.degree(u); i++) {
-			int neighbor = graph.getNeighbor(u, i);
-			if (graph.isEdge(v, neighbor)) {
-				count++;
+		@Override
+		public void run(int worker, int start, int end) {
+			for (int i = start; i < end; i++) {
+				int[] a = fTwoHop.fastGetNeighbours(i);
+				int offset = fOffsets[i - fStart];
+				for (int j = 0; j < fOneHop.degree(i); j++) {
+					int[] b = fTwoHop.fastGetNeighbours(fOneHop.getNeighbor(i,
+							j));
+					fCounts[offset + j] = Intersections.count(a, 0, a.length,
+							b, 0, b.length);
+				}
 			}
 		}
-		return count;
 	}
 
 }
@@ -0,0 +1,97 @@
+package it.unitn.disi.graph.cli;
+
+import it.unitn.disi.cli.ITransformer;
+import it.unitn.disi.graph.IGraphVisitor;
+import it.unitn.disi.graph.codecs.ByteGraphDecoder;
+import it.unitn.disi.utils.tabular.TableWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import peersim.config.Attribute;
+import peersim.config.AutoConfig;
+
+/**
+ * Measures decoding throughput, in MB/s, of a binary graph (see
+ * {@link ByteGraphDecoder}) when read through per-edge iteration and through
+ * {@link ByteGraphDecoder#visitEdges(IGraphVisitor)}. The input is loaded into
+ * memory first, so that disk speed does not get into the way.
+ *
+ * @author giuliano
+ */
+@AutoConfig
+public class DecoderThroughput implements ITransformer {
+
+	@Attribute(value = "rounds", defaultValue = "5")
+	private int fRounds;
+
+	@Override
+	public void execute(InputStream is, OutputStream oup) throws Exception {
+		byte[] graph = load(is);
+
+		TableWriter writer = new TableWriter(oup, "mode", "round", "mbs",
+				"checksum");
+
+		for (int i = 0; i < fRounds; i++) {
+			ChecksumVisitor visitor = new ChecksumVisitor();
+			long start = System.nanoTime();
+			ByteGraphDecoder decoder = new ByteGraphDecoder(
+					new ByteArrayInputStream(graph));
+			while (decoder.hasNext()) {
+				int source = decoder.getSource();
+				visitor.visitEdge(source, decoder.next());
+			}
+			print(writer, "iterator", i, graph.length, System.nanoTime()
+					- start, visitor);
+
+			visitor = new ChecksumVisitor();
+			start = System.nanoTime();
+			decoder = new ByteGraphDecoder(new ByteArrayInputStream(graph));
+			decoder.visitEdges(visitor);
+			print(writer, "bulk", i, graph.length, System.nanoTime() - start,
+					visitor);
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void print(TableWriter writer, String mode, int round, long bytes,
+			long nanos, ChecksumVisitor visitor) {
+		writer.set("mode", mode);
+		writer.set("round", round);
+		writer.set("mbs", (bytes / (1024.0 * 1024.0)) / (nanos / 1e9));
+		writer.set("checksum", visitor.fChecksum);
+		writer.emmitRow();
+	}
+
+	// -------------------------------------------------------------------------
+
+	private byte[] load(InputStream is) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		byte[] block = new byte[1 << 16];
+		int read;
+		while ((read = is.read(block)) != -1) {
+			buffer.write(block, 0, read);
+		}
+		return buffer.toByteArray();
+	}
+
+	// -------------------------------------------------------------------------
+
+	private static class ChecksumVisitor implements IGraphVisitor {
+
+		long fChecksum;
+
+		@Override
+		public void visitEdge(int i, int j) {
+			fChecksum = 31 * fChecksum + i + j;
+		}
+
+		@Override
+		public void visitVertex(int i) {
+		}
+	}
+}
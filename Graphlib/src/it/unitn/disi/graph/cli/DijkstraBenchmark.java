@@ -0,0 +1,167 @@
+package it.unitn.disi.graph.cli;
+
+import it.unitn.disi.cli.ITransformer;
+import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.graph.algorithms.GraphAlgorithms;
+import it.unitn.disi.graph.algorithms.WeightMatrix;
+import it.unitn.disi.graph.codecs.ByteGraphDecoder;
+import it.unitn.disi.graph.large.catalog.CatalogReader;
+import it.unitn.disi.graph.large.catalog.CatalogRecordTypes;
+import it.unitn.disi.graph.large.catalog.PartialLoader;
+import it.unitn.disi.utils.collections.IndexedDoubleHeap;
+import it.unitn.disi.utils.tabular.TableReader;
+import it.unitn.disi.utils.tabular.TableWriter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import peersim.config.Attribute;
+import peersim.config.AutoConfig;
+
+/**
+ * Times single-source shortest paths over egonets from a catalog, using both
+ * {@link GraphAlgorithms#dijkstra} with a reused {@link IndexedDoubleHeap} and
+ * the former implementation over a boxed {@link PriorityQueue} (kept here for
+ * reference). Reads the ids of the egonet roots from the input (column "id"),
+ * and prints the average time per run for each of them.
+ *
+ * @author giuliano
+ */
+@AutoConfig
+public class DijkstraBenchmark implements ITransformer {
+
+	@Attribute("catalog")
+	private String fCatalog;
+
+	@Attribute("graph")
+	private String fGraph;
+
+	@Attribute(value = "rounds", defaultValue = "20")
+	private int fRounds;
+
+	@Override
+	public void execute(InputStream is, OutputStream oup) throws Exception {
+		TableReader roots = new TableReader(is);
+		TableWriter writer = new TableWriter(oup, "id", "size",
+				"boxed", "indexed");
+
+		PartialLoader provider = new PartialLoader(new CatalogReader(
+				new FileInputStream(new File(fCatalog)),
+				CatalogRecordTypes.PROPERTY_RECORD), ByteGraphDecoder.class,
+				new File(fGraph));
+		provider.start(null);
+
+		IndexedDoubleHeap heap = new IndexedDoubleHeap(0);
+		while (roots.hasNext()) {
+			roots.next();
+			int root = Integer.parseInt(roots.get("id"));
+			IndexedNeighborGraph egonet = provider.subgraph(root);
+			WeightMatrix weights = new HashedWeights(root);
+
+			double[] minDists = new double[egonet.size()];
+			int[] previous = new int[egonet.size()];
+
+			// Warms up, and checks that both implementations agree.
+			boxedDijkstra(egonet, 0, weights, minDists, previous);
+			double[] reference = Arrays.copyOf(minDists, minDists.length);
+			GraphAlgorithms.dijkstra(egonet, GraphAlgorithms.NULL_FILTER, 0,
+					weights, minDists, previous, heap);
+			if (!Arrays.equals(reference, minDists)) {
+				throw new IllegalStateException(
+						"Implementations disagree for egonet " + root + ".");
+			}
+
+			long start = System.nanoTime();
+			for (int j = 0; j < fRounds; j++) {
+				for (int i = 0; i < egonet.size(); i++) {
+					boxedDijkstra(egonet, i, weights, minDists, previous);
+				}
+			}
+			long boxed = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int j = 0; j < fRounds; j++) {
+				for (int i = 0; i < egonet.size(); i++) {
+					GraphAlgorithms.dijkstra(egonet,
+							GraphAlgorithms.NULL_FILTER, i, weights, minDists,
+							previous, heap);
+				}
+			}
+			long indexed = System.nanoTime() - start;
+
+			long runs = (long) fRounds * egonet.size();
+			writer.set("id", root);
+			writer.set("size", egonet.size());
+			writer.set("boxed", boxed / runs);
+			writer.set("indexed", indexed / runs);
+			writer.emmitRow();
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	private static void boxedDijkstra(IndexedNeighborGraph graph, int source,
+			WeightMatrix weights, final double[] minDists, int[] previous) {
+		Arrays.fill(previous, Integer.MAX_VALUE);
+		Arrays.fill(minDists, Double.POSITIVE_INFINITY);
+
+		minDists[source] = 0;
+		PriorityQueue<Integer> vertexQueue = new PriorityQueue<Integer>(10,
+				new Comparator<Integer>() {
+					@Override
+					public int compare(Integer o1, Integer o2) {
+						return (int) Math.signum(minDists[o1] - minDists[o2]);
+					}
+				});
+
+		vertexQueue.add(source);
+		while (!vertexQueue.isEmpty()) {
+			int u = vertexQueue.poll();
+			for (int i = 0; i < graph.degree(u); i++) {
+				int v = graph.getNeighbor(u, i);
+				double distanceThroughU = minDists[u] + weights.get(u, v);
+				if (distanceThroughU < minDists[v]) {
+					minDists[v] = distanceThroughU;
+					previous[v] = u;
+					vertexQueue.remove(v);
+					vertexQueue.add(v);
+				}
+			}
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Symmetric pseudo-random weights in [1, 2), computed from the endpoints
+	 * of each edge so that no matrix has to be stored.
+	 */
+	private static class HashedWeights implements WeightMatrix {
+
+		private final long fSeed;
+
+		public HashedWeights(long seed) {
+			fSeed = seed;
+		}
+
+		@Override
+		public double get(int i, int j) {
+			long key = fSeed * 31 + ((long) Math.min(i, j) << 32)
+					+ Math.max(i, j);
+			key ^= key >>> 33;
+			key *= 0xff51afd7ed558ccdL;
+			key ^= key >>> 33;
+			return 1.0 + (key >>> 11) / (double) (1L << 53);
+		}
+
+		@Override
+		public double get(int i, int j, int index) {
+			return get(i, j);
+		}
+	}
+}
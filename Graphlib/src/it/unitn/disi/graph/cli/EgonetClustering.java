@@ -2,16 +2,23 @@ package it.unitn.disi.graph.cli;
 
 import it.unitn.disi.cli.IMultiTransformer;
 import it.unitn.disi.cli.StreamProvider;
-import it.unitn.disi.graph.algorithms.GraphAlgorithms;
+import it.unitn.disi.graph.algorithms.TriangleCounter;
 import it.unitn.disi.graph.codecs.ByteGraphDecoder;
 import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
 import it.unitn.disi.utils.logging.IProgressTracker;
 import it.unitn.disi.utils.logging.Progress;
 
+import java.io.BufferedOutputStream;
 import java.io.PrintStream;
 
+import peersim.config.Attribute;
 import peersim.config.AutoConfig;
 
+/**
+ * Prints the clustering coefficient of every vertex of an undirected, simple
+ * graph. Triangles are counted for all vertices at once with a
+ * {@link TriangleCounter}, over <code>threads</code> threads.
+ */
 @AutoConfig
 public class EgonetClustering implements IMultiTransformer {
 
@@ -23,20 +30,34 @@ public class EgonetClustering implements IMultiTransformer {
 		CLUSTERINGS;
 	}
 
+	@Attribute(value = "threads", defaultValue = "1")
+	private int fThreads;
+
 	@Override
 	public void execute(StreamProvider p) throws Exception {
 		LightweightStaticGraph graph = LightweightStaticGraph
 				.load(new ByteGraphDecoder(p.input(Inputs.GRAPH)));
-		
-		PrintStream out = new PrintStream(p.output(Outputs.CLUSTERINGS));
+		if (graph.directed() || !graph.isSimple()) {
+			throw new IllegalArgumentException();
+		}
+
+		PrintStream out = new PrintStream(new BufferedOutputStream(p
+				.output(Outputs.CLUSTERINGS)));
 		out.println("id degree triads possible_triads coefficient");
-		
+
 		IProgressTracker tracker = Progress.newTracker("computing clustering", graph.size());
 		tracker.startTask();
+		int[][] adjacency = new int[graph.size()][];
+		for (int i = 0; i < adjacency.length; i++) {
+			adjacency[i] = graph.fastGetNeighbours(i);
+		}
+		TriangleCounter counter = new TriangleCounter(adjacency, fThreads);
+
+		StringBuilder buffer = new StringBuilder();
 		for (int i = 0; i < graph.size(); i++) {
-			StringBuffer buffer = new StringBuffer();
+			buffer.setLength(0);
 			int n = graph.degree(i);
-			int triads = GraphAlgorithms.countTriads(graph, i);
+			int triads = counter.triangles(i);
 			double clique_triads = (n * (n - 1))/2.0; 
 			buffer.append(i);
 			buffer.append(" ");
@@ -50,6 +71,7 @@ public class EgonetClustering implements IMultiTransformer {
 			out.println(buffer);
 			tracker.tick();
 		}
+		out.flush();
 		tracker.done();
 	}
 
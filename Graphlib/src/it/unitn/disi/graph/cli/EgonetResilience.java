@@ -1,63 +1,134 @@
 package it.unitn.disi.graph.cli;
 
-import it.unitn.disi.graph.SubgraphDecorator;
-import it.unitn.disi.graph.algorithms.GraphAlgorithms;
+import it.unitn.disi.graph.egonet.EgonetExtractor;
+import it.unitn.disi.graph.egonet.EgonetGraph;
+import it.unitn.disi.graph.egonet.IEgonetVisitor;
+import it.unitn.disi.graph.egonet.ParallelEgonetProcessor;
 import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.HashSet;
 
 import peersim.config.Attribute;
 
 public class EgonetResilience extends GraphAnalyzer {
-	
-	public EgonetResilience(@Attribute("decoder") String decoder) {
+
+	private final int fThreads;
+
+	public EgonetResilience(@Attribute("decoder") String decoder,
+			@Attribute(value = "threads", defaultValue = "1") int threads) {
 		super(decoder);
+		fThreads = threads;
 	}
 
 	@Override
 	protected void transform(LightweightStaticGraph graph, OutputStream stream)
 			throws IOException {
-		
-		SubgraphDecorator egonet = new SubgraphDecorator(graph, true);
-		
-		// For each egonet...
-		for (int i = 0; i < graph.size(); i++) {
-			HashSet<Integer> egovertices = toSet(graph.fastGetNeighbours(i));
-			egovertices.add(i);
-			egonet.setVertexList(egovertices);
+		IEgonetVisitor[] strippers = new IEgonetVisitor[fThreads];
+		for (int i = 0; i < strippers.length; i++) {
+			strippers[i] = new Stripper(graph);
+		}
+
+		ParallelEgonetProcessor processor = new ParallelEgonetProcessor(
+				graph, true, fThreads);
+		try {
+			// For each egonet...
+			processor.process(strippers);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while stripping egonets.");
+		} finally {
+			processor.shutdown();
+		}
+	}
+
+	private static class Stripper implements IEgonetVisitor {
+
+		private final LightweightStaticGraph fGraph;
+
+		private final EgonetExtractor fExtractor = new EgonetExtractor();
+
+		private int[] fVertices = new int[16];
+
+		private int[] fParents = new int[16];
+
+		public Stripper(LightweightStaticGraph graph) {
+			fGraph = graph;
+		}
+
+		@Override
+		public void visit(int root, EgonetGraph egonet) {
+			int count = egonet.size();
+			if (fVertices.length < count) {
+				fVertices = new int[count];
+			}
+			for (int i = 0; i < count; i++) {
+				fVertices[i] = egonet.reverseMap(i);
+			}
+
 			// ... while it remains connected ...
-			while (GraphAlgorithms.isConnected(egonet) && egovertices.size() != 0) {
+			while (count != 0 && isConnected(egonet)) {
 				// ... strips the highest degree vertex.
 				int id = findMaxDegree(egonet);
-				egovertices.remove(id);
-				egonet.setVertexList(egovertices);
+				System.arraycopy(fVertices, id + 1, fVertices, id, count - id
+						- 1);
+				count--;
+				egonet = fExtractor.extract(fGraph, fVertices, count);
 			}
 		}
-	}
-	
-	private int findMaxDegree(SubgraphDecorator egonet) {
-		int size = egonet.size();
-		int maxDegree = Integer.MIN_VALUE;
-		int idx = Integer.MIN_VALUE;
-		for (int i = 0; i < size; i++) {
-			int degree = egonet.degree(i);
-			if (degree > maxDegree) {
-				maxDegree = degree;
-				idx = i;
+
+		private int findMaxDegree(EgonetGraph egonet) {
+			int size = egonet.size();
+			int maxDegree = Integer.MIN_VALUE;
+			int idx = Integer.MIN_VALUE;
+			for (int i = 0; i < size; i++) {
+				int degree = egonet.degree(i);
+				if (degree > maxDegree) {
+					maxDegree = degree;
+					idx = i;
+				}
 			}
+
+			return idx;
 		}
-		
-		return egonet.map(idx);
-	}
-	                                                     
-	private HashSet<Integer> toSet(int [] array) {
-		HashSet<Integer> set = new HashSet<Integer>();
-		for (int i = 0; i < array.length; i++) {
-			set.add(array[i]);
+
+		/**
+		 * Same as
+		 * {@link it.unitn.disi.graph.algorithms.GraphAlgorithms#isConnected}
+		 * (arcs are taken as undirected), over primitive scratch arrays.
+		 */
+		private boolean isConnected(EgonetGraph egonet) {
+			int size = egonet.size();
+			if (fParents.length < size) {
+				fParents = new int[size];
+			}
+			for (int i = 0; i < size; i++) {
+				fParents[i] = i;
+			}
+
+			int components = size;
+			for (int i = 0; i < size; i++) {
+				int degree = egonet.degree(i);
+				for (int j = 0; j < degree; j++) {
+					int u = find(i);
+					int v = find(egonet.getNeighbor(i, j));
+					if (u != v) {
+						fParents[u] = v;
+						components--;
+					}
+				}
+			}
+
+			return components == 1;
+		}
+
+		private int find(int i) {
+			while (fParents[i] != i) {
+				fParents[i] = fParents[fParents[i]];
+				i = fParents[i];
+			}
+			return i;
 		}
-		return set;
 	}
 
 }
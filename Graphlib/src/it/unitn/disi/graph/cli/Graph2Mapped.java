@@ -0,0 +1,36 @@
+package it.unitn.disi.graph.cli;
+
+import it.unitn.disi.cli.ITransformer;
+import it.unitn.disi.graph.codecs.GraphCodecHelper;
+import it.unitn.disi.graph.codecs.ResettableGraphDecoder;
+import it.unitn.disi.graph.lightweight.CSRStaticGraph;
+import it.unitn.disi.graph.lightweight.LSGLoader;
+import it.unitn.disi.graph.lightweight.MappedStaticGraph;
+
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import peersim.config.Attribute;
+import peersim.config.AutoConfig;
+
+/**
+ * Converts a graph into the on-disk format read by
+ * {@link MappedStaticGraph#open(java.io.File)}.
+ * 
+ * @author giuliano
+ */
+@AutoConfig
+public class Graph2Mapped implements ITransformer {
+
+	@Attribute(value = "decoder", defaultValue = "it.unitn.disi.graph.codecs.ByteGraphDecoder")
+	private String fDecoder;
+
+	@Override
+	public void execute(InputStream is, OutputStream oup) throws Exception {
+		ResettableGraphDecoder dec = GraphCodecHelper.createDecoder(is,
+				fDecoder);
+		CSRStaticGraph graph = new LSGLoader(dec).createCompact();
+		MappedStaticGraph.write(graph, new BufferedOutputStream(oup));
+	}
+}
@@ -1,5 +1,7 @@
 package it.unitn.disi.graph.codecs;
 
+import it.unitn.disi.graph.IGraphVisitor;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.NoSuchElementException;
@@ -45,6 +47,15 @@ public abstract class AbstractEdgeListDecoder implements ResettableGraphDecoder
 		}
 	}
 	
+	public void visitEdges(IGraphVisitor visitor) throws IOException {
+		while (hasNext()) {
+			int source = fSource;
+			int target = readInt(false);
+			fSource = readInt(true);
+			visitor.visitEdge(source, target);
+		}
+	}
+
 	final protected void init() throws IOException {
 		fSource = readInt(true);
 	}
@@ -1,5 +1,7 @@
 package it.unitn.disi.graph.codecs;
 
+import it.unitn.disi.graph.IGraphVisitor;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -68,6 +70,13 @@ public class AdjListGraphDecoder implements ResettableGraphDecoder {
 		return Integer.parseInt(fTokenizer.nextToken());
 	}
 
+	public void visitEdges(IGraphVisitor visitor) throws IOException {
+		while (hasNext()) {
+			visitor.visitEdge(fSource,
+					Integer.parseInt(fTokenizer.nextToken()));
+		}
+	}
+
 	public void remove() {
 		throw new UnsupportedOperationException();
 	}
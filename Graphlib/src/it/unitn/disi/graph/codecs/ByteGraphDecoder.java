@@ -1,23 +1,40 @@
 package it.unitn.disi.graph.codecs;
 
+import it.unitn.disi.graph.IGraphVisitor;
 import it.unitn.disi.utils.logging.CodecUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 
 /**
  * {@link ByteGraphDecoder} provides an iterator-like interface to access of
  * binary-encoded graphs.<BR>
  * <BR>
  * <b>Format:</b> a concatenated stream of <source, target> pairs, where each
- * pair is a 32 bit {@link Integer}.
- * 
+ * pair is a 32 bit {@link Integer}.<BR>
+ * <BR>
+ * Iteration reads one integer at a time from the underlying stream, so that
+ * clients can reposition it and {@link #realign()}. Whole-graph reads should
+ * go through {@link #visitEdges(IGraphVisitor)} instead, which reads large
+ * blocks and decodes them in place.
+ *
  * @author giuliano
  */
 public class ByteGraphDecoder extends AbstractEdgeListDecoder {
 
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	private static final int INT_BYTES = Integer.SIZE / Byte.SIZE;
+
 	private byte[] fBuf = new byte[4];
 
+	private byte[] fBlock;
+
+	private IntBuffer fInts;
+
 	public ByteGraphDecoder(InputStream is) throws IOException {
 		super(is);
 		init();
@@ -26,7 +43,17 @@ public class ByteGraphDecoder extends AbstractEdgeListDecoder {
 	@Override
 	protected int readInt(boolean eofAllowed) throws IOException {
 
-		int read = inputStream().read(fBuf);
+		InputStream is = inputStream();
+		int read = is.read(fBuf);
+		// Streams are allowed to return less than asked for.
+		while (read > 0 && read < fBuf.length) {
+			int more = is.read(fBuf, read, fBuf.length - read);
+			if (more == -1) {
+				break;
+			}
+			read += more;
+		}
+
 		if (read == -1) {
 			eofSeen();
 			if (!eofAllowed) {
@@ -40,6 +67,65 @@ public class ByteGraphDecoder extends AbstractEdgeListDecoder {
 		return CodecUtils.decodeInt(fBuf);
 	}
 
+	@Override
+	public void visitEdges(IGraphVisitor visitor) throws IOException {
+		if (!hasNext()) {
+			return;
+		}
+
+		if (fBlock == null) {
+			fBlock = new byte[BLOCK_SIZE];
+			// Same byte order as CodecUtils.
+			fInts = ByteBuffer.wrap(fBlock).order(ByteOrder.LITTLE_ENDIAN)
+					.asIntBuffer();
+		}
+
+		InputStream is = inputStream();
+		int source = getSource();
+		boolean hasSource = true;
+		int leftover = 0;
+		int read;
+		while ((read = fill(is, leftover)) > leftover) {
+			int ints = read / INT_BYTES;
+			for (int i = 0; i < ints; i++) {
+				int value = fInts.get(i);
+				if (hasSource) {
+					visitor.visitEdge(source, value);
+				} else {
+					source = value;
+				}
+				hasSource = !hasSource;
+			}
+
+			// Moves the incomplete integer, if any, to the block start.
+			leftover = read - ints * INT_BYTES;
+			System.arraycopy(fBlock, ints * INT_BYTES, fBlock, 0, leftover);
+		}
+
+		eofSeen();
+		if (leftover != 0) {
+			unexpectedEOF("file size is not multiple of " + Integer.SIZE);
+		}
+		if (hasSource) {
+			unexpectedEOF("odd number of integers (encoding error)");
+		}
+	}
+
+	/**
+	 * Fills the block from the stream, starting at <code>offset</code>.
+	 *
+	 * @return the number of valid bytes in the block, which will be smaller
+	 *         than the block size only if the end of the stream was reached.
+	 */
+	private int fill(InputStream is, int offset) throws IOException {
+		int read;
+		while (offset < fBlock.length
+				&& (read = is.read(fBlock, offset, fBlock.length - offset)) != -1) {
+			offset += read;
+		}
+		return offset;
+	}
+
 	@Override
 	protected void inputStreamReset(InputStream is) throws IOException { }
 }
@@ -1,5 +1,7 @@
 package it.unitn.disi.graph.codecs;
 
+import it.unitn.disi.graph.IGraphVisitor;
+
 import java.io.IOException;
 
 public interface ResettableGraphDecoder extends GraphDecoder {
@@ -22,4 +24,16 @@ public interface ResettableGraphDecoder extends GraphDecoder {
 	 *             if the operation is not supported.
 	 */
 	public void realign() throws IOException;
+
+	/**
+	 * Feeds all remaining edges to a visitor, through
+	 * {@link IGraphVisitor#visitEdge(int, int)}, leaving the decoder exhausted.
+	 * This is equivalent to iterating with {@link #hasNext()} and
+	 * {@link #next()}, but decoders can implement it in bulk, so it should be
+	 * preferred when the whole graph is to be read.
+	 * 
+	 * @throws IOException
+	 *             if that fails due to an I/O error.
+	 */
+	public void visitEdges(IGraphVisitor visitor) throws IOException;
 }
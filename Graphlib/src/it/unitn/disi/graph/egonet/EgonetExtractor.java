@@ -0,0 +1,234 @@
+package it.unitn.disi.graph.egonet;
+
+import it.unitn.disi.graph.IndexedNeighborGraph;
+
+/**
+ * {@link EgonetExtractor} materialises ego networks (and, more generally,
+ * induced subgraphs) of an {@link IndexedNeighborGraph} into an
+ * {@link EgonetGraph}. All scratch space is kept in primitive arrays which
+ * grow to the largest subgraph seen and are then reused, so extraction does
+ * not allocate in the steady state.<BR>
+ * <BR>
+ * Extraction intersects the neighbor list of each member with the (sorted)
+ * member list, and therefore requires the source graph to keep its neighbor
+ * lists sorted, as {@link it.unitn.disi.graph.lightweight.LightweightStaticGraph}
+ * and {@link it.unitn.disi.graph.lightweight.CSRStaticGraph} do.<BR>
+ * <BR>
+ * Extractors are not thread-safe. Concurrent extraction requires one
+ * extractor per thread (see {@link ParallelEgonetProcessor}).
+ *
+ * @author giuliano
+ */
+public class EgonetExtractor {
+
+	/**
+	 * Members with more than this many neighbors per egonet member are
+	 * intersected by binary search rather than by merging.
+	 */
+	private static final int MERGE_RATIO = 8;
+
+	private final EgonetGraph fEgonet = new EgonetGraph();
+
+	/**
+	 * Extracts the egonet of a vertex, made of its neighbors and, optionally,
+	 * of the vertex itself.
+	 *
+	 * @param graph
+	 *            the source graph.
+	 * @param root
+	 *            the root of the egonet.
+	 * @param includeRoot
+	 *            whether the root should be part of the egonet.
+	 *
+	 * @return the egonet, which remains valid until the next call to this
+	 *         extractor.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the neighbor lists of the source graph are not sorted.
+	 */
+	public EgonetGraph extract(IndexedNeighborGraph graph, int root,
+			boolean includeRoot) {
+		int degree = graph.degree(root);
+		int[] members = ensureMembers(degree + 1);
+
+		int count = 0;
+		int rootId = -1;
+		int previous = Integer.MIN_VALUE;
+		for (int i = 0; i < degree; i++) {
+			int neighbor = graph.getNeighbor(root, i);
+			checkOrder(previous, neighbor, root);
+			// Skips duplicates and self-loops.
+			if ((i > 0 && neighbor == previous) || neighbor == root) {
+				continue;
+			}
+			previous = neighbor;
+			if (includeRoot && rootId == -1 && root < neighbor) {
+				rootId = count;
+				members[count++] = root;
+			}
+			members[count++] = neighbor;
+		}
+
+		if (includeRoot && rootId == -1) {
+			rootId = count;
+			members[count++] = root;
+		}
+
+		return materialise(graph, count, rootId);
+	}
+
+	// --------------------------------------------------------------------------
+
+	/**
+	 * Extracts the subgraph induced by a set of vertices.
+	 *
+	 * @param graph
+	 *            the source graph.
+	 * @param vertices
+	 *            the vertices of the subgraph, in strictly increasing order.
+	 * @param count
+	 *            the number of vertices to take from <code>vertices</code>.
+	 *
+	 * @return the subgraph, which remains valid until the next call to this
+	 *         extractor.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the vertices are not in strictly increasing order, or if
+	 *             the neighbor lists of the source graph are not sorted.
+	 */
+	public EgonetGraph extract(IndexedNeighborGraph graph, int[] vertices,
+			int count) {
+		int[] members = ensureMembers(count);
+		for (int i = 0; i < count; i++) {
+			if (i > 0 && vertices[i] <= vertices[i - 1]) {
+				throw new IllegalArgumentException(
+						"Vertices must be in strictly increasing order.");
+			}
+			members[i] = vertices[i];
+		}
+
+		return materialise(graph, count, -1);
+	}
+
+	// --------------------------------------------------------------------------
+
+	private EgonetGraph materialise(IndexedNeighborGraph graph, int count,
+			int root) {
+		EgonetGraph egonet = fEgonet;
+		if (egonet.fOffsets.length < count + 1) {
+			egonet.fOffsets = new int[Math.max(count + 1,
+					egonet.fOffsets.length * 2)];
+		}
+
+		int[] members = egonet.fMembers;
+		int[] offsets = egonet.fOffsets;
+		int arcs = 0;
+		for (int local = 0; local < count; local++) {
+			offsets[local] = arcs;
+			int vertex = members[local];
+			int degree = graph.degree(vertex);
+			int[] adjacency = ensureAdjacency(arcs + Math.min(degree, count));
+			if (degree <= MERGE_RATIO * count) {
+				arcs = merge(graph, vertex, degree, members, count,
+						adjacency, arcs);
+			} else {
+				arcs = search(graph, vertex, degree, members, count,
+						adjacency, arcs);
+			}
+		}
+		offsets[count] = arcs;
+
+		egonet.fSource = graph;
+		egonet.fSize = count;
+		egonet.fRoot = root;
+		return egonet;
+	}
+
+	// --------------------------------------------------------------------------
+
+	private int merge(IndexedNeighborGraph graph, int vertex, int degree,
+			int[] members, int count, int[] adjacency, int arcs) {
+		int i = 0;
+		int j = 0;
+		int previous = Integer.MIN_VALUE;
+		while (i < degree && j < count) {
+			int neighbor = graph.getNeighbor(vertex, i);
+			checkOrder(previous, neighbor, vertex);
+			previous = neighbor;
+
+			int member = members[j];
+			if (neighbor < member) {
+				i++;
+			} else if (neighbor > member) {
+				j++;
+			} else {
+				adjacency[arcs++] = j;
+				i++;
+				j++;
+				// Skips duplicate arcs.
+				while (i < degree && graph.getNeighbor(vertex, i) == neighbor) {
+					i++;
+				}
+			}
+		}
+		return arcs;
+	}
+
+	// --------------------------------------------------------------------------
+
+	private int search(IndexedNeighborGraph graph, int vertex, int degree,
+			int[] members, int count, int[] adjacency, int arcs) {
+		int low = 0;
+		for (int j = 0; j < count; j++) {
+			int member = members[j];
+			// Members are sorted, so the search can start where the last one
+			// ended.
+			int high = degree - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int value = graph.getNeighbor(vertex, mid);
+				if (value < member) {
+					low = mid + 1;
+				} else if (value > member) {
+					high = mid - 1;
+				} else {
+					adjacency[arcs++] = j;
+					low = mid + 1;
+					break;
+				}
+			}
+		}
+		return arcs;
+	}
+
+	// --------------------------------------------------------------------------
+
+	private void checkOrder(int previous, int neighbor, int vertex) {
+		if (neighbor < previous) {
+			throw new IllegalArgumentException("Neighbors of vertex " + vertex
+					+ " are not sorted.");
+		}
+	}
+
+	// --------------------------------------------------------------------------
+
+	private int[] ensureMembers(int size) {
+		if (fEgonet.fMembers.length < size) {
+			fEgonet.fMembers = new int[Math.max(size,
+					fEgonet.fMembers.length * 2)];
+		}
+		return fEgonet.fMembers;
+	}
+
+	// --------------------------------------------------------------------------
+
+	private int[] ensureAdjacency(int size) {
+		int[] adjacency = fEgonet.fAdjacency;
+		if (adjacency.length < size) {
+			int[] grown = new int[Math.max(size, adjacency.length * 2)];
+			System.arraycopy(adjacency, 0, grown, 0, adjacency.length);
+			fEgonet.fAdjacency = grown;
+		}
+		return fEgonet.fAdjacency;
+	}
+}
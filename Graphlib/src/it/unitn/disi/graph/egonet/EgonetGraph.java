@@ -0,0 +1,230 @@
+package it.unitn.disi.graph.egonet;
+
+import it.unitn.disi.graph.IGraphVisitor;
+import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.graph.algorithms.VisitorSupport;
+import it.unitn.disi.utils.IDMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+
+import peersim.graph.Graph;
+
+/**
+ * Materialised subgraph of an {@link IndexedNeighborGraph}, as produced by an
+ * {@link EgonetExtractor}. Vertices get local ids from <code>0</code> to
+ * <code>size() - 1</code>, in the same order as their ids in the source graph,
+ * and edges are laid out in compressed sparse row format over local ids, with
+ * sorted neighbor lists.<BR>
+ * <BR>
+ * Unlike the views of {@link it.unitn.disi.graph.SubgraphDecorator}, neighbor
+ * access involves neither filtering nor id translation. Instances are owned
+ * and reused by their {@link EgonetExtractor}, however, so an
+ * {@link EgonetGraph} is only valid until the next extraction.
+ *
+ * @author giuliano
+ */
+public class EgonetGraph implements IndexedNeighborGraph, IDMapper {
+
+	IndexedNeighborGraph fSource;
+
+	/**
+	 * Maps local ids into ids of the source graph. Sorted.
+	 */
+	int[] fMembers = new int[16];
+
+	int[] fOffsets = new int[17];
+
+	int[] fAdjacency = new int[64];
+
+	int fSize;
+
+	int fRoot = -1;
+
+	EgonetGraph() {
+	}
+
+	// --------------------------------------------------------------------------
+
+	/**
+	 * @return the local id of the root of the egonet, or <code>-1</code> if
+	 *         the root is not part of it.
+	 */
+	public int root() {
+		return fRoot;
+	}
+
+	// --------------------------------------------------------------------------
+
+	/**
+	 * @return the graph this egonet has been extracted from.
+	 */
+	public IndexedNeighborGraph source() {
+		return fSource;
+	}
+
+	// --------------------------------------------------------------------------
+
+	/**
+	 * @return the number of arcs in the egonet, which is twice the number of
+	 *         edges for undirected graphs.
+	 */
+	public int arcs() {
+		return fOffsets[fSize];
+	}
+
+	// --------------------------------------------------------------------------
+	// IDMapper interface.
+	// --------------------------------------------------------------------------
+
+	/**
+	 * Given the id of a vertex in the source graph, returns its local id.
+	 *
+	 * @throws NoSuchElementException
+	 *             if the vertex is not part of the egonet.
+	 */
+	public int map(int id) {
+		int local = localId(id);
+		if (local < 0) {
+			throw new NoSuchElementException("Vertex " + id
+					+ " is not part of the egonet.");
+		}
+		return local;
+	}
+
+	// --------------------------------------------------------------------------
+
+	/**
+	 * Given the local id of a vertex, returns its id in the source graph.
+	 */
+	public int reverseMap(int local) {
+		checkIndex(local);
+		return fMembers[local];
+	}
+
+	// --------------------------------------------------------------------------
+
+	public boolean isMapped(int id) {
+		return localId(id) >= 0;
+	}
+
+	// --------------------------------------------------------------------------
+
+	private int localId(int id) {
+		int low = 0;
+		int high = fSize - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int value = fMembers[mid];
+			if (value < id) {
+				low = mid + 1;
+			} else if (value > id) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	// --------------------------------------------------------------------------
+	// IndexedNeighborGraph interface.
+	// --------------------------------------------------------------------------
+
+	public int size() {
+		return fSize;
+	}
+
+	// --------------------------------------------------------------------------
+
+	public int degree(int i) {
+		return fOffsets[i + 1] - fOffsets[i];
+	}
+
+	// --------------------------------------------------------------------------
+
+	public int getNeighbor(int nodeIndex, int neighborIndex) {
+		return fAdjacency[fOffsets[nodeIndex] + neighborIndex];
+	}
+
+	// --------------------------------------------------------------------------
+
+	public Collection<Integer> getNeighbours(int i) {
+		int degree = degree(i);
+		ArrayList<Integer> neighbors = new ArrayList<Integer>(degree);
+		for (int j = 0; j < degree; j++) {
+			neighbors.add(fAdjacency[fOffsets[i] + j]);
+		}
+		return neighbors;
+	}
+
+	// --------------------------------------------------------------------------
+
+	/**
+	 * {@link Graph#isEdge(int, int)} implementation which works by doing a
+	 * binary search over the (sorted) neighbors of <code>i</code>.
+	 */
+	public boolean isEdge(int i, int j) {
+		int low = fOffsets[i];
+		int high = fOffsets[i + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int value = fAdjacency[mid];
+			if (value < j) {
+				low = mid + 1;
+			} else if (value > j) {
+				high = mid - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// --------------------------------------------------------------------------
+
+	public boolean directed() {
+		return fSource.directed();
+	}
+
+	// --------------------------------------------------------------------------
+
+	public void visit(IGraphVisitor visitor) {
+		VisitorSupport support = new VisitorSupport(this, directed());
+		support.visit(visitor);
+	}
+
+	// --------------------------------------------------------------------------
+
+	public Object getNode(int i) {
+		return null;
+	}
+
+	// --------------------------------------------------------------------------
+
+	public Object getEdge(int i, int j) {
+		return null;
+	}
+
+	// --------------------------------------------------------------------------
+
+	public boolean clearEdge(int i, int j) {
+		throw new UnsupportedOperationException();
+	}
+
+	// --------------------------------------------------------------------------
+
+	public boolean setEdge(int i, int j) {
+		throw new UnsupportedOperationException();
+	}
+
+	// --------------------------------------------------------------------------
+
+	private void checkIndex(int i) {
+		if (i >= fSize || i < 0) {
+			throw new IllegalArgumentException("Vertex id " + i
+					+ " is not valid.");
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package it.unitn.disi.graph.egonet;
+
+/**
+ * Callback through which a {@link ParallelEgonetProcessor} hands out egonets.
+ *
+ * @author giuliano
+ */
+public interface IEgonetVisitor {
+
+	/**
+	 * Called once for each root.
+	 *
+	 * @param root
+	 *            the id of the root in the source graph.
+	 * @param egonet
+	 *            the egonet of the root, which is only valid for the duration
+	 *            of the call.
+	 */
+	public void visit(int root, EgonetGraph egonet);
+
+}
@@ -0,0 +1,115 @@
+package it.unitn.disi.graph.egonet;
+
+import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.utils.ParallelFor;
+
+/**
+ * {@link ParallelEgonetProcessor} extracts the egonets of a range of vertices
+ * of an {@link IndexedNeighborGraph} with a pool of threads, and hands them
+ * out to {@link IEgonetVisitor}s.<BR>
+ * <BR>
+ * Each thread owns an {@link EgonetExtractor} and one of the visitors passed
+ * to {@link #process(IEgonetVisitor[], int, int)}, so visitors need not be
+ * thread-safe as long as they do not share state. Vertices are handed out in
+ * small chunks, as the cost of an egonet varies wildly with the degree of its
+ * root (see {@link ParallelFor}). The order in which roots are visited is
+ * therefore unspecified; visitors which need ordered results should store them
+ * by root.<BR>
+ * <BR>
+ * The source graph is only read, and must support concurrent reads.
+ *
+ * @author giuliano
+ */
+public class ParallelEgonetProcessor {
+
+	private static final int CHUNK = 64;
+
+	private final IndexedNeighborGraph fGraph;
+
+	private final boolean fIncludeRoot;
+
+	private final EgonetExtractor[] fExtractors;
+
+	private final ParallelFor fLoop;
+
+	/**
+	 * @param graph
+	 *            the source graph.
+	 * @param includeRoot
+	 *            whether egonets should include their roots.
+	 * @param threads
+	 *            the number of threads to use. With a single thread,
+	 *            egonets are processed by the calling thread.
+	 */
+	public ParallelEgonetProcessor(IndexedNeighborGraph graph,
+			boolean includeRoot, int threads) {
+		fLoop = new ParallelFor(threads);
+		fGraph = graph;
+		fIncludeRoot = includeRoot;
+		fExtractors = new EgonetExtractor[threads];
+		for (int i = 0; i < threads; i++) {
+			fExtractors[i] = new EgonetExtractor();
+		}
+	}
+
+	// --------------------------------------------------------------------------
+
+	public int threads() {
+		return fLoop.threads();
+	}
+
+	// --------------------------------------------------------------------------
+
+	/**
+	 * Same as <code>process(visitors, 0, graph.size())</code>.
+	 */
+	public void process(IEgonetVisitor[] visitors) throws InterruptedException {
+		process(visitors, 0, fGraph.size());
+	}
+
+	// --------------------------------------------------------------------------
+
+	/**
+	 * Visits the egonets of the vertices in <code>[start, end)</code>, and
+	 * returns once all of them have been visited.
+	 *
+	 * @param visitors
+	 *            one {@link IEgonetVisitor} per thread.
+	 *
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting.
+	 * @throws RuntimeException
+	 *             if one is thrown by a visitor, after all threads have
+	 *             stopped.
+	 */
+	public void process(final IEgonetVisitor[] visitors, int start, int end)
+			throws InterruptedException {
+		if (visitors.length != fExtractors.length) {
+			throw new IllegalArgumentException("Expected "
+					+ fExtractors.length + " visitors, got " + visitors.length
+					+ ".");
+		}
+
+		fLoop.runInterruptibly(start, end, CHUNK, new ParallelFor.Body() {
+			@Override
+			public void run(int worker, int first, int last) {
+				EgonetExtractor extractor = fExtractors[worker];
+				IEgonetVisitor visitor = visitors[worker];
+				for (int root = first; root < last; root++) {
+					visitor.visit(root, extractor.extract(fGraph, root,
+							fIncludeRoot));
+				}
+			}
+		});
+	}
+
+	// --------------------------------------------------------------------------
+
+	/**
+	 * Stops the threads of this processor. Should be called once the
+	 * processor is no longer needed.
+	 */
+	public void shutdown() {
+		fLoop.shutdown();
+	}
+}
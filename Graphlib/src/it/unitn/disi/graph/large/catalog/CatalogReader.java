@@ -1,10 +1,13 @@
 package it.unitn.disi.graph.large.catalog;
 
+import it.unitn.disi.utils.MiscUtils;
 import it.unitn.disi.utils.logging.EventCodec;
-import it.unitn.disi.utils.logging.EventCodec.DecodingStream;
+import it.unitn.disi.utils.logging.EventCodec.RecordReader;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Provides an {@link ICatalogCursor} interface for reading
@@ -17,33 +20,62 @@ public class CatalogReader extends AbstractCatalogCursor {
 	private EventCodec fDecoder = new EventCodec(Byte.class,
 			CatalogRecordTypes.values());
 
-	private DecodingStream fStream;
+	private RecordReader fReader;
 
 	private boolean fStarted;
 
+	/**
+	 * Whether {@link #fReader} has been advanced to the record to be returned
+	 * by {@link #next()}, and whether there is one.
+	 */
+	private boolean fAdvanced;
+
+	private boolean fHasNext;
+
 	public CatalogReader(InputStream is, ICatalogRecordType type) {
 		super(type, false);
-		fStream = fDecoder.decodingStream(is);
+		fReader = fDecoder.recordReader(is);
 	}
 
 	@Override
 	public boolean hasNext() {
-		return fStream.hasNext();
+		if (!fAdvanced) {
+			try {
+				fHasNext = fReader.next() != -1;
+			} catch (IOException ex) {
+				throw MiscUtils.nestRuntimeException(ex);
+			}
+			fAdvanced = true;
+		}
+		return fHasNext;
 	}
 
 	@Override
 	public void next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		fAdvanced = false;
+
 		List<Class<? extends Number>> parts = type().components();
 		Number [] buffer = valueBuffer();
-		// Skips the magic number.
-		fStream.next(Byte.class);
 		for (int i = 0; i < parts.size(); i++) {
-			Class<? extends Number> type = parts.get(i);
-			buffer[i] = fStream.next(type);
+			buffer[i] = read(parts.get(i));
 		}
 		fStarted = true;
 	}
 
+	private Number read(Class<? extends Number> type) {
+		if (type == Integer.class) {
+			return fReader.readInt();
+		} else if (type == Long.class) {
+			return fReader.readLong();
+		} else if (type == Double.class) {
+			return fReader.readDouble();
+		}
+		return fReader.readByte();
+	}
+
 	@Override
 	protected boolean isReady() {
 		return fStarted;
@@ -1,6 +1,9 @@
 package it.unitn.disi.graph.large.catalog;
 
 import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.graph.egonet.EgonetGraph;
+import it.unitn.disi.graph.egonet.IEgonetVisitor;
+import it.unitn.disi.graph.egonet.ParallelEgonetProcessor;
 import it.unitn.disi.utils.logging.CodecUtils;
 import it.unitn.disi.utils.logging.EventCodec;
 
@@ -10,14 +13,28 @@ import java.util.List;
 
 /**
  * Graph indexer takes an {@link IndexedNeighborGraph} and computes its an
- * attribute catalog containing indexing information.
+ * attribute catalog containing indexing information.<BR>
+ * <BR>
+ * With more than one thread, catalog records are computed over blocks of
+ * vertices by a {@link ParallelEgonetProcessor}, and written out in vertex
+ * order once each block is complete. The output is the same as with a single
+ * thread. {@link NeighborhoodMetricComputer}s are then fed the egonets
+ * extracted by the processor, and all other {@link ICatalogPart}s must be
+ * safe to call concurrently.
  * 
  * @author giuliano
  */
 public class GraphIndexer {
 
+	/**
+	 * Number of vertices per block in parallel mode.
+	 */
+	private static final int BLOCK = 1 << 14;
+
 	private final ICatalogRecordType fType;
 
+	private final int fThreads;
+
 	private final byte[] fByteBuffer;
 
 	private final Number[] fValueBuffer;
@@ -25,13 +42,29 @@ public class GraphIndexer {
 	private long fOffset;
 
 	public GraphIndexer(ICatalogRecordType type) {
+		this(type, 1);
+	}
+
+	/**
+	 * @param type
+	 *            the type of the catalog records.
+	 * @param threads
+	 *            the number of threads used to compute catalog records.
+	 */
+	public GraphIndexer(ICatalogRecordType type, int threads) {
 		fType = type;
+		fThreads = threads;
 		fByteBuffer = new byte[type.eventSet().sizeof(type)];
 		fValueBuffer = new Number[type.components().size() + 1];
 	}
 
 	public void indexGraph(IndexedNeighborGraph inputGraph, OutputStream index,
 			OutputStream indexedGraph) throws IOException {
+		if (fThreads > 1) {
+			parallelIndexGraph(inputGraph, index, indexedGraph);
+			return;
+		}
+
 		CatalogComputer computer = new CatalogComputer(inputGraph, fType);
 		EventCodec encoder = new EventCodec(Byte.class,
 				CatalogRecordTypes.values());
@@ -40,7 +73,52 @@ public class GraphIndexer {
 		while (computer.hasNext()) {
 			computer.next();
 			writeCatalogAttributes(computer, index, encoder);
-			fOffset += writeNeighborhood(inputGraph, computer, indexedGraph);
+			fOffset += writeNeighborhood(inputGraph,
+					computer.currentNeighborhood(), indexedGraph);
+		}
+	}
+
+	private void parallelIndexGraph(IndexedNeighborGraph inputGraph,
+			OutputStream index, OutputStream indexedGraph) throws IOException {
+		int size = fByteBuffer.length;
+		byte[] records = new byte[Math.min(BLOCK, inputGraph.size()) * size];
+		long[] offsets = new long[BLOCK];
+
+		RecordComputer[] computers = new RecordComputer[fThreads];
+		for (int i = 0; i < computers.length; i++) {
+			computers[i] = new RecordComputer(inputGraph, records, offsets);
+		}
+
+		ParallelEgonetProcessor processor = new ParallelEgonetProcessor(
+				inputGraph, true, fThreads);
+		fOffset = 0;
+		try {
+			for (int start = 0; start < inputGraph.size(); start += BLOCK) {
+				int end = Math.min(inputGraph.size(), start + BLOCK);
+
+				// Offsets depend on all previous neighborhoods, so they are
+				// computed upfront.
+				long offset = fOffset;
+				for (int root = start; root < end; root++) {
+					offsets[root - start] = offset;
+					offset += neighborhoodSize(inputGraph, root);
+				}
+
+				for (RecordComputer computer : computers) {
+					computer.fStart = start;
+				}
+				processor.process(computers, start, end);
+
+				index.write(records, 0, (end - start) * size);
+				for (int root = start; root < end; root++) {
+					fOffset += writeNeighborhood(inputGraph, root, indexedGraph);
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while indexing graph.");
+		} finally {
+			processor.shutdown();
 		}
 	}
 
@@ -65,15 +143,18 @@ public class GraphIndexer {
 		index.write(fByteBuffer, 0, length);
 	}
 
-	private int writeNeighborhood(IndexedNeighborGraph graph,
-			CatalogComputer computer, OutputStream output) throws IOException {
-		int root = computer.currentNeighborhood();
+	private int writeNeighborhood(IndexedNeighborGraph graph, int root,
+			OutputStream output) throws IOException {
 		int degree = graph.degree(root);
 		for (int i = 0; i < degree; i++) {
 			writeInt(root, output);
 			writeInt(graph.getNeighbor(root, i), output);
 		}
-		return degree * 2 * Integer.SIZE;
+		return neighborhoodSize(graph, root);
+	}
+
+	private int neighborhoodSize(IndexedNeighborGraph graph, int root) {
+		return graph.degree(root) * 2 * Integer.SIZE;
 	}
 
 	private int writeInt(int number, OutputStream ostream) throws IOException {
@@ -82,4 +163,51 @@ public class GraphIndexer {
 		return len;
 	}
 
+	/**
+	 * Encodes the catalog records of the vertices in a block, each at its
+	 * position in the shared record buffer.
+	 */
+	private class RecordComputer implements IEgonetVisitor {
+
+		private final IndexedNeighborGraph fGraph;
+
+		private final byte[] fRecords;
+
+		private final long[] fOffsets;
+
+		private final EventCodec fCodec = new EventCodec(Byte.class,
+				CatalogRecordTypes.values());
+
+		private final Number[] fValues = new Number[fType.components()
+				.size() + 1];
+
+		private int fStart;
+
+		public RecordComputer(IndexedNeighborGraph graph, byte[] records,
+				long[] offsets) {
+			fGraph = graph;
+			fRecords = records;
+			fOffsets = offsets;
+		}
+
+		@Override
+		public void visit(int root, EgonetGraph egonet) {
+			List<ICatalogPart<? extends Number>> parts = fType.getParts();
+			fValues[0] = fType.magicNumber();
+			for (int i = 0; i < parts.size(); i++) {
+				ICatalogPart<? extends Number> part = parts.get(i);
+				if (part.key().equals("offset")) {
+					fValues[i + 1] = fOffsets[root - fStart];
+				} else if (part instanceof NeighborhoodMetricComputer) {
+					fValues[i + 1] = ((NeighborhoodMetricComputer<?>) part)
+							.compute(egonet);
+				} else {
+					fValues[i + 1] = part.compute(fGraph, root);
+				}
+			}
+			fCodec.encodeEvent(fRecords, (root - fStart) * fByteBuffer.length,
+					fValues);
+		}
+	}
+
 }
@@ -30,6 +30,9 @@ public class GraphIndexerCLI implements IMultiTransformer {
 	@Attribute("decoder")
 	private String fDecoder;
 
+	@Attribute(value = "threads", defaultValue = "1")
+	private int fThreads;
+
 	@Override
 	public void execute(StreamProvider provider) throws Exception {
 		
@@ -41,7 +44,8 @@ public class GraphIndexerCLI implements IMultiTransformer {
 		OutputStream reordered = provider.output(Outputs.reordered_graph);
 		OutputStream catalog = provider.output(Outputs.catalog);
 		
-		GraphIndexer idx = new GraphIndexer(CatalogRecordTypes.PROPERTY_RECORD);
+		GraphIndexer idx = new GraphIndexer(CatalogRecordTypes.PROPERTY_RECORD,
+				fThreads);
 		idx.indexGraph(graph, catalog, reordered);
 		
 		reordered.close();
@@ -1,15 +1,41 @@
 package it.unitn.disi.graph.large.catalog;
 
-import it.unitn.disi.graph.IndexedNeighborGraph;
-import it.unitn.disi.graph.SubgraphDecorator;
-import peersim.graph.GraphAlgorithms;
+import it.unitn.disi.graph.egonet.EgonetGraph;
 
+/**
+ * Clustering coefficient of the root of a neighborhood. Gives the same
+ * results as {@link peersim.graph.GraphAlgorithms#clustering}, without
+ * boxing.
+ */
 public class NeighborhoodClustering extends NeighborhoodMetricComputer<Double> {
 
 	@Override
-	public Double compute(IndexedNeighborGraph source, int root) {
-		SubgraphDecorator subgraph = neighborhood(source, root, true);
-		return GraphAlgorithms.clustering(subgraph, subgraph.map(root));
+	public Double compute(EgonetGraph egonet) {
+		if (egonet.directed()) {
+			throw new IllegalArgumentException("graph is directed");
+		}
+
+		int root = egonet.root();
+		int neighbors = egonet.degree(root);
+		if (neighbors == 1) {
+			return 1.0;
+		}
+
+		// All members other than the root are its neighbors, so this counts
+		// each edge among neighbors once, from its lower endpoint.
+		int edges = 0;
+		for (int i = 0; i < neighbors; i++) {
+			int u = egonet.getNeighbor(root, i);
+			int degree = egonet.degree(u);
+			for (int j = 0; j < degree; j++) {
+				int v = egonet.getNeighbor(u, j);
+				if (v > u && v != root) {
+					edges++;
+				}
+			}
+		}
+
+		return ((edges * 2.0) / neighbors) / (neighbors - 1);
 	}
 
 	@Override
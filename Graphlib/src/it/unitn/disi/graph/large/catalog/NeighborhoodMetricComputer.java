@@ -1,28 +1,39 @@
 package it.unitn.disi.graph.large.catalog;
 
 import it.unitn.disi.graph.IndexedNeighborGraph;
-import it.unitn.disi.graph.SubgraphDecorator;
-
-import java.util.ArrayList;
+import it.unitn.disi.graph.egonet.EgonetExtractor;
+import it.unitn.disi.graph.egonet.EgonetGraph;
 
+/**
+ * Base class for {@link ICatalogPart}s which are computed over the egonet of
+ * the root, including the root itself. Subclasses implement
+ * {@link #compute(EgonetGraph)}, which must not keep state across calls so
+ * that it can be called concurrently over egonets extracted by different
+ * threads (see {@link GraphIndexer}).
+ * 
+ * @author giuliano
+ */
 public abstract class NeighborhoodMetricComputer<T extends Number> implements
 		ICatalogPart<T> {
 
-	private SubgraphDecorator fSubgraph;
+	private EgonetExtractor fExtractor;
 
-	protected SubgraphDecorator neighborhood(IndexedNeighborGraph source,
-			int root, boolean includeRoot) {
-		if (fSubgraph == null || fSubgraph.getGraph() != source) {
-			fSubgraph = new SubgraphDecorator(source, true);
-		}
+	@Override
+	public T compute(IndexedNeighborGraph source, int root) {
+		return compute(neighborhood(source, root, true));
+	}
+
+	/**
+	 * Computes the attribute value over an egonet which includes its root.
+	 */
+	public abstract T compute(EgonetGraph egonet);
 
-		ArrayList<Integer> members = new ArrayList<Integer>();
-		members.addAll(source.getNeighbours(root));
-		if (includeRoot) {
-			members.add(root);	
+	protected EgonetGraph neighborhood(IndexedNeighborGraph source, int root,
+			boolean includeRoot) {
+		if (fExtractor == null) {
+			fExtractor = new EgonetExtractor();
 		}
-		fSubgraph.setVertexList(members);
-		return fSubgraph;
+		return fExtractor.extract(source, root, includeRoot);
 	}
 
 }
@@ -0,0 +1,293 @@
+package it.unitn.disi.graph.lightweight;
+
+import it.unitn.disi.graph.IGraphVisitor;
+import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.graph.algorithms.GraphAlgorithms;
+import it.unitn.disi.graph.algorithms.VisitorSupport;
+import it.unitn.disi.graph.codecs.ResettableGraphDecoder;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import peersim.graph.Graph;
+
+/**
+ * Compressed sparse row (CSR) variant of {@link LightweightStaticGraph}. Instead
+ * of one array per vertex, all neighbor lists are laid out back to back in a
+ * single neighbor store, and vertex <code>i</code> owns the range
+ * <code>[offsets[i], offsets[i + 1])</code> of that store. This saves one array
+ * header and one pointer per vertex, and keeps neighbor lists of consecutive
+ * vertices contiguous in memory.<BR>
+ * <BR>
+ * The neighbor store is addressed by <code>long</code> and split into fixed
+ * size pages, so that it is not bound by the maximum size of a Java array.
+ * As in {@link LightweightStaticGraph}, neighbor lists are kept sorted.
+ *
+ * @author giuliano
+ */
+public class CSRStaticGraph implements IndexedNeighborGraph, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	static final int PAGE_BITS = 27;
+
+	static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+	static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	// --------------------------------------------------------------------------
+	// Static creational methods.
+	// --------------------------------------------------------------------------
+
+	/**
+	 * Loads a graph into memory in CSR layout. Same restrictions as
+	 * {@link LightweightStaticGraph#load(ResettableGraphDecoder)} apply.
+	 */
+	public static CSRStaticGraph load(ResettableGraphDecoder decoder)
+			throws IOException {
+		LSGCreator creator = new LSGLoader(decoder);
+		return creator.createCompact();
+	}
+
+	// --------------------------------------------------------------------------
+
+	public static CSRStaticGraph fromGraph(IndexedNeighborGraph g) {
+		long[] offsets = new long[g.size() + 1];
+		for (int i = 0; i < g.size(); i++) {
+			offsets[i + 1] = offsets[i] + g.degree(i);
+		}
+
+		int[][] pages = allocate(offsets[g.size()]);
+		long k = 0;
+		for (int i = 0; i < g.size(); i++) {
+			int degree = g.degree(i);
+			for (int j = 0; j < degree; j++, k++) {
+				pages[(int) (k >>> PAGE_BITS)][(int) (k & PAGE_MASK)] = g
+						.getNeighbor(i, j);
+			}
+		}
+
+		return new CSRStaticGraph(offsets, pages);
+	}
+
+	// --------------------------------------------------------------------------
+
+	static int[][] allocate(long cells) {
+		int pages = (int) ((cells + PAGE_SIZE - 1) >>> PAGE_BITS);
+		int[][] store = new int[pages][];
+		for (int i = 0; i < pages; i++) {
+			long remaining = cells - ((long) i << PAGE_BITS);
+			store[i] = new int[(int) Math.min(PAGE_SIZE, remaining)];
+		}
+		return store;
+	}
+
+	// --------------------------------------------------------------------------
+	// Actual graph implementation.
+	// --------------------------------------------------------------------------
+
+	private final long[] fOffsets;
+
+	private final int[][] fPages;
+
+	private volatile transient Boolean fDirected;
+
+	private volatile transient Boolean fSimple;
+
+	private volatile transient Boolean fConnected;
+
+	// --------------------------------------------------------------------------
+
+	CSRStaticGraph(long[] offsets, int[][] pages) {
+		fOffsets = offsets;
+		fPages = pages;
+		sortAll();
+	}
+
+	// --------------------------------------------------------------------------
+
+	private void sortAll() {
+		int[] buffer = null;
+		for (int i = 0; i < size(); i++) {
+			long start = fOffsets[i];
+			long end = fOffsets[i + 1];
+			int page = (int) (start >>> PAGE_BITS);
+			// Range is inside of a single page, sorts in place.
+			if (end == start || page == (int) ((end - 1) >>> PAGE_BITS)) {
+				Arrays.sort(fPages[page], (int) (start & PAGE_MASK),
+						(int) (start & PAGE_MASK) + (int) (end - start));
+				continue;
+			}
+
+			// Straddles two pages.
+			int degree = degree(i);
+			if (buffer == null || buffer.length < degree) {
+				buffer = new int[degree];
+			}
+			for (int j = 0; j < degree; j++) {
+				buffer[j] = getNeighbor(i, j);
+			}
+			Arrays.sort(buffer, 0, degree);
+			for (int j = 0; j < degree; j++) {
+				long cell = start + j;
+				fPages[(int) (cell >>> PAGE_BITS)][(int) (cell & PAGE_MASK)] = buffer[j];
+			}
+		}
+	}
+
+	// --------------------------------------------------------------------------
+
+	public void visit(IGraphVisitor visitor) {
+		VisitorSupport support = new VisitorSupport(this, directed());
+		support.visit(visitor);
+	}
+
+	// --------------------------------------------------------------------------
+	// IndexedNeighborhoodGraph interface.
+	// --------------------------------------------------------------------------
+
+	/**
+	 * {@link Graph#isEdge(int, int)} implementation which works by doing a
+	 * binary search over the (sorted) neighbors of <code>i</code>.
+	 */
+	public boolean isEdge(int i, int j) {
+		return indexOf(i, j) != -1;
+	}
+
+	public int indexOf(int i, int j) {
+		int low = 0;
+		int high = degree(i) - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int value = getNeighbor(i, mid);
+			if (value < j) {
+				low = mid + 1;
+			} else if (value > j) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the number of vertices in the graph.
+	 */
+	public int size() {
+		return fOffsets.length - 1;
+	}
+
+	/**
+	 * @return the <b>out degree</b> of a vertex.
+	 */
+	public int degree(int i) {
+		return (int) (fOffsets[i + 1] - fOffsets[i]);
+	}
+
+	public int getNeighbor(int node, int index) {
+		long cell = fOffsets[node] + index;
+		return fPages[(int) (cell >>> PAGE_BITS)][(int) (cell & PAGE_MASK)];
+	}
+
+	public Collection<Integer> getNeighbours(int i) {
+		int degree = degree(i);
+		ArrayList<Integer> neighbors = new ArrayList<Integer>(degree);
+		for (int j = 0; j < degree; j++) {
+			neighbors.add(getNeighbor(i, j));
+		}
+		return neighbors;
+	}
+
+	/**
+	 * Copies the neighbors of a vertex into a buffer, which must be at least
+	 * as large as its degree. This is the CSR counterpart to
+	 * {@link LightweightStaticGraph#fastGetNeighbours(int)}.
+	 *
+	 * @return the degree of the vertex.
+	 */
+	public int getNeighbours(int i, int[] buffer) {
+		int degree = degree(i);
+		long start = fOffsets[i];
+		int page = (int) (start >>> PAGE_BITS);
+		if (degree > 0 && page == (int) ((start + degree - 1) >>> PAGE_BITS)) {
+			System.arraycopy(fPages[page], (int) (start & PAGE_MASK), buffer,
+					0, degree);
+		} else {
+			for (int j = 0; j < degree; j++) {
+				buffer[j] = getNeighbor(i, j);
+			}
+		}
+		return degree;
+	}
+
+	/**
+	 * Returns <code>true</code> if this graph is directed, or
+	 * <code>false</code> otherwise.
+	 */
+	public boolean directed() {
+		if (fDirected == null) {
+			fDirected = GraphAlgorithms.isDirected(this);
+		}
+		return fDirected;
+	}
+
+	/**
+	 * Returns <code>true</code> if this graph is simple, or <code>false</code>
+	 * otherwise.
+	 */
+	public boolean isSimple() {
+		if (fSimple == null) {
+			fSimple = GraphAlgorithms.isSimple(this);
+		}
+		return fSimple;
+	}
+
+	/**
+	 * Returns <code>true</code> if this graph is connected, or
+	 * <code>false</code> otherwise.
+	 */
+	public boolean isConnected() {
+		if (fConnected == null) {
+			fConnected = GraphAlgorithms.isConnected(this);
+		}
+
+		return fConnected;
+	}
+
+	/**
+	 * Returns the number of edges in this graph.
+	 */
+	public long edgeCount() {
+		long cells = fOffsets[size()];
+		return directed() ? cells : cells / 2;
+	}
+
+	/**
+	 * @return an estimate of the memory, in bytes, taken by the graph
+	 *         structure.
+	 */
+	public long sizeOf() {
+		return (Long.SIZE / Byte.SIZE) * (long) fOffsets.length
+				+ (Integer.SIZE / Byte.SIZE) * fOffsets[size()];
+	}
+
+	public Object getNode(int i) {
+		return null;
+	}
+
+	public boolean clearEdge(int i, int j) {
+		return false;
+	}
+
+	public boolean setEdge(int i, int j) {
+		throw new UnsupportedOperationException();
+	}
+
+	public Object getEdge(int i, int j) {
+		return null;
+	}
+}
@@ -1,6 +1,7 @@
 package it.unitn.disi.graph.lightweight;
 
 import it.unitn.disi.graph.IGraphVisitor;
+import it.unitn.disi.graph.IndexedNeighborGraph;
 import it.unitn.disi.utils.AbstractIDMapper;
 import it.unitn.disi.utils.DenseIDMapper;
 import it.unitn.disi.utils.SparseIDMapper;
@@ -19,7 +20,7 @@ public class LSGCreateSubgraph extends LSGTransformer {
 	@Override
 	protected void graphLoop(IGraphVisitor action) throws Exception {
 		init();
-		LightweightStaticGraph graph = sourceGraph();
+		IndexedNeighborGraph graph = sourceGraph();
 		for (int vertex : fVertices) {
 			int source = fMapper.map(vertex);
 			action.visitVertex(source);
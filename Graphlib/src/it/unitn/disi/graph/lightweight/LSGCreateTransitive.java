@@ -1,6 +1,7 @@
 package it.unitn.disi.graph.lightweight;
 
 import it.unitn.disi.graph.IGraphVisitor;
+import it.unitn.disi.graph.IndexedNeighborGraph;
 import it.unitn.disi.graph.BFSIterable.BFSIterator;
 import it.unitn.disi.utils.collections.Pair;
 
@@ -14,7 +15,7 @@ public class LSGCreateTransitive extends LSGTransformer {
 	
 	@Override
 	protected void graphLoop(IGraphVisitor action) throws Exception {
-		LightweightStaticGraph base = this.sourceGraph();
+		IndexedNeighborGraph base = this.sourceGraph();
 		for (int i = 0; i < base.size(); i++) {
 			BFSIterator it = new BFSIterator(base, i);
 			// Skips the root.
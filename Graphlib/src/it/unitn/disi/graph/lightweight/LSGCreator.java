@@ -6,6 +6,7 @@ import it.unitn.disi.utils.logging.IProgressTracker;
 import it.unitn.disi.utils.logging.Progress;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
@@ -28,34 +29,81 @@ public abstract class LSGCreator {
 
 	public LightweightStaticGraph create() {
 
-		// Phase 1 - compute memory requirements.
+		int[] sizes = count(MiscUtils.pointers(1));
+
+		// Phase 2 - allocates memory.
+		int[][] adjacency = allocate(sizes);
+
+		// Phase 3 - goes again through the input, and loads the graph.
+		fLogger.info("3: loading graph into memory.");
+		GraphBuildAction gba = new GraphBuildAction(adjacency);
+		uncheckedGraphLoop(gba);
+
+		return new LightweightStaticGraph(adjacency);
+	}
+
+	/**
+	 * Same as {@link #createCompact()}, but optionally turns off logging.
+	 */
+	public CSRStaticGraph createCompact(boolean quiet) {
+		Level current = fLogger.getLevel();
+		if (quiet) {
+			fLogger.setLevel(Level.ERROR);
+		}
+		try {
+			return createCompact();
+		} finally {
+			fLogger.setLevel(current);
+		}
+	}
+
+	/**
+	 * Same as {@link #create()}, but lays the graph out in compressed sparse
+	 * row format (see {@link CSRStaticGraph}).
+	 */
+	public CSRStaticGraph createCompact() {
+
+		int[] sizes = count(Long.SIZE / Byte.SIZE);
+
+		// Phase 2 - allocates memory.
+		fLogger.info("2: Allocating memory.");
+		long[] offsets = new long[sizes.length + 1];
+		for (int i = 0; i < sizes.length; i++) {
+			offsets[i + 1] = offsets[i] + sizes[i];
+		}
+		sizes = null;
+		int[][] pages = CSRStaticGraph.allocate(offsets[offsets.length - 1]);
+
+		// Phase 3 - goes again through the input, and loads the graph.
+		fLogger.info("3: loading graph into memory.");
+		CompactBuildAction cba = new CompactBuildAction(offsets, pages);
+		uncheckedGraphLoop(cba);
+
+		return new CSRStaticGraph(offsets, pages);
+	}
+
+	/**
+	 * Phase 1 - goes through the input once to count neighbors.
+	 *
+	 * @param perVertex
+	 *            overhead, in bytes, of each vertex in the target layout.
+	 * @return the neighbor count for each vertex id.
+	 */
+	private int[] count(long perVertex) {
 		fLogger.info("1: Computing required storage.");
 		CountAction ca = new CountAction();
 
 		uncheckedGraphLoop(ca);
 
-		// Phase 2 - allocates memory.
 		fLogger.info("1: Maximum id is " + ca.maxId() + ".");
 
 		// Computes rough memory requirements.
-		long size = MiscUtils.integers(ca.cells())
-				+ MiscUtils.pointers(ca.maxId() + 1);
+		long size = (Integer.SIZE / Byte.SIZE) * ca.cells() + perVertex
+				* (ca.maxId() + 1);
 		fLogger.info("1: Graph has " + ca.maxId() + " ids and " + ca.cells()
 				+ " edges. Memory required: " + size + " bytes.");
-		fLogger.info("2: Allocating memory.");
 
-		int[] sizes = ca.sizeMap();
-		// Frees up some memory.
-		ca = null;
-
-		int[][] adjacency = allocate(sizes);
-
-		// Phase 3 - goes again through the input, and loads the graph.
-		fLogger.info("3: loading graph into memory.");
-		GraphBuildAction gba = new GraphBuildAction(adjacency);
-		uncheckedGraphLoop(gba);
-
-		return new LightweightStaticGraph(adjacency);
+		return ca.sizeMap();
 	}
 
 	private void uncheckedGraphLoop(IGraphVisitor action) {
@@ -99,7 +147,7 @@ public abstract class LSGCreator {
 
 		private ArrayList<Integer> fSizes = new ArrayList<Integer>();
 
-		private int fCells;
+		private long fCells;
 
 		private int fMaxId = Integer.MIN_VALUE;
 
@@ -120,7 +168,7 @@ public abstract class LSGCreator {
 			}
 		}
 
-		public int cells() {
+		public long cells() {
 			return fCells;
 		}
 
@@ -157,4 +205,26 @@ public abstract class LSGCreator {
 		public void visitVertex(int id) {
 		}
 	}
+
+	private class CompactBuildAction implements IGraphVisitor {
+
+		private final int[][] fPages;
+
+		private final long[] fNext;
+
+		public CompactBuildAction(long[] offsets, int[][] pages) {
+			fNext = Arrays.copyOf(offsets, offsets.length - 1);
+			fPages = pages;
+		}
+
+		@Override
+		public void visitEdge(int source, int target) {
+			long cell = fNext[source]++;
+			fPages[(int) (cell >>> CSRStaticGraph.PAGE_BITS)][(int) (cell & CSRStaticGraph.PAGE_MASK)] = target;
+		}
+
+		@Override
+		public void visitVertex(int id) {
+		}
+	}
 }
@@ -14,10 +14,6 @@ public class LSGLoader extends LSGCreator {
 	@Override
 	protected void graphLoop(IGraphVisitor action) throws Exception {
 		fDecoder.reset();
-		while (fDecoder.hasNext()) {
-			int source = fDecoder.getSource();
-			int target = fDecoder.next();
-			action.visitEdge(source, target);
-		}
+		fDecoder.visitEdges(action);
 	}
 }
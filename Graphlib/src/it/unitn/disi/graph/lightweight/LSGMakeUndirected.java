@@ -1,16 +1,17 @@
 package it.unitn.disi.graph.lightweight;
 
 import it.unitn.disi.graph.IGraphVisitor;
+import it.unitn.disi.graph.IndexedNeighborGraph;
 
 public class LSGMakeUndirected extends LSGTransformer {
 
 	@Override
 	protected void graphLoop(IGraphVisitor action) throws Exception {
-		LightweightStaticGraph lsg = this.sourceGraph();
+		IndexedNeighborGraph lsg = this.sourceGraph();
 		for (int i = 0; i < lsg.size(); i++) {
-			int [] neighbors = lsg.fastGetNeighbours(i);
-			for(int j = 0; j < neighbors.length; j++) {
-				int neighbor = neighbors[j];
+			int degree = lsg.degree(i);
+			for(int j = 0; j < degree; j++) {
+				int neighbor = lsg.getNeighbor(i, j);
 				action.visitEdge(i, neighbor);
 				if (!lsg.isEdge(neighbor, i)) {
 					action.visitEdge(neighbor, i);
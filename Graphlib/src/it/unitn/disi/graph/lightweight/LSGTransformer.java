@@ -1,15 +1,26 @@
 package it.unitn.disi.graph.lightweight;
 
+import it.unitn.disi.graph.IndexedNeighborGraph;
+
 public abstract class LSGTransformer extends LSGCreator {
 	
-	private LightweightStaticGraph fSource;
+	private IndexedNeighborGraph fSource;
 	
-	public LightweightStaticGraph transform(LightweightStaticGraph source) {
+	public LightweightStaticGraph transform(IndexedNeighborGraph source) {
 		fSource = source;
 		return create(true);
 	}
 
-	public LightweightStaticGraph sourceGraph() {
+	/**
+	 * Same as {@link #transform(IndexedNeighborGraph)}, but produces a
+	 * {@link CSRStaticGraph}.
+	 */
+	public CSRStaticGraph transformCompact(IndexedNeighborGraph source) {
+		fSource = source;
+		return createCompact(true);
+	}
+
+	public IndexedNeighborGraph sourceGraph() {
 		if (fSource == null) {
 			throw new NullPointerException();
 		}
@@ -81,14 +81,14 @@ public class LightweightStaticGraph implements IndexedNeighborGraph,
 	// --------------------------------------------------------------------------
 
 	public static LightweightStaticGraph subgraph(
-			LightweightStaticGraph source, int... vertices) {
+			IndexedNeighborGraph source, int... vertices) {
 		LSGCreateSubgraph subgraph = new LSGCreateSubgraph(vertices);
 		return subgraph.transform(source);
 	}
 
 	// --------------------------------------------------------------------------
 
-	public static LightweightStaticGraph undirect(LightweightStaticGraph source) {
+	public static LightweightStaticGraph undirect(IndexedNeighborGraph source) {
 		LSGMakeUndirected undir = new LSGMakeUndirected();
 		return undir.transform(source);
 	}
@@ -96,7 +96,7 @@ public class LightweightStaticGraph implements IndexedNeighborGraph,
 	// --------------------------------------------------------------------------
 
 	public static LightweightStaticGraph transitiveGraph(
-			LightweightStaticGraph base, int order) {
+			IndexedNeighborGraph base, int order) {
 		LSGCreateTransitive transitive = new LSGCreateTransitive(order);
 		return transitive.transform(base);
 	}
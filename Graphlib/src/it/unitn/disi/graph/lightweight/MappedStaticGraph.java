@@ -0,0 +1,346 @@
+package it.unitn.disi.graph.lightweight;
+
+import it.unitn.disi.graph.IGraphVisitor;
+import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.graph.algorithms.GraphAlgorithms;
+import it.unitn.disi.graph.algorithms.VisitorSupport;
+import it.unitn.disi.utils.logging.CodecUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Read-only {@link IndexedNeighborGraph} view over a graph file in compressed
+ * sparse row format, mapped into memory through {@link FileChannel#map}.
+ * Nothing is copied into the heap when a graph is opened, so opening is
+ * immediate regardless of graph size, and all JVMs that map the same file on
+ * one machine share its pages through the OS page cache.<BR>
+ * <BR>
+ * The file layout, with all numbers in little endian (like
+ * {@link CodecUtils}), is:
+ *
+ * <pre>
+ * int    magic ({@link #MAGIC})
+ * int    version ({@link #VERSION})
+ * int    vertex count (n)
+ * int    padding, always 0
+ * long   neighbor count (m)
+ * long[] offsets, n + 1 entries
+ * int[]  neighbors, m entries, sorted within each vertex
+ * </pre>
+ *
+ * The padding makes the header 24 bytes long, so that offsets start at a
+ * multiple of 8, and reads through their {@link LongBuffer} views are
+ * aligned.
+ *
+ * Files are produced with {@link #write(IndexedNeighborGraph, OutputStream)},
+ * or from the command line with {@link it.unitn.disi.graph.cli.Graph2Mapped}.
+ * Since a single mapping is limited to 2GB, offsets and neighbors are mapped in
+ * several chunks.
+ *
+ * @author giuliano
+ */
+public class MappedStaticGraph implements IndexedNeighborGraph {
+
+	public static final int MAGIC = 0x43535247;
+
+	public static final int VERSION = 2;
+
+	static final int HEADER_SIZE = 4 * (Integer.SIZE / Byte.SIZE)
+			+ (Long.SIZE / Byte.SIZE);
+
+	private static final int INT_CHUNK_BITS = 28;
+
+	private static final int LONG_CHUNK_BITS = 27;
+
+	private static final int LONG_BYTES = Long.SIZE / Byte.SIZE;
+
+	private static final int INT_BYTES = Integer.SIZE / Byte.SIZE;
+
+	// --------------------------------------------------------------------------
+	// Static creational methods.
+	// --------------------------------------------------------------------------
+
+	/**
+	 * Maps a graph file into memory.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read, or is not a graph file.
+	 */
+	public static MappedStaticGraph open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer header = map(channel, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC) {
+				throw new IOException(file + " is not a mapped graph file.");
+			}
+
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported graph file version "
+						+ version + ".");
+			}
+
+			int size = header.getInt();
+			header.getInt();
+			long cells = header.getLong();
+			long expected = HEADER_SIZE + LONG_BYTES * (size + 1L) + INT_BYTES
+					* cells;
+			if (channel.size() != expected) {
+				throw new IOException("Truncated graph file (expected "
+						+ expected + " bytes, got " + channel.size() + ").");
+			}
+
+			long start = HEADER_SIZE;
+			LongBuffer[] offsets = new LongBuffer[chunks(size + 1L,
+					LONG_CHUNK_BITS)];
+			for (int i = 0; i < offsets.length; i++) {
+				long length = Math.min(1L << LONG_CHUNK_BITS, size + 1L
+						- ((long) i << LONG_CHUNK_BITS));
+				offsets[i] = map(channel, start, length * LONG_BYTES)
+						.asLongBuffer();
+				start += length * LONG_BYTES;
+			}
+
+			IntBuffer[] neighbors = new IntBuffer[chunks(cells,
+					INT_CHUNK_BITS)];
+			for (int i = 0; i < neighbors.length; i++) {
+				long length = Math.min(1L << INT_CHUNK_BITS, cells
+						- ((long) i << INT_CHUNK_BITS));
+				neighbors[i] = map(channel, start, length * INT_BYTES)
+						.asIntBuffer();
+				start += length * INT_BYTES;
+			}
+
+			return new MappedStaticGraph(size, cells, offsets, neighbors);
+		} finally {
+			// Mappings remain valid after the channel is closed.
+			raf.close();
+		}
+	}
+
+	// --------------------------------------------------------------------------
+
+	/**
+	 * Writes a graph in the format read by {@link #open(File)}. Neighbors of
+	 * each vertex are written in the order returned by the source graph, so
+	 * they must already be sorted (as they are for
+	 * {@link LightweightStaticGraph} and {@link CSRStaticGraph}).
+	 */
+	public static void write(IndexedNeighborGraph graph, OutputStream oup)
+			throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		int size = graph.size();
+		long cells = 0;
+		for (int i = 0; i < size; i++) {
+			cells += graph.degree(i);
+		}
+
+		int pos = 0;
+		pos = CodecUtils.append(MAGIC, buffer, pos);
+		pos = CodecUtils.append(VERSION, buffer, pos);
+		pos = CodecUtils.append(size, buffer, pos);
+		pos = CodecUtils.append(0, buffer, pos);
+		pos = CodecUtils.append(cells, buffer, pos);
+
+		long offset = 0;
+		for (int i = 0; i <= size; i++) {
+			if (pos + LONG_BYTES > buffer.length) {
+				oup.write(buffer, 0, pos);
+				pos = 0;
+			}
+			pos = CodecUtils.append(offset, buffer, pos);
+			if (i < size) {
+				offset += graph.degree(i);
+			}
+		}
+
+		for (int i = 0; i < size; i++) {
+			int degree = graph.degree(i);
+			int previous = Integer.MIN_VALUE;
+			for (int j = 0; j < degree; j++) {
+				int neighbor = graph.getNeighbor(i, j);
+				if (neighbor < previous) {
+					throw new IllegalArgumentException("Neighbors of vertex "
+							+ i + " are not sorted.");
+				}
+				previous = neighbor;
+				if (pos + INT_BYTES > buffer.length) {
+					oup.write(buffer, 0, pos);
+					pos = 0;
+				}
+				pos = CodecUtils.append(neighbor, buffer, pos);
+			}
+		}
+
+		oup.write(buffer, 0, pos);
+		oup.flush();
+	}
+
+	// --------------------------------------------------------------------------
+
+	private static MappedByteBuffer map(FileChannel channel, long start,
+			long length) throws IOException {
+		MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, start, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	// --------------------------------------------------------------------------
+
+	private static int chunks(long elements, int bits) {
+		return (int) ((elements + (1L << bits) - 1) >>> bits);
+	}
+
+	// --------------------------------------------------------------------------
+	// Actual graph implementation.
+	// --------------------------------------------------------------------------
+
+	private static final int INT_CHUNK_MASK = (1 << INT_CHUNK_BITS) - 1;
+
+	private static final int LONG_CHUNK_MASK = (1 << LONG_CHUNK_BITS) - 1;
+
+	private final int fSize;
+
+	private final long fCells;
+
+	private final LongBuffer[] fOffsets;
+
+	private final IntBuffer[] fNeighbors;
+
+	private volatile Boolean fDirected;
+
+	private volatile Boolean fSimple;
+
+	private volatile Boolean fConnected;
+
+	// --------------------------------------------------------------------------
+
+	private MappedStaticGraph(int size, long cells, LongBuffer[] offsets,
+			IntBuffer[] neighbors) {
+		fSize = size;
+		fCells = cells;
+		fOffsets = offsets;
+		fNeighbors = neighbors;
+	}
+
+	// --------------------------------------------------------------------------
+
+	private long offset(int i) {
+		return fOffsets[i >>> LONG_CHUNK_BITS].get(i & LONG_CHUNK_MASK);
+	}
+
+	// --------------------------------------------------------------------------
+
+	private int cell(long index) {
+		return fNeighbors[(int) (index >>> INT_CHUNK_BITS)]
+				.get((int) (index & INT_CHUNK_MASK));
+	}
+
+	// --------------------------------------------------------------------------
+
+	public void visit(IGraphVisitor visitor) {
+		VisitorSupport support = new VisitorSupport(this, directed());
+		support.visit(visitor);
+	}
+
+	// --------------------------------------------------------------------------
+	// IndexedNeighborhoodGraph interface.
+	// --------------------------------------------------------------------------
+
+	public boolean isEdge(int i, int j) {
+		return indexOf(i, j) != -1;
+	}
+
+	public int indexOf(int i, int j) {
+		long start = offset(i);
+		long low = start;
+		long high = offset(i + 1) - 1;
+		while (low <= high) {
+			long mid = (low + high) >>> 1;
+			int value = cell(mid);
+			if (value < j) {
+				low = mid + 1;
+			} else if (value > j) {
+				high = mid - 1;
+			} else {
+				return (int) (mid - start);
+			}
+		}
+		return -1;
+	}
+
+	public int size() {
+		return fSize;
+	}
+
+	public int degree(int i) {
+		return (int) (offset(i + 1) - offset(i));
+	}
+
+	public int getNeighbor(int node, int index) {
+		return cell(offset(node) + index);
+	}
+
+	public Collection<Integer> getNeighbours(int i) {
+		long start = offset(i);
+		int degree = (int) (offset(i + 1) - start);
+		ArrayList<Integer> neighbors = new ArrayList<Integer>(degree);
+		for (int j = 0; j < degree; j++) {
+			neighbors.add(cell(start + j));
+		}
+		return neighbors;
+	}
+
+	public boolean directed() {
+		if (fDirected == null) {
+			fDirected = GraphAlgorithms.isDirected(this);
+		}
+		return fDirected;
+	}
+
+	public boolean isSimple() {
+		if (fSimple == null) {
+			fSimple = GraphAlgorithms.isSimple(this);
+		}
+		return fSimple;
+	}
+
+	public boolean isConnected() {
+		if (fConnected == null) {
+			fConnected = GraphAlgorithms.isConnected(this);
+		}
+		return fConnected;
+	}
+
+	public long edgeCount() {
+		return directed() ? fCells : fCells / 2;
+	}
+
+	public Object getNode(int i) {
+		return null;
+	}
+
+	public boolean clearEdge(int i, int j) {
+		return false;
+	}
+
+	public boolean setEdge(int i, int j) {
+		throw new UnsupportedOperationException();
+	}
+
+	public Object getEdge(int i, int j) {
+		return null;
+	}
+}
@@ -0,0 +1,80 @@
+package it.unitn.disi.graph;
+
+import it.unitn.disi.graph.algorithms.GraphAlgorithms;
+import it.unitn.disi.graph.codecs.ByteGraphDecoder;
+import it.unitn.disi.graph.lightweight.CSRStaticGraph;
+import it.unitn.disi.graph.lightweight.LSGMakeUndirected;
+import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
+import it.unitn.disi.graph.utils.TestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import peersim.graph.BitMatrixGraph;
+import peersim.graph.GraphFactory;
+
+public class CSRStaticGraphTest {
+
+	@Test
+	public void testMatchesAdjacencyLayout() throws Exception {
+		for (boolean directed : new boolean[] { true, false }) {
+			BitMatrixGraph original = new BitMatrixGraph(200, directed);
+			GraphFactory.wireKOut(original, 5, new Random(42));
+			ByteArrayInputStream blob = TestUtils.blob(original);
+
+			LightweightStaticGraph lsg = LightweightStaticGraph
+					.load(new ByteGraphDecoder(blob));
+			blob.reset();
+			CSRStaticGraph csr = CSRStaticGraph.load(new ByteGraphDecoder(
+					blob));
+
+			assertSame(lsg, csr);
+			assertSame(lsg, CSRStaticGraph.fromGraph(lsg));
+			Assert.assertEquals(lsg.directed(), csr.directed());
+			Assert.assertEquals(lsg.edgeCount(), csr.edgeCount());
+		}
+	}
+
+	@Test
+	public void testTransformers() throws Exception {
+		BitMatrixGraph original = new BitMatrixGraph(100, true);
+		GraphFactory.wireKOut(original, 5, new Random(42));
+		LightweightStaticGraph lsg = LightweightStaticGraph
+				.load(new ByteGraphDecoder(TestUtils.blob(original)));
+
+		LightweightStaticGraph undirected = LightweightStaticGraph
+				.undirect(lsg);
+		CSRStaticGraph compact = new LSGMakeUndirected()
+				.transformCompact(CSRStaticGraph.fromGraph(lsg));
+
+		assertSame(undirected, compact);
+		Assert.assertFalse(compact.directed());
+		for (int i = 0; i < compact.size(); i++) {
+			Assert.assertEquals(GraphAlgorithms.countTriads(undirected, i),
+					GraphAlgorithms.countTriads(compact, i));
+		}
+	}
+
+	private void assertSame(IndexedNeighborGraph expected, CSRStaticGraph actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		int[] buffer = new int[expected.size()];
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.degree(i), actual.degree(i));
+			Assert.assertEquals(expected.degree(i),
+					actual.getNeighbours(i, buffer));
+			for (int j = 0; j < expected.degree(i); j++) {
+				int neighbor = expected.getNeighbor(i, j);
+				Assert.assertEquals(neighbor, actual.getNeighbor(i, j));
+				Assert.assertEquals(neighbor, buffer[j]);
+				Assert.assertEquals(j, actual.indexOf(i, neighbor));
+			}
+			for (int j = 0; j < expected.size(); j++) {
+				Assert.assertEquals(expected.isEdge(i, j), actual.isEdge(i, j));
+			}
+		}
+	}
+}
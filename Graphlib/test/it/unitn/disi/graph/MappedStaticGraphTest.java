@@ -0,0 +1,82 @@
+package it.unitn.disi.graph;
+
+import it.unitn.disi.graph.codecs.ByteGraphDecoder;
+import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
+import it.unitn.disi.graph.lightweight.MappedStaticGraph;
+import it.unitn.disi.graph.utils.TestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import peersim.graph.BitMatrixGraph;
+import peersim.graph.GraphFactory;
+
+public class MappedStaticGraphTest {
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		BitMatrixGraph original = new BitMatrixGraph(200, true);
+		GraphFactory.wireKOut(original, 5, new Random(42));
+		LightweightStaticGraph lsg = LightweightStaticGraph
+				.load(new ByteGraphDecoder(TestUtils.blob(original)));
+
+		File file = write(lsg);
+		try {
+			// Offsets start 8-byte aligned, after a 24-byte header.
+			Assert.assertEquals(24 + 8 * (lsg.size() + 1) + 4
+					* lsg.edgeCount(), file.length());
+
+			MappedStaticGraph mapped = MappedStaticGraph.open(file);
+			Assert.assertEquals(lsg.size(), mapped.size());
+			Assert.assertEquals(lsg.edgeCount(), mapped.edgeCount());
+			Assert.assertEquals(lsg.directed(), mapped.directed());
+			for (int i = 0; i < lsg.size(); i++) {
+				Assert.assertEquals(lsg.degree(i), mapped.degree(i));
+				Assert.assertEquals(lsg.getNeighbours(i),
+						mapped.getNeighbours(i));
+				for (int j = 0; j < lsg.degree(i); j++) {
+					Assert.assertEquals(j,
+							mapped.indexOf(i, lsg.getNeighbor(i, j)));
+				}
+				for (int j = 0; j < lsg.size(); j++) {
+					Assert.assertEquals(lsg.isEdge(i, j), mapped.isEdge(i, j));
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsTruncated() throws Exception {
+		LightweightStaticGraph lsg = LightweightStaticGraph
+				.fromAdjacency(new int[][] { { 1 }, { 0 } });
+		File file = write(lsg);
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			raf.setLength(raf.length() - 1);
+			raf.close();
+			MappedStaticGraph.open(file);
+		} finally {
+			file.delete();
+		}
+	}
+
+	private File write(IndexedNeighborGraph graph) throws IOException {
+		File file = File.createTempFile("mapped", ".csr");
+		FileOutputStream oup = new FileOutputStream(file);
+		try {
+			MappedStaticGraph.write(graph, oup);
+		} finally {
+			oup.close();
+		}
+		return file;
+	}
+}
@@ -5,6 +5,7 @@ import it.unitn.disi.graph.algorithms.GraphAlgorithms;
 import it.unitn.disi.graph.algorithms.NaiveWeightMatrix;
 import it.unitn.disi.graph.algorithms.WeightMatrix;
 import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
+import it.unitn.disi.utils.collections.IndexedDoubleHeap;
 import junit.framework.Assert;
 
 import org.junit.Test;
@@ -47,4 +48,34 @@ public class TestGraphAlgorithms {
 		Assert.assertEquals(614.0, minDists[3]);
 		Assert.assertEquals(864.0, minDists[6]);
 	}
+
+	@Test
+	public void testDijkstraReusedQueue() {
+		IndexedNeighborGraph g = LightweightStaticGraph.fromAdjacency(new int[][]{
+				{1, 2},
+				{0, 2},
+				{0, 1, 3},
+				{2}
+		});
+
+		WeightMatrix weights = new NaiveWeightMatrix(new double[][] {
+				{0,  1,  5, -1},
+				{1,  0,  1, -1},
+				{5,  1,  0,  2},
+				{-1, -1, 2,  0}
+		});
+
+		double [] minDists = new double[g.size()];
+		int [] previous = new int[g.size()];
+		IndexedDoubleHeap queue = new IndexedDoubleHeap(1);
+
+		for (int i = 0; i < 2; i++) {
+			GraphAlgorithms.dijkstra(g, GraphAlgorithms.NULL_FILTER, 0,
+					weights, minDists, previous, queue);
+			Assert.assertEquals(2.0, minDists[2]);
+			Assert.assertEquals(4.0, minDists[3]);
+			Assert.assertEquals(1, previous[2]);
+			Assert.assertTrue(queue.isEmpty());
+		}
+	}
 }
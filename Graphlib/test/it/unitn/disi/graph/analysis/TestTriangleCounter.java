@@ -0,0 +1,124 @@
+package it.unitn.disi.graph.analysis;
+
+import it.unitn.disi.graph.algorithms.GraphAlgorithms;
+import it.unitn.disi.graph.algorithms.Intersections;
+import it.unitn.disi.graph.algorithms.TriangleCounter;
+import it.unitn.disi.graph.codecs.ByteGraphDecoder;
+import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
+import it.unitn.disi.graph.utils.TestUtils;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import peersim.graph.BitMatrixGraph;
+import peersim.graph.GraphFactory;
+
+public class TestTriangleCounter {
+
+	@Test
+	public void testMatchesCountTriads() throws Exception {
+		BitMatrixGraph original = new BitMatrixGraph(500, false);
+		GraphFactory.wireKOut(original, 6, new Random(42));
+		// A couple of hubs.
+		for (int i = 0; i < 500; i += 2) {
+			original.setEdge(0, i + 1);
+			original.setEdge(i + 1, 0);
+			original.setEdge(7, i);
+			original.setEdge(i, 7);
+		}
+		original.clearEdge(0, 0);
+		original.clearEdge(7, 7);
+
+		LightweightStaticGraph g = LightweightStaticGraph
+				.load(new ByteGraphDecoder(TestUtils.blob(original)));
+		int[][] adjacency = new int[g.size()][];
+		for (int i = 0; i < g.size(); i++) {
+			adjacency[i] = g.fastGetNeighbours(i);
+		}
+
+		for (int threads = 1; threads <= 4; threads += 3) {
+			TriangleCounter counter = new TriangleCounter(adjacency, threads);
+			TriangleCounter copied = TriangleCounter.fromGraph(g, threads);
+			long total = 0;
+			for (int i = 0; i < g.size(); i++) {
+				int triads = GraphAlgorithms.countTriads(g, i);
+				Assert.assertEquals(triads, counter.triangles(i));
+				Assert.assertEquals(triads, copied.triangles(i));
+				Assert.assertEquals(peersim.graph.GraphAlgorithms.clustering(
+						g, i), counter.clustering(i));
+				total += triads;
+			}
+			Assert.assertEquals(total / 3, counter.triangles());
+		}
+	}
+
+	@Test
+	public void testIgnoresLoopsAndDuplicates() {
+		// Triangle 0, 1, 2 plus a pendant 3, with a self-loop and a
+		// duplicate edge.
+		TriangleCounter counter = new TriangleCounter(new int[][] {
+				{ 0, 1, 2, 2 }, { 0, 2 }, { 0, 0, 1, 3 }, { 2 } }, 1);
+		Assert.assertEquals(1, counter.triangles(0));
+		Assert.assertEquals(1, counter.triangles(1));
+		Assert.assertEquals(1, counter.triangles(2));
+		Assert.assertEquals(0, counter.triangles(3));
+		Assert.assertEquals(2, counter.degree(0));
+		Assert.assertEquals(1L, counter.triangles());
+
+		try {
+			new TriangleCounter(new int[][] { { 1 }, { 2, 0 }, { 1 } }, 1);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testIntersections() {
+		Random random = new Random(42);
+		for (int round = 0; round < 200; round++) {
+			int[] a = sortedSet(random, 1 + random.nextInt(20), 1000);
+			int[] b = sortedSet(random, 1 + random.nextInt(round < 100 ? 20
+					: 800), 1000);
+
+			int expected = 0;
+			for (int x : a) {
+				for (int y : b) {
+					if (x == y) {
+						expected++;
+					}
+				}
+			}
+
+			int[] common = new int[Math.min(a.length, b.length)];
+			Assert.assertEquals(expected, Intersections.count(a, 0, a.length,
+					b, 0, b.length));
+			Assert.assertEquals(expected, Intersections.intersect(b, 0,
+					b.length, a, 0, a.length, common));
+			for (int i = 1; i < expected; i++) {
+				Assert.assertTrue(common[i - 1] < common[i]);
+			}
+		}
+	}
+
+	private int[] sortedSet(Random random, int size, int range) {
+		boolean[] taken = new boolean[range];
+		for (int i = 0; i < size; i++) {
+			taken[random.nextInt(range)] = true;
+		}
+		int count = 0;
+		for (boolean bit : taken) {
+			count += bit ? 1 : 0;
+		}
+		int[] set = new int[count];
+		for (int i = 0, j = 0; i < range; i++) {
+			if (taken[i]) {
+				set[j++] = i;
+			}
+		}
+		return set;
+	}
+}
@@ -0,0 +1,118 @@
+package it.unitn.disi.graph.codecs;
+
+import it.unitn.disi.graph.IGraphVisitor;
+import it.unitn.disi.utils.logging.CodecUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class ByteGraphDecoderTest {
+
+	@Test
+	public void testBulkMatchesIteration() throws Exception {
+		Random random = new Random(42);
+		// Spans several blocks.
+		byte[] graph = randomGraph(50000, random);
+
+		ArrayList<Integer> expected = new ArrayList<Integer>();
+		ByteGraphDecoder decoder = new ByteGraphDecoder(
+				new ByteArrayInputStream(graph));
+		while (decoder.hasNext()) {
+			expected.add(decoder.getSource());
+			expected.add(decoder.next());
+		}
+
+		// Short reads must not change the result.
+		for (int chunk : new int[] { 1, 3, 4097, Integer.MAX_VALUE }) {
+			decoder = new ByteGraphDecoder(new ShortReads(graph, chunk));
+			Recorder recorder = new Recorder();
+			decoder.visitEdges(recorder);
+			Assert.assertEquals(expected, recorder.fEdges);
+			Assert.assertFalse(decoder.hasNext());
+		}
+	}
+
+	@Test
+	public void testBulkAfterReset() throws Exception {
+		byte[] graph = randomGraph(10, new Random(42));
+		ByteGraphDecoder decoder = new ByteGraphDecoder(
+				new ByteArrayInputStream(graph));
+		Recorder first = new Recorder();
+		decoder.visitEdges(first);
+		decoder.reset();
+		Recorder second = new Recorder();
+		decoder.visitEdges(second);
+		Assert.assertEquals(20, first.fEdges.size());
+		Assert.assertEquals(first.fEdges, second.fEdges);
+	}
+
+	@Test(expected = IOException.class)
+	public void testOddIntegers() throws Exception {
+		byte[] graph = randomGraph(3, new Random(42));
+		byte[] odd = new byte[graph.length - 4];
+		System.arraycopy(graph, 0, odd, 0, odd.length);
+		new ByteGraphDecoder(new ByteArrayInputStream(odd))
+				.visitEdges(new Recorder());
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedInteger() throws Exception {
+		byte[] graph = randomGraph(3, new Random(42));
+		byte[] truncated = new byte[graph.length - 1];
+		System.arraycopy(graph, 0, truncated, 0, truncated.length);
+		new ByteGraphDecoder(new ByteArrayInputStream(truncated))
+				.visitEdges(new Recorder());
+	}
+
+	private byte[] randomGraph(int edges, Random random) {
+		byte[] graph = new byte[edges * 8];
+		for (int i = 0; i < edges * 2; i++) {
+			CodecUtils.encode(random.nextInt(), graph, i * 4);
+		}
+		return graph;
+	}
+
+	private static class Recorder implements IGraphVisitor {
+
+		ArrayList<Integer> fEdges = new ArrayList<Integer>();
+
+		@Override
+		public void visitEdge(int i, int j) {
+			fEdges.add(i);
+			fEdges.add(j);
+		}
+
+		@Override
+		public void visitVertex(int i) {
+		}
+	}
+
+	private static class ShortReads extends InputStream {
+
+		private final ByteArrayInputStream fDelegate;
+
+		private final int fChunk;
+
+		public ShortReads(byte[] data, int chunk) {
+			fDelegate = new ByteArrayInputStream(data);
+			fChunk = chunk;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return fDelegate.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return fDelegate.read(b, off, Math.min(len, fChunk));
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package it.unitn.disi.graph.egonet;
+
+import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.graph.SubgraphDecorator;
+import it.unitn.disi.graph.codecs.ByteGraphDecoder;
+import it.unitn.disi.graph.large.catalog.NeighborhoodClustering;
+import it.unitn.disi.graph.lightweight.CSRStaticGraph;
+import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
+import it.unitn.disi.graph.utils.TestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import peersim.graph.BitMatrixGraph;
+import peersim.graph.GraphAlgorithms;
+import peersim.graph.GraphFactory;
+
+public class EgonetExtractorTest {
+
+	private static final int SIZE = 300;
+
+	@Test
+	public void testMatchesSubgraphDecorator() throws Exception {
+		for (boolean directed : new boolean[] { true, false }) {
+			LightweightStaticGraph lsg = graph(directed);
+			EgonetExtractor extractor = new EgonetExtractor();
+			for (IndexedNeighborGraph g : new IndexedNeighborGraph[] { lsg,
+					CSRStaticGraph.fromGraph(lsg) }) {
+				for (int root = 0; root < g.size(); root++) {
+					for (boolean includeRoot : new boolean[] { true, false }) {
+						assertSame(reference(g, root, includeRoot), extractor
+								.extract(g, root, includeRoot));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testInducedSubgraph() throws Exception {
+		LightweightStaticGraph g = graph(false);
+		EgonetExtractor extractor = new EgonetExtractor();
+		Random random = new Random(42);
+		int[] vertices = new int[SIZE];
+		for (int i = 0; i < 50; i++) {
+			int count = 0;
+			ArrayList<Integer> members = new ArrayList<Integer>();
+			for (int j = 0; j < SIZE; j++) {
+				if (random.nextInt(4) == 0) {
+					vertices[count++] = j;
+					members.add(j);
+				}
+			}
+			SubgraphDecorator reference = new SubgraphDecorator(g, true);
+			reference.setVertexList(members);
+			assertSame(reference, extractor.extract(g, vertices, count));
+		}
+
+		try {
+			extractor.extract(g, new int[] { 3, 2 }, 2);
+			Assert.fail();
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testClustering() throws Exception {
+		LightweightStaticGraph g = graph(false);
+		NeighborhoodClustering clustering = new NeighborhoodClustering();
+		for (int root = 0; root < g.size(); root++) {
+			SubgraphDecorator reference = reference(g, root, true);
+			Assert.assertEquals(GraphAlgorithms.clustering(reference,
+					reference.map(root)), clustering.compute(g, root));
+		}
+	}
+
+	@Test
+	public void testParallelProcessor() throws Exception {
+		final LightweightStaticGraph g = graph(false);
+		final AtomicIntegerArray visits = new AtomicIntegerArray(g.size());
+		IEgonetVisitor[] visitors = new IEgonetVisitor[3];
+		for (int i = 0; i < visitors.length; i++) {
+			visitors[i] = new IEgonetVisitor() {
+				@Override
+				public void visit(int root, EgonetGraph egonet) {
+					Assert.assertEquals(root, egonet.reverseMap(egonet.root()));
+					Assert.assertEquals(g.degree(root), egonet.degree(egonet
+							.root()));
+					visits.incrementAndGet(root);
+				}
+			};
+		}
+
+		ParallelEgonetProcessor processor = new ParallelEgonetProcessor(g,
+				true, visitors.length);
+		try {
+			processor.process(visitors);
+			processor.process(visitors, 10, 20);
+			for (int i = 0; i < g.size(); i++) {
+				Assert.assertEquals(i >= 10 && i < 20 ? 2 : 1, visits.get(i));
+			}
+
+			// Errors in visitors reach the caller. All visitors throw, as
+			// there is no telling which workers get chunks.
+			for (int i = 0; i < visitors.length; i++) {
+				visitors[i] = new IEgonetVisitor() {
+					@Override
+					public void visit(int root, EgonetGraph egonet) {
+						throw new IllegalStateException();
+					}
+				};
+			}
+			try {
+				processor.process(visitors);
+				Assert.fail();
+			} catch (IllegalStateException ex) {
+				// Expected.
+			}
+		} finally {
+			processor.shutdown();
+		}
+	}
+
+	private LightweightStaticGraph graph(boolean directed) throws Exception {
+		BitMatrixGraph original = new BitMatrixGraph(SIZE, directed);
+		GraphFactory.wireKOut(original, 4, new Random(42));
+		// A hub, so that some intersections go through binary search.
+		for (int i = 1; i < SIZE; i++) {
+			original.setEdge(0, i);
+			if (!directed) {
+				original.setEdge(i, 0);
+			}
+		}
+		return LightweightStaticGraph.load(new ByteGraphDecoder(TestUtils
+				.blob(original)));
+	}
+
+	private SubgraphDecorator reference(IndexedNeighborGraph g, int root,
+			boolean includeRoot) {
+		Set<Integer> members = new HashSet<Integer>(g.getNeighbours(root));
+		members.remove(root);
+		if (includeRoot) {
+			members.add(root);
+		}
+		SubgraphDecorator subgraph = new SubgraphDecorator(g, true);
+		subgraph.setVertexList(members);
+		return subgraph;
+	}
+
+	private void assertSame(SubgraphDecorator reference, EgonetGraph egonet) {
+		Assert.assertEquals(reference.size(), egonet.size());
+		for (int i = 0; i < egonet.size(); i++) {
+			int vertex = egonet.reverseMap(i);
+			Assert.assertTrue(reference.isMapped(vertex));
+			Assert.assertEquals(i, egonet.map(vertex));
+			if (i > 0) {
+				Assert.assertTrue(egonet.reverseMap(i - 1) < vertex);
+			}
+
+			Set<Integer> expected = new HashSet<Integer>();
+			for (int neighbor : reference.getNeighbours(reference.map(vertex))) {
+				expected.add(reference.reverseMap(neighbor));
+			}
+
+			Set<Integer> actual = new HashSet<Integer>();
+			for (int j = 0; j < egonet.degree(i); j++) {
+				int neighbor = egonet.getNeighbor(i, j);
+				if (j > 0) {
+					Assert.assertTrue(egonet.getNeighbor(i, j - 1) < neighbor);
+				}
+				Assert.assertTrue(egonet.isEdge(i, neighbor));
+				actual.add(egonet.reverseMap(neighbor));
+			}
+
+			Assert.assertEquals(expected, actual);
+		}
+	}
+}
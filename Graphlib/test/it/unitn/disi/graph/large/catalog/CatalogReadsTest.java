@@ -6,6 +6,7 @@ import it.unitn.disi.utils.AbstractIDMapper;
 import it.unitn.disi.utils.SparseIDMapper;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -41,6 +42,18 @@ public class CatalogReadsTest extends CatalogTest {
 		Assert.assertEquals(fOriginal.size(), count);
 	}
 
+	@Test
+	public void parallelIndexMatchesSequential() throws Exception {
+		GraphIndexer indexer = new GraphIndexer(
+				CatalogRecordTypes.PROPERTY_RECORD, 3);
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		ByteArrayOutputStream indexedGraph = new ByteArrayOutputStream();
+		indexer.indexGraph(fOriginal, index, indexedGraph);
+
+		Assert.assertTrue(Arrays.equals(fIndex, index.toByteArray()));
+		Assert.assertTrue(Arrays.equals(fRewritten, indexedGraph.toByteArray()));
+	}
+
 	@Test
 	public void sequentialRead() throws Exception {
 		CatalogRecord[] records = loadCatalog();
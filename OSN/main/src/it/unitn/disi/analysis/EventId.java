@@ -0,0 +1,43 @@
+package it.unitn.disi.analysis;
+
+class EventId implements Comparable<EventId> {
+	public final long fId;
+	public final int fSeq;
+
+	EventId(long id, int seq) {
+		fId = id;
+		fSeq = seq;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof EventId)) {
+			return false;
+		}
+
+		EventId evt = (EventId) other;
+		return evt.fId == this.fId && evt.fSeq == this.fSeq;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 311;
+		result = (int) (37 * result + this.fId);
+		result = 37 * result + this.fSeq;
+
+		return result;
+	}
+
+	@Override
+	public int compareTo(EventId other) {
+		if (fId != other.fId) {
+			return fId < other.fId ? -1 : 1;
+		}
+		return fSeq < other.fSeq ? -1 : (fSeq == other.fSeq ? 0 : 1);
+	}
+
+	@Override
+	public String toString() {
+		return "Tweet by " + fId + " sequence number " + fSeq;
+	}
+}
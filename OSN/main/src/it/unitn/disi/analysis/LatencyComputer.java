@@ -8,15 +8,17 @@ import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
 import it.unitn.disi.newscasting.NewscastEvents;
 import it.unitn.disi.utils.logging.CodecUtils;
 import it.unitn.disi.utils.logging.EventCodec;
-import it.unitn.disi.utils.logging.EventCodec.DecodingStream;
+import it.unitn.disi.utils.logging.EventCodec.RecordReader;
+import it.unitn.disi.utils.logging.IBinaryRecordType;
 
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -31,7 +33,12 @@ import java.util.Map;
  * <ol>
  * 
  * Note to self: the current implementation is very efficient and lightweight,
- * so exercise care when making changes.
+ * so exercise care when making changes.<BR>
+ * <BR>
+ * For large logs, a number of threads can be given to the constructor, in
+ * which case the log is processed by a {@link ShardedLatencyComputer}, which
+ * produces the same output. Undelivered messages are listed by receiver, and
+ * then by message, in both modes.
  * 
  * @author giuliano
  */
@@ -41,15 +48,15 @@ public class LatencyComputer implements IMultiTransformer {
 	// Text prefixes for the messages.
 	// ----------------------------------------------------------------------
 	
-	private static final String DELIVERED = "M";
+	static final String DELIVERED = "M";
 	
-	private static final String DUPLICATE = "MD";
+	static final String DUPLICATE = "MD";
 	
-	private static final String UNDELIVERED = "U";
+	static final String UNDELIVERED = "U";
 	
-	private static final String TWEET = "T";
+	static final String TWEET = "T";
 	
-	private static final String XCGH_DIGESTS = "D";
+	static final String XCGH_DIGESTS = "D";
 	
 	public static enum Inputs {
 		graph, log
@@ -65,6 +72,8 @@ public class LatencyComputer implements IMultiTransformer {
 
 	private final boolean fVerbose;
 	
+	private final int fThreads;
+	
 	// ----------------------------------------------------------------------
 	// State.
 	// ----------------------------------------------------------------------
@@ -82,7 +91,18 @@ public class LatencyComputer implements IMultiTransformer {
 	private long fCurrentRound = 0;
 
 	public LatencyComputer(boolean verbose) {
+		this(verbose, 0);
+	}
+
+	/**
+	 * @param threads
+	 *            if larger than zero, the number of threads over which
+	 *            receivers are sharded. Zero processes the log in the calling
+	 *            thread.
+	 */
+	public LatencyComputer(boolean verbose, int threads) {
 		fVerbose = verbose;
+		fThreads = threads;
 	}
 
 	public void execute(StreamProvider p)
@@ -90,25 +110,24 @@ public class LatencyComputer implements IMultiTransformer {
 		LightweightStaticGraph sn = LightweightStaticGraph
 				.load(new ByteGraphDecoder(p.input(Inputs.graph)));
 		OutputStreamWriter writer = new OutputStreamWriter(p.output(Outputs.latencies));
+		if (fThreads > 0) {
+			executeSharded(sn, p, writer);
+			return;
+		}
+
 		EventCodec decoder = createDecoder();
-		DecodingStream stream = decoder.decodingStream(p.input(Inputs.log));
+		RecordReader stream = decoder.recordReader(p.input(Inputs.log));
 		
 		System.err.println("Now parsing binary log.");
 
 		try {
-			while (stream.hasNext()) {
-				Byte type = stream.next().byteValue();
+			while (stream.next() != -1) {
+				IBinaryRecordType type = stream.type();
 				// Picks the right dispatcher.
-				if (NewscastEvents.set.knows(type)) {
-					process(NewscastEvents.set.event(type), sn, stream, writer);
-				} else if (SimulationEvents.set.knows(type)) {
-					process(SimulationEvents.set.event(type), sn, stream,
-							writer);
+				if (type instanceof NewscastEvents) {
+					process((NewscastEvents) type, sn, stream, writer);
 				} else {
-					if (!stream.skipEvent()) {
-						throw new IllegalStateException(
-								"Error while trying to skip unknown event: malformed stream.");
-					}
+					process((SimulationEvents) type, sn, stream, writer);
 				}
 			}
 
@@ -125,12 +144,24 @@ public class LatencyComputer implements IMultiTransformer {
 		}
 	}
 
+	private void executeSharded(LightweightStaticGraph sn, StreamProvider p,
+			OutputStreamWriter writer) throws IOException {
+		System.err.println("Now parsing binary log.");
+		try {
+			new ShardedLatencyComputer(sn, fThreads, fVerbose).run(
+					p.input(Inputs.log), writer);
+		} finally {
+			writer.flush();
+			writer.close();
+		}
+	}
+
 	// ------------------------------------------------------------------
 	// Dispatching methods for SimulationEvents and NewscastEvents.
 	// ------------------------------------------------------------------
 
 	private void process(NewscastEvents event, LightweightStaticGraph sn,
-			DecodingStream stream, OutputStreamWriter writer)
+			RecordReader stream, OutputStreamWriter writer)
 			throws IOException {
 		switch (event) {
 
@@ -158,7 +189,7 @@ public class LatencyComputer implements IMultiTransformer {
 	}
 
 	private void process(SimulationEvents event, LightweightStaticGraph sn,
-			DecodingStream stream, OutputStreamWriter writer)
+			RecordReader stream, OutputStreamWriter writer)
 			throws IOException {
 		switch (event) {
 		case NODE_LOGIN:
@@ -177,23 +208,23 @@ public class LatencyComputer implements IMultiTransformer {
 	// Parsing methods for SimulationEvents.
 	// ------------------------------------------------------------------
 
-	private void parseNextRound(Iterator<Number> stream,
+	private void parseNextRound(RecordReader stream,
 			OutputStreamWriter writer) throws IOException {
-		fCurrentRound = stream.next().longValue();
+		fCurrentRound = stream.readLong();
 		writer.write("ROUNDEND:" + fCurrentRound + "\n");
 	}
 
-	private void parseNodeLogin(Iterator<Number> stream, OutputStreamWriter oup) {
-		long id = (Long) stream.next();
-		long time = (Long) stream.next();
+	private void parseNodeLogin(RecordReader stream, OutputStreamWriter oup) {
+		long id = stream.readLong();
+		long time = stream.readLong();
 
 		nodeData(id).nodeLogin(time);
 	}
 
-	private void parseNodeDeparture(Iterator<Number> stream,
+	private void parseNodeDeparture(RecordReader stream,
 			OutputStreamWriter oup) {
-		long id = (Long) stream.next();
-		long time = (Long) stream.next();
+		long id = stream.readLong();
+		long time = stream.readLong();
 
 		nodeData(id).nodeLogout(time);
 	}
@@ -202,29 +233,29 @@ public class LatencyComputer implements IMultiTransformer {
 	// Parsing methods for newscast events.
 	// ------------------------------------------------------------------
 
-	private void parseExchangeDigests(DecodingStream stream,
+	private void parseExchangeDigests(RecordReader stream,
 			OutputStreamWriter writer) throws IOException {
 		
 		StringBuffer sb = new StringBuffer();
 		sb.append(XCGH_DIGESTS);
 		sb.append(" ");
-		sb.append(stream.next());
+		sb.append(stream.readLong());
 		sb.append(" ");		
-		sb.append(stream.next());
+		sb.append(stream.readLong());
 		sb.append(" ");
-		sb.append(stream.next());
+		sb.append(stream.readInt());
 		sb.append(" ");
-		sb.append(stream.next());
+		sb.append(stream.readLong());
 		sb.append("\n");
 		writer.write(sb.toString());
 	}
 
-	private void parseTweet(Iterator<Number> stream,
+	private void parseTweet(RecordReader stream,
 			LightweightStaticGraph socialNetwork, OutputStreamWriter writer)
 			throws IOException {
-		Long producerId = (Long) stream.next();
-		EventId newEvent = new EventId(producerId, (Integer) stream.next());
-		long time = (Long) stream.next();
+		Long producerId = stream.readLong();
+		EventId newEvent = new EventId(producerId, stream.readInt());
+		long time = stream.readLong();
 
 		// Adds a "pending" notice to all friends of the node "producerId".
 		int[] neighbors = socialNetwork
@@ -255,37 +286,37 @@ public class LatencyComputer implements IMultiTransformer {
 		}
 	}
 
-	private void parseDuplicate(Iterator<Number> stream,
+	private void parseDuplicate(RecordReader stream,
 			OutputStreamWriter writer) throws IOException {
-		Long sending = (Long) stream.next();
-		Long receiving = (Long) stream.next();
-		Long tweeting = (Long) stream.next();
-		Integer seqNumber = (Integer) stream.next();
-		Long simTime = (Long) stream.next();
+		Long sending = stream.readLong();
+		Long receiving = stream.readLong();
+		long tweeting = stream.readLong();
+		int seqNumber = stream.readInt();
+		Long simTime = stream.readLong();
 
 		received(writer, sending, receiving, new EventId(tweeting, seqNumber),
 				simTime, true);
 	}
 
-	private void parseSingleReceive(Iterator<Number> stream,
+	private void parseSingleReceive(RecordReader stream,
 			OutputStreamWriter writer) throws IOException {
-		Long tweeting = (Long) stream.next();
-		Long sending = (Long) stream.next();
-		Long receiving = (Long) stream.next();
-		EventId id = new EventId(tweeting, (Integer) stream.next());
-		Long time = (Long) stream.next();
+		long tweeting = stream.readLong();
+		Long sending = stream.readLong();
+		Long receiving = stream.readLong();
+		EventId id = new EventId(tweeting, stream.readInt());
+		Long time = stream.readLong();
 
 		received(writer, sending, receiving, id, time, false);
 	}
 
-	private void parseMultiReceive(Iterator<Number> stream,
+	private void parseMultiReceive(RecordReader stream,
 			OutputStreamWriter writer) throws IOException {
-		Long tweeting = (Long) stream.next();
-		Long sending = (Long) stream.next();
-		Long receiving = (Long) stream.next();
-		int start = (Integer) stream.next();
-		int end = (Integer) stream.next();
-		Long time = (Long) stream.next();
+		long tweeting = stream.readLong();
+		Long sending = stream.readLong();
+		Long receiving = stream.readLong();
+		int start = stream.readInt();
+		int end = stream.readInt();
+		Long time = stream.readLong();
 
 		for (int i = start; i <= end; i++) {
 			received(writer, sending, receiving, new EventId(tweeting, i),
@@ -329,13 +360,12 @@ public class LatencyComputer implements IMultiTransformer {
 
 	private void dumpUndeliveredEvents(OutputStreamWriter writer)
 			throws IOException {
-		for (Long key : fToReceive.keySet()) {
+		List<Long> keys = new ArrayList<Long>(fToReceive.keySet());
+		Collections.sort(keys);
+		for (Long key : keys) {
 			NodeData data = fToReceive.get(key);
-			Iterator<EventId> pendingEvts = data.pendingEventKeys();
-			
-			while (pendingEvts.hasNext()) {
-				EventId id = pendingEvts.next();
-				
+			// Works on a copy, as receiving removes the events.
+			for (EventId id : data.pendingEvents()) {
 				StringBuffer sb = new StringBuffer();
 				sb.append(UNDELIVERED);
 				sb.append(" ");
@@ -371,152 +401,3 @@ public class LatencyComputer implements IMultiTransformer {
 		return decoder;
 	}
 }
-
-class EventId {
-	public final long fId;
-	public final int fSeq;
-
-	EventId(long id, int seq) {
-		fId = id;
-		fSeq = seq;
-	}
-
-	@Override
-	public boolean equals(Object other) {
-		if (!(other instanceof EventId)) {
-			return false;
-		}
-
-		EventId evt = (EventId) other;
-		return evt.fId == this.fId && evt.fSeq == this.fSeq;
-	}
-
-	@Override
-	public int hashCode() {
-		int result = 311;
-		result = (int) (37 * result + this.fId);
-		result = 37 * result + this.fSeq;
-
-		return result;
-	}
-
-	@Override
-	public String toString() {
-		return "Tweet by " + fId + " sequence number " + fSeq;
-	}
-}
-
-/**
- * {@link NodeData} keeps track of pending deliveries and accrued message
- * latencies on a per-node basis.
- * 
- * @author giuliano
- */
-class NodeData {
-	/**
-	 * Time at which a given pending message has been published.
-	 */
-	private static final int TIME_ISSUED = 0;
-
-	/**
-	 * Accrued latency for a pending message.
-	 */
-	private static final int ACCRUED_LATENCY = 1;
-
-	/**
-	 * Pending messages for the current node.
-	 */
-	private Map<EventId, Long[]> fPending = new HashMap<EventId, Long[]>();
-
-	/**
-	 * Last login time for the current node.
-	 */
-	private long fLogin;
-
-	/**
-	 * Time register for the last event reported for this node.
-	 */
-	private long fLastSessionEvent = -1;
-
-	public void addPending(EventId id, long time) {
-		checkMonotonic(time);
-		if (fPending.containsKey(id)) {
-			throw new IllegalStateException(id.toString());
-		}
-		fPending.put(id, new Long[] { time, 0L });
-	}
-
-	public void nodeLogin(long time) {
-		checkMonotonic(time);
-		if (isLoggedIn()) {
-			throw new IllegalStateException(
-					"Cannot log-in an already logged in node.");
-		}
-
-		fLogin = time;
-		fLastSessionEvent = time;
-	}
-
-	public void nodeLogout(long time) {
-		checkLogin(time);
-		checkMonotonic(time);
-
-		for (Long[] pending : fPending.values()) {
-			pending[ACCRUED_LATENCY] = accruedLatency(pending, time);
-		}
-		fLogin = -1;
-		fLastSessionEvent = time;
-	}
-
-	public long eventReceived(EventId id, long time) {
-		checkLogin(time);
-		checkMonotonic(time);
-
-		Long[] pending = fPending.remove(id);
-		if (pending == null) {
-			throw new IllegalStateException(
-					"Log reports a reception for a message never sent.");
-		}
-
-		fLastSessionEvent = time;
-		return accruedLatency(pending, time);
-	}
-
-	public boolean isLoggedIn() {
-		return fLogin != -1;
-	}
-
-	public Iterator<EventId> pendingEventKeys() {
-		return Collections.unmodifiableSet(fPending.keySet()).iterator();
-	}
-
-	private void checkLogin(long time) {
-		if (fLogin == -1) {
-			throw new IllegalStateException("Node was not logged in.");
-		}
-
-		if (time < fLogin) {
-			throw new IllegalStateException(
-					"Event received before login segment.");
-		}
-	}
-
-	private void checkMonotonic(long time) {
-		if (time < fLastSessionEvent) {
-			throw new IllegalStateException(
-					"Events must be monotonically increasing.");
-		}
-	}
-
-	private long accruedLatency(Long[] pending, long time) {
-		// Event issued before the last login.
-		if (fLogin > pending[TIME_ISSUED]) {
-			return pending[ACCRUED_LATENCY] + (time - fLogin);
-		}
-
-		// Event issued after the last login.
-		else {
-			return time - pending[TIME_ISSUED];
-		}
-	}
-}
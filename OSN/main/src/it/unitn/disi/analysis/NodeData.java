@@ -0,0 +1,132 @@
+package it.unitn.disi.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link NodeData} keeps track of pending deliveries and accrued message
+ * latencies on a per-node basis.
+ * 
+ * @author giuliano
+ */
+class NodeData {
+	/**
+	 * Time at which a given pending message has been published.
+	 */
+	private static final int TIME_ISSUED = 0;
+
+	/**
+	 * Accrued latency for a pending message.
+	 */
+	private static final int ACCRUED_LATENCY = 1;
+
+	/**
+	 * Pending messages for the current node.
+	 */
+	private Map<EventId, Long[]> fPending = new HashMap<EventId, Long[]>();
+
+	/**
+	 * Last login time for the current node.
+	 */
+	private long fLogin;
+
+	/**
+	 * Time register for the last event reported for this node.
+	 */
+	private long fLastSessionEvent = -1;
+
+	public void addPending(EventId id, long time) {
+		checkMonotonic(time);
+		if (fPending.containsKey(id)) {
+			throw new IllegalStateException(id.toString());
+		}
+		fPending.put(id, new Long[] { time, 0L });
+	}
+
+	public void nodeLogin(long time) {
+		checkMonotonic(time);
+		if (isLoggedIn()) {
+			throw new IllegalStateException(
+					"Cannot log-in an already logged in node.");
+		}
+
+		fLogin = time;
+		fLastSessionEvent = time;
+	}
+
+	public void nodeLogout(long time) {
+		checkLogin(time);
+		checkMonotonic(time);
+
+		for (Long[] pending : fPending.values()) {
+			pending[ACCRUED_LATENCY] = accruedLatency(pending, time);
+		}
+		fLogin = -1;
+		fLastSessionEvent = time;
+	}
+
+	public long eventReceived(EventId id, long time) {
+		checkLogin(time);
+		checkMonotonic(time);
+
+		Long[] pending = fPending.remove(id);
+		if (pending == null) {
+			throw new IllegalStateException(
+					"Log reports a reception for a message never sent.");
+		}
+
+		fLastSessionEvent = time;
+		return accruedLatency(pending, time);
+	}
+
+	public boolean isLoggedIn() {
+		return fLogin != -1;
+	}
+
+	public Iterator<EventId> pendingEventKeys() {
+		return Collections.unmodifiableSet(fPending.keySet()).iterator();
+	}
+
+	/**
+	 * @return a sorted copy of the pending events.
+	 */
+	public List<EventId> pendingEvents() {
+		List<EventId> events = new ArrayList<EventId>(fPending.keySet());
+		Collections.sort(events);
+		return events;
+	}
+
+	private void checkLogin(long time) {
+		if (fLogin == -1) {
+			throw new IllegalStateException("Node was not logged in.");
+		}
+
+		if (time < fLogin) {
+			throw new IllegalStateException(
+					"Event received before login segment.");
+		}
+	}
+
+	private void checkMonotonic(long time) {
+		if (time < fLastSessionEvent) {
+			throw new IllegalStateException(
+					"Events must be monotonically increasing.");
+		}
+	}
+
+	private long accruedLatency(Long[] pending, long time) {
+		// Event issued before the last login.
+		if (fLogin > pending[TIME_ISSUED]) {
+			return pending[ACCRUED_LATENCY] + (time - fLogin);
+		}
+
+		// Event issued after the last login.
+		else {
+			return time - pending[TIME_ISSUED];
+		}
+	}
+}
@@ -0,0 +1,930 @@
+package it.unitn.disi.analysis;
+
+import it.unitn.disi.SimulationEvents;
+import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
+import it.unitn.disi.newscasting.NewscastEvents;
+import it.unitn.disi.utils.collections.LongIntHashMap;
+import it.unitn.disi.utils.logging.CodecUtils;
+import it.unitn.disi.utils.logging.EventCodec;
+import it.unitn.disi.utils.logging.EventCodec.RecordReader;
+import it.unitn.disi.utils.logging.IBinaryRecordType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * High-throughput mode for {@link LatencyComputer}, which produces the same
+ * output. The work is split across three stages, which run concurrently:
+ * <ol>
+ * <li>the calling thread decodes the binary log into batches of primitive
+ * records, with no boxing;</li>
+ * <li>one thread per shard applies the records to the state of the receivers
+ * it owns (receivers are assigned to shards by id), and computes their
+ * latencies. Each shard keeps its state in open-addressing tables;</li>
+ * <li>a writer thread outputs each batch, in log order, once all shards are
+ * done with it.</li>
+ * </ol>
+ * Errors are reported as {@link LatencyComputer} would report them: output
+ * stops at the record that caused the first error in log order, and the
+ * error is rethrown.
+ *
+ * @author giuliano
+ */
+class ShardedLatencyComputer {
+
+	private static final int BATCH_SIZE = 1 << 16;
+
+	private static final int BATCHES = 4;
+
+	// ----------------------------------------------------------------------
+	// Record kinds.
+	// ----------------------------------------------------------------------
+
+	private static final byte LOGIN = 1;
+
+	private static final byte DEPART = 2;
+
+	private static final byte ROUND = 3;
+
+	private static final byte DIGESTS = 4;
+
+	private static final byte TWEET = 5;
+
+	private static final byte DELIVERED = 6;
+
+	private static final byte DELIVERED_RANGE = 7;
+
+	private static final byte DUPLICATE = 8;
+
+	// ----------------------------------------------------------------------
+
+	private static final Batch END = new Batch(0, 0);
+
+	private final LightweightStaticGraph fGraph;
+
+	private final boolean fVerbose;
+
+	private final Shard[] fShards;
+
+	/**
+	 * Record kind, by event type.
+	 */
+	private final byte[] fKinds = new byte[256];
+
+	private final LinkedBlockingQueue<Batch> fFree = new LinkedBlockingQueue<Batch>();
+
+	private final LinkedBlockingQueue<Batch> fToWrite = new LinkedBlockingQueue<Batch>();
+
+	/**
+	 * First error, in log order. Set by the writer thread.
+	 */
+	private volatile Throwable fError;
+
+	/**
+	 * Round of the last written {@link #ROUND} record.
+	 */
+	private long fCurrentRound;
+
+	private RecordReader fReader;
+
+	// ----------------------------------------------------------------------
+
+	public ShardedLatencyComputer(LightweightStaticGraph graph, int shards,
+			boolean verbose) {
+		fGraph = graph;
+		fVerbose = verbose;
+		fShards = new Shard[shards];
+		for (int i = 0; i < shards; i++) {
+			fShards[i] = new Shard(i);
+		}
+
+		kind(NewscastEvents.TWEETED, TWEET);
+		kind(NewscastEvents.DELIVER_SINGLE_TWEET, DELIVERED);
+		kind(NewscastEvents.DELIVER_TWEET_RANGE, DELIVERED_RANGE);
+		kind(NewscastEvents.DUPLICATE_TWEET, DUPLICATE);
+		kind(NewscastEvents.EXCHANGE_DIGESTS, DIGESTS);
+		kind(SimulationEvents.NODE_LOGIN, LOGIN);
+		kind(SimulationEvents.NODE_DEPART, DEPART);
+		kind(SimulationEvents.ROUND_ENDED, ROUND);
+
+		for (int i = 0; i < BATCHES; i++) {
+			fFree.add(new Batch(BATCH_SIZE, shards));
+		}
+	}
+
+	private void kind(IBinaryRecordType type, byte kind) {
+		fKinds[type.magicNumber().byteValue() & 0xff] = kind;
+	}
+
+	// ----------------------------------------------------------------------
+
+	public void run(InputStream input, Writer writer) throws IOException {
+		fReader = new EventCodec(Byte.class, CodecUtils.merge(
+				NewscastEvents.values(), SimulationEvents.values()))
+				.recordReader(input);
+
+		Thread[] shards = new Thread[fShards.length];
+		for (int i = 0; i < shards.length; i++) {
+			shards[i] = new Thread(fShards[i], "latency shard " + i);
+			shards[i].setDaemon(true);
+			shards[i].start();
+		}
+		OutputWriter output = new OutputWriter(writer);
+		Thread writerThread = new Thread(output, "latency writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+
+		try {
+			boolean more = true;
+			Batch batch = null;
+			try {
+				batch = fFree.take();
+				while (more && fError == null) {
+					more = decode(batch);
+					dispatch(batch);
+					batch = more ? fFree.take() : null;
+				}
+			} catch (RuntimeException ex) {
+				// Decoding error: reported after the records decoded so far.
+				batch.error(ex);
+				dispatch(batch);
+			}
+
+			for (Shard shard : fShards) {
+				shard.fQueue.put(END);
+			}
+			fToWrite.put(END);
+			writerThread.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while computing latencies.");
+		}
+
+		if (output.fIOError != null) {
+			throw output.fIOError;
+		}
+		rethrow();
+
+		dumpUndeliveredEvents(writer);
+	}
+
+	private void dispatch(Batch batch) throws InterruptedException {
+		batch.fDone = new CountDownLatch(fShards.length);
+		for (Shard shard : fShards) {
+			shard.fQueue.put(batch);
+		}
+		fToWrite.put(batch);
+	}
+
+	private void rethrow() {
+		Throwable error = fError;
+		if (error == null) {
+			return;
+		}
+		if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		}
+		if (error instanceof Error) {
+			throw (Error) error;
+		}
+		throw new RuntimeException(error);
+	}
+
+	// ----------------------------------------------------------------------
+	// Decoding.
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Decodes records into a batch, until it is full or the log ends.
+	 *
+	 * @return whether there are more records to decode.
+	 */
+	private boolean decode(Batch batch) throws IOException {
+		batch.clear();
+		while (batch.fCount < BATCH_SIZE) {
+			int type = fReader.next();
+			if (type == -1) {
+				return false;
+			}
+			decodeRecord(batch, fKinds[type]);
+		}
+		return true;
+	}
+
+	private void decodeRecord(Batch batch, byte kind) {
+		switch (kind) {
+		case LOGIN:
+		case DEPART:
+			batch.add(kind, readLong(), 0, readLong(), 0, 0);
+			break;
+
+		case ROUND:
+			batch.add(kind, readLong(), 0, 0, 0, 0);
+			break;
+
+		case DIGESTS:
+			batch.add(kind, readLong(), 0, readLong(), readInt(), readLong());
+			break;
+
+		case TWEET:
+			batch.add(kind, readLong(), readInt(), readLong(), 0, 0);
+			break;
+
+		case DELIVERED: {
+			long tweeting = readLong();
+			long sending = readLong();
+			long receiving = readLong();
+			int seq = readInt();
+			batch.add(kind, tweeting, seq, sending, receiving, readLong());
+			break;
+		}
+
+		case DELIVERED_RANGE: {
+			long tweeting = readLong();
+			long sending = readLong();
+			long receiving = readLong();
+			int start = readInt();
+			int end = readInt();
+			long time = readLong();
+			for (int i = start; i <= end; i++) {
+				batch.add(DELIVERED, tweeting, i, sending, receiving, time);
+			}
+			break;
+		}
+
+		case DUPLICATE: {
+			long sending = readLong();
+			long receiving = readLong();
+			long tweeting = readLong();
+			int seq = readInt();
+			batch.add(kind, tweeting, seq, sending, receiving, readLong());
+			break;
+		}
+
+		}
+	}
+
+	private long readLong() {
+		return fReader.readLong();
+	}
+
+	private int readInt() {
+		return fReader.readInt();
+	}
+
+	// ----------------------------------------------------------------------
+	// Output.
+	// ----------------------------------------------------------------------
+
+	private class OutputWriter implements Runnable {
+
+		private final Writer fWriter;
+
+		private final StringBuilder fLine = new StringBuilder();
+
+		private char[] fChars = new char[0];
+
+		private volatile IOException fIOError;
+
+		public OutputWriter(Writer writer) {
+			fWriter = writer;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Batch batch;
+				while ((batch = fToWrite.take()) != END) {
+					batch.fDone.await();
+					if (fError == null && fIOError == null) {
+						write(batch);
+					}
+					fFree.put(batch);
+				}
+			} catch (InterruptedException ex) {
+				fError = ex;
+			} catch (IOException ex) {
+				fIOError = ex;
+				fError = ex;
+			}
+		}
+
+		private void write(Batch batch) throws IOException {
+			// Finds the first error in log order.
+			int limit = batch.fCount;
+			int position = Integer.MIN_VALUE;
+			Throwable error = batch.fError;
+			for (int i = 0; i < fShards.length; i++) {
+				if (batch.fErrors[i] == null) {
+					continue;
+				}
+				int record = batch.fErrorRecords[i];
+				int shardPosition = batch.fErrorPositions[i];
+				if (record < limit
+						|| (record == limit && shardPosition < position)) {
+					limit = record;
+					position = shardPosition;
+					error = batch.fErrors[i];
+				}
+			}
+
+			StringBuilder line = fLine;
+			line.setLength(0);
+			for (int i = 0; i < limit; i++) {
+				format(batch, i, line);
+			}
+
+			if (fChars.length < line.length()) {
+				fChars = new char[line.length()];
+			}
+			line.getChars(0, line.length(), fChars, 0);
+			fWriter.write(fChars, 0, line.length());
+
+			if (error != null) {
+				fError = error;
+			}
+		}
+
+		private void format(Batch batch, int i, StringBuilder line) {
+			switch (batch.fKinds[i]) {
+			case ROUND:
+				fCurrentRound = batch.fA[i];
+				line.append("ROUNDEND:").append(fCurrentRound).append('\n');
+				break;
+
+			case DIGESTS:
+				line.append(LatencyComputer.XCGH_DIGESTS).append(' ')
+						.append(batch.fA[i]).append(' ').append(batch.fB[i])
+						.append(' ').append(batch.fC[i]).append(' ')
+						.append(batch.fD[i]).append('\n');
+				break;
+
+			case TWEET:
+				line.append(LatencyComputer.TWEET).append(' ')
+						.append(batch.fA[i]).append(' ').append(batch.fSeq[i])
+						.append(' ').append(batch.fB[i]).append('\n');
+				if (fVerbose) {
+					verbose(batch, i);
+				}
+				break;
+
+			case DELIVERED:
+			case DUPLICATE:
+				line.append(
+						batch.fKinds[i] == DELIVERED ? LatencyComputer.DELIVERED
+								: LatencyComputer.DUPLICATE).append(' ')
+						.append(batch.fA[i]).append(' ').append(batch.fSeq[i])
+						.append(' ').append(batch.fB[i]).append(' ')
+						.append(batch.fC[i]).append(' ')
+						.append(batch.fLatencies[i]).append(' ')
+						.append(batch.fD[i]).append('\n');
+				break;
+			}
+		}
+
+		private void verbose(Batch batch, int i) {
+			Long producerId = batch.fA[i];
+			System.err.println(String.format(
+					NewscastEvents.TWEETED.formattingString(), producerId,
+					batch.fSeq[i], batch.fB[i])
+					+ ". To be received by "
+					+ Arrays.toString(fGraph.fastGetNeighbours(producerId
+							.intValue())) + ".");
+		}
+	}
+
+	// ----------------------------------------------------------------------
+	// Undelivered events.
+	// ----------------------------------------------------------------------
+
+	private void dumpUndeliveredEvents(Writer writer) throws IOException {
+		int total = 0;
+		for (Shard shard : fShards) {
+			total += shard.fPendingCount;
+		}
+
+		// Pending events as (shard, entry) pairs, sorted as LatencyComputer
+		// sorts them.
+		Integer[] order = new Integer[total];
+		final int[] shards = new int[total];
+		final int[] entries = new int[total];
+		int k = 0;
+		for (int i = 0; i < fShards.length; i++) {
+			Shard shard = fShards[i];
+			for (int node = 0; node < shard.fNodeCount; node++) {
+				for (int entry = shard.fHead[node]; entry != -1; entry = shard.fNext[entry]) {
+					order[k] = k;
+					shards[k] = i;
+					entries[k] = entry;
+					k++;
+				}
+			}
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				Shard s1 = fShards[shards[o1]];
+				Shard s2 = fShards[shards[o2]];
+				int e1 = entries[o1];
+				int e2 = entries[o2];
+				int result = compareLong(s1.fIds[s1.fEntryNode[e1]],
+						s2.fIds[s2.fEntryNode[e2]]);
+				if (result == 0) {
+					result = compareLong(s1.fTweet[e1], s2.fTweet[e2]);
+				}
+				if (result == 0) {
+					result = compareLong(s1.fSeq[e1], s2.fSeq[e2]);
+				}
+				return result;
+			}
+		});
+
+		StringBuilder line = new StringBuilder();
+		for (Integer index : order) {
+			Shard shard = fShards[shards[index]];
+			int entry = entries[index];
+			long node = shard.fIds[shard.fEntryNode[entry]];
+			long tweet = shard.fTweet[entry];
+			int seq = shard.fSeq[entry];
+
+			line.setLength(0);
+			line.append(LatencyComputer.UNDELIVERED).append(' ').append(tweet)
+					.append(' ').append(seq).append(' ').append(node)
+					.append(' ')
+					.append(shard.received(node, tweet, seq, fCurrentRound))
+					.append(' ').append(fCurrentRound).append('\n');
+			writer.write(line.toString());
+		}
+	}
+
+	private static int compareLong(long l1, long l2) {
+		return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Decoded records, in struct-of-arrays form. Field use depends on the
+	 * record kind:
+	 * <ul>
+	 * <li>{@link #LOGIN}, {@link #DEPART}: A = node, B = time;</li>
+	 * <li>{@link #ROUND}: A = round;</li>
+	 * <li>{@link #DIGESTS}: A, B, C, D as in the log;</li>
+	 * <li>{@link #TWEET}: A = producer, seq, B = time;</li>
+	 * <li>{@link #DELIVERED}, {@link #DUPLICATE}: A = producer, seq, B =
+	 * sender, C = receiver, D = time.</li>
+	 * </ul>
+	 * Ranges of deliveries are expanded into one record per message.
+	 */
+	private static class Batch {
+
+		int fCount;
+
+		byte[] fKinds;
+
+		long[] fA;
+
+		long[] fB;
+
+		long[] fC;
+
+		long[] fD;
+
+		int[] fSeq;
+
+		/**
+		 * Latencies for {@link #DELIVERED} records, set by the shards.
+		 */
+		long[] fLatencies;
+
+		/**
+		 * Decoding error, which happened after the last record in the batch.
+		 */
+		Throwable fError;
+
+		/**
+		 * First error found by each shard, if any, with the record and
+		 * position (neighbor index, for tweets) where it happened.
+		 */
+		final Throwable[] fErrors;
+
+		final int[] fErrorRecords;
+
+		final int[] fErrorPositions;
+
+		volatile CountDownLatch fDone;
+
+		public Batch(int size, int shards) {
+			fKinds = new byte[size];
+			fA = new long[size];
+			fB = new long[size];
+			fC = new long[size];
+			fD = new long[size];
+			fSeq = new int[size];
+			fLatencies = new long[size];
+			fErrors = new Throwable[shards];
+			fErrorRecords = new int[shards];
+			fErrorPositions = new int[shards];
+		}
+
+		void clear() {
+			fCount = 0;
+			fError = null;
+			Arrays.fill(fErrors, null);
+		}
+
+		void error(Throwable error) {
+			fError = error;
+		}
+
+		void add(byte kind, long a, int seq, long b, long c, long d) {
+			if (fCount == fKinds.length) {
+				int size = fCount * 2;
+				fKinds = Arrays.copyOf(fKinds, size);
+				fA = Arrays.copyOf(fA, size);
+				fB = Arrays.copyOf(fB, size);
+				fC = Arrays.copyOf(fC, size);
+				fD = Arrays.copyOf(fD, size);
+				fSeq = Arrays.copyOf(fSeq, size);
+				fLatencies = Arrays.copyOf(fLatencies, size);
+			}
+			fKinds[fCount] = kind;
+			fA[fCount] = a;
+			fB[fCount] = b;
+			fC[fCount] = c;
+			fD[fCount] = d;
+			fSeq[fCount] = seq;
+			fLatencies[fCount] = -1L;
+			fCount++;
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * State of the receivers owned by a shard. Mirrors {@link NodeData}, with
+	 * nodes and pending messages kept in open-addressing tables. Pending
+	 * messages of a node are also linked in a list, for logouts and for
+	 * dumping undelivered messages.
+	 */
+	private class Shard implements Runnable {
+
+		private final int fIndex;
+
+		private final LinkedBlockingQueue<Batch> fQueue = new LinkedBlockingQueue<Batch>();
+
+		private boolean fFailed;
+
+		// Nodes.
+
+		private final LongIntHashMap fNodes = new LongIntHashMap();
+
+		private int fNodeCount;
+
+		private long[] fIds = new long[16];
+
+		private long[] fLogin = new long[16];
+
+		private long[] fLastSessionEvent = new long[16];
+
+		private int[] fHead = new int[16];
+
+		// Pending messages.
+
+		private int[] fTable = new int[64];
+
+		private int fTableMask = fTable.length - 1;
+
+		private int fPendingCount;
+
+		private int fEntries;
+
+		private int fFreeEntry = -1;
+
+		private int[] fEntryNode = new int[16];
+
+		private long[] fTweet = new long[16];
+
+		private int[] fSeq = new int[16];
+
+		private long[] fIssued = new long[16];
+
+		private long[] fAccrued = new long[16];
+
+		private int[] fHash = new int[16];
+
+		private int[] fNext = new int[16];
+
+		private int[] fPrevious = new int[16];
+
+		public Shard(int index) {
+			fIndex = index;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Batch batch;
+				while ((batch = fQueue.take()) != END) {
+					if (!fFailed) {
+						process(batch);
+					}
+					batch.fDone.countDown();
+				}
+			} catch (InterruptedException ex) {
+				// Exits.
+			}
+		}
+
+		private void process(Batch batch) {
+			int record = 0;
+			int position = 0;
+			try {
+				for (; record < batch.fCount; record++) {
+					position = -1;
+					switch (batch.fKinds[record]) {
+					case LOGIN:
+						if (owns(batch.fA[record])) {
+							nodeLogin(batch.fA[record], batch.fB[record]);
+						}
+						break;
+
+					case DEPART:
+						if (owns(batch.fA[record])) {
+							nodeLogout(batch.fA[record], batch.fB[record]);
+						}
+						break;
+
+					case TWEET: {
+						int[] neighbors = fGraph
+								.fastGetNeighbours((int) batch.fA[record]);
+						for (position = 0; position < neighbors.length; position++) {
+							if (owns(neighbors[position])) {
+								addPending(neighbors[position], batch.fA[record],
+										batch.fSeq[record], batch.fB[record]);
+							}
+						}
+						break;
+					}
+
+					case DELIVERED:
+						if (owns(batch.fC[record])) {
+							batch.fLatencies[record] = received(batch.fC[record],
+									batch.fA[record], batch.fSeq[record],
+									batch.fD[record]);
+						}
+						break;
+					}
+				}
+			} catch (Throwable ex) {
+				batch.fErrors[fIndex] = ex;
+				batch.fErrorRecords[fIndex] = record;
+				batch.fErrorPositions[fIndex] = position;
+				fFailed = true;
+			}
+		}
+
+		private boolean owns(long id) {
+			long shards = fShards.length;
+			return (int) (((id % shards) + shards) % shards) == fIndex;
+		}
+
+		// ------------------------------------------------------------------
+		// Same as NodeData.
+		// ------------------------------------------------------------------
+
+		void addPending(long id, long tweet, int seq, long time) {
+			int node = node(id);
+			checkMonotonic(node, time);
+			int hash = hash(node, tweet, seq);
+			if (find(node, tweet, seq, hash) != -1) {
+				throw new IllegalStateException(new EventId(tweet, seq)
+						.toString());
+			}
+			insert(node, tweet, seq, hash, time);
+		}
+
+		void nodeLogin(long id, long time) {
+			int node = node(id);
+			checkMonotonic(node, time);
+			if (fLogin[node] != -1) {
+				throw new IllegalStateException(
+						"Cannot log-in an already logged in node.");
+			}
+			fLogin[node] = time;
+			fLastSessionEvent[node] = time;
+		}
+
+		void nodeLogout(long id, long time) {
+			int node = node(id);
+			checkLogin(node, time);
+			checkMonotonic(node, time);
+			for (int entry = fHead[node]; entry != -1; entry = fNext[entry]) {
+				fAccrued[entry] = accruedLatency(node, entry, time);
+			}
+			fLogin[node] = -1;
+			fLastSessionEvent[node] = time;
+		}
+
+		long received(long id, long tweet, int seq, long time) {
+			int node = node(id);
+			checkLogin(node, time);
+			checkMonotonic(node, time);
+			int entry = find(node, tweet, seq, hash(node, tweet, seq));
+			if (entry == -1) {
+				throw new IllegalStateException(
+						"Log reports a reception for a message never sent.");
+			}
+			fLastSessionEvent[node] = time;
+			long latency = accruedLatency(node, entry, time);
+			remove(entry);
+			return latency;
+		}
+
+		private void checkLogin(int node, long time) {
+			if (fLogin[node] == -1) {
+				throw new IllegalStateException("Node was not logged in.");
+			}
+
+			if (time < fLogin[node]) {
+				throw new IllegalStateException(
+						"Event received before login segment.");
+			}
+		}
+
+		private void checkMonotonic(int node, long time) {
+			if (time < fLastSessionEvent[node]) {
+				throw new IllegalStateException(
+						"Events must be monotonically increasing.");
+			}
+		}
+
+		private long accruedLatency(int node, int entry, long time) {
+			// Event issued before the last login.
+			if (fLogin[node] > fIssued[entry]) {
+				return fAccrued[entry] + (time - fLogin[node]);
+			}
+
+			// Event issued after the last login.
+			else {
+				return time - fIssued[entry];
+			}
+		}
+
+		// ------------------------------------------------------------------
+		// Tables.
+		// ------------------------------------------------------------------
+
+		private int node(long id) {
+			int node = fNodes.get(id, -1);
+			if (node != -1) {
+				return node;
+			}
+
+			node = fNodeCount++;
+			if (node == fIds.length) {
+				int size = node * 2;
+				fIds = Arrays.copyOf(fIds, size);
+				fLogin = Arrays.copyOf(fLogin, size);
+				fLastSessionEvent = Arrays.copyOf(fLastSessionEvent, size);
+				fHead = Arrays.copyOf(fHead, size);
+			}
+			fIds[node] = id;
+			fLogin[node] = 0;
+			fLastSessionEvent[node] = -1;
+			fHead[node] = -1;
+			fNodes.put(id, node);
+			return node;
+		}
+
+		private int find(int node, long tweet, int seq, int hash) {
+			for (int slot = hash & fTableMask;; slot = (slot + 1) & fTableMask) {
+				int entry = fTable[slot] - 1;
+				if (entry == -1) {
+					return -1;
+				}
+				if (fHash[entry] == hash && fEntryNode[entry] == node
+						&& fTweet[entry] == tweet && fSeq[entry] == seq) {
+					return entry;
+				}
+			}
+		}
+
+		private void insert(int node, long tweet, int seq, int hash, long time) {
+			int entry = allocate();
+			fEntryNode[entry] = node;
+			fTweet[entry] = tweet;
+			fSeq[entry] = seq;
+			fHash[entry] = hash;
+			fIssued[entry] = time;
+			fAccrued[entry] = 0;
+
+			// Links at the head of the node's list.
+			fPrevious[entry] = -1;
+			fNext[entry] = fHead[node];
+			if (fHead[node] != -1) {
+				fPrevious[fHead[node]] = entry;
+			}
+			fHead[node] = entry;
+
+			place(entry);
+			if (++fPendingCount > (fTable.length >> 1)) {
+				rehash(fTable.length * 2);
+			}
+		}
+
+		private void remove(int entry) {
+			// Unlinks from the node's list.
+			if (fPrevious[entry] != -1) {
+				fNext[fPrevious[entry]] = fNext[entry];
+			} else {
+				fHead[fEntryNode[entry]] = fNext[entry];
+			}
+			if (fNext[entry] != -1) {
+				fPrevious[fNext[entry]] = fPrevious[entry];
+			}
+
+			// Removes from the table by shifting back the entries which
+			// follow it in its probe sequence.
+			int hole = fHash[entry] & fTableMask;
+			while (fTable[hole] - 1 != entry) {
+				hole = (hole + 1) & fTableMask;
+			}
+			int slot = hole;
+			while (true) {
+				slot = (slot + 1) & fTableMask;
+				int other = fTable[slot] - 1;
+				if (other == -1) {
+					break;
+				}
+				int home = fHash[other] & fTableMask;
+				boolean stays = hole <= slot ? (hole < home && home <= slot)
+						: (hole < home || home <= slot);
+				if (!stays) {
+					fTable[hole] = fTable[slot];
+					hole = slot;
+				}
+			}
+			fTable[hole] = 0;
+
+			fNext[entry] = fFreeEntry;
+			fFreeEntry = entry;
+			fPendingCount--;
+		}
+
+		private int allocate() {
+			if (fFreeEntry != -1) {
+				int entry = fFreeEntry;
+				fFreeEntry = fNext[entry];
+				return entry;
+			}
+
+			int entry = fEntries++;
+			if (entry == fEntryNode.length) {
+				int size = entry * 2;
+				fEntryNode = Arrays.copyOf(fEntryNode, size);
+				fTweet = Arrays.copyOf(fTweet, size);
+				fSeq = Arrays.copyOf(fSeq, size);
+				fIssued = Arrays.copyOf(fIssued, size);
+				fAccrued = Arrays.copyOf(fAccrued, size);
+				fHash = Arrays.copyOf(fHash, size);
+				fNext = Arrays.copyOf(fNext, size);
+				fPrevious = Arrays.copyOf(fPrevious, size);
+			}
+			return entry;
+		}
+
+		private void place(int entry) {
+			int slot = fHash[entry] & fTableMask;
+			while (fTable[slot] != 0) {
+				slot = (slot + 1) & fTableMask;
+			}
+			fTable[slot] = entry + 1;
+		}
+
+		private void rehash(int size) {
+			fTable = new int[size];
+			fTableMask = size - 1;
+			for (int node = 0; node < fNodeCount; node++) {
+				for (int entry = fHead[node]; entry != -1; entry = fNext[entry]) {
+					place(entry);
+				}
+			}
+		}
+
+		private int hash(int node, long tweet, int seq) {
+			long key = tweet * 0x9E3779B97F4A7C15L + seq;
+			key = key * 0xC2B2AE3D27D4EB4FL + node;
+			key ^= key >>> 29;
+			key *= 0xBF58476D1CE4E5B9L;
+			key ^= key >>> 32;
+			return (int) key;
+		}
+	}
+}
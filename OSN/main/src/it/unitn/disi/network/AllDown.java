@@ -2,6 +2,7 @@ package it.unitn.disi.network;
 
 import it.unitn.disi.SimulationEvents;
 import it.unitn.disi.utils.logging.EventCodec;
+import it.unitn.disi.utils.logging.EventCodec.RecordEncoder;
 import it.unitn.disi.utils.logging.StreamManager;
 
 import java.io.IOException;
@@ -30,8 +31,7 @@ public class AllDown implements Control {
 	private static final EventCodec fCodec = new EventCodec(Byte.class,
 			SimulationEvents.values());
 
-	protected static final byte[] fBuffer = new byte[SimulationEvents.set
-			.sizeof(SimulationEvents.set.getLargest())];
+	protected static final RecordEncoder fEncoder = fCodec.recordEncoder();
 
 	private final OutputStream fLog;
 
@@ -51,11 +51,9 @@ public class AllDown implements Control {
 		for (int i = 0; i < size; i++) {
 			Node node = Network.get(i);
 			node.setFailState(Node.DOWN);
-			fCodec.encodeEvent(fBuffer, 0,
-					SimulationEvents.NODE_DEPART.magicNumber(), node.getID(),
-					CommonState.getTime());
 			try {
-				fLog.write(fBuffer);
+				fEncoder.begin(SimulationEvents.NODE_DEPART).put(node.getID())
+						.put(CommonState.getTime()).writeTo(fLog);
 			} catch (IOException ex) {
 				throw new RuntimeException(ex);
 			}
@@ -0,0 +1,525 @@
+package it.unitn.disi.newscasting.internal;
+
+import it.unitn.disi.epidemics.IGossipMessage;
+import it.unitn.disi.epidemics.IMessageVisibility;
+import it.unitn.disi.epidemics.IWritableEventStorage;
+import it.unitn.disi.newscasting.internal.CompactEventStorage.SimpleMessage;
+import it.unitn.disi.utils.peersim.SNNode;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import peersim.core.Linkable;
+import peersim.core.Node;
+
+/**
+ * {@link IntervalEventStorage} has the same semantics as
+ * {@link CompactEventStorage}, but keeps the intervals of sequence numbers for
+ * each originator in a sorted primitive array instead of a linked list of
+ * boxed integers. Membership tests and insertions locate their interval by
+ * binary search, and merges compute both the union and the set of missing
+ * events in a single linear pass over the two arrays.
+ *
+ * @author giuliano
+ */
+public class IntervalEventStorage implements IWritableEventStorage, Cloneable {
+
+	private static final int INITIAL_INTERVALS = 4;
+
+	// ----------------------------------------------------------------------
+
+	private Map<Node, Intervals> fIntervals = new HashMap<Node, Intervals>();
+
+	private IMessageVisibility fVisibility;
+
+	// ----------------------------------------------------------------------
+
+	public IntervalEventStorage(IMessageVisibility visibility) {
+		fVisibility = visibility;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Adds a new event to storage. As with {@link CompactEventStorage}, any
+	 * event will be accepted by this method, even those that do not belong to
+	 * the neighborhood of the node.
+	 *
+	 * @return <code>true</code> if the event was not yet in storage.
+	 */
+	public boolean add(Node owner, int seqNumber) {
+		Intervals intervals = fIntervals.get(owner);
+		if (intervals == null) {
+			intervals = new Intervals();
+			fIntervals.put(owner, intervals);
+		}
+		return intervals.add(seqNumber);
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return a read-only view over the intervals of events known for an
+	 *         originator, in the same format as
+	 *         {@link CompactEventStorage#eventsFor(Node)}, or <code>null</code>
+	 *         if no events are known.
+	 */
+	public List<Integer> eventsFor(Node owner) {
+		Intervals intervals = fIntervals.get(owner);
+		if (intervals == null) {
+			return null;
+		}
+		return intervals.view();
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public boolean contains(IGossipMessage msg) {
+		return contains(msg.originator(), msg.sequenceNumber());
+	}
+
+	// ----------------------------------------------------------------------
+
+	public boolean contains(Node owner, int seqnumber) {
+		Intervals intervals = fIntervals.get(owner);
+		if (intervals == null) {
+			return false;
+		}
+		return intervals.contains(seqnumber);
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public boolean remove(Node node, int sequence) {
+		throw new UnsupportedOperationException();
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public IGossipMessage retrieve(Node originator, int sequence) {
+		if (this.contains(originator, sequence)) {
+			return new SimpleMessage(originator, sequence, fVisibility);
+		}
+		return null;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Merges the events known by another {@link IntervalEventStorage} into
+	 * this one. Semantics are the same as
+	 * {@link CompactEventStorage#merge(Node, Node, CompactEventStorage, IMergeObserver, Linkable)}
+	 * .
+	 */
+	public void merge(Node sender, Node receiver, IntervalEventStorage other,
+			IMergeObserver observer, Linkable neighborhood) {
+		Iterator<Map.Entry<Node, Intervals>> it = fIntervals.entrySet()
+				.iterator();
+		while (it.hasNext()) {
+			Map.Entry<Node, Intervals> entry = it.next();
+			Node key = entry.getKey();
+
+			// Performs garbage collection. We no longer have
+			// this node in our social network.
+			if (!neighborhood.contains(key) && (receiver != null)
+					&& (key.getID() != receiver.getID())) {
+				it.remove();
+				continue;
+			}
+
+			/** Merges occur only for keys in common. */
+			Intervals theirs = other.fIntervals.get(key);
+			if (theirs == null) {
+				continue;
+			}
+
+			Intervals ours = entry.getValue();
+
+			// Simulates sending the digest.
+			observer.sendDigest(sender, receiver, key, ours.view());
+
+			// Reports what we're missing before the arrays are merged.
+			deliverMissing(observer, sender, receiver, key, ours, theirs);
+			ours.union(theirs);
+		}
+
+		this.deltaAdd(sender, receiver, other, observer, neighborhood);
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void deltaAdd(Node sender, Node receiver,
+			IntervalEventStorage other, IMergeObserver observer,
+			Linkable socialNeighborhood) {
+		for (Map.Entry<Node, Intervals> entry : other.fIntervals.entrySet()) {
+			Node key = entry.getKey();
+
+			// If we have already merged those before, or the
+			// node isn't in our neighborhood, continue.
+			if (fIntervals.containsKey(key)
+					|| !socialNeighborhood.contains(key)) {
+				continue;
+			}
+
+			Intervals theirs = entry.getValue();
+			fIntervals.put(key, theirs.copy());
+
+			// Now notifies about the updates.
+			for (int i = 0; i < theirs.fCount; i += 2) {
+				deliver(observer, sender, receiver, key, theirs.fBounds[i],
+						theirs.fBounds[i + 1]);
+			}
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Reports, in increasing order, the events in <code>theirs</code> which
+	 * are not in <code>ours</code>.
+	 */
+	private void deliverMissing(IMergeObserver observer, Node sender,
+			Node receiver, Node key, Intervals ours, Intervals theirs) {
+		int[] a = ours.fBounds;
+		int[] b = theirs.fBounds;
+		int i = 0;
+		for (int j = 0; j < theirs.fCount; j += 2) {
+			int start = b[j];
+			int end = b[j + 1];
+
+			// Skips our intervals which end before this one starts.
+			while (i < ours.fCount && a[i + 1] < start) {
+				i += 2;
+			}
+
+			long cursor = start;
+			for (int k = i; k < ours.fCount && a[k] <= end; k += 2) {
+				if (a[k] > cursor) {
+					deliver(observer, sender, receiver, key, (int) cursor,
+							a[k] - 1);
+				}
+				cursor = Math.max(cursor, a[k + 1] + 1L);
+			}
+
+			if (cursor <= end) {
+				deliver(observer, sender, receiver, key, (int) cursor, end);
+			}
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void deliver(IMergeObserver observer, Node sender, Node receiver,
+			Node key, int start, int end) {
+
+		for (long i = start; i <= end; i++) {
+			observer.delivered((SNNode) sender, (SNNode) receiver,
+					new SimpleMessage((SNNode) key, (int) i, fVisibility),
+					false);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	public void consistencyCheck() {
+		for (Intervals intervals : fIntervals.values()) {
+			intervals.consistencyCheck();
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public Iterator<IGossipMessage> tweetsFor(Node node) {
+		Intervals intervals = fIntervals.get(node);
+		if (intervals == null) {
+			List<IGossipMessage> empty = Collections.emptyList();
+			return empty.iterator();
+		}
+		return new TweetIterator(node, intervals);
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public boolean add(IGossipMessage msg) {
+		return this.add(msg.originator(), msg.sequenceNumber());
+	}
+
+	// ----------------------------------------------------------------------
+
+	public int distinctNodes() {
+		return fIntervals.size();
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public Set<Node> nodes() {
+		return Collections.unmodifiableSet(fIntervals.keySet());
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public void clear() {
+		fIntervals.clear();
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the number of interval bounds held in storage, as in
+	 *         {@link CompactEventStorage#elements()}.
+	 */
+	public int elements() {
+		int total = 0;
+		for (Intervals intervals : fIntervals.values()) {
+			total += intervals.fCount;
+		}
+
+		return total;
+	}
+
+	// ----------------------------------------------------------------------
+
+	public Object clone() {
+		try {
+			IntervalEventStorage cloned = (IntervalEventStorage) super.clone();
+			cloned.fIntervals = new HashMap<Node, Intervals>();
+
+			for (Map.Entry<Node, Intervals> entry : fIntervals.entrySet()) {
+				cloned.fIntervals.put(entry.getKey(), entry.getValue().copy());
+			}
+
+			return cloned;
+		} catch (CloneNotSupportedException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Sorted, disjoint and non-adjacent closed intervals, stored as flattened
+	 * <code>[start, end]</code> pairs.
+	 */
+	static final class Intervals {
+
+		int[] fBounds;
+
+		int fCount;
+
+		Intervals() {
+			this(new int[2 * INITIAL_INTERVALS], 0);
+		}
+
+		private Intervals(int[] bounds, int count) {
+			fBounds = bounds;
+			fCount = count;
+		}
+
+		// ------------------------------------------------------------------
+
+		boolean contains(int seqNumber) {
+			int p = upperBound(seqNumber);
+			return p > 0 && fBounds[p - 1] >= seqNumber;
+		}
+
+		// ------------------------------------------------------------------
+
+		boolean add(int seqNumber) {
+			int p = upperBound(seqNumber);
+
+			// Already contained in the preceding interval.
+			if (p > 0 && fBounds[p - 1] >= seqNumber) {
+				return false;
+			}
+
+			boolean joinsLeft = p > 0 && fBounds[p - 1] == seqNumber - 1L;
+			boolean joinsRight = p < fCount && fBounds[p] == seqNumber + 1L;
+
+			if (joinsLeft && joinsRight) {
+				// Fills the gap between two intervals.
+				fBounds[p - 1] = fBounds[p + 1];
+				System.arraycopy(fBounds, p + 2, fBounds, p, fCount - p - 2);
+				fCount -= 2;
+			} else if (joinsLeft) {
+				fBounds[p - 1] = seqNumber;
+			} else if (joinsRight) {
+				fBounds[p] = seqNumber;
+			} else {
+				ensureCapacity(fCount + 2);
+				System.arraycopy(fBounds, p, fBounds, p + 2, fCount - p);
+				fBounds[p] = seqNumber;
+				fBounds[p + 1] = seqNumber;
+				fCount += 2;
+			}
+
+			return true;
+		}
+
+		// ------------------------------------------------------------------
+
+		/**
+		 * Replaces the contents of these intervals by their union with
+		 * another set of intervals.
+		 */
+		void union(Intervals other) {
+			int[] a = fBounds;
+			int[] b = other.fBounds;
+			int[] merged = new int[Math.max(a.length, fCount + other.fCount)];
+			int count = 0;
+
+			int i = 0;
+			int j = 0;
+			while (i < fCount || j < other.fCount) {
+				// Picks the interval with the smallest start.
+				int start, end;
+				if (j >= other.fCount || (i < fCount && a[i] <= b[j])) {
+					start = a[i];
+					end = a[i + 1];
+					i += 2;
+				} else {
+					start = b[j];
+					end = b[j + 1];
+					j += 2;
+				}
+
+				if (count > 0 && start <= merged[count - 1] + 1L) {
+					merged[count - 1] = Math.max(merged[count - 1], end);
+				} else {
+					merged[count++] = start;
+					merged[count++] = end;
+				}
+			}
+
+			fBounds = merged;
+			fCount = count;
+		}
+
+		// ------------------------------------------------------------------
+
+		/**
+		 * @return the index of the first interval (start bound) which starts
+		 *         after <code>seqNumber</code>.
+		 */
+		private int upperBound(int seqNumber) {
+			int low = 0;
+			int high = fCount / 2;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (fBounds[2 * mid] <= seqNumber) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return 2 * low;
+		}
+
+		// ------------------------------------------------------------------
+
+		private void ensureCapacity(int size) {
+			if (size > fBounds.length) {
+				fBounds = Arrays.copyOf(fBounds, Math.max(size,
+						fBounds.length * 2));
+			}
+		}
+
+		// ------------------------------------------------------------------
+
+		Intervals copy() {
+			return new Intervals(Arrays.copyOf(fBounds, Math.max(fCount, 2)),
+					fCount);
+		}
+
+		// ------------------------------------------------------------------
+
+		List<Integer> view() {
+			return new AbstractList<Integer>() {
+				@Override
+				public Integer get(int index) {
+					if (index >= fCount) {
+						throw new IndexOutOfBoundsException(Integer
+								.toString(index));
+					}
+					return fBounds[index];
+				}
+
+				@Override
+				public int size() {
+					return fCount;
+				}
+			};
+		}
+
+		// ------------------------------------------------------------------
+
+		void consistencyCheck() {
+			long last = Long.MIN_VALUE;
+			for (int i = 0; i < fCount; i += 2) {
+				if (fBounds[i] <= last + 1 || fBounds[i] > fBounds[i + 1]) {
+					System.err.println(view());
+					throw new AssertionError();
+				}
+				last = fBounds[i + 1];
+			}
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	private class TweetIterator implements Iterator<IGossipMessage> {
+
+		private final Node fNode;
+
+		private final Intervals fList;
+
+		private int fInterval;
+
+		private long fCurrent;
+
+		public TweetIterator(Node node, Intervals intervals) {
+			fNode = node;
+			fList = intervals;
+			fCurrent = fList.fCount > 0 ? fList.fBounds[0] : 0;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return fInterval < fList.fCount;
+		}
+
+		@Override
+		public IGossipMessage next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			SimpleMessage next = new SimpleMessage(fNode, (int) fCurrent++,
+					fVisibility);
+			if (fCurrent > fList.fBounds[fInterval + 1]) {
+				fInterval += 2;
+				if (fInterval < fList.fCount) {
+					fCurrent = fList.fBounds[fInterval];
+				}
+			}
+			return next;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
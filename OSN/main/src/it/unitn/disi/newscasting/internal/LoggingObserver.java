@@ -8,6 +8,7 @@ import it.unitn.disi.epidemics.IGossipMessage;
 import it.unitn.disi.newscasting.NewscastEvents;
 import it.unitn.disi.newscasting.Tweet;
 import it.unitn.disi.utils.logging.EventCodec;
+import it.unitn.disi.utils.logging.EventCodec.RecordEncoder;
 import it.unitn.disi.utils.peersim.SNNode;
 
 import java.io.IOException;
@@ -31,8 +32,7 @@ public class LoggingObserver implements IMergeObserver {
 	private static final EventCodec fCodec = new EventCodec(Byte.class,
 			NewscastEvents.values());
 
-	protected static final byte[] fBuffer = new byte[NewscastEvents.set
-			.sizeof(NewscastEvents.set.getLargest())];
+	protected static final RecordEncoder fEncoder = fCodec.recordEncoder();
 	
 	private final OutputStream fLog;
 	
@@ -47,10 +47,11 @@ public class LoggingObserver implements IMergeObserver {
 	
 	public void localDelivered(IGossipMessage message) {
 		Tweet tweet = (Tweet) message;
-		log(fBuffer, TWEETED.magicNumber(), // event type
-				tweet.poster.getID(), // tweeting node (us)
-				tweet.sequenceNumber, // sequence number
-				CommonState.getTime()); // simulation time
+		fEncoder.begin(TWEETED) // event type
+				.put(tweet.poster.getID()) // tweeting node (us)
+				.put(tweet.sequenceNumber) // sequence number
+				.put(CommonState.getTime()); // simulation time
+		log();
 	}
 	
 	// ----------------------------------------------------------------------
@@ -59,22 +60,23 @@ public class LoggingObserver implements IMergeObserver {
 			boolean duplicate) {
 		Tweet tweet = (Tweet) message;
 		if (!duplicate) {
-			log(fBuffer, DELIVER_SINGLE_TWEET.magicNumber(),// event type
-					tweet.poster.getID(), // node owning the tweet
-					sending.getID(), // the sending node.
-					receiving.getID(), // node receiving the tweet
-					tweet.sequenceNumber, // sequence number of the tweet
-					CommonState.getTime()); // simulation time
+			fEncoder.begin(DELIVER_SINGLE_TWEET) // event type
+					.put(tweet.poster.getID()) // node owning the tweet
+					.put(sending.getID()) // the sending node.
+					.put(receiving.getID()) // node receiving the tweet
+					.put(tweet.sequenceNumber) // sequence number of the tweet
+					.put(CommonState.getTime()); // simulation time
 		}
 
 		else {
-			log(fBuffer, DUPLICATE_TWEET.magicNumber(),// event type
-					tweet.poster.getID(), // node owning the tweet
-					sending.getID(), // the sending node.
-					receiving.getID(), // node receiving the tweet
-					tweet.sequenceNumber, // sequence number of the tweet
-					CommonState.getTime()); // simulation time
+			fEncoder.begin(DUPLICATE_TWEET) // event type
+					.put(tweet.poster.getID()) // node owning the tweet
+					.put(sending.getID()) // the sending node.
+					.put(receiving.getID()) // node receiving the tweet
+					.put(tweet.sequenceNumber) // sequence number of the tweet
+					.put(CommonState.getTime()); // simulation time
 		}
+		log();
 	}
 	
 	// ----------------------------------------------------------------------
@@ -84,24 +86,24 @@ public class LoggingObserver implements IMergeObserver {
 		// When digests are exchanged, they flow from the node
 		// initiating the anti-entropy exchange to the pairing node.
 		// (The initiating node tells the pair what it doesn't have).
-		log(fBuffer, EXCHANGE_DIGESTS.magicNumber(), // Event type
-				sender.getID(), // ID of the digest sender.
-				receiver.getID(), // ID of digest receiver.
-				holes.size(), // Number of items in the digest.
-				CommonState.getTime()); // Simulation time.
+		fEncoder.begin(EXCHANGE_DIGESTS) // Event type
+				.put(sender.getID()) // ID of the digest sender.
+				.put(receiver.getID()) // ID of digest receiver.
+				.put(holes.size()) // Number of items in the digest.
+				.put(CommonState.getTime()); // Simulation time.
+		log();
 	}
 	
 	// ----------------------------------------------------------------------
 
-	private void log(byte[] buf, Number... event) {
+	private void log() {
 		
 		if (fVerbose) {
-			System.out.println(fCodec.toString(event));
+			System.out.println(fEncoder);
 		}
 
-		int len = fCodec.encodeEvent(buf, 0, event);
 		try {
-			fLog.write(fBuffer, 0, len);
+			fEncoder.writeTo(fLog);
 		} catch(IOException ex) {
 			throw new RuntimeException(ex);
 		}
@@ -11,6 +11,7 @@ import it.unitn.disi.newscasting.internal.demers.CompactStorageAntiEntropy;
 import it.unitn.disi.newscasting.internal.demers.DemersRumorMonger;
 import it.unitn.disi.newscasting.internal.forwarding.BloomFilterHistoryFw;
 import it.unitn.disi.newscasting.internal.forwarding.HistoryForwarding;
+import it.unitn.disi.newscasting.internal.forwarding.LongBloomFilterHistoryFw;
 import it.unitn.disi.newscasting.probabrm.ProbabilisticRumorMonger;
 import it.unitn.disi.utils.logging.StreamManager;
 import it.unitn.disi.utils.peersim.FallThroughReference;
@@ -57,6 +58,19 @@ public class NewscastAppConfigurator implements IApplicationConfigurator {
 	private static final String VAL_FORWARDING = "forwarding";
 	private static final String VAL_FORWARDING_BLOOM = "use_bloom_filters";
 
+	/**
+	 * Selects the Bloom filter implementation used for histories, when these
+	 * are enabled. Might be set to:
+	 * 
+	 * <ol>
+	 * <li> {@link #VAL_BLOOM_LEGACY} (default): uses {@link BloomFilterHistoryFw}.</li>
+	 * <li> {@link #VAL_BLOOM_PRIMITIVE}: uses {@link LongBloomFilterHistoryFw}.</li>
+	 * </ol>
+	 */
+	private static final String PAR_BLOOM_TYPE = "bloom_type";
+	private static final String VAL_BLOOM_LEGACY = "legacy";
+	private static final String VAL_BLOOM_PRIMITIVE = "primitive";
+
 	/**
 	 * Defines the backing storage implementation.
 	 */
@@ -64,6 +78,7 @@ public class NewscastAppConfigurator implements IApplicationConfigurator {
 
 	private static final String VAL_SIMPLE = "simple";
 	private static final String VAL_COMPACT = "compact";
+	private static final String VAL_INTERVAL = "interval";
 
 	private static final String VAL_NONE = "none";
 
@@ -132,15 +147,27 @@ public class NewscastAppConfigurator implements IApplicationConfigurator {
 
 		@SuppressWarnings("rawtypes")
 		Class[] keys;
-		if (histories) {
-			gd = new BloomFilterHistoryFw(protocolId, socialNetworkId,
-					resolver, prefix + "." + PAR_RUMOR_MONGER);
-			keys = new Class[] { HistoryForwarding.class,
-					BloomFilterHistoryFw.class };
-		} else {
+		String rmPrefix = prefix + "." + PAR_RUMOR_MONGER;
+		if (!histories) {
 			gd = new HistoryForwarding(protocolId, socialNetworkId, resolver,
-					prefix + "." + PAR_RUMOR_MONGER);
+					rmPrefix);
 			keys = new Class[] { HistoryForwarding.class };
+		} else {
+			String type = Configuration.getString(rmPrefix + "."
+					+ PAR_BLOOM_TYPE, VAL_BLOOM_LEGACY);
+			if (type.equals(VAL_BLOOM_PRIMITIVE)) {
+				gd = new LongBloomFilterHistoryFw(protocolId, socialNetworkId,
+						resolver, rmPrefix);
+				keys = new Class[] { HistoryForwarding.class,
+						LongBloomFilterHistoryFw.class };
+			} else if (type.equals(VAL_BLOOM_LEGACY)) {
+				gd = new BloomFilterHistoryFw(protocolId, socialNetworkId,
+						resolver, rmPrefix);
+				keys = new Class[] { HistoryForwarding.class,
+						BloomFilterHistoryFw.class };
+			} else {
+				throw new IllegalArgumentException(type);
+			}
 		}
 
 		app.addStrategy(keys, gd, selector(PAR_RUMOR_MONGER),
@@ -170,6 +197,8 @@ public class NewscastAppConfigurator implements IApplicationConfigurator {
 		IWritableEventStorage storage;
 		if (type.equals(VAL_COMPACT)) {
 			storage = new CompactEventStorage(new NeighborhoodMulticast(snId));
+		} else if (type.equals(VAL_INTERVAL)) {
+			storage = new IntervalEventStorage(new NeighborhoodMulticast(snId));
 		} else if (type.equals(VAL_SIMPLE)) {
 			storage = new SimpleEventStorage(Integer.MAX_VALUE);
 		} else {
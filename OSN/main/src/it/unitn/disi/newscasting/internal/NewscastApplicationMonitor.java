@@ -3,6 +3,7 @@ package it.unitn.disi.newscasting.internal;
 import static it.unitn.disi.utils.peersim.PeersimUtils.print;
 import it.unitn.disi.SimulationEvents;
 import it.unitn.disi.utils.logging.EventCodec;
+import it.unitn.disi.utils.logging.EventCodec.RecordEncoder;
 import it.unitn.disi.utils.logging.StreamManager;
 
 import java.io.IOException;
@@ -33,9 +34,8 @@ public class NewscastApplicationMonitor implements Control {
 	// Log and event handling.
 	// --------------------------------------------------------------------------
 	
-	private static final byte [] fBuffer = new byte[Long.SIZE/Byte.SIZE + 1];
-	
-	private EventCodec fCodec = new EventCodec(Byte.class, SimulationEvents.values());
+	private RecordEncoder fEncoder = new EventCodec(Byte.class,
+			SimulationEvents.values()).recordEncoder();
 	
 	private OutputStream fLog;
 	
@@ -81,12 +81,9 @@ public class NewscastApplicationMonitor implements Control {
 		}
 		
 		// Logs round end.
-		int len = fCodec.encodeEvent(fBuffer, 0,
-				SimulationEvents.ROUND_ENDED.magicNumber(),
-				CommonState.getTime());
-		
 		try {
-			fLog.write(fBuffer, 0, len);
+			fEncoder.begin(SimulationEvents.ROUND_ENDED)
+					.put(CommonState.getTime()).writeTo(fLog);
 		} catch (IOException ex) {
 			throw new RuntimeException(ex);
 		}
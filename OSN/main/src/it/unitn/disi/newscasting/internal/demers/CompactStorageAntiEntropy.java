@@ -3,8 +3,10 @@ package it.unitn.disi.newscasting.internal.demers;
 import it.unitn.disi.epidemics.IApplicationInterface;
 import it.unitn.disi.epidemics.IContentExchangeStrategy;
 import it.unitn.disi.epidemics.IGossipMessage;
+import it.unitn.disi.epidemics.IEventStorage;
 import it.unitn.disi.newscasting.internal.CompactEventStorage;
 import it.unitn.disi.newscasting.internal.IMergeObserver;
+import it.unitn.disi.newscasting.internal.IntervalEventStorage;
 import it.unitn.disi.newscasting.internal.SocialNewscastingService;
 import it.unitn.disi.utils.peersim.SNNode;
 
@@ -15,7 +17,8 @@ import peersim.core.Node;
 
 /**
  * "Protocol" shell which performs anti-entropy by leveraging
- * {@link CompactEventStorage}'s efficient merging capabilities.
+ * {@link CompactEventStorage}'s (or {@link IntervalEventStorage}'s)
+ * efficient merging capabilities.
  * 
  * @author giuliano
  */
@@ -47,20 +50,30 @@ public class CompactStorageAntiEntropy implements IContentExchangeStrategy,
 		Linkable ourSn = (Linkable) source.getProtocol(fSnLinkableId);
 		Linkable peerSn = (Linkable) source.getProtocol(fSnLinkableId);
 
-		CompactEventStorage storage = (CompactEventStorage) application
-				.storage();
-		CompactEventStorage peerStorage = (CompactEventStorage) peerApplication
-				.storage();
+		IEventStorage storage = application.storage();
+		IEventStorage peerStorage = peerApplication.storage();
 
 		// Merges the peer's store into ours.
 		fObserver.set(source);
-		storage.merge(target, source, peerStorage, fObserver, ourSn);
+		merge(target, source, storage, peerStorage, ourSn);
 		fObserver.set(target);
-		peerStorage.merge(source, target, storage, fObserver, peerSn);
+		merge(source, target, peerStorage, storage, peerSn);
 
 		return true;
 	}
 
+	private void merge(Node sender, Node receiver,
+			IEventStorage storage, IEventStorage other,
+			Linkable neighborhood) {
+		if (storage instanceof IntervalEventStorage) {
+			((IntervalEventStorage) storage).merge(sender, receiver,
+					(IntervalEventStorage) other, fObserver, neighborhood);
+		} else {
+			((CompactEventStorage) storage).merge(sender, receiver,
+					(CompactEventStorage) other, fObserver, neighborhood);
+		}
+	}
+
 	public int throttling(SNNode source) {
 		return 1;
 	}
@@ -0,0 +1,126 @@
+package it.unitn.disi.newscasting.internal.forwarding;
+
+import it.unitn.disi.cli.ITransformer;
+import it.unitn.disi.utils.collections.LongBloomFilter;
+import it.unitn.disi.utils.tabular.TableWriter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import peersim.config.Attribute;
+import peersim.config.AutoConfig;
+
+import com.skjegstad.utils.BloomFilter;
+
+/**
+ * Compares the history operations performed by {@link BloomFilterHistoryFw}
+ * and {@link LongBloomFilterHistoryFw} for each forwarded message, outside of
+ * a simulation. For every message, a history is created for a neighborhood of
+ * the given degree, cloned at the receiver, merged back as feedback, and
+ * checked against every neighbor, as {@link HistoryForwarding} does. Prints
+ * messages per second for both implementations.
+ *
+ * @author giuliano
+ */
+@AutoConfig
+public class BloomHistoryBenchmark implements ITransformer {
+
+	@Attribute(value = "degree", defaultValue = "150")
+	private int fDegree;
+
+	@Attribute(value = "bloom_false_positive", defaultValue = "0.001")
+	private double fFalsePositive;
+
+	@Attribute(value = "window_size", defaultValue = "50")
+	private int fWindowSize;
+
+	@Attribute(value = "messages", defaultValue = "200000")
+	private int fMessages;
+
+	@Attribute(value = "rounds", defaultValue = "5")
+	private int fRounds;
+
+	@Override
+	public void execute(InputStream is, OutputStream oup) throws Exception {
+		TableWriter writer = new TableWriter(oup, "impl", "round", "msgs",
+				"checksum");
+
+		int bits = (int) BloomFilter.requiredBitSetSizeFor(fFalsePositive,
+				fDegree);
+		long[] ids = new long[fDegree];
+		Random random = new Random(42);
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = random.nextInt(Integer.MAX_VALUE);
+		}
+
+		for (int i = 0; i < fRounds; i++) {
+			long start = System.nanoTime();
+			long checksum = legacy(bits, ids);
+			print(writer, "legacy", i, System.nanoTime() - start, checksum);
+
+			start = System.nanoTime();
+			checksum = primitive(bits, ids);
+			print(writer, "primitive", i, System.nanoTime() - start, checksum);
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	private long legacy(int bits, long[] ids) {
+		long checksum = 0;
+		for (int i = 0; i < fMessages; i++) {
+			BloomFilter<Long> sender = new BloomFilter<Long>(bits, fDegree);
+			sender.add(ids[i % ids.length]);
+
+			BloomFilter<Long> receiver = new BloomFilter<Long>(sender.size(),
+					sender.getExpectedNumberOfElements());
+			receiver.merge(sender);
+			receiver.add(ids[(i + 1) % ids.length]);
+
+			sender.merge(receiver);
+			for (int j = 0; j < ids.length; j++) {
+				checksum += sender.contains(ids[j]) ? 1 : 0;
+			}
+		}
+		return checksum;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private long primitive(int bits, long[] ids) {
+		// Histories are recycled once they fall out of the window.
+		LongBloomFilter[] window = new LongBloomFilter[fWindowSize * 2];
+		for (int i = 0; i < window.length; i++) {
+			window[i] = new LongBloomFilter(bits, fDegree);
+		}
+
+		long checksum = 0;
+		for (int i = 0; i < fMessages; i++) {
+			LongBloomFilter sender = window[(2 * i) % window.length];
+			sender.reset(bits, fDegree);
+			sender.add(ids[i % ids.length]);
+
+			LongBloomFilter receiver = window[(2 * i + 1) % window.length];
+			receiver.copyFrom(sender);
+			receiver.add(ids[(i + 1) % ids.length]);
+
+			sender.merge(receiver);
+			for (int j = 0; j < ids.length; j++) {
+				checksum += sender.contains(ids[j]) ? 1 : 0;
+			}
+		}
+		return checksum;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void print(TableWriter writer, String impl, int round, long nanos,
+			long checksum) {
+		writer.set("impl", impl);
+		writer.set("round", round);
+		writer.set("msgs", fMessages / (nanos / 1e9));
+		writer.set("checksum", checksum);
+		writer.emmitRow();
+	}
+}
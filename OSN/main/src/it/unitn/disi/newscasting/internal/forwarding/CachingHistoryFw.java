@@ -4,6 +4,7 @@ import it.unitn.disi.epidemics.IGossipMessage;
 import it.unitn.disi.utils.collections.BoundedHashMap;
 
 import java.util.Map;
+import java.util.Map.Entry;
 
 import peersim.config.IResolver;
 import peersim.core.Node;
@@ -55,7 +56,18 @@ public abstract class CachingHistoryFw<T> extends HistoryForwarding {
 			int chunkSize, int windowSize) {
 		super(adaptableId, socialNetworkId, chunkSize);
 		fWindowSize = windowSize;
-		fWindow = new BoundedHashMap<IGossipMessage, T>(fWindowSize);
+		fWindow = new BoundedHashMap<IGossipMessage, T>(fWindowSize) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Entry<IGossipMessage, T> eldest) {
+				if (super.removeEldestEntry(eldest)) {
+					evicted(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
 	}
 
 	// ----------------------------------------------------------------------
@@ -89,6 +101,15 @@ public abstract class CachingHistoryFw<T> extends HistoryForwarding {
 
 	// ----------------------------------------------------------------------
 
+	/**
+	 * Called when a history object is evicted from the cache, so that
+	 * subclasses can recycle it. Does nothing by default.
+	 */
+	protected void evicted(T history) {
+	}
+
+	// ----------------------------------------------------------------------
+
 	protected T cache(IGossipMessage message, T history) {
 		if (fWindow.containsKey(message)) {
 			throw new IllegalStateException(
@@ -56,7 +56,7 @@ public class ForwardingMonitor implements Control {
 			for (int i = 0; i < Network.size(); i++) {
 				Node node = Network.get(i);
 				IProtocolSet intf = (IProtocolSet) node.getProtocol(fAdaptableId);				
-				BloomFilterHistoryFw gd = (BloomFilterHistoryFw) intf.getStrategy(HistoryForwarding.class);
+				CachingHistoryFw<?> gd = (CachingHistoryFw<?>) intf.getStrategy(HistoryForwarding.class);
 				System.out.println(node.getID() + " " + gd.cacheHitRate());
 			}
 			
@@ -78,11 +78,11 @@ public class ForwardingMonitor implements Control {
 					.getProtocol(fAdaptableId);
 			HistoryForwarding fw = intf.getStrategy(HistoryForwarding.class);
 
-			if (!(fw instanceof BloomFilterHistoryFw)) {
+			if (!(fw instanceof CachingHistoryFw)) {
 				return;
 			}
 			
-			BloomFilterHistoryFw fh = (BloomFilterHistoryFw) fw;
+			CachingHistoryFw<?> fh = (CachingHistoryFw<?>) fw;
 			
 			double hitRate = fh.cacheHitRate();
 			if (hitRate < fStats.getMin() || !fInit) {
@@ -0,0 +1,150 @@
+package it.unitn.disi.newscasting.internal.forwarding;
+
+import it.unitn.disi.epidemics.IGossipMessage;
+import it.unitn.disi.newscasting.Tweet;
+import it.unitn.disi.utils.collections.LongBloomFilter;
+
+import java.util.ArrayList;
+
+import peersim.config.IResolver;
+import peersim.core.Linkable;
+import peersim.core.Node;
+
+/**
+ * {@link LongBloomFilterHistoryFw} tracks histories with the same geometry as
+ * {@link BloomFilterHistoryFw}, but uses {@link LongBloomFilter}s, which hash
+ * node ids without boxing and merge in place. Filters evicted from the history
+ * cache are kept in a free list and recycled for new histories, so that
+ * steady-state forwarding does not allocate.<BR>
+ * <BR>
+ * Recycling relies on histories being referenced only through the cache
+ * between exchanges, which is how {@link HistoryForwarding} uses them.
+ *
+ * @author giuliano
+ */
+public class LongBloomFilterHistoryFw extends CachingHistoryFw<LongBloomFilter> {
+
+	// ----------------------------------------------------------------------
+	// Parameter storage.
+	// ----------------------------------------------------------------------
+
+	/**
+	 * False positive probability for bloom filters.
+	 */
+	private final double fBFFalsePositive;
+
+	// ----------------------------------------------------------------------
+	// Protocol state.
+	// ----------------------------------------------------------------------
+
+	private final ArrayList<LongBloomFilter> fFree = new ArrayList<LongBloomFilter>();
+
+	public LongBloomFilterHistoryFw(int adaptableId, int socialNetworkId,
+			IResolver resolver, String prefix) {
+		super(adaptableId, socialNetworkId, resolver, prefix);
+		fBFFalsePositive = resolver.getDouble(prefix,
+				BloomFilterHistoryFw.PAR_BLOOM_FALSE_POSITIVE);
+	}
+
+	// ----------------------------------------------------------------------
+
+	public LongBloomFilterHistoryFw(int adaptableId, int socialNetworkId,
+			int chunkSize, int windowSize, double bFFalsePositive) {
+		super(adaptableId, socialNetworkId, chunkSize, windowSize);
+		fBFFalsePositive = bFFalsePositive;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	protected boolean historyContains(Object history, Node node) {
+		if (history == null) {
+			return false;
+		}
+
+		return bloom(history).contains(node.getID());
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	protected void historyAdd(Object history, Node node) {
+		bloom(history).add(node.getID());
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	protected void historyMerge(Object merged, Object mergee) {
+		bloom(merged).merge(bloom(mergee));
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	protected LongBloomFilter historyCreate(IGossipMessage message) {
+		// As with BloomFilterHistoryFw, filters for the same message are
+		// always sized after the same neighborhood.
+		Tweet tweet = (Tweet) message;
+		Node central = tweet.profile();
+		Linkable socialNeighborhood = (Linkable) central
+				.getProtocol(fSocialNetworkId);
+		int bloomFilterSize = (int) LongBloomFilter.requiredBitSetSizeFor(
+				fBFFalsePositive, socialNeighborhood.degree());
+
+		LongBloomFilter bloom = acquire();
+		if (bloom == null) {
+			bloom = new LongBloomFilter(bloomFilterSize,
+					socialNeighborhood.degree());
+		} else {
+			bloom.reset(bloomFilterSize, socialNeighborhood.degree());
+		}
+		return cache(tweet, bloom);
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	protected LongBloomFilter historyClone(IGossipMessage message,
+			Object other) {
+		LongBloomFilter otherHistory = bloom(other);
+		LongBloomFilter clone = acquire();
+		if (clone == null) {
+			clone = new LongBloomFilter(otherHistory.size(),
+					otherHistory.getExpectedNumberOfElements());
+		}
+		clone.copyFrom(otherHistory);
+		return cache(message, clone);
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	protected void evicted(LongBloomFilter history) {
+		fFree.add(history);
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public void clear(Node source) {
+		super.clear(source);
+		fFree.clear();
+	}
+
+	// ----------------------------------------------------------------------
+	// Private helpers.
+	// ----------------------------------------------------------------------
+
+	private LongBloomFilter acquire() {
+		int last = fFree.size() - 1;
+		return last < 0 ? null : fFree.remove(last);
+	}
+
+	// ----------------------------------------------------------------------
+
+	private LongBloomFilter bloom(Object object) {
+		return (LongBloomFilter) object;
+	}
+
+}
@@ -0,0 +1,82 @@
+package it.unitn.disi.sps;
+
+import it.unitn.disi.cli.ITransformer;
+import it.unitn.disi.utils.tabular.TableWriter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+
+import peersim.Simulator;
+import peersim.cdsim.CDSimulator;
+import peersim.config.Attribute;
+import peersim.config.AutoConfig;
+import peersim.config.ParsedProperties;
+import peersim.core.SimulationContext;
+
+/**
+ * Measures how cycle-driven simulations scale with
+ * {@link peersim.cdsim.ParallelNextCycle}. Runs the simulation described by a
+ * configuration file once for each thread count, each time in a fresh
+ * {@link SimulationContext}, and prints the wall-clock time and the speedup
+ * over the first run.<BR>
+ * <BR>
+ * The configuration should use a partition-safe peer sampling protocol, like
+ * {@link it.unitn.disi.sps.cyclon.ParallelCyclonSN}. Protocols which are not
+ * partition-safe, like {@link it.unitn.disi.sps.newscast.NewscastSN}, are
+ * still run sequentially, and serve as a baseline. Times include
+ * initialization, so the number of cycles should be large enough for it not to
+ * dominate.
+ *
+ * @author giuliano
+ */
+@AutoConfig
+public class ParallelCycleBenchmark implements ITransformer {
+
+	@Attribute("config")
+	private String fConfig;
+
+	@Attribute(value = "threads", defaultValue = "1,2,4,8")
+	private String fThreads;
+
+	@Attribute(value = "partitions", defaultValue = "64")
+	private int fPartitions;
+
+	@Override
+	public void execute(InputStream is, OutputStream oup) throws Exception {
+		TableWriter writer = new TableWriter(oup, "threads", "partitions",
+				"seconds", "speedup");
+
+		double baseline = -1;
+		for (String threads : fThreads.split(",")) {
+			double seconds = run(Integer.parseInt(threads.trim()));
+			if (baseline < 0) {
+				baseline = seconds;
+			}
+			writer.set("threads", threads.trim());
+			writer.set("partitions", fPartitions);
+			writer.set("seconds", seconds);
+			writer.set("speedup", baseline / seconds);
+			writer.emmitRow();
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	private double run(int threads) throws Exception {
+		SimulationContext context = new SimulationContext(new ParsedProperties(
+				new String[] { fConfig,
+						CDSimulator.PAR_THREADS + "=" + threads,
+						"simulation.partitions=" + fPartitions }));
+
+		long start = System.nanoTime();
+		context.call(new Callable<Object>() {
+			@Override
+			public Object call() {
+				Simulator.runExperiments();
+				return null;
+			}
+		});
+		return (System.nanoTime() - start) / 1e9;
+	}
+}
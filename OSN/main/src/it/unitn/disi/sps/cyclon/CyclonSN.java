@@ -5,6 +5,7 @@ import it.unitn.disi.utils.OrderingUtils;
 import it.unitn.disi.utils.peersim.PeersimUtils;
 
 import java.util.NoSuchElementException;
+import java.util.Random;
 
 import peersim.config.Attribute;
 import peersim.config.AutoConfig;
@@ -117,10 +118,15 @@ public class CyclonSN implements Linkable, EpidemicProtocol {
 
 	@Override
 	public void merge(Node receiver, Node sender, Message msg) {
-		CyclonMessage received = (CyclonMessage) msg;
 		// Gets the message that "pairs" with this one. 
-		CyclonMessage sent = msg.isRequest() ? fReplyMsg : fRequestMsg;
+		merge(receiver, sender, (CyclonMessage) msg,
+				msg.isRequest() ? fReplyMsg : fRequestMsg);
+	}
+
+	// ----------------------------------------------------------------------
 
+	void merge(Node receiver, Node sender, CyclonMessage received,
+			CyclonMessage sent) {
 		int index = 1;
 		for (int i = 0; i < received.size(); i++) {
 			NodeDescriptor candidate = received.getDescriptor(i);
@@ -167,6 +173,13 @@ public class CyclonSN implements Linkable, EpidemicProtocol {
 
 	private CyclonMessage populateMessage(CyclonMessage message, Node sender,
 			Node receiver) {
+		return populateMessage(message, sender, receiver, CommonState.r);
+	}
+
+	// ----------------------------------------------------------------------
+
+	CyclonMessage populateMessage(CyclonMessage message, Node sender,
+			Node receiver, Random random) {
 
 		// Acquires the message.
 		message.acquire();
@@ -175,7 +188,7 @@ public class CyclonSN implements Linkable, EpidemicProtocol {
 		message.append(new NodeDescriptor(sender));
 
 		// 2. Shuffles our view.
-		OrderingUtils.permute(0, fViewSize, fView, CommonState.r);
+		OrderingUtils.permute(0, fViewSize, fView, random);
 
 		// 3. Fills the message with shared friends-of-friends.
 		fillPayload(message, twohop(receiver), false);
@@ -236,7 +249,7 @@ public class CyclonSN implements Linkable, EpidemicProtocol {
 
 	// ----------------------------------------------------------------------
 
-	private void removeDescriptor(Node node) {
+	void removeDescriptor(Node node) {
 		int index = descriptorIndexOf(node);
 		if (index == -1) {
 			throw new NoSuchElementException();
@@ -275,7 +288,7 @@ public class CyclonSN implements Linkable, EpidemicProtocol {
 
 	// ----------------------------------------------------------------------
 
-	private void increaseAge() {
+	void increaseAge() {
 		for (int i = 0; i < fViewSize; i++) {
 			fView[i].increaseAge();
 		}
@@ -0,0 +1,111 @@
+package it.unitn.disi.sps.cyclon;
+
+import peersim.cdsim.ParallelCDProtocol;
+import peersim.cdsim.Partition;
+import peersim.config.Attribute;
+import peersim.config.AutoConfig;
+import peersim.core.Node;
+
+/**
+ * {@link CyclonSN} variant which runs its own cycles, instead of being driven
+ * by a {@link peersim.extras.am.epidemic.CDEpidemicManager}, and which can be
+ * run in parallel by {@link peersim.cdsim.ParallelNextCycle}.<BR>
+ * <BR>
+ * In parallel mode, the request is prepared in the local phase and staged for
+ * the peer, which merges it and stages its response in the first delivery
+ * round. The response is then merged by the requester in the second round.
+ * Messages are allocated per exchange, rather than reused, since a node might
+ * answer several requests in the same round.
+ *
+ * @author giuliano
+ */
+@AutoConfig
+public class ParallelCyclonSN extends CyclonSN implements ParallelCDProtocol {
+
+	private final int fL;
+
+	/**
+	 * Request sent in the current cycle, which pairs with the response we
+	 * will get.
+	 */
+	private CyclonMessage fPending;
+
+	// ----------------------------------------------------------------------
+
+	public ParallelCyclonSN(@Attribute(Attribute.PREFIX) String prefix,
+			@Attribute("two_hop") int twoHopPid,
+			@Attribute("view_size") double viewSize, @Attribute("l") int l) {
+		super(prefix, twoHopPid, viewSize, l);
+		fL = l;
+	}
+
+	// ----------------------------------------------------------------------
+	// Sequential exchanges (same as CDEpidemicManager, with no losses).
+	// ----------------------------------------------------------------------
+
+	@Override
+	public void nextCycle(Node node, int protocolID) {
+		Node peerNode = selectPeer(node);
+		if (peerNode == null) {
+			return;
+		}
+
+		CyclonMessage request = (CyclonMessage) prepareRequest(node, peerNode);
+		if (!peerNode.isUp()) {
+			request.release();
+			return;
+		}
+
+		CyclonSN peer = cyclon(peerNode);
+		CyclonMessage response = (CyclonMessage) peer.prepareResponse(
+				peerNode, node, request);
+		peer.merge(peerNode, node, request);
+		merge(node, peerNode, response);
+	}
+
+	// ----------------------------------------------------------------------
+	// Partitioned exchanges.
+	// ----------------------------------------------------------------------
+
+	@Override
+	public void nextCycle(Node node, int protocolID, Partition partition) {
+		fPending = null;
+		Node peerNode = selectPeer(node);
+		if (peerNode == null) {
+			return;
+		}
+
+		increaseAge();
+		removeDescriptor(peerNode);
+		CyclonMessage request = new CyclonMessage(fL);
+		request.setRequest(true);
+		fPending = populateMessage(request, node, peerNode, partition.random());
+		partition.send(node, peerNode, request);
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public void deliver(Node node, int protocolID, Node sender,
+			Object message, Partition partition) {
+		CyclonMessage received = (CyclonMessage) message;
+		if (received.isRequest()) {
+			CyclonMessage response = populateMessage(new CyclonMessage(fL),
+					node, sender, partition.random());
+			merge(node, sender, received, response);
+			partition.send(node, sender, response);
+		} else if (fPending != null) {
+			merge(node, sender, received, fPending);
+			fPending = null;
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public Object clone() {
+		ParallelCyclonSN clone = (ParallelCyclonSN) super.clone();
+		clone.fPending = null;
+		return clone;
+	}
+}
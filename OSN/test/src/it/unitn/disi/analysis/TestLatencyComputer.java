@@ -25,6 +25,8 @@ public class TestLatencyComputer {
 	private byte[] fBuffer = new byte[100];
 
 	private ByteArrayOutputStream oup = new ByteArrayOutputStream();
+
+	private int fThreads = 0;
 	
 	private EventCodec codec = new EventCodec(Byte.class, CodecUtils.merge(
 			NewscastEvents.values(), SimulationEvents.values()));
@@ -135,6 +137,18 @@ public class TestLatencyComputer {
 				"M 0 3 -1 5 2 5\n", data);
 	}
 	
+	@Test
+	public void testComputeLatencySharded() throws Exception {
+		fThreads = 3;
+		testComputeLatency();
+	}
+
+	@Test
+	public void testComputeDynamicLatencySharded() throws Exception {
+		fThreads = 4;
+		testComputeDynamicLatency();
+	}
+
 	public String process(String graph) throws Exception {
 		Adj2ByteGraph a2bg = new Adj2ByteGraph();
 		ByteArrayInputStream adjGraph = new ByteArrayInputStream(graph
@@ -143,7 +157,7 @@ public class TestLatencyComputer {
 		a2bg.execute(adjGraph, byteGraph);
 
 		byte[] socialNetwork = byteGraph.toByteArray();
-		LatencyComputer computer = new LatencyComputer(false);
+		LatencyComputer computer = new LatencyComputer(false, fThreads);
 
 		ByteArrayOutputStream output = new ByteArrayOutputStream();
 		computer.execute(new StreamProvider(new InputStream[] {
@@ -0,0 +1,122 @@
+package it.unitn.disi.newscasting;
+
+import it.unitn.disi.epidemics.IGossipMessage;
+import it.unitn.disi.epidemics.NeighborhoodMulticast;
+import it.unitn.disi.newscasting.internal.CompactEventStorage;
+import it.unitn.disi.newscasting.internal.IMergeObserver;
+import it.unitn.disi.newscasting.internal.IntervalEventStorage;
+import it.unitn.disi.test.framework.PeerSimTest;
+import it.unitn.disi.test.framework.TestNetworkBuilder;
+import it.unitn.disi.utils.peersim.SNNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import peersim.core.Linkable;
+import peersim.core.Node;
+
+public class IntervalEventStorageTest extends PeerSimTest {
+
+	TestNetworkBuilder builder;
+
+	@Before
+	public void initialize() {
+		builder = new TestNetworkBuilder();
+	}
+
+	@Test
+	public void addAndContains() {
+		Node node = builder.baseNode();
+		int pid = builder.assignCompleteLinkable();
+		NeighborhoodMulticast vis = new NeighborhoodMulticast(pid);
+		builder.done();
+
+		IntervalEventStorage st = new IntervalEventStorage(vis);
+		Assert.assertTrue(st.add(node, 5));
+		Assert.assertTrue(st.add(node, 3));
+		Assert.assertTrue(st.add(node, 7));
+		assertIntervals(st, node, 3, 3, 5, 5, 7, 7);
+
+		// Fills the gaps, which should collapse the intervals.
+		Assert.assertTrue(st.add(node, 4));
+		Assert.assertTrue(st.add(node, 6));
+		Assert.assertFalse(st.add(node, 5));
+		assertIntervals(st, node, 3, 7);
+
+		Assert.assertTrue(st.contains(node, 3));
+		Assert.assertTrue(st.contains(node, 7));
+		Assert.assertFalse(st.contains(node, 2));
+		Assert.assertFalse(st.contains(node, 8));
+	}
+
+	@Test
+	public void mergesLikeCompactStorage() {
+		Node[] array = builder.addNodes(10);
+		int pid = builder.assignCompleteLinkable();
+		NeighborhoodMulticast vis = new NeighborhoodMulticast(pid);
+		builder.done();
+		Linkable sn = (Linkable) array[0].getProtocol(pid);
+
+		Random rnd = new Random(42);
+		for (int k = 1; k <= 100; k++) {
+			CompactEventStorage c1 = new CompactEventStorage(vis);
+			CompactEventStorage c2 = new CompactEventStorage(vis);
+			IntervalEventStorage i1 = new IntervalEventStorage(vis);
+			IntervalEventStorage i2 = new IntervalEventStorage(vis);
+
+			for (int j = 0; j < 10; j++) {
+				for (int i = 0; i < 20; i++) {
+					int seq = rnd.nextInt(k * 4);
+					Assert.assertEquals(c1.add(array[j], seq), i1.add(
+							array[j], seq));
+					seq = rnd.nextInt(k * 4);
+					Assert.assertEquals(c2.add(array[j], seq), i2.add(
+							array[j], seq));
+				}
+			}
+
+			RecordingObserver compact = new RecordingObserver();
+			RecordingObserver interval = new RecordingObserver();
+			c1.merge(null, null, c2, compact, sn);
+			i1.merge(null, null, i2, interval, sn);
+
+			Assert.assertEquals(compact.fDelivered, interval.fDelivered);
+			for (Node node : array) {
+				Assert.assertEquals(c1.eventsFor(node), i1.eventsFor(node));
+			}
+			i1.consistencyCheck();
+		}
+	}
+
+	private void assertIntervals(IntervalEventStorage storage, Node node,
+			int... bounds) {
+		List<Integer> list = storage.eventsFor(node);
+		Assert.assertEquals(bounds.length, list.size());
+		for (int i = 0; i < bounds.length; i++) {
+			Assert.assertEquals(bounds[i], (int) list.get(i));
+		}
+	}
+
+	static class RecordingObserver implements IMergeObserver {
+
+		List<String> fDelivered = new ArrayList<String>();
+
+		public void delivered(SNNode sender, SNNode receiver,
+				IGossipMessage tweet, boolean duplicate) {
+			fDelivered.add(tweet.originator().getID() + ":"
+					+ tweet.sequenceNumber());
+		}
+
+		public void sendDigest(Node sender, Node receiver, Node owner,
+				List<Integer> holes) {
+		}
+
+		public void localDelivered(IGossipMessage t) {
+		}
+	}
+}
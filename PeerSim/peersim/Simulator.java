@@ -82,12 +82,6 @@ public static final String PAR_EXPS = "simulation.experiments";
  */
 public static final String PAR_REDIRECT = "simulation.stdout";
 
-// ==================== static fields ===================================
-// ======================================================================
-
-/** */
-private static int simID = UNKNOWN;
-
 //========================== methods ===================================
 //======================================================================
 
@@ -97,15 +91,68 @@ private static int simID = UNKNOWN;
 */
 public static int getSimID() {
 	
-	if (simID == UNKNOWN) {
-		if( CDSimulator.isConfigurationCycleDriven()){
-			simID = CDSIM;
+	// not cached: the configuration depends on the current
+	// SimulationContext
+	if( CDSimulator.isConfigurationCycleDriven()){
+		return CDSIM;
+	}
+	else if( EDSimulator.isConfigurationEventDriven() ) {	
+		return EDSIM;
+	}
+	return UNKNOWN;
+}
+
+// ----------------------------------------------------------------------
+
+/**
+* Executes the experiments described by the configuration of the current
+* {@link SimulationContext}, which must have been set already.
+* The number of independent experiments is given by config parameter
+* {@value #PAR_EXPS}. In all experiments the configuration is the same,
+* only the random seed is not re-initialized between experiments.
+* <p>
+* Unlike {@link #main}, this method does not redirect the standard output
+* and does not exit on configuration errors, so it can be invoked once per
+* context to run several simulations in the same JVM.
+* @see SimulationContext
+*/
+public static void runExperiments()
+{
+	int exps = Configuration.getInt(PAR_EXPS,1);
+
+	final int SIMID = getSimID();
+	if( SIMID == UNKNOWN )
+	{
+		System.err.println(
+		    "Simulator: unable to determine simulation engine type");
+		return;
+	}
+	
+	for(int k=0; k<exps; ++k)
+	{
+		if( k>0 )
+		{
+			long seed = CommonState.r.nextLong();
+			CommonState.initializeRandom(seed);
 		}
-		else if( EDSimulator.isConfigurationEventDriven() ) {	
-			simID = EDSIM;
+		System.err.print("Simulator: starting experiment "+k);
+		System.err.println(" invoking "+simName[SIMID]);
+		System.err.println("Random seed: "+
+			CommonState.r.getLastSeed());
+		System.out.println("\n\n");
+		
+		// XXX could be done through reflection, but
+		// this is easier to read.
+		switch(SIMID)
+		{
+		case CDSIM:
+			CDSimulator.nextExperiment();
+			break;
+		case EDSIM:
+			EDSimulator.nextExperiment();
+			break;
 		}
 	}
-	return simID;
 }
 
 // ----------------------------------------------------------------------
@@ -157,44 +204,8 @@ public static void main(String[] args)
 		(PrintStream)Configuration.getInstance(PAR_REDIRECT,System.out);
 	if(newout!=System.out) System.setOut(newout);
 	
-	int exps = Configuration.getInt(PAR_EXPS,1);
-
-	final int SIMID = getSimID();
-	if( SIMID == UNKNOWN )
-	{
-		System.err.println(
-		    "Simulator: unable to determine simulation engine type");
-		return;
-	}
-	
 	try {
-
-		for(int k=0; k<exps; ++k)
-		{
-			if( k>0 )
-			{
-				long seed = CommonState.r.nextLong();
-				CommonState.initializeRandom(seed);
-			}
-			System.err.print("Simulator: starting experiment "+k);
-			System.err.println(" invoking "+simName[SIMID]);
-			System.err.println("Random seed: "+
-				CommonState.r.getLastSeed());
-			System.out.println("\n\n");
-			
-			// XXX could be done through reflection, but
-			// this is easier to read.
-			switch(SIMID)
-			{
-			case CDSIM:
-				CDSimulator.nextExperiment();
-				break;
-			case EDSIM:
-				EDSimulator.nextExperiment();
-				break;
-			}
-		}
-	
+		runExperiments();
 	} catch (MissingParameterException e) {
 		System.err.println(e+"");
 		System.exit(1);
@@ -75,6 +75,16 @@ public static final String PAR_CYCLES = "simulation.cycles";
  */
 private static final String PAR_NOMAIN = "simulation.nodefaultcycle";
 
+/**
+ * If set, the main cycle is run by {@link ParallelNextCycle} instead of
+ * {@link FullNextCycle}, with this many threads. Protocols implementing
+ * {@link ParallelCDProtocol} are then run over partitions of the network in
+ * parallel. The number of partitions can be set with
+ * <code>simulation.partitions</code>. Not set by default.
+ * @config
+ */
+public static final String PAR_THREADS = "simulation.threads";
+
 /**
  * This is the prefix for initializers. These have to be of type
  * {@link Control}. They are run at the beginning of each experiment, in
@@ -95,15 +105,6 @@ private static final String PAR_CTRL = "control";
 
 // --------------------------------------------------------------------
 
-/** The maximum number of cycles to be performed */
-private static int cycles;
-
-/** holds the modifiers of this simulation */
-private static Control[] controls = null;
-
-/** Holds the control schedulers of this simulation */
-private static Scheduler[] ctrlSchedules = null;
-
 // =============== initialization ======================================
 // =====================================================================
 
@@ -133,20 +134,24 @@ private static void runInitializers()
 
 // --------------------------------------------------------------------
 
-private static String[] loadControls()
+/**
+ * Loads the controls of this simulation, and their schedulers, into the given
+ * arrays. These are kept on the stack rather than in static fields so that
+ * simulations in different {@link peersim.core.SimulationContext}s do not
+ * interfere.
+ */
+private static String[] loadControls(Control[] controls,
+		Scheduler[] ctrlSchedules)
 {
 
-	boolean nomaincycle = Configuration.contains(PAR_NOMAIN);
 	String[] names = Configuration.getNames(PAR_CTRL);
-	if (nomaincycle) {
-		controls = new Control[names.length];
-		ctrlSchedules = new Scheduler[names.length];
-	} else {
+	if (controls.length > names.length) {
 		// provide for an extra control that handles the main cycle
-		controls = new Control[names.length + 1];
-		ctrlSchedules = new Scheduler[names.length + 1];
 		// calling with a prefix that cannot exist
-		controls[names.length] = new FullNextCycle(" ");
+		if (Configuration.contains(PAR_THREADS))
+			controls[names.length] = new ParallelNextCycle("simulation");
+		else
+			controls[names.length] = new FullNextCycle(" ");
 		ctrlSchedules[names.length] = new Scheduler(" ");
 	}
 	for (int i = 0; i < names.length; ++i) {
@@ -178,7 +183,7 @@ public static final void nextExperiment()
 {
 
 	// Reading parameter
-	cycles = Configuration.getInt(PAR_CYCLES);
+	int cycles = Configuration.getInt(PAR_CYCLES);
 	if (CommonState.getEndTime() < 0) // not initialized yet
 		CDState.setEndTime(cycles);
 
@@ -186,14 +191,16 @@ public static final void nextExperiment()
 	CDState.setCycle(0);
 	CDState.setPhase(CDState.PHASE_UNKNOWN);
 	System.err.println("CDSimulator: resetting");
-	controls = null;
-	ctrlSchedules = null;
 	Network.reset();
 	System.err.println("CDSimulator: running initializers");
 	runInitializers();
 
 	// main cycle
-	loadControls();
+	int nctrl = Configuration.getNames(PAR_CTRL).length;
+	if (!Configuration.contains(PAR_NOMAIN)) nctrl++;
+	Control[] controls = new Control[nctrl];
+	Scheduler[] ctrlSchedules = new Scheduler[nctrl];
+	loadControls(controls, ctrlSchedules);
 
 	System.err.println("CDSimulator: starting simulation");
 	for (int i = 0; i < cycles; ++i) {
@@ -19,6 +19,7 @@
 package peersim.cdsim;
 
 import peersim.core.CommonState;
+import peersim.core.SimulationContext;
 
 
 /**
@@ -33,18 +34,10 @@ public class CDState extends CommonState {
 // =================================================================
 
 /**
- * Current time within the current cycle.
- * Note that {@link #cycle} gives the cycle id to which this value is relative.
+ * Slot in the {@link SimulationContext} holding the {@link State} of the
+ * context.
  */
-private static int ctime = -1;
-
-/**
- * Current cycle in the simulation. It makes sense only in the case of a
- * cycle based simulator, that is, cycle based simulators will maintain this
- * value, others will not. It still makes sense to keep it separate from
- * {@link #time} because it is an int, while time is a long.
- */
-private static int cycle = -1;
+private static final int STATE_SLOT = SimulationContext.newSlot();
 
 
 // ======================== initialization =========================
@@ -63,7 +56,7 @@ private CDState() {}
 /**
 * Returns true if and only if there is a cycle driven simulation going on.
 */
-public static boolean isCD() { return cycle >= 0; }
+public static boolean isCD() { return state().cycle >= 0; }
 
 //-----------------------------------------------------------------
 
@@ -74,6 +67,7 @@ public static boolean isCD() { return cycle >= 0; }
  */
 public static int getCycle()
 {
+	int cycle = state().cycle;
 	if( cycle >= 0 ) return cycle;
 	else throw new UnsupportedOperationException(
 		"Cycle driven state accessed when "+
@@ -89,8 +83,9 @@ public static int getCycle()
  */
 public static void setCycle(int t)
 {
-	cycle = t;
-	ctime = 0;
+	State state = state();
+	state.cycle = t;
+	state.ctime = 0;
 	setTime(t);
 }
 
@@ -102,6 +97,7 @@ public static void setCycle(int t)
  */
 public static Integer getCycleObj()
 {
+	int cycle = state().cycle;
 	if( cycle >= 0 ) return Integer.valueOf(cycle);
 	else throw new UnsupportedOperationException(
 		"Cycle driven state accessed when "+
@@ -119,6 +115,7 @@ public static Integer getCycleObj()
  */
 public static int getCycleT()
 {
+	int ctime = state().ctime;
 	if( ctime >= 0 ) return ctime;
 	else throw new UnsupportedOperationException(
 		"Cycle driven state accessed when "+
@@ -129,7 +126,45 @@ public static int getCycleT()
 
 public static void setCycleT(int t)
 {
-	ctime = t;
+	state().ctime = t;
+}
+
+// -----------------------------------------------------------------
+
+private static State state()
+{
+	SimulationContext context = SimulationContext.current();
+	State state = (State) context.get(STATE_SLOT);
+	if( state == null )
+	{
+		state = new State();
+		context.set(STATE_SLOT, state);
+	}
+	return state;
+}
+
+// -----------------------------------------------------------------
+
+/**
+ * Cycle driven state of one context.
+ */
+private static class State
+{
+
+	/**
+	 * Current time within the current cycle.
+	 * Note that {@link #cycle} gives the cycle id to which this value is
+	 * relative.
+	 */
+	int ctime = -1;
+
+	/**
+	 * Current cycle in the simulation. It makes sense only in the case of a
+	 * cycle based simulator, that is, cycle based simulators will maintain
+	 * this value, others will not. It still makes sense to keep it separate
+	 * from the time because it is an int, while time is a long.
+	 */
+	int cycle = -1;
 }
 }
 
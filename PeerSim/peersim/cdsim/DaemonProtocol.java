@@ -52,9 +52,13 @@ private static final String PAR_STEP = "cstep";
 
 // --------------------------------------------------------------------
 
-private static Control[] controls=null;
+/**
+* Shared by all clones of the prototype, like the static fields they replace,
+* but not by different simulations running in the same JVM.
+*/
+private Control[] controls=null;
 
-private static int step;
+private int step;
 
 // ========================= initialization =========================
 // ==================================================================
@@ -0,0 +1,65 @@
+package peersim.cdsim;
+
+import peersim.core.CommonState;
+import peersim.core.Node;
+
+/**
+ * A {@link CDProtocol} which declares itself partition-safe, and can therefore
+ * be run by {@link ParallelNextCycle} on several cores at once. A cycle is run
+ * in two phases:
+ * <ol>
+ * <li>{@link #nextCycle(Node, int, Partition)} is called on every node that
+ * is up. It may only modify the state of the node it is called on. Anything
+ * that has to change the state of other nodes is staged with
+ * {@link Partition#send(Node, Node, Object)};</li>
+ * <li>staged messages are delivered with
+ * {@link #deliver(Node, int, Node, Object, Partition)}, which may again only
+ * modify the state of the receiving node, and which may stage further
+ * messages (e.g. the reply to a push-pull exchange). Delivery rounds are
+ * repeated until no messages are left.</li>
+ * </ol>
+ * Reading the state of other nodes is allowed only if that state is not
+ * changed during the cycle (e.g. a static social graph). While partitions run,
+ * {@link CommonState#getNode()}, {@link CommonState#getPid()} and
+ * {@link CDState#getCycleT()} are not updated, and {@link CommonState#r} must
+ * not be used: randomness has to be drawn from {@link Partition#random()}
+ * instead, which is what keeps runs reproducible.<BR>
+ * <BR>
+ * {@link #nextCycle(Node, int)} is still used when the protocol is run by
+ * {@link FullNextCycle}, and should implement the same exchange without
+ * staging.
+ *
+ * @author giuliano
+ */
+public interface ParallelCDProtocol extends CDProtocol {
+
+	/**
+	 * Runs the local part of a cycle on a node.
+	 *
+	 * @param node
+	 *            the node on which this protocol is running.
+	 * @param protocolID
+	 *            the id of this protocol.
+	 * @param partition
+	 *            the partition the node belongs to.
+	 */
+	public void nextCycle(Node node, int protocolID, Partition partition);
+
+	/**
+	 * Delivers a message staged by some other node during this cycle.
+	 * Messages are delivered only to nodes that are up.
+	 *
+	 * @param node
+	 *            the receiving node.
+	 * @param protocolID
+	 *            the id of this protocol.
+	 * @param sender
+	 *            the node that staged the message.
+	 * @param message
+	 *            the message.
+	 * @param partition
+	 *            the partition the receiving node belongs to.
+	 */
+	public void deliver(Node node, int protocolID, Node sender, Object message,
+			Partition partition);
+}
@@ -0,0 +1,305 @@
+package peersim.cdsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import peersim.config.Configuration;
+import peersim.core.Network;
+import peersim.core.Node;
+import peersim.core.Protocol;
+import peersim.core.SimulationContext;
+
+/**
+ * Version of {@link FullNextCycle} that runs {@link ParallelCDProtocol}s over
+ * partitions of the node array, on several threads. {@link CDSimulator} uses
+ * it for the main cycle when {@value CDSimulator#PAR_THREADS} is set.<BR>
+ * <BR>
+ * If none of the protocols is a {@link ParallelCDProtocol}, a cycle is
+ * exactly the same as in {@link FullNextCycle}. Otherwise, protocols are run
+ * one at a time, in the order of their ids: partition-safe protocols are run
+ * in parallel (see {@link ParallelCDProtocol}), and the others are run on all
+ * nodes, sequentially, as {@link FullNextCycle} would. Note that, with more
+ * than one protocol, this changes the interleaving with respect to
+ * {@link FullNextCycle}, which runs all protocols on a node before moving to
+ * the next one. The <code>getpair</code> and <code>shuffle</code> parameters
+ * of {@link FullNextCycle} apply to sequential protocols only.<BR>
+ * <BR>
+ * The outcome of a run depends on {@value #PAR_PARTITIONS}, but not on
+ * {@value #PAR_THREADS}.
+ *
+ * @author giuliano
+ */
+public class ParallelNextCycle extends FullNextCycle {
+
+	/**
+	 * Number of threads running partitions. Defaults to the number of
+	 * available processors.
+	 *
+	 * @config
+	 */
+	private static final String PAR_THREADS = "threads";
+
+	/**
+	 * Number of partitions the node array is split into. Should be a few
+	 * times the number of threads, so that they are kept busy. Defaults to
+	 * 64.
+	 *
+	 * @config
+	 */
+	private static final String PAR_PARTITIONS = "partitions";
+
+	// ----------------------------------------------------------------------
+
+	private final int fThreads;
+
+	private final Partition[] fPartitions;
+
+	private ExecutorService fPool;
+
+	// ----------------------------------------------------------------------
+
+	public ParallelNextCycle(String prefix) {
+		super(prefix);
+		fThreads = Configuration.getInt(prefix + "." + PAR_THREADS, Runtime
+				.getRuntime().availableProcessors());
+		fPartitions = new Partition[Configuration.getInt(prefix + "."
+				+ PAR_PARTITIONS, 64)];
+		for (int i = 0; i < fPartitions.length; i++) {
+			fPartitions[i] = new Partition(i);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public boolean execute() {
+		Node prototype = Network.getPrototype();
+		if (!hasParallel(prototype)) {
+			return super.execute();
+		}
+
+		final int cycle = CDState.getCycle();
+		final int len = prototype.protocolSize();
+		for (int k = 0; k < len; k++) {
+			if (!protSchedules[k].active(cycle)) {
+				continue;
+			}
+
+			Protocol protocol = prototype.getProtocol(k);
+			if (protocol instanceof ParallelCDProtocol) {
+				partitioned(k);
+			} else if (protocol instanceof CDProtocol) {
+				sequential(k);
+			}
+		}
+
+		return false;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private boolean hasParallel(Node prototype) {
+		for (int k = 0; k < prototype.protocolSize(); k++) {
+			if (prototype.getProtocol(k) instanceof ParallelCDProtocol) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void sequential(int pid) {
+		if (shuffle) {
+			rperm.reset(Network.size());
+		}
+		for (int j = 0; j < Network.size(); ++j) {
+			Node node = null;
+			if (getpair_rand) {
+				node = Network.get(CDState.r.nextInt(Network.size()));
+			} else if (shuffle) {
+				node = Network.get(rperm.next());
+			} else {
+				node = Network.get(j);
+			}
+			if (!node.isUp()) {
+				continue;
+			}
+			CDState.setNode(node);
+			CDState.setCycleT(j);
+			CDState.setPid(pid);
+			((CDProtocol) node.getProtocol(pid)).nextCycle(node, pid);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void partitioned(final int pid) {
+		int size = Network.size();
+		if (size == 0) {
+			return;
+		}
+
+		// Drawn here, from the simulation random, so that partition streams
+		// are reproducible.
+		long seed = CDState.r.nextLong();
+		int chunk = (size + fPartitions.length - 1) / fPartitions.length;
+		final int partitions = (size + chunk - 1) / chunk;
+		for (int i = 0; i < partitions; i++) {
+			fPartitions[i].reset(i * chunk, Math.min(size, (i + 1) * chunk),
+					chunk, partitions, seed);
+		}
+
+		// Local phase.
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int i = 0; i < partitions; i++) {
+			final Partition partition = fPartitions[i];
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() {
+					for (int j = partition.from(); j < partition.to(); j++) {
+						Node node = Network.get(j);
+						if (node.isUp()) {
+							((ParallelCDProtocol) node.getProtocol(pid))
+									.nextCycle(node, pid, partition);
+						}
+					}
+					return null;
+				}
+			});
+		}
+		run(tasks);
+
+		// Delivery rounds.
+		tasks.clear();
+		for (int i = 0; i < partitions; i++) {
+			final Partition partition = fPartitions[i];
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() {
+					deliver(pid, partition, partitions);
+					return null;
+				}
+			});
+		}
+		while (flip(partitions) != 0) {
+			run(tasks);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	private int flip(int partitions) {
+		int staged = 0;
+		for (int i = 0; i < partitions; i++) {
+			staged += fPartitions[i].flip();
+		}
+		return staged;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void deliver(int pid, Partition partition, int partitions) {
+		int index = partition.index();
+		for (int i = 0; i < partitions; i++) {
+			ArrayList<Object> box = fPartitions[i].delivering(index);
+			for (int j = 0; j < box.size(); j += 3) {
+				Node receiver = (Node) box.get(j);
+				if (receiver.isUp()) {
+					((ParallelCDProtocol) receiver.getProtocol(pid)).deliver(
+							receiver, pid, (Node) box.get(j + 1),
+							box.get(j + 2), partition);
+				}
+			}
+			box.clear();
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void run(List<Callable<Object>> tasks) {
+		if (fThreads <= 1) {
+			for (Callable<Object> task : tasks) {
+				try {
+					task.call();
+				} catch (Exception ex) {
+					throw rethrow(ex);
+				}
+			}
+			return;
+		}
+
+		try {
+			for (Future<Object> result : pool().invokeAll(bound(tasks))) {
+				result.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		} catch (ExecutionException ex) {
+			throw rethrow(ex.getCause());
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Wraps tasks so that they see the simulation of the calling thread.
+	 */
+	private List<Callable<Object>> bound(List<Callable<Object>> tasks) {
+		final SimulationContext context = SimulationContext.current();
+		List<Callable<Object>> bound = new ArrayList<Callable<Object>>(tasks
+				.size());
+		for (final Callable<Object> task : tasks) {
+			bound.add(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					return context.call(task);
+				}
+			});
+		}
+		return bound;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private ExecutorService pool() {
+		if (fPool == null) {
+			// Idle threads go away between experiments, since the main cycle
+			// is re-created for each of them.
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(fThreads,
+					fThreads, 1, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, "ParallelNextCycle");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			pool.allowCoreThreadTimeOut(true);
+			fPool = pool;
+		}
+		return fPool;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private RuntimeException rethrow(Throwable t) {
+		if (t instanceof RuntimeException) {
+			return (RuntimeException) t;
+		}
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		return new RuntimeException(t);
+	}
+}
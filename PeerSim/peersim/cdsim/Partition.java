@@ -0,0 +1,152 @@
+package peersim.cdsim;
+
+import java.util.ArrayList;
+
+import peersim.core.Node;
+import peersim.util.ExtendedRandom;
+
+/**
+ * A contiguous range of the node array, processed by a single thread during a
+ * partitioned cycle of {@link ParallelNextCycle}. Each partition owns a random
+ * stream, reseeded at every cycle from the simulation random and the index of
+ * the partition, and the staging areas for the messages its nodes send.<BR>
+ * <BR>
+ * Since the partitions depend only on the network size and on the configured
+ * number of partitions, and since staged messages are delivered in the order
+ * of their sending partition, runs are the same regardless of the number of
+ * threads.
+ *
+ * @author giuliano
+ */
+public final class Partition {
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private final int fIndex;
+
+	private final ExtendedRandom fRandom = new ExtendedRandom(0);
+
+	private int fFrom;
+
+	private int fTo;
+
+	private int fChunk;
+
+	/**
+	 * Messages being sent in the current round, by destination partition.
+	 * Each message takes three consecutive entries: receiver, sender and
+	 * payload.
+	 */
+	private ArrayList<Object>[] fOutgoing;
+
+	/**
+	 * Messages sent in the previous round, which are being delivered.
+	 */
+	private ArrayList<Object>[] fDelivering;
+
+	private int fSent;
+
+	// ----------------------------------------------------------------------
+
+	Partition(int index) {
+		fIndex = index;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the random stream of this partition, which has to be used
+	 *         instead of {@link peersim.core.CommonState#r}.
+	 */
+	public ExtendedRandom random() {
+		return fRandom;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Stages a message, to be delivered in the next delivery round.
+	 */
+	public void send(Node sender, Node receiver, Object message) {
+		ArrayList<Object> box = fOutgoing[receiver.getIndex() / fChunk];
+		box.add(receiver);
+		box.add(sender);
+		box.add(message);
+		fSent++;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the index of this partition.
+	 */
+	public int index() {
+		return fIndex;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the index of the first node in this partition.
+	 */
+	public int from() {
+		return fFrom;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the index of the last node in this partition, plus one.
+	 */
+	public int to() {
+		return fTo;
+	}
+
+	// ----------------------------------------------------------------------
+	// Methods for ParallelNextCycle.
+	// ----------------------------------------------------------------------
+
+	@SuppressWarnings("unchecked")
+	void reset(int from, int to, int chunk, int partitions, long seed) {
+		fFrom = from;
+		fTo = to;
+		fChunk = chunk;
+		fSent = 0;
+		if (fOutgoing == null || fOutgoing.length != partitions) {
+			fOutgoing = new ArrayList[partitions];
+			fDelivering = new ArrayList[partitions];
+			for (int i = 0; i < partitions; i++) {
+				fOutgoing[i] = new ArrayList<Object>();
+				fDelivering[i] = new ArrayList<Object>();
+			}
+		}
+		fRandom.setSeed(seed + fIndex * GOLDEN_GAMMA);
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Makes the messages sent so far available for delivery.
+	 *
+	 * @return the number of messages made available.
+	 */
+	int flip() {
+		ArrayList<Object>[] delivering = fDelivering;
+		fDelivering = fOutgoing;
+		fOutgoing = delivering;
+		int sent = fSent;
+		fSent = 0;
+		return sent;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the messages this partition sent to another partition in the
+	 *         previous round. They are cleared by the receiving partition once
+	 *         delivered.
+	 */
+	ArrayList<Object> delivering(int partition) {
+		return fDelivering[partition];
+	}
+}
@@ -20,6 +20,8 @@ package peersim.config;
 
 import java.util.*;
 
+import peersim.core.SimulationContext;
+
 /**
  * Fully static class to store configuration information. It defines a method,
  * {@link #setConfig(Properties)}, to set configuration data. This method is
@@ -28,6 +30,9 @@ import java.util.*;
  * then access this configuration and utility methods to read property values
  * based on their names.
  * <p>
+ * The configuration is kept in the current {@link SimulationContext}, so each
+ * context can be configured once, independently of the others.
+ * <p>
  * The design of this class also hides the actual implementation of the
  * configuration which can be Properties, XML, whatever. Currently only
  * Properties is supported.
@@ -287,9 +292,10 @@ public class Configuration {
 	static final String PAR_PLUGIN = "plugin";
 
 	/**
-	 * The properties object that stores all configuration information.
+	 * Slot in the {@link SimulationContext} which holds the properties object
+	 * that stores all configuration information.
 	 */
-	private static ConfigContainer config = null;
+	private static final int CONFIG_SLOT = SimulationContext.newSlot();
 
 	// =================== initialization ================================
 	// ===================================================================
@@ -311,11 +317,13 @@ public class Configuration {
 	 *            The Properties object containing configuration info
 	 */
 	public static void setConfig(Properties p) {
-		if (config != null) {
+		SimulationContext context = SimulationContext.current();
+		if (context.get(CONFIG_SLOT) != null) {
 			throw new RuntimeException(
 					"Setting configuration was attempted twice.");
 		}
-		config = new ConfigContainer(p, false);
+		ConfigContainer config = new ConfigContainer(p, false);
+		context.set(CONFIG_SLOT, config);
 		config.getPluginContainer().start();
 	}
 
@@ -331,11 +339,12 @@ public class Configuration {
 	 *            The Properties object containing configuration info
 	 */
 	public static void setConfig(Properties p, boolean check) {
-		if (config != null) {
+		SimulationContext context = SimulationContext.current();
+		if (context.get(CONFIG_SLOT) != null) {
 			throw new RuntimeException(
 					"Setting configuration was attempted twice.");
 		}
-		config = new ConfigContainer(p, check);
+		context.set(CONFIG_SLOT, new ConfigContainer(p, check));
 	}
 
 	// -------------------------------------------------------------------
@@ -344,7 +353,7 @@ public class Configuration {
 	 * @return true if and only if name is a specified (existing) property.
 	 */
 	public static boolean contains(String name) {
-		return config.contains(name);
+		return config().contains(name);
 	}
 
 	// -------------------------------------------------------------------
@@ -359,7 +368,7 @@ public class Configuration {
 	 *            default value
 	 */
 	public static boolean getBoolean(String name, boolean def) {
-		return config.getBoolean(name, def);
+		return config().getBoolean(name, def);
 	}
 
 	// -------------------------------------------------------------------
@@ -375,7 +384,7 @@ public class Configuration {
 	 *            Name of configuration property
 	 */
 	public static boolean getBoolean(String name) {
-		return config.getBoolean(name);
+		return config().getBoolean(name);
 	}
 
 	// -------------------------------------------------------------------
@@ -390,7 +399,7 @@ public class Configuration {
 	 *            default value
 	 */
 	public static int getInt(String name, int def) {
-		return config.getInt(name, def);
+		return config().getInt(name, def);
 	}
 
 	// -------------------------------------------------------------------
@@ -403,7 +412,7 @@ public class Configuration {
 	 *            Name of configuration property
 	 */
 	public static int getInt(String name) {
-		return config.getInt(name);
+		return config().getInt(name);
 	}
 
 	// -------------------------------------------------------------------
@@ -418,7 +427,7 @@ public class Configuration {
 	 *            default value
 	 */
 	public static long getLong(String name, long def) {
-		return config.getLong(name, def);
+		return config().getLong(name, def);
 	}
 
 	// -------------------------------------------------------------------
@@ -431,7 +440,7 @@ public class Configuration {
 	 *            Name of configuration property
 	 */
 	public static long getLong(String name) {
-		return config.getLong(name);
+		return config().getLong(name);
 	}
 
 	// -------------------------------------------------------------------
@@ -446,7 +455,7 @@ public class Configuration {
 	 *            default value
 	 */
 	public static double getDouble(String name, double def) {
-		return config.getDouble(name, def);
+		return config().getDouble(name, def);
 	}
 
 	// -------------------------------------------------------------------
@@ -459,7 +468,7 @@ public class Configuration {
 	 *            Name of configuration property
 	 */
 	public static double getDouble(String name) {
-		return config.getDouble(name);
+		return config().getDouble(name);
 	}
 
 	// -------------------------------------------------------------------
@@ -474,7 +483,7 @@ public class Configuration {
 	 *            default value
 	 */
 	public static String getString(String name, String def) {
-		return config.getString(name, def);
+		return config().getString(name, def);
 	}
 
 	// -------------------------------------------------------------------
@@ -487,7 +496,7 @@ public class Configuration {
 	 *            Name of configuration property
 	 */
 	public static String getString(String name) {
-		return config.getString(name);
+		return config().getString(name);
 	}
 
 	// -------------------------------------------------------------------
@@ -504,7 +513,7 @@ public class Configuration {
 	 *         property
 	 */
 	public static int getPid(String name) {
-		return config.getPid(name);
+		return config().getPid(name);
 	}
 
 	// -------------------------------------------------------------------
@@ -521,7 +530,7 @@ public class Configuration {
 	 *         property, or the default if not defined
 	 */
 	public static int getPid(String name, int pid) {
-		return config.getPid(name, pid);
+		return config().getPid(name, pid);
 	}
 
 	// -------------------------------------------------------------------
@@ -534,7 +543,7 @@ public class Configuration {
 	 * @return the numeric protocol identifier associated to the protocol name
 	 */
 	public static int lookupPid(String protname) {
-		return config.lookupPid(protname);
+		return config().lookupPid(protname);
 	}
 
 	// -------------------------------------------------------------------
@@ -551,7 +560,7 @@ public class Configuration {
 	 *         have the given id.
 	 */
 	public static String lookupPid(int pid) {
-		return config.lookupPid(pid);
+		return config().lookupPid(pid);
 	}
 
 	// -------------------------------------------------------------------
@@ -566,7 +575,7 @@ public class Configuration {
 	 *            Name of configuration property
 	 */
 	public static Class getClass(String name) {
-		return config.getClass(name);
+		return config().getClass(name);
 	}
 
 	// -------------------------------------------------------------------
@@ -582,7 +591,7 @@ public class Configuration {
 	 * @see #getClass(String)
 	 */
 	public static Class getClass(String name, Class def) {
-		return config.getClass(name, def);
+		return config().getClass(name, def);
 	}
 
 	// -------------------------------------------------------------------
@@ -602,7 +611,7 @@ public class Configuration {
 	 *             if there is any problem creating the instance
 	 */
 	public static Object getInstance(String name) {
-		return config.getInstance(name);
+		return config().getInstance(name);
 	}
 
 	// -------------------------------------------------------------------
@@ -624,7 +633,7 @@ public class Configuration {
 	 *             the instance.
 	 */
 	public static Object getInstance(String name, Object def) {
-		return config.getInstance(name, def);
+		return config().getInstance(name, def);
 	}
 
 	// -------------------------------------------------------------------
@@ -639,7 +648,7 @@ public class Configuration {
 	 *            properties) which will be passed to {@link #getNames(String)}.
 	 */
 	public static Object[] getInstanceArray(String name) {
-		return config.getInstanceArray(name);
+		return config().getInstanceArray(name);
 	}
 
 	// -------------------------------------------------------------------
@@ -658,7 +667,16 @@ public class Configuration {
 	 *         configuration
 	 */
 	public static String[] getNames(String name) {
-		return config.getNames(name);
+		return config().getNames(name);
+	}
+
+	// -------------------------------------------------------------------
+
+	/**
+	 * @return the configuration of the current {@link SimulationContext}.
+	 */
+	private static ConfigContainer config() {
+		return (ConfigContainer) SimulationContext.current().get(CONFIG_SLOT);
 	}
 
 }
@@ -18,6 +18,8 @@
 
 package peersim.config;
 
+import peersim.core.SimulationContext;
+
 /**
  * Reads configuration regarding relations between protocols.
  * 
@@ -25,8 +27,9 @@ package peersim.config;
  * access the configuration directly. However, it provides much faster
  * access to "linkable" and "transport" information, enhancing runtime speed.
  *
- * This class is a static singleton and is initialized only when first accessed.
- * During initialization it reads and caches the configuration info it handles.
+ * This class is a static singleton. The first time it is accessed within a
+ * {@link SimulationContext}, it reads and caches the configuration info it
+ * handles for that context.
  */
 public class FastConfig
 {
@@ -50,16 +53,9 @@ private static final String PAR_LINKABLE = "linkable";
 private static final String PAR_TRANSPORT = "transport";
 
 /**
- * This array stores the protocol ids of the {@link peersim.core.Linkable}
- * protocols that are linked to the protocol given by the array index.
+ * Slot in the {@link SimulationContext} holding the cached {@link Tables}.
  */
-protected static final int[][] links;
-
-/**
- * This array stores the protocol id of the {@link peersim.transport.Transport}
- * protocol that is linked to the protocol given by the array index.
- */
-protected static final int[] transports;
+private static final int TABLES_SLOT = SimulationContext.newSlot();
 
 
 // ======================= initialization ===================================
@@ -67,7 +63,7 @@ protected static final int[] transports;
 
 
 /**
- * This static initialization block reads the configuration for information that
+ * Reads the configuration for information that
  * it understands. Currently it understands property {@value #PAR_LINKABLE}
  * and {@value #PAR_TRANSPORT}.
  * 
@@ -79,10 +75,10 @@ protected static final int[] transports;
  * by providing a fast alternative to reading directly from the
  * <code>Configuration</code> class.
  */
-static {
+private static Tables load() {
 	String[] names = Configuration.getNames(Configuration.PAR_PROT);
-	links = new int[names.length][];
-	transports = new int[names.length];
+	int[][] links = new int[names.length][];
+	int[] transports = new int[names.length];
 	for (int i = 0; i < names.length; ++i)
 	{
 		if (Configuration.contains(names[i] + "." + PAR_LINKABLE))
@@ -104,6 +100,22 @@ static {
 		else
 			transports[i] = -1;
 	}
+	return new Tables(links, transports);
+}
+
+// ---------------------------------------------------------------------
+
+/**
+ * Returns the tables of the current context, loading them if needed.
+ */
+private static Tables tables() {
+	SimulationContext context = SimulationContext.current();
+	Tables tables = (Tables) context.get(TABLES_SLOT);
+	if (tables == null) {
+		tables = load();
+		context.set(TABLES_SLOT, tables);
+	}
+	return tables;
 }
 
 // ---------------------------------------------------------------------
@@ -126,7 +138,7 @@ public static boolean hasLinkable(int pid) { return numLinkables(pid) > 0; }
 /**
  * Returns the number of linkable protocols associated with a given protocol.
  */
-public static int numLinkables(int pid) { return links[pid].length; }
+public static int numLinkables(int pid) { return tables().links[pid].length; }
 
 // ---------------------------------------------------------------------
 
@@ -145,7 +157,7 @@ public static int getLinkable(int pid, int linkIndex)
 			"Protocol " + pid + " has no "+PAR_LINKABLE+
 			" parameter with index" + linkIndex);
 	}
-	return links[pid][linkIndex];
+	return tables().links[pid][linkIndex];
 }
 
 //---------------------------------------------------------------------
@@ -166,7 +178,7 @@ public static int getLinkable(int pid)
  */
 public static boolean hasTransport(int pid)
 {
-	return transports[pid] >= 0;
+	return tables().transports[pid] >= 0;
 }
 
 // ---------------------------------------------------------------------
@@ -180,12 +192,39 @@ public static boolean hasTransport(int pid)
  */
 public static int getTransport(int pid)
 {
-	if (transports[pid] < 0) {
+	int transport = tables().transports[pid];
+	if (transport < 0) {
 		String[] names = Configuration.getNames(Configuration.PAR_PROT);
 		throw new IllegalParameterException(names[pid],
 		"Protocol " + pid + " has no "+PAR_TRANSPORT + " parameter");
 	}
-	return transports[pid];
+	return transport;
+}
+
+// ---------------------------------------------------------------------
+
+/**
+ * Cached linkable and transport information of one context.
+ */
+private static class Tables {
+
+	/**
+	 * This array stores the protocol ids of the {@link peersim.core.Linkable}
+	 * protocols that are linked to the protocol given by the array index.
+	 */
+	final int[][] links;
+
+	/**
+	 * This array stores the protocol id of the
+	 * {@link peersim.transport.Transport} protocol that is linked to the
+	 * protocol given by the array index.
+	 */
+	final int[] transports;
+
+	Tables(int[][] links, int[] transports) {
+		this.links = links;
+		this.transports = transports;
+	}
 }
 
 }
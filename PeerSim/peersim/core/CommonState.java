@@ -57,39 +57,8 @@ public static final int PHASE_UNKNOWN = 0;
 // ======================= fields ==================================
 // =================================================================
 
-/**
- * Current time. Note that this value is simulator independent, all simulation
- * models have a notion related to time. For example, in the cycle based model,
- * the cycle id gives time, while in even driven simulations there is a more
- * realistic notion of time.
- */
-private static long time = 0;
-
-/**
- * The maximal value {@link #time} can ever take.
- */
-private static long endtime = -1;
-
-/**
- * Number of used bits in the long representation of time, calculated
- * based on the endtime.
- */
-private static int toshift = -1;
-
-/**
- * Information about where exactly the simulation is.
- */
-private static int phase = PHASE_UNKNOWN;
-
-/**
- * The current pid.
- */
-private static int pid;
-
-/**
- * The current node.
- */
-private static Node node;
+// The simulation state itself (time, endtime, phase, pid, node and random
+// source) is kept in the current SimulationContext.
 
 /**
 * This source of randomness should be used by all components.
@@ -98,8 +67,13 @@ private static Node node;
 * randomness are used within the system. Besides, we can save the cost
 * of calling a wrapper method, which is important because this is needed
 * very often.
+* <p>
+* By default, it delegates to the random source of the current
+* {@link SimulationContext}, so that concurrent simulations do not share it.
+* Assigning another generator to this field makes all contexts share that
+* generator.
 */
-public static ExtendedRandom r = null;
+public static ExtendedRandom r = new ContextRandom();
 
 
 // ======================== initialization =========================
@@ -122,17 +96,6 @@ public static final String PAR_RANDOM = "random";
 public static final String PAR_SEED = "random.seed";
 
 
-/**
-* Initializes the field {@link r} according to the configuration.
-* Assumes that the configuration is already
-* loaded.
-*/
-static {
-	
-	long seed =
-		Configuration.getLong(PAR_SEED,System.currentTimeMillis());
-	initializeRandom(seed);
-}
 
 
 /** Does nothing. To avoid construction but allow extension. */
@@ -150,7 +113,7 @@ protected CommonState() {}
  */
 public static long getTime()
 {
-	return time;
+	return SimulationContext.current().fTime;
 }
 
 //-----------------------------------------------------------------
@@ -167,7 +130,8 @@ public static long getTime()
  */
 public static int getIntTime()
 {
-	return (int)(time>>toshift);
+	SimulationContext context = SimulationContext.current();
+	return (int)(context.fTime>>context.fToShift);
 }
 
 //-----------------------------------------------------------------
@@ -177,7 +141,7 @@ public static int getIntTime()
  */
 public static void setTime(long t)
 {
-	time = t;
+	SimulationContext.current().fTime = t;
 }
 
 //-----------------------------------------------------------------
@@ -189,7 +153,7 @@ public static void setTime(long t)
  */
 public static long getEndTime()
 {
-	return endtime;
+	return SimulationContext.current().fEndTime;
 }
 
 //-----------------------------------------------------------------
@@ -199,14 +163,15 @@ public static long getEndTime()
  */
 public static void setEndTime(long t)
 {
-	if( endtime >= 0 && !Configuration.contains("peersim.test.mode"))
+	SimulationContext context = SimulationContext.current();
+	if( context.fEndTime >= 0 && !Configuration.contains("peersim.test.mode"))
 		throw new RuntimeException("You can set endtime only once");
 	if( t < 0 )
 		throw new RuntimeException("No negative values are allowed");
 		
-	endtime = t;
-	toshift = 32-Long.numberOfLeadingZeros(t);
-	if( toshift<0 ) toshift = 0;
+	context.fEndTime = t;
+	context.fToShift = 32-Long.numberOfLeadingZeros(t);
+	if( context.fToShift<0 ) context.fToShift = 0;
 }
 
 //-----------------------------------------------------------------
@@ -221,14 +186,14 @@ public static void setEndTime(long t)
  */
 public static int getPhase()
 {
-	return phase;
+	return SimulationContext.current().fPhase;
 }
 
 // -----------------------------------------------------------------
 
 public static void setPhase(int p)
 {
-	phase = p;
+	SimulationContext.current().fPhase = p;
 }
 
 // -----------------------------------------------------------------
@@ -239,7 +204,7 @@ public static void setPhase(int p)
 */
 public static int getPid()
 {
-	return pid;
+	return SimulationContext.current().fPid;
 }
 
 //-----------------------------------------------------------------
@@ -247,7 +212,7 @@ public static int getPid()
 /** Sets the current protocol identifier.*/
 public static void setPid(int p)
 {
-	pid = p;
+	SimulationContext.current().fPid = p;
 }
 
 //-----------------------------------------------------------------
@@ -258,7 +223,7 @@ public static void setPid(int p)
  */
 public static Node getNode()
 {
-	return node;
+	return SimulationContext.current().fNode;
 }
 
 //-----------------------------------------------------------------
@@ -266,17 +231,52 @@ public static Node getNode()
 /** Sets the current node */
 public static void setNode(Node n)
 {
-	node = n;
+	SimulationContext.current().fNode = n;
 }
 
 //-----------------------------------------------------------------
 
+/**
+ * Seeds the random source of the current context, creating it from the
+ * configuration if needed. If {@link #r} was replaced, seeds that instead.
+ */
 public static void initializeRandom(long seed)
 {
-	if (r == null) {
-		r = (ExtendedRandom) Configuration.getInstance(PAR_RANDOM, new ExtendedRandom(seed));
+	SimulationContext context = SimulationContext.current();
+	if (context.fRandom == null) {
+		context.fRandom = (ExtendedRandom) Configuration.getInstance(PAR_RANDOM, new ExtendedRandom(seed));
+	}
+	context.fRandom.setSeed(seed);
+	if (!(r instanceof ContextRandom)) {
+		r.setSeed(seed);
+	}
+}
+
+//-----------------------------------------------------------------
+
+/**
+ * Returns the random source of a context, initializing it with the
+ * configured seed if this is the first time it is used.
+ */
+static ExtendedRandom random(SimulationContext context)
+{
+	ExtendedRandom random = context.fRandom;
+	if (random == null) {
+		if (context == SimulationContext.current()) {
+			initializeRandom(Configuration.getLong(PAR_SEED,
+					System.currentTimeMillis()));
+		} else {
+			SimulationContext previous = context.bind();
+			try {
+				initializeRandom(Configuration.getLong(PAR_SEED,
+						System.currentTimeMillis()));
+			} finally {
+				SimulationContext.unbind(previous);
+			}
+		}
+		random = context.fRandom;
 	}
-	r.setSeed(seed);
+	return random;
 }
 
 //-----------------------------------------------------------------
@@ -289,6 +289,60 @@ public static void main(String pars[]) {
 	System.err.println(getTime()+" "+getIntTime());
 }
 */
+//-----------------------------------------------------------------
+
+/**
+ * {@link ExtendedRandom} that forwards every call to the random source of the
+ * current {@link SimulationContext}.
+ */
+private static class ContextRandom extends ExtendedRandom
+{
+
+	private static final long serialVersionUID = 1L;
+
+	private final boolean initialized;
+
+	ContextRandom()
+	{
+		super(0);
+		initialized = true;
+	}
+
+	private static ExtendedRandom delegate()
+	{
+		return random(SimulationContext.current());
+	}
+
+	public int nextPoisson(double mean) { return delegate().nextPoisson(mean); }
+
+	public long nextLong(long n) { return delegate().nextLong(n); }
+
+	public void setSeed(long seed)
+	{
+		// Random's constructor calls this before we can delegate.
+		if (initialized) delegate().setSeed(seed);
+		else super.setSeed(seed);
+	}
+
+	public long getLastSeed() { return delegate().getLastSeed(); }
+
+	public void nextBytes(byte[] bytes) { delegate().nextBytes(bytes); }
+
+	public int nextInt() { return delegate().nextInt(); }
+
+	public int nextInt(int n) { return delegate().nextInt(n); }
+
+	public long nextLong() { return delegate().nextLong(); }
+
+	public boolean nextBoolean() { return delegate().nextBoolean(); }
+
+	public float nextFloat() { return delegate().nextFloat(); }
+
+	public double nextDouble() { return delegate().nextDouble(); }
+
+	public double nextGaussian() { return delegate().nextGaussian(); }
+}
+
 }
 
 
@@ -30,9 +30,6 @@ public class GeneralNode implements Node {
 // ================= fields ========================================
 // =================================================================
 
-/** used to generate unique IDs */
-private static long counterID = -1;
-
 /**
 * The protocols on this node.
 */
@@ -100,10 +97,10 @@ public Object clone() {
 
 // -----------------------------------------------------------------
 
-/** returns the next unique ID */
+/** returns the next unique ID within the current simulation context */
 private long nextID() {
 
-	return counterID++;
+	return SimulationContext.current().fCounterID++;
 }
 
 // =============== public methods ==================================
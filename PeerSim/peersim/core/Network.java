@@ -24,8 +24,9 @@ import java.util.Arrays;
 
 /**
 * This class forms the basic framework of all simulations.
-* This is a static singleton which is based on the assumption that we
-* will simulate only one overlay network at a time.
+* This is a static facade over the network of the current
+* {@link SimulationContext}, which is based on the assumption that we
+* will simulate only one overlay network at a time in each context.
 * This allows us to reduce memory usage in many cases by allowing all the
 * components to directly reach the fields of this class without having to store
 * a reference.
@@ -74,28 +75,22 @@ private static final String PAR_MAXSIZE = "network.initialCapacity";
 */
 private static final String PAR_SIZE = "network.size";
 
-/**
-* The node array. This is not a private array which is not nice but
-* efficiency has the highest priority here. The main purpose is to allow
-* the package quick reading of the contents in a maximally flexible way.
-* Nevertheless, methods of this class should be used instead of the array
-* when modifying the contents.
-* Because this array is not private,
-* it is necessary to know that the actual node set is only the first
-* {@link #size()} items of the array.
-*/
-static Node[] node = null;
-
-/**
-* Actual size of the network.
-*/
-private static int len;
+// The node array, the actual size of the network and the prototype node are
+// kept in the current SimulationContext. Only the first size() items of the
+// node array are part of the network.
 
 /**
 * The prototype node which is used to populate the simulation via cloning.
 * After all the nodes have been cloned, {@link Control} components can be
 * applied to perform any further initialization.
+* <p>
+* This field holds the prototype of the network that was reset last, in any
+* context, so it is shared by all contexts.
+*
+* @deprecated use {@link #getPrototype()}, which returns the prototype of the
+* current context.
 */
+@Deprecated
 public static Node prototype = null;
 
 
@@ -109,20 +104,23 @@ public static Node prototype = null;
 */
 public static void reset() {
 
-	if( prototype != null )
+	SimulationContext c = SimulationContext.current();
+	if( c.fPrototype != null )
 	{
 		// not first experiment
-		while( len>0 ) remove(); // this is to call onKill on all nodes
-		prototype = null;
-		node = null;
+		while( c.fLength>0 ) remove(); // this is to call onKill on all nodes
+		c.fPrototype = null;
+		c.fNodes = null;
 	}
 	
-	len = Configuration.getInt(PAR_SIZE);
+	int len = Configuration.getInt(PAR_SIZE);
 	int maxlen = Configuration.getInt(PAR_MAXSIZE,len);
 	if( maxlen < len ) throw new IllegalArgumentException(
 			PAR_MAXSIZE+" is less than "+PAR_SIZE);
 
-	node = new Node[maxlen];
+	Node[] node = new Node[maxlen];
+	c.fNodes = node;
+	c.fLength = len;
 	
 	// creating prototype node
 	Node tmp = null;
@@ -136,15 +134,16 @@ public static void reset() {
 	{
 		tmp = (Node) Configuration.getInstance(PAR_NODE);
 	}
+	c.fPrototype = tmp;
 	prototype = tmp;
-	prototype.setIndex(-1);
+	tmp.setIndex(-1);
 
 	// cloning the nodes
 	if(len > 0 )
 	{
 		for(int i=0; i<len; ++i)
 		{
-			node[i] = (Node)prototype.clone();
+			node[i] = (Node)tmp.clone();
 			node[i].setIndex(i);
 		}
 	}
@@ -157,7 +156,15 @@ private Network() {}
 // ==================================================================
 
 /** Number of nodes currently in the network */
-public static int size() { return len; }
+public static int size() { return SimulationContext.current().fLength; }
+
+// ------------------------------------------------------------------
+
+/**
+* Returns the prototype node of the current context, which is used to
+* populate the simulation via cloning.
+*/
+public static Node getPrototype() { return SimulationContext.current().fPrototype; }
 
 // ------------------------------------------------------------------
 
@@ -170,14 +177,15 @@ public static int size() { return len; }
 */
 public static void setCapacity(int newSize) {
 
-	if( node == null || newSize != node.length )
+	SimulationContext c = SimulationContext.current();
+	if( c.fNodes == null || newSize != c.fNodes.length )
 	{
-		for(int i=newSize; i<len; ++i) remove();
+		for(int i=newSize; i<c.fLength; ++i) remove();
 		Node[] newnodes = new Node[newSize];
-		final int l = Math.min(node.length,newSize);
-		System.arraycopy(node,0,newnodes,0,l);
-		node = newnodes;
-		if( len > newSize ) len = newSize;
+		final int l = Math.min(c.fNodes.length,newSize);
+		System.arraycopy(c.fNodes,0,newnodes,0,l);
+		c.fNodes = newnodes;
+		if( c.fLength > newSize ) c.fLength = newSize;
 	}
 }
 
@@ -187,7 +195,7 @@ public static void setCapacity(int newSize) {
 * Returns the maximal number of nodes that can be stored without reallocating
 * the underlying array to increase capacity.
 */
-public static int getCapacity() { return node.length; }
+public static int getCapacity() { return SimulationContext.current().fNodes.length; }
 
 // ------------------------------------------------------------------
 
@@ -197,10 +205,11 @@ public static int getCapacity() { return node.length; }
 */
 public static void add( Node n ) {
 	
-	if(len==node.length) setCapacity(3*node.length/2+1);
-	node[len] = n;
-	n.setIndex(len);
-	len++;
+	SimulationContext c = SimulationContext.current();
+	if(c.fLength==c.fNodes.length) setCapacity(3*c.fNodes.length/2+1);
+	c.fNodes[c.fLength] = n;
+	n.setIndex(c.fLength);
+	c.fLength++;
 }
 
 // ------------------------------------------------------------------
@@ -214,7 +223,7 @@ public static void add( Node n ) {
 */
 public static Node get( int index ) {
 	
-	return node[index];
+	return SimulationContext.current().fNodes[index];
 }
 
 // ------------------------------------------------------------------
@@ -225,9 +234,10 @@ public static Node get( int index ) {
 */
 public static Node remove() {
 	
-	Node n = node[len-1]; // if len was zero this throws and exception
-	node[len-1]=null;
-	len--;
+	SimulationContext c = SimulationContext.current();
+	Node n = c.fNodes[c.fLength-1]; // if len was zero this throws and exception
+	c.fNodes[c.fLength-1]=null;
+	c.fLength--;
 	n.setFailState(Fallible.DEAD);
 	return n;
 }
@@ -244,6 +254,7 @@ public static Node remove() {
 */
 public static Node remove(int i) {
 	
+	int len = size();
 	if( i<0 || i>=len ) throw new IndexOutOfBoundsException(""+i);
 	swap(i,len-1);
 	return remove();
@@ -256,6 +267,7 @@ public static Node remove(int i) {
 */
 public static void swap(int i, int j) {
 	
+	Node[] node = SimulationContext.current().fNodes;
 	Node n = node[i];
 	node[i] = node[j];
 	node[j] = n;
@@ -270,7 +282,7 @@ public static void swap(int i, int j) {
 */
 public static void shuffle() {
 	
-	for(int i=len; i>1; i--) swap(i-1, CommonState.r.nextInt(i));
+	for(int i=size(); i>1; i--) swap(i-1, CommonState.r.nextInt(i));
 }
 
 // ------------------------------------------------------------------
@@ -282,6 +294,9 @@ public static void shuffle() {
 */
 public static void sort(Comparator<? super Node> c) {
 	
+	SimulationContext context = SimulationContext.current();
+	Node[] node = context.fNodes;
+	int len = context.fLength;
 	Arrays.sort(node,0,len,c);
 	for(int i=0; i<len; i++) node[i].setIndex(i);
 }
@@ -290,6 +305,10 @@ public static void sort(Comparator<? super Node> c) {
 
 public static void test() {
 	
+	SimulationContext c = SimulationContext.current();
+	Node[] node = c.fNodes;
+	int len = c.fLength;
+	Node prototype = c.fPrototype;
 	System.err.println("number of nodes = "+len);
 	System.err.println("capacity (max number of nodes) = "+node.length);
 	for(int i=0; i<len; ++i)
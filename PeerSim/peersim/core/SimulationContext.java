@@ -0,0 +1,225 @@
+package peersim.core;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import peersim.config.Configuration;
+import peersim.util.ExtendedRandom;
+
+/**
+ * A {@link SimulationContext} holds the state that the static PeerSim API
+ * ({@link Configuration}, {@link Network}, {@link CommonState} and the
+ * simulation engines) used to keep in process-wide singletons. Static calls
+ * delegate to the context bound to the calling thread, or to a default
+ * context if none is bound, so that code which is unaware of contexts keeps
+ * working unchanged.<BR>
+ * <BR>
+ * To run several simulations in the same JVM, create one context per
+ * simulation and execute each of them with {@link #run(Runnable)} (or
+ * {@link #call(Callable)}) from its own thread:
+ *
+ * <pre>
+ * SimulationContext context = new SimulationContext(properties);
+ * context.run(new Runnable() {
+ * 	public void run() {
+ * 		Simulator.runExperiments();
+ * 	}
+ * });
+ * </pre>
+ *
+ * Anything else reachable from static fields (including objects that
+ * configured components share on purpose, like read-only graphs) is shared
+ * between contexts. Classes outside of <code>peersim.core</code> that need
+ * per-simulation state allocate a slot with {@link #newSlot()} and keep it
+ * there.<BR>
+ * <BR>
+ * Lookups of the current context skip the thread-local entirely until some
+ * thread binds a context for the first time, so single-simulation runs do not
+ * pay for it.
+ *
+ * @author giuliano
+ */
+public class SimulationContext {
+
+	private static final AtomicInteger fSlots = new AtomicInteger();
+
+	private static final ThreadLocal<SimulationContext> fBound = new ThreadLocal<SimulationContext>();
+
+	private static final SimulationContext fDefault = new SimulationContext();
+
+	private static volatile boolean fEverBound = false;
+
+	// ----------------------------------------------------------------------
+	// Per-simulation state for peersim.core.
+	// ----------------------------------------------------------------------
+
+	// Network.
+	Node[] fNodes = null;
+
+	int fLength;
+
+	Node fPrototype = null;
+
+	// CommonState.
+	long fTime = 0;
+
+	long fEndTime = -1;
+
+	int fToShift = -1;
+
+	int fPhase = CommonState.PHASE_UNKNOWN;
+
+	int fPid;
+
+	Node fNode;
+
+	ExtendedRandom fRandom;
+
+	// GeneralNode.
+	long fCounterID = -1;
+
+	// ----------------------------------------------------------------------
+	// Per-simulation state for everybody else.
+	// ----------------------------------------------------------------------
+
+	private Object[] fSlotValues = new Object[8];
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Creates an empty context. Configuration has to be set with
+	 * {@link Configuration#setConfig(Properties)} while the context is bound.
+	 */
+	public SimulationContext() {
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Creates a context with the given configuration.
+	 */
+	public SimulationContext(final Properties properties) {
+		run(new Runnable() {
+			@Override
+			public void run() {
+				Configuration.setConfig(properties);
+			}
+		});
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the context bound to the calling thread, or the default context
+	 *         if there is none.
+	 */
+	public static SimulationContext current() {
+		if (!fEverBound) {
+			return fDefault;
+		}
+		SimulationContext context = fBound.get();
+		return context == null ? fDefault : context;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the context used by threads that have no context bound.
+	 */
+	public static SimulationContext getDefault() {
+		return fDefault;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Binds this context to the calling thread, replacing whatever context was
+	 * bound to it before.
+	 *
+	 * @return the previously bound context, or <code>null</code> if there was
+	 *         none. It should be handed back to {@link #unbind(SimulationContext)}.
+	 */
+	public SimulationContext bind() {
+		fEverBound = true;
+		SimulationContext previous = fBound.get();
+		fBound.set(this);
+		return previous;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Restores the context that was bound to the calling thread before
+	 * {@link #bind()}.
+	 */
+	public static void unbind(SimulationContext previous) {
+		if (previous == null) {
+			fBound.remove();
+		} else {
+			fBound.set(previous);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Runs a task with this context bound to the calling thread.
+	 */
+	public void run(Runnable task) {
+		SimulationContext previous = bind();
+		try {
+			task.run();
+		} finally {
+			unbind(previous);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Runs a task with this context bound to the calling thread, and returns
+	 * its result.
+	 */
+	public <V> V call(Callable<V> task) throws Exception {
+		SimulationContext previous = bind();
+		try {
+			return task.call();
+		} finally {
+			unbind(previous);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Allocates a slot for per-simulation state. Slots should be allocated
+	 * once, and kept in a static final field.
+	 */
+	public static int newSlot() {
+		return fSlots.getAndIncrement();
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the value stored in a slot, or <code>null</code> if nothing
+	 *         was stored yet.
+	 */
+	public Object get(int slot) {
+		Object[] values = fSlotValues;
+		return slot < values.length ? values[slot] : null;
+	}
+
+	// ----------------------------------------------------------------------
+
+	public void set(int slot, Object value) {
+		if (slot >= fSlotValues.length) {
+			Object[] values = new Object[Math.max(slot + 1,
+					fSlotValues.length * 2)];
+			System.arraycopy(fSlotValues, 0, values, 0, fSlotValues.length);
+			fSlotValues = values;
+		}
+		fSlotValues[slot] = value;
+	}
+}
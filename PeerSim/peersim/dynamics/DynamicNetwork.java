@@ -123,7 +123,7 @@ protected final NodeInitializer[] inits;
 protected void add(int n)
 {
 	for (int i = 0; i < n; ++i) {
-		Node newnode = (Node) Network.prototype.clone();
+		Node newnode = (Node) Network.getPrototype().clone();
 		for (int j = 0; j < inits.length; ++j) {
 			inits[j].initialize(newnode);
 		}
@@ -89,13 +89,13 @@ public MethodInvoker(String prefix) {
 		// find protocols that implement method
 		ArrayList<Integer> pids = new ArrayList<Integer>();
 		ArrayList<Method> methods = new ArrayList<Method>();
-		for(int i=0; i<Network.prototype.protocolSize(); ++i)
+		for(int i=0; i<Network.getPrototype().protocolSize(); ++i)
 		{
 			Method m = null;
 			try
 			{
 				m = MethodInvoker.getMethod(
-			  	  Network.prototype.getProtocol(i).getClass(),
+			  	  Network.getPrototype().getProtocol(i).getClass(),
 			  	  methodName );
 			}
 			catch(NoSuchMethodException e) {}
@@ -128,7 +128,7 @@ public MethodInvoker(String prefix) {
 		{
 			method = new Method[1];
 			method[0]=MethodInvoker.getMethod(
-			  Network.prototype.getProtocol(pid[0]).getClass(),
+			  Network.getPrototype().getProtocol(pid[0]).getClass(),
 			  methodName );
 		}
 		catch (NoSuchMethodException e)
@@ -145,7 +145,7 @@ public OscillatingNetwork(String prefix)
 protected void add(int n)
 {
 	for (int i = 0; i < n; ++i) {
-		Node newnode = (Node) Network.prototype.clone();
+		Node newnode = (Node) Network.getPrototype().clone();
 		for (int j = 0; j < inits.length; ++j) {
 			inits[j].initialize(newnode);
 		}
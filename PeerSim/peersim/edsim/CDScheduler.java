@@ -99,7 +99,7 @@ static {
 	sch = new Scheduler[names.length];
 	for(int i=0; i<names.length; ++i)
 	{
-		if( Network.prototype.getProtocol(i) instanceof CDProtocol )
+		if( Network.getPrototype().getProtocol(i) instanceof CDProtocol )
 			// with no default values for step to avoid
 			// "overscheduling" due to lack of step option.
 			sch[i] = new Scheduler(names[i],false);
@@ -119,7 +119,7 @@ public CDScheduler(String n) {
 	for(int i=0; i<prots.length; ++i)
 	{
 		pid[i] = Configuration.lookupPid(prots[i]);
-		if( !(Network.prototype.getProtocol(pid[i]) instanceof
+		if( !(Network.getPrototype().getProtocol(pid[i]) instanceof
 			CDProtocol))
 		{
 			throw new IllegalParameterException(n+"."+PAR_PROTOCOL,
@@ -142,22 +142,36 @@ private static final String PAR_CTRL = "control";
 //Fields
 //---------------------------------------------------------------------
 
-/** Maximum time for simulation */
-private static long endtime;
+/**
+ * Slot of the {@link SimulationContext} holding the {@link State} of the
+ * experiment that is running in it.
+ */
+private static final int STATE_SLOT = SimulationContext.newSlot();
 
-/** Log time */
-private static long logtime;
+/**
+ * The state of a running experiment. It is kept in the current
+ * {@link SimulationContext} so that experiments in different contexts
+ * can run concurrently.
+ */
+private static final class State {
 
-/** holds the modifiers of this simulation */
-private static Control[] controls=null;
+	/** Maximum time for simulation */
+	long endtime;
 
-/** Holds the control schedulers of this simulation */
-private static Scheduler[] ctrlSchedules = null;
+	/** Log time */
+	long logtime;
 
-/** Ordered list of events (heap) */
-private static PriorityQ heap = null;
+	/** holds the modifiers of this simulation */
+	Control[] controls=null;
 
-private static long nextlog = 0;
+	/** Holds the control schedulers of this simulation */
+	Scheduler[] ctrlSchedules = null;
+
+	/** Ordered list of events (heap) */
+	PriorityQ heap = null;
+
+	long nextlog = 0;
+}
 
 // =============== initialization ======================================
 // =====================================================================
@@ -187,31 +201,42 @@ private static void runInitializers() {
 
 // --------------------------------------------------------------------
 
-private static void scheduleControls()
+private static void scheduleControls(State state)
 {
 	// load controls
 	String[] names = Configuration.getNames(PAR_CTRL);
-	controls = new Control[names.length];
-	ctrlSchedules = new Scheduler[names.length];
+	state.controls = new Control[names.length];
+	state.ctrlSchedules = new Scheduler[names.length];
 	for(int i=0; i<names.length; ++i)
 	{
-		controls[i]=(Control)Configuration.getInstance(names[i]);
-		ctrlSchedules[i] = new Scheduler(names[i], false);
+		state.controls[i]=(Control)Configuration.getInstance(names[i]);
+		state.ctrlSchedules[i] = new Scheduler(names[i], false);
 	}
 	System.err.println("EDSimulator: loaded controls "+
 		Arrays.asList(names));
 
 	// Schedule controls execution
-	if (controls.length > heap.maxPriority()+1)
+	if (state.controls.length > state.heap.maxPriority()+1)
 		throw new IllegalArgumentException(
 		"Too many control objects");
-	for (int i=0; i < controls.length; i++) {
-		new ControlEvent(controls[i], ctrlSchedules[i], i);
+	for (int i=0; i < state.controls.length; i++) {
+		new ControlEvent(state.controls[i], state.ctrlSchedules[i], i);
 	}
 }
 
 //---------------------------------------------------------------------
 
+/**
+ * Returns the state of the experiment running in the current
+ * {@link SimulationContext}.
+ */
+private static State state()
+{
+	return (State) SimulationContext.current().get(STATE_SLOT);
+}
+
+//---------------------------------------------------------------------
+
 /**
  * Adds a new event to be scheduled, specifying the number of time units
  * of delay, and the execution order parameter.
@@ -229,8 +254,9 @@ static void addControlEvent(long time, int order, ControlEvent event)
 {
 // we don't check whether time is negative or in the past: we trust
 // the caller, which must be from this package
-	if (time >= endtime) return;
-	heap.add(time, event, null, (byte)0, order);
+	State state = state();
+	if (time >= state.endtime) return;
+	state.heap.add(time, event, null, (byte)0, order);
 }
 
 //---------------------------------------------------------------------
@@ -251,9 +277,9 @@ public static final boolean isConfigurationEventDriven()
  * Execute and remove the next event from the ordered event list.
  * @return true if the execution should be stopped.
  */
-private static boolean executeNext() {
+private static boolean executeNext(State state) {
 
-	PriorityQ.Event ev = heap.removeFirst();
+	PriorityQ.Event ev = state.heap.removeFirst();
 	if( ev == null )
 	{
 		System.err.println("EDSimulator: queue is empty, quitting"+
@@ -262,18 +288,20 @@ private static boolean executeNext() {
 	}
 	
 	long time = ev.time;
-	if (time >= nextlog)
+	if (time >= state.nextlog)
 	{
 		System.err.println("Current time: " + time);
 		// seemingly complicated: to prevent overflow
-		while( time-nextlog >= logtime ) nextlog+=logtime;
-		if( endtime-nextlog >= logtime ) nextlog+=logtime;
-		else nextlog=endtime;
+		while( time-state.nextlog >= state.logtime )
+			state.nextlog+=state.logtime;
+		if( state.endtime-state.nextlog >= state.logtime )
+			state.nextlog+=state.logtime;
+		else state.nextlog=state.endtime;
 	}
-	if (time >= endtime)
+	if (time >= state.endtime)
 	{
 		System.err.println("EDSimulator: reached end time, quitting,"+
-		" leaving "+heap.size()+" unprocessed events in the queue");
+		" leaving "+state.heap.size()+" unprocessed events in the queue");
 		return true;
 	}
 	
@@ -292,7 +320,7 @@ private static boolean executeNext() {
 		}
 		return ctrl.execute();
 	}
-	else if (ev.node != Network.prototype && ev.node.getFailState() != Fallible.DEAD )
+	else if (ev.node != Network.getPrototype() && ev.node.getFailState() != Fallible.DEAD )
 	{
 		CommonState.setPid(pid);
 		CommonState.setNode(ev.node);
@@ -329,43 +357,42 @@ private static boolean executeNext() {
 public static void nextExperiment() 
 {
 	// Reading parameter
+	State state = new State();
 	if( Configuration.contains(PAR_PQ) ) 
-		heap = (PriorityQ) Configuration.getInstance(PAR_PQ);
+		state.heap = (PriorityQ) Configuration.getInstance(PAR_PQ);
 	else 
-		heap = new Heap();
-	endtime = Configuration.getLong(PAR_ENDTIME);
+		state.heap = new Heap();
+	state.endtime = Configuration.getLong(PAR_ENDTIME);
 	if( CommonState.getEndTime() < 0 ) // not initialized yet
-		CommonState.setEndTime(endtime);
-	if( heap.maxTime() < endtime )
+		CommonState.setEndTime(state.endtime);
+	if( state.heap.maxTime() < state.endtime )
 		throw new IllegalParameterException(PAR_ENDTIME,
 			"End time is too large: configured event queue only"+
-			" supports "+heap.maxTime());
-	logtime = Configuration.getLong(PAR_LOGTIME, Long.MAX_VALUE);
+			" supports "+state.heap.maxTime());
+	state.logtime = Configuration.getLong(PAR_LOGTIME, Long.MAX_VALUE);
 
 	// initialization
 	System.err.println("EDSimulator: resetting");
 	CommonState.setPhase(CommonState.PHASE_UNKNOWN);
 	CommonState.setTime(0); // needed here
-	controls = null;
-	ctrlSchedules = null;
-	nextlog = 0;
+	SimulationContext.current().set(STATE_SLOT, state);
 	Network.reset();
 	System.err.println("EDSimulator: running initializers");
 	runInitializers();
-	scheduleControls();
+	scheduleControls(state);
 
 	// Perform the actual simulation; executeNext() will tell when to
 	// stop.
 	boolean exit = false;
 	while (!exit) {
-		exit = executeNext();
+		exit = executeNext(state);
 	}
 
 	// analysis after the simulation
 	CommonState.setPhase(CommonState.POST_SIMULATION);
-	for(int j=0; j<controls.length; ++j)
+	for(int j=0; j<state.controls.length; ++j)
 	{
-		if( ctrlSchedules[j].fin ) controls[j].execute();
+		if( state.ctrlSchedules[j].fin ) state.controls[j].execute();
 	}
 
 }
@@ -398,9 +425,10 @@ public static void add(long delay, Object event, Node node, int pid)
 				"This version does not support more than " 
 				+ Byte.MAX_VALUE + " protocols");
 	
+	State state = state();
 	long time = CommonState.getTime();
-	if( endtime - time > delay ) // check like this to deal with overflow 
-		heap.add(time+delay, event, node, (byte) pid);
+	if( state.endtime - time > delay ) // check like this to deal with overflow 
+		state.heap.add(time+delay, event, node, (byte) pid);
 }
 
 }
@@ -0,0 +1,247 @@
+package peersim.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import peersim.util.ParallelFor;
+
+/**
+ * Counts the triangles each vertex of an undirected graph is part of, which
+ * is also the number of edges among its neighbors, and derives clustering
+ * coefficients from them.<BR>
+ * <BR>
+ * Edges are oriented from the endpoint of lower degree to that of higher
+ * degree (ties broken by id), and each triangle is found exactly once, by
+ * intersecting the (sorted) forward neighbor lists of the endpoints of its
+ * lowest edge with {@link Intersections}. Orienting by degree keeps forward
+ * lists short, as hubs end up with few forward neighbors. Vertices are
+ * processed in parallel with a {@link ParallelFor}.<BR>
+ * <BR>
+ * Self-loops and duplicate edges are ignored, so that for simple graphs the
+ * results are the same as those of {@link GraphAlgorithms#clustering}.
+ *
+ * @author giuliano
+ */
+public class TriangleCounter {
+
+	private static final int CHUNK = 256;
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Counts triangles over a {@link Graph}, which is first copied into
+	 * sorted neighbor lists.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the graph is directed.
+	 */
+	public static TriangleCounter fromGraph(Graph g, int threads) {
+		if (g.directed()) {
+			throw new IllegalArgumentException("graph is directed");
+		}
+
+		int[][] adjacency = new int[g.size()][];
+		for (int i = 0; i < adjacency.length; i++) {
+			int[] neighbors = new int[g.degree(i)];
+			int j = 0;
+			for (int neighbor : g.getNeighbours(i)) {
+				neighbors[j++] = neighbor;
+			}
+			Arrays.sort(neighbors);
+			adjacency[i] = neighbors;
+		}
+		return new TriangleCounter(adjacency, threads);
+	}
+
+	// ----------------------------------------------------------------------
+
+	private final int[] fDegrees;
+
+	private final AtomicIntegerArray fTriangles;
+
+	private final long fTotal;
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Counts triangles over an undirected graph given as neighbor lists,
+	 * which are not modified.
+	 *
+	 * @param adjacency
+	 *            the neighbor list of each vertex, sorted in increasing
+	 *            order.
+	 * @param threads
+	 *            the number of threads to count with.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if some neighbor list is not sorted.
+	 */
+	public TriangleCounter(final int[][] adjacency, int threads) {
+		final int size = adjacency.length;
+		final int[] degrees = new int[size];
+		final int[][] forward = new int[size][];
+		final AtomicIntegerArray triangles = new AtomicIntegerArray(size);
+		final long[] totals = new long[threads];
+		final int[][] scratch = new int[threads][0];
+
+		ParallelFor loop = new ParallelFor(threads);
+		try {
+			// Degrees, without self-loops and duplicates.
+			loop.run(0, size, CHUNK, new ParallelFor.Body() {
+				@Override
+				public void run(int worker, int start, int end) {
+					for (int v = start; v < end; v++) {
+						degrees[v] = scan(adjacency, v, null, null);
+					}
+				}
+			});
+
+			// Forward neighbor lists.
+			loop.run(0, size, CHUNK, new ParallelFor.Body() {
+				@Override
+				public void run(int worker, int start, int end) {
+					for (int v = start; v < end; v++) {
+						forward[v] = new int[scan(adjacency, v, degrees,
+								null)];
+						scan(adjacency, v, degrees, forward[v]);
+					}
+				}
+			});
+
+			// Triangles.
+			loop.run(0, size, CHUNK, new ParallelFor.Body() {
+				@Override
+				public void run(int worker, int start, int end) {
+					for (int u = start; u < end; u++) {
+						int[] fu = forward[u];
+						if (scratch[worker].length < fu.length) {
+							scratch[worker] = new int[fu.length];
+						}
+						int[] common = scratch[worker];
+
+						int count = 0;
+						for (int v : fu) {
+							int[] fv = forward[v];
+							int found = Intersections.intersect(fu, 0,
+									fu.length, fv, 0, fv.length, common);
+							for (int k = 0; k < found; k++) {
+								triangles.incrementAndGet(common[k]);
+							}
+							if (found != 0) {
+								triangles.addAndGet(v, found);
+								count += found;
+							}
+						}
+
+						if (count != 0) {
+							triangles.addAndGet(u, count);
+							totals[worker] += count;
+						}
+					}
+				}
+			});
+		} finally {
+			loop.shutdown();
+		}
+
+		long total = 0;
+		for (long partial : totals) {
+			total += partial;
+		}
+
+		fDegrees = degrees;
+		fTriangles = triangles;
+		fTotal = total;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Scans the neighbors of a vertex, skipping self-loops and duplicates.
+	 *
+	 * @param degrees
+	 *            if not <code>null</code>, only neighbors following the
+	 *            vertex in degree order are taken.
+	 * @param out
+	 *            if not <code>null</code>, receives the neighbors taken.
+	 *
+	 * @return the number of neighbors taken.
+	 */
+	private static int scan(int[][] adjacency, int v, int[] degrees,
+			int[] out) {
+		int[] neighbors = adjacency[v];
+		int count = 0;
+		for (int i = 0; i < neighbors.length; i++) {
+			int w = neighbors[i];
+			if (i > 0 && w <= neighbors[i - 1]) {
+				if (w < neighbors[i - 1]) {
+					throw new IllegalArgumentException("Neighbors of vertex "
+							+ v + " are not sorted.");
+				}
+				continue;
+			}
+			if (w == v || (degrees != null && !precedes(degrees, v, w))) {
+				continue;
+			}
+			if (out != null) {
+				out[count] = w;
+			}
+			count++;
+		}
+		return count;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static boolean precedes(int[] degrees, int u, int v) {
+		return degrees[u] < degrees[v] || (degrees[u] == degrees[v] && u < v);
+	}
+
+	// ----------------------------------------------------------------------
+
+	public int size() {
+		return fDegrees.length;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the degree of a vertex, not counting self-loops and duplicate
+	 *         edges.
+	 */
+	public int degree(int v) {
+		return fDegrees[v];
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the number of triangles a vertex is part of.
+	 */
+	public int triangles(int v) {
+		return fTriangles.get(v);
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the number of triangles in the graph.
+	 */
+	public long triangles() {
+		return fTotal;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the clustering coefficient of a vertex, computed as in
+	 *         {@link GraphAlgorithms#clustering}.
+	 */
+	public double clustering(int v) {
+		int n = fDegrees[v];
+		if (n == 1) {
+			return 1.0;
+		}
+		return ((fTriangles.get(v) * 2.0) / n) / (n - 1);
+	}
+}
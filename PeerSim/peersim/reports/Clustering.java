@@ -20,6 +20,7 @@ package peersim.reports;
 
 import peersim.config.Configuration;
 import peersim.graph.GraphAlgorithms;
+import peersim.graph.TriangleCounter;
 import peersim.util.IncrementalStats;
 
 /**
@@ -38,8 +39,19 @@ public class Clustering extends GraphObserver
  */
 private static final String PAR_N = "n";
 
+/**
+ * If defined, clustering coefficients are computed from the triangle counts
+ * of a {@link TriangleCounter}, with the given number of threads, instead of
+ * one node at a time. Triangles are then counted over the whole graph, even
+ * if {@value #PAR_N} is smaller. Not defined by default.
+ * @config
+ */
+private static final String PAR_THREADS = "threads";
+
 private final int n;
 
+private final int threads;
+
 // ===================== initialization ================================
 // =====================================================================
 
@@ -52,6 +64,7 @@ public Clustering(String name)
 {
 	super(name);
 	n = Configuration.getInt(name + "." + PAR_N, Integer.MAX_VALUE);
+	threads = Configuration.getInt(name + "." + PAR_THREADS, 0);
 }
 
 // ====================== methods ======================================
@@ -63,15 +76,23 @@ public Clustering(String name)
 * The output is
 * produced by {@link IncrementalStats#toString}, over the values of
 * the clustering coefficients of the given number of nodes.
-* Clustering coefficients are calculated by {@link GraphAlgorithms#clustering}.
+* Clustering coefficients are calculated by {@link GraphAlgorithms#clustering},
+* or by a {@link TriangleCounter} if {@value #PAR_THREADS} is defined.
 * @return always false
 */
 public boolean execute()
 {
 	IncrementalStats stats = new IncrementalStats();
 	updateGraph();
-	for (int i = 0; i < n && i < g.size(); ++i) {
-		stats.add(GraphAlgorithms.clustering(g, i));
+	if (threads > 0) {
+		TriangleCounter counter = TriangleCounter.fromGraph(g, threads);
+		for (int i = 0; i < n && i < g.size(); ++i) {
+			stats.add(counter.clustering(i));
+		}
+	} else {
+		for (int i = 0; i < n && i < g.size(); ++i) {
+			stats.add(GraphAlgorithms.clustering(g, i));
+		}
 	}
 	System.out.println(name + ": " + stats);
 	return false;
@@ -78,24 +78,37 @@ protected Graph g;
 
 // ---------------------------------------------------------------------
 
-private static int lastpid = -1234;
+/**
+ * Slot of the {@link SimulationContext} holding the {@link Cache} shared by
+ * all graph observers of the simulation running in it.
+ */
+private static final int CACHE_SLOT = SimulationContext.newSlot();
 
-private static long time = -1234;
+/**
+ * The graphs shared by all instances. It is kept in the current
+ * {@link SimulationContext}, so it is common to all the graph observers of a
+ * simulation, but not to simulations running concurrently in other contexts.
+ */
+private static final class Cache {
 
-private static int phase = -1234;
+	int lastpid = -1234;
 
-private static int ctime = -1234;
+	long time = -1234;
 
-private static Graph dirg;
+	int phase = -1234;
 
-private static Graph undirg;
+	int ctime = -1234;
 
-private static boolean fast;
+	Graph dirg;
 
-/** If any instance of some extending class defines undir we need to
-maintain an undir graph. Note that the graph is stored in a static
-field so it is common to all instances. */
-private static boolean needUndir=false;
+	Graph undirg;
+
+	boolean fast;
+
+	/** If any instance of some extending class defines undir we need to
+	maintain an undir graph. */
+	boolean needUndir=false;
+}
 
 // ===================== initialization ================================
 // =====================================================================
@@ -112,8 +125,9 @@ protected GraphObserver(String name) {
 	pid = Configuration.getPid(name+"."+PAR_PROT);
 	undir = (Configuration.contains(name + "." + PAR_UNDIR) |
 		Configuration.contains(name + "." + PAR_UNDIR_ALT));
-	GraphObserver.fast = Configuration.contains(PAR_FAST);
-	GraphObserver.needUndir = (GraphObserver.needUndir || undir);
+	Cache cache = cache();
+	cache.fast = Configuration.contains(PAR_FAST);
+	cache.needUndir = (cache.needUndir || undir);
 }
 
 
@@ -136,35 +150,45 @@ protected GraphObserver(String name) {
 */
 protected void updateGraph() {
 	
-	if( CommonState.getTime() != GraphObserver.time ||
-	    (CDState.isCD() && (CDState.getCycleT() != GraphObserver.ctime)) ||
-	    CommonState.getPhase() != GraphObserver.phase ||
-	    pid != GraphObserver.lastpid )
+	Cache cache = cache();
+	if( CommonState.getTime() != cache.time ||
+	    (CDState.isCD() && (CDState.getCycleT() != cache.ctime)) ||
+	    CommonState.getPhase() != cache.phase ||
+	    pid != cache.lastpid )
 	{
 		// we need to update the graphs
 		
-		GraphObserver.lastpid = pid;
-		GraphObserver.time = CommonState.getTime();
-		if( CDState.isCD() ) GraphObserver.ctime = CDState.getCycleT();
-		GraphObserver.phase = CommonState.getPhase();
+		cache.lastpid = pid;
+		cache.time = CommonState.getTime();
+		if( CDState.isCD() ) cache.ctime = CDState.getCycleT();
+		cache.phase = CommonState.getPhase();
 
-		GraphObserver.dirg = new OverlayGraph(pid);
-		if( GraphObserver.needUndir )
+		cache.dirg = new OverlayGraph(pid);
+		if( cache.needUndir )
 		{
-			if( fast )
-				GraphObserver.undirg =
-				new FastUndirGraph(GraphObserver.dirg);
+			if( cache.fast )
+				cache.undirg = new FastUndirGraph(cache.dirg);
 			else
-				GraphObserver.undirg =
-				new ConstUndirGraph(GraphObserver.dirg);
+				cache.undirg = new ConstUndirGraph(cache.dirg);
 		}
 	}
 	
-	if( undir ) g = GraphObserver.undirg;
-	else g = GraphObserver.dirg;
+	if( undir ) g = cache.undirg;
+	else g = cache.dirg;
 }
 
-}
+// ---------------------------------------------------------------------
 
+private static Cache cache() {
 
+	SimulationContext context = SimulationContext.current();
+	Cache cache = (Cache) context.get(CACHE_SLOT);
+	if( cache == null )
+	{
+		cache = new Cache();
+		context.set(CACHE_SLOT, cache);
+	}
+	return cache;
+}
 
+}
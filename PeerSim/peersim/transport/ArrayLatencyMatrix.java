@@ -0,0 +1,88 @@
+package peersim.transport;
+
+/**
+ * {@link LatencyMatrix} storing exact latencies in one <code>int</code> array
+ * per router: a triangular one if latencies are symmetric, a square one
+ * otherwise. This is the representation {@link E2ENetwork} has always used,
+ * and takes a little over 2 (symmetric) or 4 bytes per pair of routers, plus
+ * an array header per router.
+ *
+ * @author giuliano
+ */
+public class ArrayLatencyMatrix implements LatencyMatrix {
+
+	private static final int HEADER = 16;
+
+	private static final int REFERENCE = 8;
+
+	// ----------------------------------------------------------------------
+
+	private final boolean fSymmetric;
+
+	private final int[][] fArray;
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Creates a matrix with all latencies set to 0.
+	 */
+	public ArrayLatencyMatrix(int size, boolean symmetric) {
+		fSymmetric = symmetric;
+		fArray = new int[size][];
+		for (int i = 0; i < size; i++) {
+			fArray[i] = new int[symmetric ? i : size];
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public int size() {
+		return fArray.length;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public boolean symmetric() {
+		return fSymmetric;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public int get(int sender, int receiver) {
+		if (sender == receiver) {
+			return 0;
+		}
+		if (fSymmetric && sender < receiver) {
+			return fArray[receiver][sender];
+		}
+		return fArray[sender][receiver];
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public void set(int sender, int receiver, int latency) {
+		if (sender == receiver) {
+			return;
+		}
+		latency = Math.max(latency, 0);
+		if (fSymmetric && sender < receiver) {
+			fArray[receiver][sender] = latency;
+		} else {
+			fArray[sender][receiver] = latency;
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public long footprint() {
+		long size = fArray.length;
+		long entries = fSymmetric ? size * (size - 1) / 2 : size * size;
+		return HEADER + size * (REFERENCE + HEADER) + entries * Integer.SIZE
+				/ Byte.SIZE;
+	}
+}
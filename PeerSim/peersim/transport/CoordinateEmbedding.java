@@ -0,0 +1,91 @@
+package peersim.transport;
+
+import peersim.config.*;
+import peersim.core.*;
+
+/**
+ * Replaces the latencies of static singleton {@link E2ENetwork} with a
+ * {@link CoordinateLatencyMatrix} fitted to them, which takes space linear in
+ * the number of routers. It is meant to run right after the control loading
+ * the measurements (for very large networks, {@link MappedMatrixParser}),
+ * which can then be garbage collected. The random sampling of latencies is
+ * driven by {@link CommonState#r}.
+ * 
+ * @author giuliano
+ */
+public class CoordinateEmbedding implements Control
+{
+
+// ---------------------------------------------------------------------
+// Parameters
+// ---------------------------------------------------------------------
+
+/**
+ * Dimensions of the coordinate space, not counting heights. Defaults to 5.
+ * @config
+ */
+private static final String PAR_DIMENSIONS = "dimensions";
+
+/**
+ * Rounds of fitting. Defaults to 20.
+ * @config
+ */
+private static final String PAR_ROUNDS = "rounds";
+
+/**
+ * Latencies sampled by each router in each round. Defaults to 32.
+ * @config
+ */
+private static final String PAR_SAMPLES = "samples";
+
+// ---------------------------------------------------------------------
+// Fields
+// ---------------------------------------------------------------------
+
+/** Dimensions read from PAR_DIMENSIONS */
+private int dimensions;
+
+/** Rounds read from PAR_ROUNDS */
+private int rounds;
+
+/** Samples read from PAR_SAMPLES */
+private int samples;
+
+// ---------------------------------------------------------------------
+// Initialization
+// ---------------------------------------------------------------------
+
+/**
+ * Read the configuration parameters.
+ */
+public CoordinateEmbedding(String prefix)
+{
+	dimensions = Configuration.getInt(prefix + "." + PAR_DIMENSIONS, 5);
+	rounds = Configuration.getInt(prefix + "." + PAR_ROUNDS, 20);
+	samples = Configuration.getInt(prefix + "." + PAR_SAMPLES, 32);
+}
+
+// ---------------------------------------------------------------------
+// Methods
+// ---------------------------------------------------------------------
+
+/**
+ * Fits coordinates to the latencies of static singleton {@link E2ENetwork},
+ * and replaces them.
+ * @return  always false
+ */
+public boolean execute()
+{
+	LatencyMatrix measured = E2ENetwork.getMatrix();
+	if (measured == null)
+		throw new IllegalStateException("E2ENetwork has not been initialized");
+	CoordinateLatencyMatrix fitted = new CoordinateLatencyMatrix(
+			measured.size(), dimensions);
+	double error = fitted.fit(measured, rounds, samples, CommonState.r);
+	E2ENetwork.reset(fitted);
+	System.err.println("CoordinateEmbedding: fitted " + measured.size()
+			+ " routers, mean relative error " + error);
+	return false;
+}
+
+}
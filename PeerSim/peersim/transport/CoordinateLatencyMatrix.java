@@ -0,0 +1,235 @@
+package peersim.transport;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Read-only symmetric {@link LatencyMatrix} which approximates latencies with
+ * network coordinates: each router is placed in a Euclidean space, plus a
+ * non-negative height modeling its access link, and the latency between two
+ * routers is their distance plus both heights. It takes
+ * <code>4 * (dimensions + 1)</code> bytes per router rather than per pair, so
+ * it suits router networks too large for any full matrix.<BR>
+ * <BR>
+ * Coordinates are fitted to measured latencies with
+ * {@link #fit(LatencyMatrix, int, int, Random)}, which runs the Vivaldi
+ * algorithm (Dabek et al., SIGCOMM 2004) with height vectors over samples of
+ * the measurements.
+ *
+ * @author giuliano
+ */
+public class CoordinateLatencyMatrix implements LatencyMatrix {
+
+	/**
+	 * Vivaldi's bound on how far a router moves, relative to the error of an
+	 * estimate.
+	 */
+	private static final double CC = 0.25;
+
+	/**
+	 * Vivaldi's weight of new samples in error estimates.
+	 */
+	private static final double CE = 0.25;
+
+	private static final int HEADER = 16;
+
+	// ----------------------------------------------------------------------
+
+	private final int fSize;
+
+	private final int fDimensions;
+
+	private final float[] fCoordinates;
+
+	private final float[] fHeights;
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Creates a matrix with all routers at the origin, at height 0.
+	 */
+	public CoordinateLatencyMatrix(int size, int dimensions) {
+		if (dimensions <= 0) {
+			throw new IllegalArgumentException(
+					"Need at least one dimension.");
+		}
+		fSize = size;
+		fDimensions = dimensions;
+		fCoordinates = new float[size * dimensions];
+		fHeights = new float[size];
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Fits the coordinates of all routers to the latencies of another matrix
+	 * of the same size. In each round, every router adjusts its coordinates
+	 * against the latencies to <code>samples</code> routers drawn at random.
+	 * Latencies that are not positive are taken to be missing measurements,
+	 * and skipped.
+	 *
+	 * @return the mean relative error of the estimates for the samples of
+	 *         the last round.
+	 */
+	public double fit(LatencyMatrix source, int rounds, int samples,
+			Random random) {
+		if (source.size() != fSize) {
+			throw new IllegalArgumentException("Source has " + source.size()
+					+ " routers, instead of " + fSize + ".");
+		}
+		if (fSize < 2) {
+			return 0.0;
+		}
+
+		double[] errors = new double[fSize];
+		Arrays.fill(errors, 1.0);
+		double[] direction = new double[fDimensions];
+
+		double total = 0;
+		int count = 0;
+		for (int round = 0; round < rounds; round++) {
+			total = 0;
+			count = 0;
+			for (int i = 0; i < fSize; i++) {
+				for (int k = 0; k < samples; k++) {
+					int j = random.nextInt(fSize - 1);
+					if (j >= i) {
+						j++;
+					}
+					int measured = source.get(i, j);
+					if (measured <= 0) {
+						continue;
+					}
+					total += update(i, j, measured, errors, direction, random);
+					count++;
+				}
+			}
+		}
+
+		return count == 0 ? 0.0 : total / count;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Moves router i according to a latency sample to router j.
+	 *
+	 * @return the relative error of the estimate before moving.
+	 */
+	private double update(int i, int j, int measured, double[] errors,
+			double[] direction, Random random) {
+		int bi = i * fDimensions;
+		int bj = j * fDimensions;
+
+		double distance = 0;
+		for (int d = 0; d < fDimensions; d++) {
+			direction[d] = fCoordinates[bi + d] - fCoordinates[bj + d];
+			distance += direction[d] * direction[d];
+		}
+		distance = Math.sqrt(distance);
+
+		double rise = fHeights[i] + fHeights[j];
+		double estimate = distance + rise;
+		double error = Math.abs(estimate - measured) / measured;
+
+		// Routers on top of each other (as all are, initially) push apart in
+		// a random direction, which also lifts them.
+		if (distance == 0) {
+			for (int d = 0; d < fDimensions; d++) {
+				direction[d] = random.nextDouble() - 0.5;
+				distance += direction[d] * direction[d];
+			}
+			distance = Math.sqrt(distance);
+			rise += random.nextDouble() * distance;
+		}
+
+		double weight = errors[i] / (errors[i] + errors[j]);
+		errors[i] = error * CE * weight + errors[i] * (1 - CE * weight);
+
+		// The height vector (direction, rise) has norm distance + rise.
+		double step = CC * weight * (measured - estimate) / (distance + rise);
+		for (int d = 0; d < fDimensions; d++) {
+			fCoordinates[bi + d] += step * direction[d];
+		}
+		fHeights[i] = (float) Math.max(0, fHeights[i] + step * rise);
+
+		return error;
+	}
+
+	// ----------------------------------------------------------------------
+
+	public int dimensions() {
+		return fDimensions;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return a coordinate of a router.
+	 */
+	public float coordinate(int router, int dimension) {
+		return fCoordinates[router * fDimensions + dimension];
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the height of a router.
+	 */
+	public float height(int router) {
+		return fHeights[router];
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public int size() {
+		return fSize;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public boolean symmetric() {
+		return true;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public int get(int sender, int receiver) {
+		// The height of the router would otherwise count twice.
+		if (sender == receiver) {
+			return 0;
+		}
+		int bs = sender * fDimensions;
+		int br = receiver * fDimensions;
+		double distance = 0;
+		for (int d = 0; d < fDimensions; d++) {
+			double delta = fCoordinates[bs + d] - fCoordinates[br + d];
+			distance += delta * delta;
+		}
+		return (int) Math.round(Math.sqrt(distance) + fHeights[sender]
+				+ fHeights[receiver]);
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @throws UnsupportedOperationException
+	 *             always, as latencies follow from coordinates.
+	 */
+	@Override
+	public void set(int sender, int receiver, int latency) {
+		throw new UnsupportedOperationException(
+				"Coordinate latency matrices are read-only.");
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public long footprint() {
+		return 2 * HEADER + (long) fSize * (fDimensions + 1) * Float.SIZE
+				/ Byte.SIZE;
+	}
+}
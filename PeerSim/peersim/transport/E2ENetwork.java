@@ -18,11 +18,12 @@
 
 package peersim.transport;
 
+import peersim.core.SimulationContext;
 
 /**
  * This static singleton emulates an underlying router network
  * of fixed size, and stores the latency measurements for all pairs
- * of routers.
+ * of routers in a {@link LatencyMatrix}.
  *
  * @author Alberto Montresor
  * @version $Revision: 1.6 $
@@ -35,19 +36,22 @@ public class E2ENetwork
 //---------------------------------------------------------------------
 
 /**
- * True if latency between nodes is considered symmetric. False otherwise.
+ * Slot of the {@link SimulationContext} holding the router network of the
+ * simulation running in it.
  */
-private static boolean symm;	
-	
-/**
- * Size of the router network. 
- */
-private static int size;
+private static final int STATE_SLOT = SimulationContext.newSlot();
 
 /**
- * Latency distances between nodes.
+ * The router network. It is kept in the current {@link SimulationContext},
+ * so that simulations running concurrently in other contexts have their own.
  */
-private static int[][] array;
+private static final class State {
+
+	/**
+	 * Latency distances between nodes.
+	 */
+	LatencyMatrix matrix;
+}
 	
 //---------------------------------------------------------------------
 //Initialization
@@ -69,15 +73,22 @@ private E2ENetwork() {}
  */
 public static void reset(int size, boolean symm)
 {
-	E2ENetwork.symm = symm;
-	E2ENetwork.size = size;
-	array = new int[size][];
-	for (int i=0; i < size; i++) {
-		if (symm)
-			array[i] = new int[i];
-		else
-			array[i] = new int[size];
-	}
+	reset(new ArrayLatencyMatrix(size, symm));
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Resets the network, by using the specified latency matrix. This allows
+ * replacing the default {@link ArrayLatencyMatrix} with more compact
+ * representations, see {@link LatencyMatrix}.
+ * @param matrix the latencies between all pairs of routers
+ */
+public static void reset(LatencyMatrix matrix)
+{
+	State state = new State();
+	state.matrix = matrix;
+	SimulationContext.current().set(STATE_SLOT, state);
 }
 	
 //---------------------------------------------------------------------
@@ -96,15 +107,7 @@ public static int getLatency(int sender, int receiver)
 	if (sender == receiver)
 		return 0;
 	// XXX There should be the possibility to fix the delay.
-	if (symm) {
-		// Symmetric network
-		if (sender < receiver) {
-			int tmp = sender;
-			sender = receiver;
-			receiver = tmp;
-		}
-	} 
-	return array[sender][receiver];
+	return state().matrix.get(sender, receiver);
 }
 
 //---------------------------------------------------------------------
@@ -119,15 +122,19 @@ public static int getLatency(int sender, int receiver)
  */
 public static void setLatency(int sender, int receiver, int latency) 
 {
-	if (symm) {
-		// Symmetric network
-		if (sender < receiver) {
-			int tmp = sender;
-			sender = receiver;
-			receiver = tmp;
-		}
-	} 
- 	array[sender][receiver] = latency;
+	state().matrix.set(sender, receiver, latency);
+}
+
+//---------------------------------------------------------------------
+
+/**
+ * Returns the latency matrix of the underlying network, or null if the
+ * network has not been reset yet.
+ */
+public static LatencyMatrix getMatrix()
+{
+	State state = state();
+	return state == null ? null : state.matrix;
 }
 
 //---------------------------------------------------------------------
@@ -138,7 +145,15 @@ public static void setLatency(int sender, int receiver, int latency)
  */
 public static int getSize()
 {
-	return size;
+	State state = state();
+	return state == null ? 0 : state.matrix.size();
+}
+
+//---------------------------------------------------------------------
+
+private static State state()
+{
+	return (State) SimulationContext.current().get(STATE_SLOT);
 }
 
 }
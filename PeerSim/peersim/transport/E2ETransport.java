@@ -51,14 +51,17 @@ public class E2ETransport implements Transport, RouterInfo
 private static final String PAR_LOCAL = "local";
 	
 //---------------------------------------------------------------------
-//Static fields
+//Shared fields
 //---------------------------------------------------------------------
 
+// These are copied to all clones of the prototype. They used to be static,
+// which prevented different simulations from sharing the JVM.
+
 /** Identifier of this transport protocol */
-private static int tid;
+private int tid;
 	
 /** Local component of latency */
-private static long local;
+private long local;
 
 //---------------------------------------------------------------------
 //Fields
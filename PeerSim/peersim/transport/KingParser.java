@@ -49,6 +49,14 @@ private static final String PAR_FILE = "file";
  */
 private static final String PAR_RATIO = "ratio";
 
+/**
+ * If defined, latencies are stored in a {@link QuantizedLatencyMatrix},
+ * rounded to multiples of this value, rather than exactly. Not defined by
+ * default.
+ * @config
+ */
+private static final String PAR_QUANTUM = "quantum";
+
 // ---------------------------------------------------------------------
 // Fields
 // ---------------------------------------------------------------------
@@ -65,6 +73,9 @@ private double ratio;
 /** Prefix for reading parameters */
 private String prefix;
 
+/** Quantum read from PAR_QUANTUM, 0 if not defined */
+private int quantum;
+
 // ---------------------------------------------------------------------
 // Initialization
 // ---------------------------------------------------------------------
@@ -76,6 +87,7 @@ public KingParser(String prefix)
 {
 	this.prefix = prefix;
 	ratio = Configuration.getDouble(prefix + "." + PAR_RATIO, 1);
+	quantum = Configuration.getInt(prefix + "." + PAR_QUANTUM, 0);
 	filename = Configuration.getString(prefix + "." + PAR_FILE, null);
 }
 
@@ -123,7 +135,13 @@ public boolean execute()
 		try { in.close(); } catch (IOException e1) { };
 		System.exit(1);
 	}
-	E2ENetwork.reset(size, true);
+	QuantizedLatencyMatrix quantized = null;
+	if (quantum > 0) {
+		quantized = new QuantizedLatencyMatrix(size, quantum);
+		E2ENetwork.reset(quantized);
+	} else {
+		E2ENetwork.reset(size, true);
+	}
 	if (line == null) {
 		System.err.println("KingParser: " + filename + ", line " + lc + ":");
 		System.err.println("No latency matrix contained in the specified file");
@@ -151,6 +169,10 @@ public boolean execute()
 		} while (line != null);
 		
 		in.close();
+		if (quantized != null && quantized.saturated() > 0)
+			System.err.println("KingParser: warning, " + quantized.saturated()
+					+ " latencies exceed " + QuantizedLatencyMatrix.MAX_STEPS
+					+ " quanta of " + quantum + ", and were saturated");
 	
 	} catch (IOException e) {
 		System.err.println("KingParser: " + filename + ", line " + lc + ":");
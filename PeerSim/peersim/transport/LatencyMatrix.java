@@ -0,0 +1,61 @@
+package peersim.transport;
+
+/**
+ * Latencies between all pairs of routers of the network emulated by
+ * {@link E2ENetwork}. Routers are indexed from 0, and the latency from a
+ * router to itself is always 0: all implementations return 0 for it, and
+ * ignore attempts to set it, as nodes often share a router.<BR>
+ * <BR>
+ * Implementations trade precision and flexibility for memory:
+ * <ul>
+ * <li>{@link ArrayLatencyMatrix} stores exact latencies in one array per
+ * router, and is the default;</li>
+ * <li>{@link QuantizedLatencyMatrix} stores symmetric latencies, rounded to a
+ * multiple of a quantum, in a single flat array of 16-bit values;</li>
+ * <li>{@link MappedLatencyMatrix} reads the same representation from a
+ * memory-mapped file, off the heap;</li>
+ * <li>{@link CoordinateLatencyMatrix} approximates latencies with network
+ * coordinates, and takes space linear in the number of routers.</li>
+ * </ul>
+ * Data sets mark missing measurements with latencies that are not positive
+ * (King uses -1). All implementations store them as 0, so a latency of 0
+ * between distinct routers means that it is unknown.
+ *
+ * @author giuliano
+ */
+public interface LatencyMatrix {
+
+	/**
+	 * @return the number of routers.
+	 */
+	public int size();
+
+	/**
+	 * @return <code>true</code> if the latency from a router to another is
+	 *         always the same as the latency in the opposite direction.
+	 */
+	public boolean symmetric();
+
+	/**
+	 * @return the latency from <code>sender</code> to <code>receiver</code>,
+	 *         or 0 if they are the same router.
+	 */
+	public int get(int sender, int receiver);
+
+	/**
+	 * Sets the latency from <code>sender</code> to <code>receiver</code>
+	 * (and back, if the matrix is symmetric). Latencies that are not positive
+	 * are stored as 0, and the latency from a router to itself is left at 0.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             if the matrix is read-only.
+	 */
+	public void set(int sender, int receiver, int latency);
+
+	/**
+	 * @return an estimate of the number of bytes taken by the matrix, on and
+	 *         off the heap.
+	 */
+	public long footprint();
+
+}
@@ -0,0 +1,121 @@
+package peersim.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Microbenchmark comparing the {@link LatencyMatrix} implementations on a
+ * synthetic router network: routers are points in a cube with an access-link
+ * height each, and latencies are their distances plus heights, with 10%
+ * noise on top, which is roughly how King measurements behave. For each
+ * matrix it prints the footprint, the time per random lookup and, for
+ * {@link CoordinateLatencyMatrix}, the mean relative error against the exact
+ * latencies. Lookups also produce a checksum, which must be the same for the
+ * exact backends.<BR>
+ * <BR>
+ * Usage:
+ * <code>LatencyMatrixBenchmark [routers] [lookups] [rounds] [dimensions]</code>
+ *
+ * @author giuliano
+ */
+public class LatencyMatrixBenchmark {
+
+	private static final String[] MATRICES = { "array", "quantized", "mapped",
+			"coordinates" };
+
+	public static void main(String[] args) throws IOException {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 4000000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		int dimensions = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+		Random random = new Random(42);
+		ArrayLatencyMatrix exact = synthetic(size, random);
+
+		File file = File.createTempFile("latencies", ".bin");
+		file.deleteOnExit();
+		MappedLatencyMatrix.write(exact, 1, file);
+
+		CoordinateLatencyMatrix coordinates = new CoordinateLatencyMatrix(size,
+				dimensions);
+		long start = System.nanoTime();
+		coordinates.fit(exact, 20, 32, new Random(43));
+		System.err.println("Fitted coordinates in "
+				+ (System.nanoTime() - start) / 1000000 + " ms.");
+
+		LatencyMatrix[] matrices = { exact,
+				new QuantizedLatencyMatrix(exact, 1),
+				new MappedLatencyMatrix(file), coordinates };
+
+		int[] senders = new int[lookups];
+		int[] receivers = new int[lookups];
+		for (int i = 0; i < lookups; i++) {
+			senders[i] = random.nextInt(size);
+			receivers[i] = (senders[i] + 1 + random.nextInt(size - 1)) % size;
+		}
+
+		System.out.println("matrix round footprint_mb ns_lookup rel_error checksum");
+		for (int round = 0; round < rounds; round++) {
+			for (int i = 0; i < matrices.length; i++) {
+				LatencyMatrix matrix = matrices[i];
+				start = System.nanoTime();
+				long checksum = 0;
+				for (int j = 0; j < lookups; j++) {
+					checksum += matrix.get(senders[j], receivers[j]);
+				}
+				double ns = (System.nanoTime() - start) / (double) lookups;
+
+				System.out.println(MATRICES[i] + " " + round + " "
+						+ String.format("%.1f", matrix.footprint() / 1e6)
+						+ " " + String.format("%.2f", ns) + " "
+						+ String.format("%.3f", error(exact, matrix, 100000))
+						+ " " + checksum);
+			}
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static ArrayLatencyMatrix synthetic(int size, Random random) {
+		double[][] points = new double[size][3];
+		double[] heights = new double[size];
+		for (int i = 0; i < size; i++) {
+			for (int d = 0; d < points[i].length; d++) {
+				points[i][d] = random.nextDouble() * 150;
+			}
+			heights[i] = random.nextDouble() * 20;
+		}
+
+		ArrayLatencyMatrix matrix = new ArrayLatencyMatrix(size, true);
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < i; j++) {
+				double distance = 0;
+				for (int d = 0; d < points[i].length; d++) {
+					double delta = points[i][d] - points[j][d];
+					distance += delta * delta;
+				}
+				double latency = (Math.sqrt(distance) + heights[i] + heights[j])
+						* (0.9 + 0.2 * random.nextDouble());
+				matrix.set(i, j, (int) Math.max(1, Math.round(latency)));
+			}
+		}
+		return matrix;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private static double error(LatencyMatrix exact, LatencyMatrix matrix,
+			int samples) {
+		Random random = new Random(44);
+		int size = exact.size();
+		double total = 0;
+		for (int k = 0; k < samples; k++) {
+			int i = random.nextInt(size);
+			int j = (i + 1 + random.nextInt(size - 1)) % size;
+			total += Math.abs(matrix.get(i, j) - exact.get(i, j))
+					/ (double) exact.get(i, j);
+		}
+		return total / samples;
+	}
+}
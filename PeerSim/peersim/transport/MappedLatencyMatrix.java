@@ -0,0 +1,174 @@
+package peersim.transport;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only symmetric {@link LatencyMatrix} backed by a memory-mapped file,
+ * so that latencies live off the heap and are paged in by the operating
+ * system as lookups need them. The file holds the representation of
+ * {@link QuantizedLatencyMatrix}, and is written by
+ * {@link #write(LatencyMatrix, int, File)}:
+ * <ol>
+ * <li>the number of routers, as an <code>int</code>;</li>
+ * <li>the quantum, as an <code>int</code>;</li>
+ * <li>the strictly lower triangle of the matrix, row by row, in quanta, as
+ * unsigned 16-bit values.</li>
+ * </ol>
+ * All values are big-endian. Files larger than 2GB are mapped in several
+ * segments.
+ *
+ * @author giuliano
+ */
+public class MappedLatencyMatrix implements LatencyMatrix {
+
+	private static final int HEADER = 2 * Integer.SIZE / Byte.SIZE;
+
+	private static final int SEGMENT_BITS = 30;
+
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Writes a matrix to a file in the format read by this class. If the
+	 * matrix is not symmetric, only latencies from higher to lower router
+	 * indices are written.
+	 *
+	 * @return the number of latencies larger than
+	 *         {@link QuantizedLatencyMatrix#MAX_STEPS} quanta, which were
+	 *         saturated.
+	 */
+	public static long write(LatencyMatrix source, int quantum, File file)
+			throws IOException {
+		if (quantum <= 0) {
+			throw new IllegalArgumentException("Quantum must be positive.");
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), 1 << 16));
+		long saturated = 0;
+		try {
+			int size = source.size();
+			out.writeInt(size);
+			out.writeInt(quantum);
+			for (int i = 0; i < size; i++) {
+				for (int j = 0; j < i; j++) {
+					int latency = source.get(i, j);
+					if (QuantizedLatencyMatrix.saturates(latency, quantum)) {
+						saturated++;
+					}
+					out.writeChar(QuantizedLatencyMatrix.quantize(latency,
+							quantum));
+				}
+			}
+		} finally {
+			out.close();
+		}
+		return saturated;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private final int fSize;
+
+	private final int fQuantum;
+
+	private final MappedByteBuffer[] fSegments;
+
+	private final long fLength;
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Maps a matrix file.
+	 *
+	 * @throws IOException
+	 *             if the file can't be read, or is shorter than its header
+	 *             says.
+	 */
+	public MappedLatencyMatrix(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			fSize = raf.readInt();
+			fQuantum = raf.readInt();
+			fLength = QuantizedLatencyMatrix.pairs(fSize) * Character.SIZE
+					/ Byte.SIZE;
+			if (fSize < 0 || fQuantum <= 0 || raf.length() < HEADER + fLength) {
+				throw new IOException(file + " is not a valid latency matrix.");
+			}
+
+			// Segments have an even length, so no value straddles two of them.
+			FileChannel channel = raf.getChannel();
+			fSegments = new MappedByteBuffer[(int) ((fLength + SEGMENT_MASK) >>> SEGMENT_BITS)];
+			for (int i = 0; i < fSegments.length; i++) {
+				long start = (long) i << SEGMENT_BITS;
+				fSegments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+						HEADER + start, Math.min(SEGMENT_MASK + 1, fLength
+								- start));
+			}
+		} finally {
+			// Mappings stay valid after the file is closed.
+			raf.close();
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	public int quantum() {
+		return fQuantum;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public int size() {
+		return fSize;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public boolean symmetric() {
+		return true;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public int get(int sender, int receiver) {
+		// The diagonal is not stored.
+		if (sender == receiver) {
+			return 0;
+		}
+		long position = QuantizedLatencyMatrix.index(sender, receiver) << 1;
+		return fSegments[(int) (position >>> SEGMENT_BITS)]
+				.getChar((int) (position & SEGMENT_MASK))
+				* fQuantum;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @throws UnsupportedOperationException
+	 *             always, as mapped matrices are read-only.
+	 */
+	@Override
+	public void set(int sender, int receiver, int latency) {
+		throw new UnsupportedOperationException(
+				"Mapped latency matrices are read-only.");
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public long footprint() {
+		return HEADER + fLength;
+	}
+}
@@ -0,0 +1,78 @@
+package peersim.transport;
+
+import java.io.*;
+
+import peersim.config.*;
+import peersim.core.Control;
+
+/**
+ * Initializes static singleton {@link E2ENetwork} by memory-mapping a latency
+ * matrix file, in the binary format of {@link MappedLatencyMatrix}. Latencies
+ * are kept off the heap, so this suits router networks whose matrix would
+ * not fit in it. Such files are produced from King data sets (or any other
+ * source) by {@link MappedMatrixWriter}.
+ * 
+ * @author giuliano
+ */
+public class MappedMatrixParser implements Control
+{
+
+// ---------------------------------------------------------------------
+// Parameters
+// ---------------------------------------------------------------------
+
+/**
+ * The file containing the latency matrix.
+ * @config
+ */
+private static final String PAR_FILE = "file";
+
+// ---------------------------------------------------------------------
+// Fields
+// ---------------------------------------------------------------------
+
+/** Name of the file containing the latency matrix. */
+private String filename;
+
+/** Prefix for reading parameters */
+private String prefix;
+
+// ---------------------------------------------------------------------
+// Initialization
+// ---------------------------------------------------------------------
+
+/**
+ * Read the configuration parameters.
+ */
+public MappedMatrixParser(String prefix)
+{
+	this.prefix = prefix;
+	filename = Configuration.getString(prefix + "." + PAR_FILE);
+}
+
+// ---------------------------------------------------------------------
+// Methods
+// ---------------------------------------------------------------------
+
+/**
+ * Initializes static singleton {@link E2ENetwork} by mapping the matrix file.
+ * @return  always false
+ */
+public boolean execute()
+{
+	MappedLatencyMatrix matrix;
+	try {
+		matrix = new MappedLatencyMatrix(new File(filename));
+	} catch (FileNotFoundException e) {
+		throw new IllegalParameterException(prefix + "." + PAR_FILE, filename
+				+ " does not exist");
+	} catch (IOException e) {
+		throw new RuntimeException(e);
+	}
+	E2ENetwork.reset(matrix);
+	System.err.println("MappedMatrixParser: mapped " + matrix.size()
+			+ " routers from " + filename);
+	return false;
+}
+
+}
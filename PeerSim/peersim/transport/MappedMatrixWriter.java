@@ -0,0 +1,88 @@
+package peersim.transport;
+
+import java.io.*;
+
+import peersim.config.*;
+import peersim.core.Control;
+
+/**
+ * Writes the latencies of static singleton {@link E2ENetwork} to a file in
+ * the binary format of {@link MappedLatencyMatrix}, to be read back by
+ * {@link MappedMatrixParser}. Converting a King data set this way is a
+ * matter of running {@link KingParser} followed by this control once, in a
+ * configuration with no cycles.
+ * 
+ * @author giuliano
+ */
+public class MappedMatrixWriter implements Control
+{
+
+// ---------------------------------------------------------------------
+// Parameters
+// ---------------------------------------------------------------------
+
+/**
+ * The file the latency matrix is written to.
+ * @config
+ */
+private static final String PAR_FILE = "file";
+
+/**
+ * Latencies are rounded to multiples of this value, and can be at most
+ * {@value QuantizedLatencyMatrix#MAX_STEPS} times it. Defaults to 1.
+ * @config
+ */
+private static final String PAR_QUANTUM = "quantum";
+
+// ---------------------------------------------------------------------
+// Fields
+// ---------------------------------------------------------------------
+
+/** Name of the file the latency matrix is written to. */
+private String filename;
+
+/** Quantum read from PAR_QUANTUM */
+private int quantum;
+
+// ---------------------------------------------------------------------
+// Initialization
+// ---------------------------------------------------------------------
+
+/**
+ * Read the configuration parameters.
+ */
+public MappedMatrixWriter(String prefix)
+{
+	filename = Configuration.getString(prefix + "." + PAR_FILE);
+	quantum = Configuration.getInt(prefix + "." + PAR_QUANTUM, 1);
+}
+
+// ---------------------------------------------------------------------
+// Methods
+// ---------------------------------------------------------------------
+
+/**
+ * Writes the latencies of static singleton {@link E2ENetwork}.
+ * @return  always false
+ */
+public boolean execute()
+{
+	LatencyMatrix matrix = E2ENetwork.getMatrix();
+	if (matrix == null)
+		throw new IllegalStateException("E2ENetwork has not been initialized");
+	long saturated;
+	try {
+		saturated = MappedLatencyMatrix.write(matrix, quantum, new File(filename));
+	} catch (IOException e) {
+		throw new RuntimeException(e);
+	}
+	System.err.println("MappedMatrixWriter: wrote " + matrix.size()
+			+ " routers to " + filename);
+	if (saturated > 0)
+		System.err.println("MappedMatrixWriter: warning, " + saturated
+				+ " latencies exceed " + QuantizedLatencyMatrix.MAX_STEPS
+				+ " quanta of " + quantum + ", and were saturated");
+	return false;
+}
+
+}
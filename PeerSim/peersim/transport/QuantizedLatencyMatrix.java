@@ -0,0 +1,194 @@
+package peersim.transport;
+
+/**
+ * Symmetric {@link LatencyMatrix} storing latencies as unsigned 16-bit
+ * multiples of a quantum, in a single flat array holding the strictly lower
+ * triangle of the matrix row by row. It takes 2 bytes per pair of routers,
+ * against the 4 bytes and per-router array header of
+ * {@link ArrayLatencyMatrix}, and lookups touch a single array.<BR>
+ * <BR>
+ * Latencies are rounded to the nearest multiple of the quantum, and saturate
+ * at {@link #MAX_STEPS} times it. With a quantum of 1, latencies up to 65535
+ * are exact. Positive latencies are never rounded down to 0, which stands for
+ * a missing measurement. The number of latencies that saturated is kept, see
+ * {@link #saturated()}.
+ *
+ * @author giuliano
+ */
+public class QuantizedLatencyMatrix implements LatencyMatrix {
+
+	/**
+	 * Largest number of quanta a latency can be made of.
+	 */
+	public static final int MAX_STEPS = Character.MAX_VALUE;
+
+	private static final int HEADER = 16;
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the number of pairs of routers in a symmetric network of the
+	 *         given size.
+	 */
+	static long pairs(int size) {
+		return (long) size * (size - 1) / 2;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the index of the pair (sender, receiver) in the strictly lower
+	 *         triangle of a matrix, laid out row by row. Sender and receiver
+	 *         must be distinct.
+	 */
+	static long index(int sender, int receiver) {
+		if (sender < receiver) {
+			int tmp = sender;
+			sender = receiver;
+			receiver = tmp;
+		}
+		return pairs(sender) + receiver;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return the number of quanta closest to a latency, at least 1 for
+	 *         positive latencies, 0 for the others, and saturated at
+	 *         {@link #MAX_STEPS}.
+	 */
+	static char quantize(int latency, int quantum) {
+		if (latency <= 0) {
+			return 0;
+		}
+		long steps = ((long) latency + quantum / 2) / quantum;
+		return (char) Math.max(1, Math.min(steps, MAX_STEPS));
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return <code>true</code> if a latency is too large to be represented
+	 *         with the given quantum, and saturates.
+	 */
+	static boolean saturates(int latency, int quantum) {
+		return ((long) latency + quantum / 2) / quantum > MAX_STEPS;
+	}
+
+	// ----------------------------------------------------------------------
+
+	private final int fSize;
+
+	private final int fQuantum;
+
+	private final char[] fSteps;
+
+	private long fSaturated;
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Creates a matrix with all latencies set to 0.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the quantum is not positive, or if there are too many
+	 *             pairs of routers to fit in an array.
+	 */
+	public QuantizedLatencyMatrix(int size, int quantum) {
+		if (quantum <= 0) {
+			throw new IllegalArgumentException("Quantum must be positive.");
+		}
+		long pairs = pairs(size);
+		if (pairs > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many routers (" + size
+					+ ") for a flat matrix.");
+		}
+
+		fSize = size;
+		fQuantum = quantum;
+		fSteps = new char[(int) pairs];
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Creates a quantized copy of another matrix. If it is not symmetric,
+	 * only latencies from higher to lower router indices are copied.
+	 */
+	public QuantizedLatencyMatrix(LatencyMatrix source, int quantum) {
+		this(source.size(), quantum);
+		int k = 0;
+		for (int i = 0; i < fSize; i++) {
+			for (int j = 0; j < i; j++) {
+				set(k++, source.get(i, j));
+			}
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	public int quantum() {
+		return fQuantum;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * @return how many of the latencies set so far were larger than
+	 *         {@link #MAX_STEPS} quanta, and were saturated.
+	 */
+	public long saturated() {
+		return fSaturated;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public int size() {
+		return fSize;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public boolean symmetric() {
+		return true;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public int get(int sender, int receiver) {
+		// The diagonal is not stored.
+		if (sender == receiver) {
+			return 0;
+		}
+		return fSteps[(int) index(sender, receiver)] * fQuantum;
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public void set(int sender, int receiver, int latency) {
+		if (sender == receiver) {
+			return;
+		}
+		set((int) index(sender, receiver), latency);
+	}
+
+	// ----------------------------------------------------------------------
+
+	private void set(int index, int latency) {
+		if (saturates(latency, fQuantum)) {
+			fSaturated++;
+		}
+		fSteps[index] = quantize(latency, fQuantum);
+	}
+
+	// ----------------------------------------------------------------------
+
+	@Override
+	public long footprint() {
+		return HEADER + (long) fSteps.length * Character.SIZE / Byte.SIZE;
+	}
+}
@@ -63,6 +63,14 @@ private static final String PAR_FILE = "file";
  */
 private static final String PAR_RATIO = "ratio";
 
+/**
+ * If defined, latencies are stored in a {@link QuantizedLatencyMatrix},
+ * rounded to multiples of this value, rather than exactly. Not defined by
+ * default.
+ * @config
+ */
+private static final String PAR_QUANTUM = "quantum";
+
 // ---------------------------------------------------------------------
 // Fields
 // ---------------------------------------------------------------------
@@ -73,6 +81,9 @@ private String filename;
 /** Ratio read from PAR_RATIO */
 private double ratio;
 
+/** Quantum read from PAR_QUANTUM, 0 if not defined */
+private int quantum;
+
 // ---------------------------------------------------------------------
 // Initialization
 // ---------------------------------------------------------------------
@@ -84,6 +95,7 @@ public TriangularMatrixParser(String prefix)
 {
 	filename = Configuration.getString(prefix + "." + PAR_FILE);
 	ratio = Configuration.getDouble(prefix + "." + PAR_RATIO);
+	quantum = Configuration.getInt(prefix + "." + PAR_QUANTUM, 0);
 }
 
 // ---------------------------------------------------------------------
@@ -114,7 +126,13 @@ public boolean execute()
 	  int size = in.readInt();
 	  
 		// Reset the E2E network
-		E2ENetwork.reset(size, true);
+		QuantizedLatencyMatrix quantized = null;
+		if (quantum > 0) {
+			quantized = new QuantizedLatencyMatrix(size, quantum);
+			E2ENetwork.reset(quantized);
+		} else {
+			E2ENetwork.reset(size, true);
+		}
 		System.err.println("TriangularMatrixParser: reading " + size + " rows");
 	
 		// If the file format is not correct, data will be read 
@@ -131,6 +149,11 @@ public boolean execute()
 			}
 		}
 		System.err.println("TriangularMatrixParser: Read " + count + " entries");
+		if (quantized != null && quantized.saturated() > 0)
+			System.err.println("TriangularMatrixParser: warning, "
+					+ quantized.saturated() + " latencies exceed "
+					+ QuantizedLatencyMatrix.MAX_STEPS + " quanta of " + quantum
+					+ ", and were saturated");
 	} catch (IOException e) {
 		throw new RuntimeException(e.getMessage());
 	}
@@ -0,0 +1,182 @@
+package peersim.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs loops over integer ranges on a fixed pool of threads. The range is cut
+ * into chunks which threads take one at a time, so that threads which get
+ * cheap chunks go on to take more, as with a fork-join pool.<BR>
+ * <BR>
+ * The loop body learns which worker (from <code>0</code> to
+ * <code>threads() - 1</code>) runs each chunk, and can therefore keep
+ * per-worker scratch space without synchronization. With a single thread,
+ * loops run on the calling thread.
+ *
+ * @author giuliano
+ */
+public class ParallelFor {
+
+	/**
+	 * Body of a parallel loop.
+	 */
+	public static interface Body {
+
+		/**
+		 * Runs the loop over <code>[start, end)</code>.
+		 *
+		 * @param worker
+		 *            the id of the worker running the chunk.
+		 */
+		public void run(int worker, int start, int end);
+
+	}
+
+	// ----------------------------------------------------------------------
+
+	private final int fThreads;
+
+	private final ExecutorService fPool;
+
+	// ----------------------------------------------------------------------
+
+	public ParallelFor(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Need at least one thread.");
+		}
+
+		fThreads = threads;
+		fPool = threads == 1 ? null : Executors.newFixedThreadPool(threads,
+				new ThreadFactory() {
+					private int fId;
+
+					@Override
+					public synchronized Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "parallel for " + fId++);
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	// ----------------------------------------------------------------------
+
+	public int threads() {
+		return fThreads;
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Runs a loop over <code>[start, end)</code>, in chunks of
+	 * <code>chunk</code> elements, and returns once it is done. Exceptions
+	 * thrown by the body stop the loop, and are rethrown to the caller. If
+	 * the caller is interrupted while waiting, the interrupt is wrapped in a
+	 * {@link RuntimeException}; see
+	 * {@link #runInterruptibly(int, int, int, Body)} to get it instead.
+	 */
+	public void run(int start, int end, int chunk, Body body) {
+		try {
+			runInterruptibly(start, end, chunk, body);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Same as {@link #run(int, int, int, Body)}, but throws
+	 * {@link InterruptedException} if the caller is interrupted while
+	 * waiting. Chunks which have not been started by then are skipped.
+	 */
+	public void runInterruptibly(int start, final int end, final int chunk,
+			final Body body) throws InterruptedException {
+		final int chunks = (int) (((long) end - start + chunk - 1) / chunk);
+		final int first = start;
+		final AtomicInteger next = new AtomicInteger();
+
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int i = 0; i < fThreads; i++) {
+			final int worker = i;
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() {
+					int current;
+					while ((current = next.getAndIncrement()) < chunks) {
+						int from = first + current * chunk;
+						try {
+							body.run(worker, from, (int) Math.min(end,
+									(long) from + chunk));
+						} catch (RuntimeException ex) {
+							// Stops the other workers.
+							next.set(chunks);
+							throw ex;
+						}
+					}
+					return null;
+				}
+			});
+		}
+
+		if (fPool == null) {
+			try {
+				tasks.get(0).call();
+			} catch (Exception ex) {
+				throw rethrow(ex);
+			}
+			return;
+		}
+
+		try {
+			Throwable error = null;
+			for (Future<Object> result : fPool.invokeAll(tasks)) {
+				try {
+					result.get();
+				} catch (ExecutionException ex) {
+					if (error == null) {
+						error = ex.getCause();
+					}
+				}
+			}
+			if (error != null) {
+				throw rethrow(error);
+			}
+		} catch (InterruptedException ex) {
+			next.set(chunks);
+			throw ex;
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	/**
+	 * Stops the threads of the pool. Should be called once the pool is no
+	 * longer needed.
+	 */
+	public void shutdown() {
+		if (fPool != null) {
+			fPool.shutdown();
+		}
+	}
+
+	// ----------------------------------------------------------------------
+
+	private RuntimeException rethrow(Throwable error) {
+		if (error instanceof RuntimeException) {
+			return (RuntimeException) error;
+		}
+		if (error instanceof Error) {
+			throw (Error) error;
+		}
+		return new RuntimeException(error);
+	}
+}
@@ -93,7 +93,7 @@ private void init() {
 	pid = Configuration.getPid(prefix + "." + protocol);
 	methodName = Configuration.getString(prefix+"."+methodn,"setValue");
 	// Search the method
-	Class clazz = Network.prototype.getProtocol(pid).getClass();
+	Class clazz = Network.getPrototype().getProtocol(pid).getClass();
 	try {
 		method = GetterSetterFinder.getSetterMethod(clazz, methodName);
 	} catch (NoSuchMethodException e) {
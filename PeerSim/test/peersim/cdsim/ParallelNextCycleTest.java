@@ -0,0 +1,203 @@
+package peersim.cdsim;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import peersim.config.Configuration;
+import peersim.core.CommonState;
+import peersim.core.Control;
+import peersim.core.Network;
+import peersim.core.Node;
+import peersim.core.SimulationContext;
+
+public class ParallelNextCycleTest {
+
+	private static final int SIZE = 3000;
+
+	@Test
+	public void sameOutcomeRegardlessOfThreads() throws Exception {
+		double[] reference = run(1);
+
+		// The simulation did something.
+		double initial = 0;
+		double deviation = 0;
+		for (int i = 0; i < SIZE; i++) {
+			initial += Math.abs(Values.initial(i) - 50);
+			deviation += Math.abs(reference[i] - 50);
+		}
+		Assert.assertTrue(deviation < initial / 10);
+
+		// ... and ran partitioned, which FullNextCycle does not.
+		double[] full = run(0);
+		boolean same = true;
+		for (int i = 0; i < SIZE; i++) {
+			same &= reference[i] == full[i];
+		}
+		Assert.assertFalse(same);
+
+		for (int threads : new int[] { 2, 4, 7 }) {
+			double[] values = run(threads);
+			for (int i = 0; i < SIZE; i++) {
+				Assert.assertEquals("node " + i + ", " + threads + " threads",
+						reference[i], values[i], 0.0);
+			}
+		}
+	}
+
+	/**
+	 * Runs a simulation with the given number of threads, or with
+	 * {@link FullNextCycle} if it is 0, and returns the final values.
+	 */
+	private double[] run(int threads) throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("random.seed", "1234");
+		properties.setProperty("network.size", Integer.toString(SIZE));
+		properties.setProperty("simulation.cycles", "10");
+		if (threads > 0) {
+			properties.setProperty(CDSimulator.PAR_THREADS, Integer
+					.toString(threads));
+		}
+		properties.setProperty("simulation.partitions", "16");
+		properties.setProperty("protocol.avg", Average.class.getName());
+		// A sequential protocol, run between partitioned ones.
+		properties.setProperty("protocol.shuffle", Shuffle.class.getName());
+		properties.setProperty("protocol.shuffle.target", "avg");
+		properties.setProperty("init.values", Values.class.getName());
+		properties.setProperty("init.values.protocol", "avg");
+
+		SimulationContext context = new SimulationContext(properties);
+		return context.call(new Callable<double[]>() {
+			@Override
+			public double[] call() {
+				CDSimulator.nextExperiment();
+				int pid = Configuration.lookupPid("avg");
+				double[] values = new double[Network.size()];
+				for (int i = 0; i < values.length; i++) {
+					Node node = Network.get(i);
+					values[i] = ((Average) node.getProtocol(pid)).fValue;
+				}
+				return values;
+			}
+		});
+	}
+
+	/**
+	 * Push-pull averaging, with a random peer per node and cycle.
+	 */
+	public static class Average implements ParallelCDProtocol, Cloneable {
+
+		double fValue;
+
+		public Average(String prefix) {
+		}
+
+		@Override
+		public void nextCycle(Node node, int protocolID, Partition partition) {
+			Node peer = Network.get(partition.random().nextInt(
+					Network.size()));
+			partition.send(node, peer, new Push(fValue));
+		}
+
+		@Override
+		public void deliver(Node node, int protocolID, Node sender,
+				Object message, Partition partition) {
+			double value = ((Push) message).value;
+			if (message instanceof Reply) {
+				fValue = (fValue + value) / 2;
+			} else {
+				partition.send(node, sender, new Reply(fValue));
+				fValue = (fValue + value) / 2;
+			}
+		}
+
+		@Override
+		public void nextCycle(Node node, int protocolID) {
+			Average peer = (Average) Network.get(
+					CommonState.r.nextInt(Network.size())).getProtocol(
+					protocolID);
+			fValue = peer.fValue = (fValue + peer.fValue) / 2;
+		}
+
+		@Override
+		public Object clone() {
+			try {
+				return super.clone();
+			} catch (CloneNotSupportedException ex) {
+				throw new RuntimeException(ex);
+			}
+		}
+	}
+
+	private static class Push {
+		final double value;
+
+		Push(double value) {
+			this.value = value;
+		}
+	}
+
+	private static class Reply extends Push {
+		Reply(double value) {
+			super(value);
+		}
+	}
+
+	/**
+	 * Nudges the values of random nodes, drawing from the simulation random
+	 * which partitioned protocols also draw their seeds from.
+	 */
+	public static class Shuffle implements CDProtocol, Cloneable {
+
+		private final int fTarget;
+
+		public Shuffle(String prefix) {
+			fTarget = Configuration.getPid(prefix + ".target");
+		}
+
+		@Override
+		public void nextCycle(Node node, int protocolID) {
+			if (CommonState.r.nextInt(100) == 0) {
+				((Average) node.getProtocol(fTarget)).fValue += CommonState.r
+						.nextDouble();
+			}
+		}
+
+		@Override
+		public Object clone() {
+			try {
+				return super.clone();
+			} catch (CloneNotSupportedException ex) {
+				throw new RuntimeException(ex);
+			}
+		}
+	}
+
+	/**
+	 * Initializes node i with a value that depends only on i.
+	 */
+	public static class Values implements Control {
+
+		private final int fPid;
+
+		public Values(String prefix) {
+			fPid = Configuration.getPid(prefix + ".protocol");
+		}
+
+		static double initial(int i) {
+			return (i * 37) % 101;
+		}
+
+		@Override
+		public boolean execute() {
+			for (int i = 0; i < Network.size(); i++) {
+				Node node = Network.get(i);
+				((Average) node.getProtocol(fPid)).fValue = initial(i);
+			}
+			return false;
+		}
+	}
+}
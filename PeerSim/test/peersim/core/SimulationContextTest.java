@@ -0,0 +1,111 @@
+package peersim.core;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import peersim.util.ExtendedRandom;
+
+public class SimulationContextTest {
+
+	private static final int DRAWS = 20;
+
+	@Test
+	public void concurrentContextsAreIsolated() throws Exception {
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<State> first = executor.submit(simulation(barrier, 10, 42));
+			Future<State> second = executor.submit(simulation(barrier, 25, 4242));
+
+			State one = first.get();
+			State two = second.get();
+
+			Assert.assertNotSame(one.context, two.context);
+			Assert.assertNotSame(one.prototype, two.prototype);
+			check(one, 10, 42);
+			check(two, 25, 4242);
+
+			// Node ids are counted per context, so both start from the same
+			// value.
+			Assert.assertEquals(one.ids[0], two.ids[0]);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void check(State state, int size, long seed) {
+		Assert.assertEquals(size, state.size);
+		Assert.assertEquals(size, state.time);
+
+		for (int i = 1; i < state.ids.length; i++) {
+			Assert.assertEquals(state.ids[i - 1] + 1, state.ids[i]);
+		}
+
+		ExtendedRandom expected = new ExtendedRandom(seed);
+		for (int i = 0; i < DRAWS; i++) {
+			Assert.assertEquals(expected.nextLong(), state.draws[i]);
+		}
+	}
+
+	private Callable<State> simulation(final CyclicBarrier barrier,
+			final int size, final long seed) {
+		Properties properties = new Properties();
+		properties.setProperty("network.size", Integer.toString(size));
+		properties.setProperty(CommonState.PAR_SEED, Long.toString(seed));
+		final SimulationContext context = new SimulationContext(properties);
+
+		return new Callable<State>() {
+			@Override
+			public State call() throws Exception {
+				return context.call(new Callable<State>() {
+					@Override
+					public State call() throws Exception {
+						// Both simulations are set up, and then step, at the
+						// same time.
+						CommonState.initializeRandom(seed);
+						Network.reset();
+						barrier.await();
+
+						State state = new State();
+						state.context = SimulationContext.current();
+						state.draws = new long[DRAWS];
+						for (int i = 0; i < DRAWS; i++) {
+							CommonState.setTime(i);
+							state.draws[i] = CommonState.r.nextLong();
+							barrier.await();
+						}
+						CommonState.setTime(Network.size());
+						barrier.await();
+
+						state.time = CommonState.getTime();
+						state.size = Network.size();
+						state.prototype = Network.getPrototype();
+						state.ids = new long[Network.size()];
+						for (int i = 0; i < state.ids.length; i++) {
+							Assert.assertNotSame(state.prototype, Network.get(i));
+							state.ids[i] = Network.get(i).getID();
+						}
+						return state;
+					}
+				});
+			}
+		};
+	}
+
+	private static class State {
+		SimulationContext context;
+		Node prototype;
+		long time;
+		int size;
+		long[] draws;
+		long[] ids;
+	}
+}
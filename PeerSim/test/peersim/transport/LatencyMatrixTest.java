@@ -0,0 +1,184 @@
+package peersim.transport;
+
+import java.io.File;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class LatencyMatrixTest {
+
+	@Test
+	public void testBackendsAgree() throws Exception {
+		ArrayLatencyMatrix array = new ArrayLatencyMatrix(300, true);
+		Random random = new Random(42);
+		for (int i = 0; i < array.size(); i++) {
+			for (int j = 0; j < i; j++) {
+				// Some missing measurements, and the whole exact range.
+				int latency = random.nextInt(10) == 0 ? 0 : 1 + random
+						.nextInt(QuantizedLatencyMatrix.MAX_STEPS);
+				array.set(i, j, latency);
+			}
+		}
+
+		QuantizedLatencyMatrix quantized = new QuantizedLatencyMatrix(array, 1);
+		MappedLatencyMatrix mapped = map(array, 1);
+		Assert.assertEquals(0, quantized.saturated());
+
+		LatencyMatrix[] matrices = { array, quantized, mapped };
+		for (LatencyMatrix matrix : matrices) {
+			Assert.assertEquals(array.size(), matrix.size());
+			Assert.assertTrue(matrix.symmetric());
+		}
+
+		// Setting the latency from a router to itself must not clobber
+		// other pairs.
+		int last = array.size() - 1;
+		int before = quantized.get(last, 0);
+		array.set(last, last, 42);
+		quantized.set(last - 1, last - 1, 42);
+		Assert.assertEquals(before, quantized.get(last, 0));
+
+		for (int i = 0; i < array.size(); i++) {
+			for (int j = 0; j < array.size(); j++) {
+				// Nodes sharing a router.
+				int expected = i == j ? 0 : array.get(i, j);
+				for (LatencyMatrix matrix : matrices) {
+					Assert.assertEquals(expected, matrix.get(i, j));
+					Assert.assertEquals(expected, matrix.get(j, i));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testQuantizationEdges() throws Exception {
+		int quantum = 10;
+		int max = QuantizedLatencyMatrix.MAX_STEPS * quantum;
+		int[][] cases = {
+				// Missing measurements.
+				{ 0, 0 }, { -1, 0 }, { Integer.MIN_VALUE, 0 },
+				// Positive latencies never round to missing.
+				{ 1, 10 }, { 4, 10 },
+				// Round half up.
+				{ 5, 10 }, { 14, 10 }, { 15, 20 }, { 24, 20 }, { 25, 30 },
+				// Top of the range.
+				{ max - 5, max }, { max, max }, { max + 4, max } };
+		int[][] saturating = { { max + 5, max }, { Integer.MAX_VALUE, max } };
+
+		QuantizedLatencyMatrix matrix = new QuantizedLatencyMatrix(2, quantum);
+		for (int[] c : cases) {
+			matrix.set(0, 1, c[0]);
+			Assert.assertEquals("latency " + c[0], c[1], matrix.get(1, 0));
+		}
+		Assert.assertEquals(0, matrix.saturated());
+
+		for (int[] c : saturating) {
+			matrix.set(1, 0, c[0]);
+			Assert.assertEquals("latency " + c[0], c[1], matrix.get(0, 1));
+		}
+		Assert.assertEquals(saturating.length, matrix.saturated());
+
+		// The exact matrix follows the same convention for missing values.
+		ArrayLatencyMatrix array = new ArrayLatencyMatrix(2, false);
+		array.set(0, 1, -1);
+		Assert.assertEquals(0, array.get(0, 1));
+	}
+
+	@Test
+	public void testMappedRoundTrip() throws Exception {
+		int quantum = 5;
+		ArrayLatencyMatrix array = new ArrayLatencyMatrix(101, true);
+		Random random = new Random(43);
+		for (int i = 0; i < array.size(); i++) {
+			for (int j = 0; j < i; j++) {
+				array.set(i, j, random.nextInt(QuantizedLatencyMatrix.MAX_STEPS
+						* quantum + 1000));
+			}
+		}
+
+		QuantizedLatencyMatrix expected = new QuantizedLatencyMatrix(array,
+				quantum);
+		File file = File.createTempFile("latencies", ".bin");
+		try {
+			long saturated = MappedLatencyMatrix.write(array, quantum, file);
+			Assert.assertTrue(saturated > 0);
+			Assert.assertEquals(expected.saturated(), saturated);
+			Assert.assertEquals(8 + 2 * 101 * 100 / 2, file.length());
+
+			MappedLatencyMatrix mapped = new MappedLatencyMatrix(file);
+			Assert.assertEquals(array.size(), mapped.size());
+			Assert.assertEquals(quantum, mapped.quantum());
+			Assert.assertEquals(file.length(), mapped.footprint());
+			for (int i = 0; i < array.size(); i++) {
+				for (int j = 0; j < i; j++) {
+					Assert.assertEquals(expected.get(i, j), mapped.get(i, j));
+					Assert.assertEquals(expected.get(i, j), mapped.get(j, i));
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testCoordinateFit() throws Exception {
+		// Latencies that are exactly distances in the plane plus heights,
+		// which coordinates can represent, with a few missing measurements.
+		int size = 200;
+		Random random = new Random(44);
+		double[][] points = new double[size][2];
+		double[] heights = new double[size];
+		for (int i = 0; i < size; i++) {
+			points[i][0] = random.nextDouble() * 200;
+			points[i][1] = random.nextDouble() * 200;
+			heights[i] = random.nextDouble() * 20;
+		}
+
+		ArrayLatencyMatrix array = new ArrayLatencyMatrix(size, true);
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < i; j++) {
+				double dx = points[i][0] - points[j][0];
+				double dy = points[i][1] - points[j][1];
+				array.set(i, j, random.nextInt(20) == 0 ? 0 : (int) Math
+						.round(Math.sqrt(dx * dx + dy * dy) + heights[i]
+								+ heights[j]));
+			}
+		}
+
+		CoordinateLatencyMatrix coordinates = new CoordinateLatencyMatrix(
+				size, 3);
+		double fitted = coordinates.fit(array, 100, 16, new Random(45));
+		Assert.assertTrue("fit error " + fitted, fitted < 0.1);
+
+		double total = 0;
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			Assert.assertTrue(coordinates.height(i) >= 0);
+			Assert.assertEquals(0, coordinates.get(i, i));
+			for (int j = 0; j < i; j++) {
+				int measured = array.get(i, j);
+				Assert.assertEquals(coordinates.get(i, j), coordinates.get(j, i));
+				if (measured > 0) {
+					total += Math.abs(coordinates.get(i, j) - measured)
+							/ (double) measured;
+					count++;
+				}
+			}
+		}
+		Assert.assertTrue("mean error " + total / count, total / count < 0.1);
+	}
+
+	private MappedLatencyMatrix map(LatencyMatrix matrix, int quantum)
+			throws Exception {
+		File file = File.createTempFile("latencies", ".bin");
+		try {
+			MappedLatencyMatrix.write(matrix, quantum, file);
+			return new MappedLatencyMatrix(file);
+		} finally {
+			// Mappings outlive the file.
+			file.delete();
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package it.unitn.disi.churn.connectivity;
 
 import it.unitn.disi.churn.connectivity.tce.ActivationSampler;
+import it.unitn.disi.churn.connectivity.tce.BitParallelTCE;
 import it.unitn.disi.churn.connectivity.tce.CloudSim;
 import it.unitn.disi.churn.connectivity.tce.CloudTCE;
 import it.unitn.disi.churn.connectivity.tce.ComponentTracker;
@@ -78,6 +79,37 @@ public class SimulationTaskBuilder {
 		return this;
 	}
 
+	/**
+	 * Adds a single {@link BitParallelTCE} which measures end-to-end delays
+	 * from all of the given sources at once.
+	 */
+	public SimulationTaskBuilder addConnectivitySimulation(int[] sources,
+			final String ed) {
+		// BitParallelTCE identifies nodes with processes.
+		if (fContiguousMap != null) {
+			throw new UnsupportedOperationException(
+					"Cannot use node maps with bit-parallel simulations.");
+		}
+
+		final BitParallelTCE tce = new BitParallelTCE(fGraph, sources);
+		for (int i = 0; i < sources.length; i++) {
+			final int index = i;
+			addMetric(sources[i], new INodeMetric<Double>() {
+				@Override
+				public Object id() {
+					return ed;
+				}
+
+				@Override
+				public Double getMetric(int node) {
+					return tce.endToEndDelay(index, node);
+				}
+			});
+		}
+		addSim(tce, true);
+		return this;
+	}
+
 	public SimulationTaskBuilder addMultiConnectivitySimulation(int source,
 			final int repeats, IMetricAccumulator<Double> ed,
 			IMetricAccumulator<Double> rd, IProgressTracker tracker) {
@@ -0,0 +1,277 @@
+package it.unitn.disi.churn.connectivity.tce;
+
+import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.simulator.core.Binding;
+import it.unitn.disi.simulator.core.IEventObserver;
+import it.unitn.disi.simulator.core.INetwork;
+import it.unitn.disi.simulator.core.ISimulationEngine;
+import it.unitn.disi.simulator.core.RenewalProcess;
+import it.unitn.disi.simulator.core.Schedulable;
+
+import java.util.Arrays;
+
+/**
+ * Multi-source temporal connectivity experiment which tracks many sources in a
+ * single observer. Each node carries a reachability mask with one bit per
+ * source, packed in <code>long</code> words (64 sources per word), and reach
+ * information flows along the edges of the graph as bitwise ORs of these
+ * masks. Reach times are recorded only for bits that get newly set, and are
+ * the same as those that one {@link SimpleTCE} per source would produce.<BR>
+ * <BR>
+ * Like {@link IncrementalTCE}, this relies on the fact that every reached node
+ * that is up has all of its up neighbors reached (now for every source bit),
+ * so that only the node that comes up needs to be examined on each event: it
+ * pulls the bits of its up neighbors, and then pushes whatever is new to the
+ * rest of the graph through a BFS that carries only the bits that changed.
+ *
+ * @author giuliano
+ */
+@Binding
+public class BitParallelTCE implements IEventObserver {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int NONE = -1;
+
+	private final IndexedNeighborGraph fGraph;
+
+	private final int[] fSources;
+
+	/**
+	 * Source index hosted at each node, or {@link #NONE}.
+	 */
+	private final int[] fSourceOf;
+
+	/**
+	 * Number of <code>long</code> words per node mask.
+	 */
+	private final int fWords;
+
+	private final long[] fMask;
+
+	private final long[] fPending;
+
+	private final long[] fDelta;
+
+	private final boolean[] fQueued;
+
+	private final BFSQueue fQueue;
+
+	/**
+	 * First reach times, indexed by <code>node * sources + source</code>.
+	 */
+	private final double[] fReached;
+
+	private final boolean fBinding;
+
+	private long fReachedCount;
+
+	public BitParallelTCE(IndexedNeighborGraph graph, int[] sources) {
+		this(graph, sources, true);
+	}
+
+	/**
+	 * @param graph
+	 *            the graph over which to measure temporal connectivity.
+	 * @param sources
+	 *            the (distinct) nodes to use as sources.
+	 * @param binding
+	 *            whether this observer should unbind from the engine once all
+	 *            nodes have been reached from all sources.
+	 */
+	public BitParallelTCE(IndexedNeighborGraph graph, int[] sources,
+			boolean binding) {
+		fGraph = graph;
+		fSources = Arrays.copyOf(sources, sources.length);
+		fBinding = binding;
+
+		int size = graph.size();
+		fSourceOf = new int[size];
+		Arrays.fill(fSourceOf, NONE);
+		for (int i = 0; i < fSources.length; i++) {
+			if (fSourceOf[fSources[i]] != NONE) {
+				throw new IllegalArgumentException("Duplicate source "
+						+ fSources[i] + ".");
+			}
+			fSourceOf[fSources[i]] = i;
+		}
+
+		fWords = (fSources.length + Long.SIZE - 1) / Long.SIZE;
+		fMask = new long[size * fWords];
+		fPending = new long[size * fWords];
+		fDelta = new long[fWords];
+		fQueued = new boolean[size];
+		// Circular queue holds one element less than its capacity.
+		fQueue = new BFSQueue(size + 1);
+
+		fReached = new double[size * fSources.length];
+		Arrays.fill(fReached, Double.NaN);
+	}
+
+	// -------------------------------------------------------------------------
+
+	@Override
+	public void eventPerformed(ISimulationEngine engine,
+			Schedulable schedulable, double nextShift) {
+		RenewalProcess process = (RenewalProcess) schedulable;
+		if (!process.isUp()) {
+			return;
+		}
+
+		INetwork network = engine.network();
+		int node = process.id();
+		int base = node * fWords;
+
+		// Source logging in for the first time?
+		int source = fSourceOf[node];
+		if (source != NONE && !isReached(source, node)) {
+			reached(node, source >>> 6, 1L << source, engine);
+		}
+
+		// Pulls bits from up neighbors.
+		int degree = fGraph.degree(node);
+		for (int i = 0; i < degree; i++) {
+			int neighbor = fGraph.getNeighbor(node, i);
+			if (!isUp(neighbor, network)) {
+				continue;
+			}
+			int nBase = neighbor * fWords;
+			for (int w = 0; w < fWords; w++) {
+				long added = fMask[nBase + w] & ~fMask[base + w];
+				if (added != 0) {
+					reached(node, w, added, engine);
+				}
+			}
+		}
+
+		// Since the node was down, its neighbors may be missing any of its
+		// bits, and not just the ones it got now.
+		boolean any = false;
+		for (int w = 0; w < fWords; w++) {
+			fPending[base + w] = fMask[base + w];
+			any |= fMask[base + w] != 0;
+		}
+
+		if (any) {
+			enqueue(node);
+			propagate(network, engine);
+		}
+
+		if (fBinding && isDone()) {
+			engine.unbound(this);
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void propagate(INetwork network, ISimulationEngine engine) {
+		while (!fQueue.isEmpty()) {
+			int current = fQueue.removeFirst();
+			int base = current * fWords;
+			fQueued[current] = false;
+			for (int w = 0; w < fWords; w++) {
+				fDelta[w] = fPending[base + w];
+				fPending[base + w] = 0;
+			}
+
+			int degree = fGraph.degree(current);
+			for (int i = 0; i < degree; i++) {
+				int neighbor = fGraph.getNeighbor(current, i);
+				if (!isUp(neighbor, network)) {
+					continue;
+				}
+
+				int nBase = neighbor * fWords;
+				boolean changed = false;
+				for (int w = 0; w < fWords; w++) {
+					long added = fDelta[w] & ~fMask[nBase + w];
+					if (added != 0) {
+						reached(neighbor, w, added, engine);
+						fPending[nBase + w] |= added;
+						changed = true;
+					}
+				}
+
+				if (changed && !fQueued[neighbor]) {
+					enqueue(neighbor);
+				}
+			}
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void enqueue(int node) {
+		fQueued[node] = true;
+		fQueue.addLast(node);
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Sets the bits in <code>added</code> for a node, recording their reach
+	 * times.
+	 */
+	private void reached(int node, int word, long added,
+			ISimulationEngine engine) {
+		fMask[node * fWords + word] |= added;
+
+		double time = engine.clock().time();
+		int offset = node * fSources.length + word * Long.SIZE;
+		while (added != 0) {
+			fReached[offset + Long.numberOfTrailingZeros(added)] = time;
+			added &= added - 1;
+			fReachedCount++;
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	private boolean isUp(int node, INetwork network) {
+		return network.process(node).isUp();
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the number of sources tracked by this experiment.
+	 */
+	public int sources() {
+		return fSources.length;
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the node corresponding to a source index.
+	 */
+	public int source(int index) {
+		return fSources[index];
+	}
+
+	// -------------------------------------------------------------------------
+
+	public boolean isReached(int source, int node) {
+		return (fMask[node * fWords + (source >>> 6)] & (1L << source)) != 0;
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the delay between the instant in which a source first came up,
+	 *         and the instant in which a node got reached from it.
+	 */
+	public double endToEndDelay(int source, int node) {
+		int sources = fSources.length;
+		return fReached[node * sources + source]
+				- fReached[fSources[source] * sources + source];
+	}
+
+	// -------------------------------------------------------------------------
+
+	@Override
+	public boolean isDone() {
+		return fReachedCount == (long) fReached.length;
+	}
+
+}
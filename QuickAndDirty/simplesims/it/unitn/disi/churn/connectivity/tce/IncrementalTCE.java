@@ -0,0 +1,77 @@
+package it.unitn.disi.churn.connectivity.tce;
+
+import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.simulator.core.INetwork;
+import it.unitn.disi.simulator.core.ISimulationEngine;
+import it.unitn.disi.simulator.core.RenewalProcess;
+
+/**
+ * {@link SimpleTCE} variant which avoids rescanning the whole graph on every
+ * up-event.<BR>
+ * <BR>
+ * After {@link SimpleTCE} handles an event, every reached node that is up has
+ * all of its up neighbors reached. Down-events cannot break this, and an
+ * up-event can only break it around the node that just came up: either that
+ * node is reached and now has unreached up neighbors, or it is unreached and
+ * now has a reached up neighbor. It is therefore enough to search from that
+ * single node, which makes each event cost proportional to the nodes that get
+ * reached, instead of to the size of the graph. Reach times are the same as
+ * those of {@link SimpleTCE}.<BR>
+ * <BR>
+ * <b>Note:</b> nodes are identified with the processes that come up through
+ * {@link #node(RenewalProcess)}, so subclasses that map several nodes into a
+ * single process (see {@link NodeMappedTCE}) cannot use this class.
+ *
+ * @author giuliano
+ */
+public class IncrementalTCE extends SimpleTCE {
+
+	private static final long serialVersionUID = 1L;
+
+	public IncrementalTCE(IndexedNeighborGraph graph, int source) {
+		super(graph, source);
+	}
+
+	@Override
+	protected void recomputeReachabilities(RenewalProcess process,
+			ISimulationEngine engine) {
+
+		INetwork network = engine.network();
+
+		// Source being reached for the first time?
+		if (!isReached(source())) {
+			if (isSource(process, network) && process.isUp()) {
+				sourceReached(process, engine);
+				explore(source(), engine);
+			}
+			return;
+		}
+
+		int node = node(process);
+		if (!isReached(node)) {
+			int degree = fGraph.degree(node);
+			for (int i = 0; i < degree; i++) {
+				int neighbor = fGraph.getNeighbor(node, i);
+				if (isReached(neighbor) && isUp(neighbor, network)) {
+					reached(neighbor, node, engine);
+					break;
+				}
+			}
+
+			// Still isolated from the reached set.
+			if (!isReached(node)) {
+				return;
+			}
+		}
+
+		explore(node, engine);
+	}
+
+	/**
+	 * @return the graph node corresponding to a process.
+	 */
+	protected int node(RenewalProcess process) {
+		return process.id();
+	}
+
+}
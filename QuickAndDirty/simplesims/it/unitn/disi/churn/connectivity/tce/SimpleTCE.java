@@ -62,7 +62,11 @@ public class SimpleTCE implements IEventObserver {
 		return !Double.isNaN(fReached[node]);
 	}
 
-	private void recomputeReachabilities(RenewalProcess process,
+	/**
+	 * Called when a process comes up. Reaches every node that became reachable
+	 * as a consequence.
+	 */
+	protected void recomputeReachabilities(RenewalProcess process,
 			ISimulationEngine engine) {
 
 		INetwork network = engine.network();
@@ -82,12 +86,20 @@ public class SimpleTCE implements IEventObserver {
 			// We start graph searches from all nodes that have
 			// unvisited neighbors.
 			if (!fDone[i] && isReached(i) && isUp(i, network)) {
-				fQueue.addLast(i);
-				BFSExplore(engine);
+				explore(i, engine);
 			}
 		}
 	}
 
+	/**
+	 * Runs a BFS from a reached node, reaching all unreached nodes that are up
+	 * and can be reached from it through paths of nodes that are up.
+	 */
+	protected void explore(int node, ISimulationEngine engine) {
+		fQueue.addLast(node);
+		BFSExplore(engine);
+	}
+
 	protected void sourceReached(RenewalProcess process,
 			ISimulationEngine engine) {
 		reached(fSource, fSource, engine);
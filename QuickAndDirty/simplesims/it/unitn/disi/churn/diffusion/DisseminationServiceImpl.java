@@ -180,9 +180,11 @@ public class DisseminationServiceImpl implements ICyclicProtocol,
 		}
 		fPushProtocols[NO_UPDATE].nextCycle(engine, process);
 
-		// If dissemination is done, we're done.
+		// If dissemination is done, we're done (unless a quench is still
+		// being pushed).
 		if (fPushProtocols[UPDATE].getState() == State.DONE) {
-			fState = fOneShot ? State.DONE : State.IDLE;
+			fState = fOneShot ? State.DONE
+					: (isQuiescent(NO_UPDATE) ? State.IDLE : State.WAITING);
 		}
 
 		// Otherwise we're either active...
@@ -193,9 +195,26 @@ public class DisseminationServiceImpl implements ICyclicProtocol,
 
 		// ... or waiting. Note that if the P2P network is disabled, we're never
 		// active. So we're either done, or waiting, and the protocol doesn't
-		// run.
+		// run. If neither push protocol has anything to do, we're idle, and
+		// will be woken up by pushStateChanged.
 		else {
-			fState = State.WAITING;
+			fState = isQuiescent(UPDATE) && isQuiescent(NO_UPDATE) ? State.IDLE
+					: State.WAITING;
+		}
+	}
+
+	private boolean isQuiescent(int protocol) {
+		State state = fPushProtocols[protocol].getState();
+		return state == State.IDLE || state == State.DONE;
+	}
+
+	/**
+	 * Makes sure we get cycled when one of our push protocols gets something
+	 * to do.
+	 */
+	private void pushStateChanged(State state) {
+		if (fRunner != null && state != State.IDLE && state != State.DONE) {
+			fRunner.schedule(fProcess.id());
 		}
 	}
 
@@ -362,6 +381,11 @@ public class DisseminationServiceImpl implements ICyclicProtocol,
 			DisseminationServiceImpl.this.messageReceived(sender,
 					fProcess.id(), (HFloodMMsg) message(), clock, flags);
 		}
+
+		@Override
+		protected void stateChanged(State state) {
+			pushStateChanged(state);
+		}
 	}
 
 	class PullExchange extends Schedulable {
@@ -6,6 +6,7 @@ import it.unitn.disi.simulator.core.IClockData;
 import it.unitn.disi.simulator.core.INetwork;
 import it.unitn.disi.simulator.core.IProcess;
 import it.unitn.disi.simulator.core.ISimulationEngine;
+import it.unitn.disi.simulator.protocol.CyclicProtocolRunner;
 import it.unitn.disi.simulator.protocol.ICyclicProtocol;
 import it.unitn.disi.utils.AbstractIDMapper;
 import it.unitn.disi.utils.IDMapper;
@@ -58,6 +59,8 @@ public class HFloodSM implements ICyclicProtocol {
 
 	private final double fTimeout;
 
+	private CyclicProtocolRunner<? extends ICyclicProtocol> fRunner;
+
 	// -------------------------------------------------------------------------
 	// Protocol state.
 	// -------------------------------------------------------------------------
@@ -171,6 +174,14 @@ public class HFloodSM implements ICyclicProtocol {
 				|| (flags & ANTIENTROPY_PUSH) != 0;
 	}
 
+	/**
+	 * Sets the {@link CyclicProtocolRunner} to be told of state changes, for
+	 * runners which track them.
+	 */
+	public void setRunner(CyclicProtocolRunner<? extends ICyclicProtocol> runner) {
+		fRunner = runner;
+	}
+
 	public IndexedNeighborGraph graph() {
 		return fGraph;
 	}
@@ -290,7 +301,20 @@ public class HFloodSM implements ICyclicProtocol {
 	}
 
 	private void changeState(State state) {
+		if (fState == state) {
+			return;
+		}
 		fState = state;
+		stateChanged(state);
+	}
+
+	/**
+	 * Called whenever the state of this protocol changes.
+	 */
+	protected void stateChanged(State state) {
+		if (fRunner != null) {
+			fRunner.stateChanged(id(), state);
+		}
 	}
 
 	private void checkDone() {
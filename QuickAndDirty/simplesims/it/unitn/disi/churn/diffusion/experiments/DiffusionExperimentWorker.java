@@ -28,8 +28,7 @@ import it.unitn.disi.simulator.measure.SumAccumulation;
 import it.unitn.disi.simulator.protocol.FixedProcess;
 import it.unitn.disi.utils.MiscUtils;
 import it.unitn.disi.utils.collections.Pair;
-import it.unitn.disi.utils.streams.PrefixedWriter;
-import it.unitn.disi.utils.tabular.TableWriter;
+import it.unitn.disi.utils.tabular.ITableWriter;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -163,17 +162,17 @@ public class DiffusionExperimentWorker extends Worker {
 	// -------------------------------------------------------------------------
 	// Reflex that writers have an inflexible API.
 
-	private TableWriter fLatencyWriter;
+	private ITableWriter fLatencyWriter;
 
-	private TableWriter fP2PCostWriter;
+	private ITableWriter fP2PCostWriter;
 
-	private TableWriter fBdwDistributionWriter;
+	private ITableWriter fBdwDistributionWriter;
 
-	private TableWriter fCloudStatWriter;
+	private ITableWriter fCloudStatWriter;
 
-	private TableWriter fSummaryWriter;
+	private ITableWriter fSummaryWriter;
 
-	private TableWriter fCoreTracker;
+	private ITableWriter fCoreTracker;
 
 	// -------------------------------------------------------------------------
 
@@ -199,12 +198,11 @@ public class DiffusionExperimentWorker extends Worker {
 
 	protected void initialize() throws Exception {
 
-		fLatencyWriter = new TableWriter(new PrefixedWriter("ES:", System.out),
-				"id", "source", "target", "edsumd", "edsum", "edsumu",
-				"rdsumd", "rdsum", "rdsumu", "size", "fixed", "exps", "msgs");
+		fLatencyWriter = resultWriter("ES", "id", "source", "target", "edsumd",
+				"edsum", "edsumu", "rdsumd", "rdsum", "rdsumu", "size", "fixed",
+				"exps", "msgs");
 
-		fP2PCostWriter = new TableWriter(new PrefixedWriter("PC:", System.out),
-				"id",
+		fP2PCostWriter = resultWriter("PC", "id",
 				"source",
 				"target",
 
@@ -220,22 +218,16 @@ public class DiffusionExperimentWorker extends Worker {
 				// Bin counts
 				"uptime", "upbins", "totalbins");
 
-		fBdwDistributionWriter = new TableWriter(new PrefixedWriter("BDW:",
-				System.out), "id", "source", "target", "bdw", "ae", "hf",
-				"tot", "uptime");
+		fBdwDistributionWriter = resultWriter("BDW", "id", "source", "target",
+				"bdw", "ae", "hf", "tot", "uptime");
 
-		fCloudStatWriter = new TableWriter(
-				new PrefixedWriter("CS:", System.out), "id", "source",
-				"target", "totup", "totnup", "totime", "updup", "updnup",
-				"updtime");
+		fCloudStatWriter = resultWriter("CS", "id", "source", "target",
+				"totup", "totnup", "totime", "updup", "updnup", "updtime");
 
-		fSummaryWriter = new TableWriter(
-				new PrefixedWriter("SUM:", System.out), "id", "rdavg", "rdsum",
-				"size");
+		fSummaryWriter = resultWriter("SUM", "id", "rdavg", "rdsum", "size");
 
-		fCoreTracker = fTrackCores ? new TableWriter(new PrefixedWriter("COR:",
-				System.out), "id", "source", "rdavg", "rdsum", "edavg",
-				"edsum", "size", "coresize") : null;
+		fCoreTracker = fTrackCores ? resultWriter("COR", "id", "source",
+				"rdavg", "rdsum", "edavg", "edsum", "size", "coresize") : null;
 
 		System.err.println("-- Simulation seeds are "
 				+ (fFixSeed ? "fixed" : "variable") + ".");
@@ -635,7 +627,7 @@ public class DiffusionExperimentWorker extends Worker {
 	}
 
 	@SuppressWarnings("unchecked")
-	private void printP2PCosts(TableWriter writer, ExperimentData data,
+	private void printP2PCosts(ITableWriter writer, ExperimentData data,
 			MetricsCollector metrics) {
 		INodeMetric<Double> hfloodUpdatesRecv = metrics
 				.getMetric("msg.hflood.rec.up");
@@ -771,7 +763,7 @@ public class DiffusionExperimentWorker extends Worker {
 	}
 
 	@SuppressWarnings("unchecked")
-	private void printCloudAcessStatistics(String prefix, TableWriter writer,
+	private void printCloudAcessStatistics(String prefix, ITableWriter writer,
 			ExperimentData data, MetricsCollector metrics) {
 
 		INodeMetric<Double> totup = metrics.getMetric(prefix(prefix,
@@ -808,7 +800,7 @@ public class DiffusionExperimentWorker extends Worker {
 		}
 	}
 
-	private void printLatencies(String prefix, TableWriter writer,
+	private void printLatencies(String prefix, ITableWriter writer,
 			ExperimentData data, MetricsCollector metrics) {
 
 		AvgAccumulation ed = (AvgAccumulation) metrics.getMetric(prefix(prefix,
@@ -141,7 +141,7 @@ public class CloudSimulationBuilder {
 		// protocols.
 		if (dissemination) {
 			runner = new PausingCyclicProtocolRunner<DisseminationServiceImpl>(
-					reference, SECOND, 1, pid);
+					reference, SECOND, 1, pid, true);
 			builder.addObserver(runner, 1, true, true);
 			builder.addObserver(runner.networkObserver(),
 					IProcess.PROCESS_SCHEDULABLE_TYPE, false, true);
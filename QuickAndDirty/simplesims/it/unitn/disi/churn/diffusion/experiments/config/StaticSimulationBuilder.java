@@ -53,7 +53,10 @@ public class StaticSimulationBuilder {
 				new LiveTransformer()), processes, selectors);
 
 		CyclicProtocolRunner<HFloodSM> cpr = new CyclicProtocolRunner<HFloodSM>(
-				HFLOOD_PID);
+				HFLOOD_PID, true);
+		for (HFloodSM protocol : fProtocols) {
+			protocol.setRunner(cpr);
+		}
 
 		// Cyclic protocol observer.
 		builder.addObserver(cpr, 1, true, true);
@@ -0,0 +1,120 @@
+package it.unitn.disi.churn.connectivity.tce;
+
+import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
+import it.unitn.disi.simulator.core.EngineBuilder;
+import it.unitn.disi.simulator.core.IProcess;
+import it.unitn.disi.simulator.core.IProcess.State;
+import it.unitn.disi.simulator.core.RenewalProcess;
+import it.unitn.disi.simulator.core.Schedulable;
+import it.unitn.disi.simulator.random.Exponential;
+import it.unitn.disi.simulator.random.UniformDistribution;
+import it.unitn.disi.simulator.util.Anchor;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class BitParallelTCETest {
+
+	@Test
+	public void testMatchesSimpleTCE() {
+		Random random = new Random(42);
+		for (int i = 0; i < 50; i++) {
+			// Goes past 64 sources to exercise multi-word masks.
+			int size = 2 + random.nextInt(150);
+			compare(randomGraph(size, random.nextDouble() * 0.1, random),
+					random);
+		}
+	}
+
+	@Test
+	public void testBindsUntilAllReached() {
+		Random random = new Random(43);
+		int[][] adjacency = new int[][] { { 1 }, { 0, 2 }, { 1, 3 }, { 2 } };
+		IndexedNeighborGraph graph = LightweightStaticGraph
+				.fromAdjacency(adjacency);
+		BitParallelTCE tce = new BitParallelTCE(graph, new int[] { 0, 3 });
+
+		EngineBuilder builder = new EngineBuilder();
+		addProcesses(builder, graph, random);
+		builder.addObserver(tce, IProcess.PROCESS_SCHEDULABLE_TYPE, true,
+				true);
+		builder.engine().run();
+
+		Assert.assertTrue(tce.isDone());
+		for (int i = 0; i < graph.size(); i++) {
+			Assert.assertTrue(tce.isReached(0, i));
+			Assert.assertTrue(tce.isReached(1, i));
+		}
+	}
+
+	private void compare(IndexedNeighborGraph graph, Random random) {
+		int[] sources = new int[Math.min(graph.size(), 70)];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = i;
+		}
+
+		BitParallelTCE parallel = new BitParallelTCE(graph, sources, false);
+		SimpleTCE[] reference = new SimpleTCE[sources.length];
+
+		EngineBuilder builder = new EngineBuilder();
+		addProcesses(builder, graph, random);
+		builder.addObserver(parallel, IProcess.PROCESS_SCHEDULABLE_TYPE,
+				false, true);
+		for (int i = 0; i < sources.length; i++) {
+			reference[i] = new SimpleTCE(graph, sources[i]);
+			builder.addObserver(reference[i],
+					IProcess.PROCESS_SCHEDULABLE_TYPE, false, true);
+		}
+		builder.preschedule(new Anchor(random.nextDouble() * 20,
+				Schedulable.UNTYPED));
+		builder.setExtraPermits(1);
+		builder.engine().run();
+
+		for (int i = 0; i < sources.length; i++) {
+			for (int j = 0; j < graph.size(); j++) {
+				Assert.assertEquals(reference[i].isReached(j),
+						parallel.isReached(i, j));
+				if (reference[i].isReached(j)) {
+					Assert.assertEquals(reference[i].endToEndDelay(j),
+							parallel.endToEndDelay(i, j));
+				}
+			}
+		}
+	}
+
+	private void addProcesses(EngineBuilder builder,
+			IndexedNeighborGraph graph, Random random) {
+		UniformDistribution uniform = new UniformDistribution(random);
+		for (int i = 0; i < graph.size(); i++) {
+			builder.addProcess(new RenewalProcess(i, new Exponential(
+					0.5 + random.nextDouble() * 4, uniform), new Exponential(
+					0.5 + random.nextDouble() * 4, uniform), State.down));
+		}
+	}
+
+	private IndexedNeighborGraph randomGraph(int size, double density,
+			Random random) {
+		int[][] adjacency = new int[size][size];
+		int[] degrees = new int[size];
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				if (random.nextDouble() < density) {
+					adjacency[i][degrees[i]++] = j;
+					adjacency[j][degrees[j]++] = i;
+				}
+			}
+		}
+
+		for (int i = 0; i < size; i++) {
+			int[] neighbors = new int[degrees[i]];
+			System.arraycopy(adjacency[i], 0, neighbors, 0, degrees[i]);
+			adjacency[i] = neighbors;
+		}
+
+		return LightweightStaticGraph.fromAdjacency(adjacency);
+	}
+}
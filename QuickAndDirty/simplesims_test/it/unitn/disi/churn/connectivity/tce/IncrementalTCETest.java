@@ -0,0 +1,100 @@
+package it.unitn.disi.churn.connectivity.tce;
+
+import it.unitn.disi.graph.IndexedNeighborGraph;
+import it.unitn.disi.graph.lightweight.LightweightStaticGraph;
+import it.unitn.disi.simulator.core.EngineBuilder;
+import it.unitn.disi.simulator.core.IProcess;
+import it.unitn.disi.simulator.core.IProcess.State;
+import it.unitn.disi.simulator.core.RenewalProcess;
+import it.unitn.disi.simulator.core.Schedulable;
+import it.unitn.disi.simulator.random.Exponential;
+import it.unitn.disi.simulator.random.IDistribution;
+import it.unitn.disi.simulator.random.UniformDistribution;
+import it.unitn.disi.simulator.util.Anchor;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class IncrementalTCETest {
+
+	private static final int GRAPHS = 200;
+
+	@Test
+	public void testMatchesSimpleTCE() {
+		Random random = new Random(42);
+		for (int i = 0; i < GRAPHS; i++) {
+			int size = 2 + random.nextInt(60);
+			double density = random.nextDouble() * 0.3;
+			compare(randomGraph(size, density, random), random);
+		}
+	}
+
+	private void compare(IndexedNeighborGraph graph, Random random) {
+		int source = random.nextInt(graph.size());
+		SimpleTCE reference = new SimpleTCE(graph, source);
+		IncrementalTCE incremental = new IncrementalTCE(graph, source);
+
+		UniformDistribution uniform = new UniformDistribution(random);
+		EngineBuilder builder = new EngineBuilder();
+		for (int i = 0; i < graph.size(); i++) {
+			IDistribution up = new Exponential(0.5 + random.nextDouble() * 4,
+					uniform);
+			IDistribution down = new Exponential(
+					0.5 + random.nextDouble() * 4, uniform);
+			builder.addProcess(new RenewalProcess(i, up, down, random
+					.nextBoolean() ? State.up : State.down));
+		}
+
+		builder.addObserver(reference, IProcess.PROCESS_SCHEDULABLE_TYPE,
+				false, true);
+		builder.addObserver(incremental, IProcess.PROCESS_SCHEDULABLE_TYPE,
+				false, true);
+		builder.preschedule(new Anchor(random.nextDouble() * 20,
+				Schedulable.UNTYPED));
+		builder.setExtraPermits(1);
+		builder.setBurnin(random.nextDouble());
+		builder.engine().run();
+
+		Assert.assertEquals(reference.isDone(), incremental.isDone());
+		for (int i = 0; i < graph.size(); i++) {
+			Assert.assertEquals(reference.isReached(i),
+					incremental.isReached(i));
+			if (reference.isReached(i)) {
+				Assert.assertEquals(reference.endToEndDelay(i),
+						incremental.endToEndDelay(i));
+			}
+		}
+	}
+
+	private IndexedNeighborGraph randomGraph(int size, double density,
+			Random random) {
+		ArrayList<ArrayList<Integer>> adjacencies = new ArrayList<ArrayList<Integer>>();
+		for (int i = 0; i < size; i++) {
+			adjacencies.add(new ArrayList<Integer>());
+		}
+
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				if (random.nextDouble() < density) {
+					adjacencies.get(i).add(j);
+					adjacencies.get(j).add(i);
+				}
+			}
+		}
+
+		int[][] adjacency = new int[size][];
+		for (int i = 0; i < size; i++) {
+			ArrayList<Integer> list = adjacencies.get(i);
+			adjacency[i] = new int[list.size()];
+			for (int j = 0; j < adjacency[i].length; j++) {
+				adjacency[i][j] = list.get(j);
+			}
+		}
+
+		return LightweightStaticGraph.fromAdjacency(adjacency);
+	}
+}
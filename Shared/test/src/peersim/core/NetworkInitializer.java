@@ -2,8 +2,9 @@ package peersim.core;
 
 public class NetworkInitializer {
 	public static void createNodeArray() {
-		if (Network.node == null) {
-			Network.node = new Node[0];
+		SimulationContext context = SimulationContext.current();
+		if (context.fNodes == null) {
+			context.fNodes = new Node[0];
 		}
 	}
 }
@@ -29,4 +29,9 @@ public class LocalScheduler implements ISchedulerClient {
 	public int size() {
 		return fSchedule.size();
 	}
+
+	@Override
+	public void experimentDone(int id) {
+		// Nothing to report.
+	}
 }
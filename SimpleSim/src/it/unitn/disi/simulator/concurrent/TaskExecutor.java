@@ -126,6 +126,20 @@ public class TaskExecutor {
 		start(null, taskBlock);
 	}
 
+	/**
+	 * Grows the current block by a number of tasks, which can then be
+	 * submitted and consumed as if they had been part of it from the start.
+	 * This allows a block to be kept open while new work comes in.
+	 *
+	 * @param tasks
+	 *            the number of tasks to add to the block.
+	 */
+	public synchronized void expand(int tasks) {
+		fTasks += tasks;
+		fConsumed += tasks;
+		fBlockSize += tasks;
+	}
+
 	public void submit(Callable<? extends Object> callable)
 			throws InterruptedException {
 		Semaphore sema;
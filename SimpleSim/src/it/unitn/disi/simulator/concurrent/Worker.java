@@ -1,7 +1,20 @@
 package it.unitn.disi.simulator.concurrent;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -16,11 +29,30 @@ import it.unitn.disi.distsim.scheduler.RemoteSchedulerClient;
 import it.unitn.disi.distsim.scheduler.generators.IScheduleIterator;
 import it.unitn.disi.utils.MiscUtils;
 import it.unitn.disi.utils.collections.Pair;
+import it.unitn.disi.utils.logging.IProgressTracker;
+import it.unitn.disi.utils.logging.Progress;
 import it.unitn.disi.utils.logging.ProgressTracker;
+import it.unitn.disi.utils.streams.PrefixedWriter;
+import it.unitn.disi.utils.tabular.ColumnarTableReader;
+import it.unitn.disi.utils.tabular.ColumnarTableWriter;
+import it.unitn.disi.utils.tabular.ITableWriter;
+import it.unitn.disi.utils.tabular.TableWriter;
 import peersim.config.Attribute;
 import peersim.config.IResolver;
 import peersim.config.ObjectCreator;
 
+/**
+ * Base class for workers that run repetitions of simulation experiments over
+ * several cores. Experiments are run as a pipeline: while the repetitions of
+ * a row are running, the next row is loaded in the background, and the tasks
+ * of up to <code>rows_in_flight</code> rows share the same
+ * {@link TaskExecutor}, so that cores which would otherwise idle while a
+ * row loads, or during the last repetitions of a row, pick up work from the
+ * next one. Each row keeps its own aggregate and checkpoint, and results are
+ * still output one row at a time, in schedule order.
+ * 
+ * @author giuliano
+ */
 public abstract class Worker implements Runnable, Application, IWorker {
 
 	public static final String PROP_TASK_DATA = "task.data";
@@ -51,9 +83,59 @@ public abstract class Worker implements Runnable, Application, IWorker {
 	@Attribute("cores")
 	protected int fCores;
 
+	/**
+	 * How many experiment rows can have tasks running at the same time.
+	 */
+	@Attribute(value = "rows_in_flight", defaultValue = "2")
+	protected int fRowsInFlight;
+
+	/**
+	 * Format for the tables created with {@link #resultWriter}: either
+	 * <code>text</code>, for prefixed text tables on the standard output, or
+	 * <code>columnar</code>, for {@link ColumnarTableWriter} files under
+	 * <code>output.folder</code>.
+	 */
+	@Attribute(value = "output.format", defaultValue = "text")
+	protected String fOutputFormat;
+
+	@Attribute(value = "output.folder", defaultValue = ".")
+	protected String fOutputFolder;
+
+	/**
+	 * Identifies the files this worker writes columnar tables to. Defaults to
+	 * the name of the JVM (<code>pid@host</code>), so that workers sharing
+	 * <code>output.folder</code> write to different files.
+	 */
+	@Attribute(value = "output.id", defaultValue = Attribute.VALUE_NULL)
+	protected String fOutputId;
+
+	/**
+	 * Writers created with {@link #resultWriter}, flushed after each row.
+	 */
+	private final ArrayList<Flushable> fWriters = new ArrayList<Flushable>();
+
 	private final Lock fMutex;
 
-	private volatile SimulationState fState;
+	/**
+	 * Rows which have been admitted and not yet output, in schedule order.
+	 * Guarded by {@link #fMutex}.
+	 */
+	private final ArrayList<Row> fRows = new ArrayList<Row>();
+
+	/**
+	 * Admitted rows, to be output by the worker thread.
+	 */
+	private final LinkedBlockingQueue<Row> fAdmitted = new LinkedBlockingQueue<Row>();
+
+	/**
+	 * Admitted rows, to be submitted by the submitter thread.
+	 */
+	private final LinkedBlockingQueue<Row> fSubmissions = new LinkedBlockingQueue<Row>();
+
+	/**
+	 * Bounds the number of rows in flight.
+	 */
+	private Semaphore fSlots;
 
 	private final Thread fCheckpoint;
 
@@ -106,7 +188,13 @@ public abstract class Worker implements Runnable, Application, IWorker {
 				throw MiscUtils.nestRuntimeException(ex);
 			}
 
-			fClient = new RemoteSchedulerClient(fControl, this);
+			// Rows are requested ahead of being run, so completion has to be
+			// reported explicitly.
+			RemoteSchedulerClient client = new RemoteSchedulerClient(fControl,
+					this, true);
+			ObjectCreator.fieldInject(RemoteSchedulerClient.class, client, "",
+					resolver);
+			fClient = client;
 		}
 
 		// Independent worker.
@@ -124,6 +212,19 @@ public abstract class Worker implements Runnable, Application, IWorker {
 		fStatus = new Properties();
 	}
 
+	/**
+	 * Creates an independent worker which runs the experiments handed out by
+	 * a given {@link ISchedulerClient}, without checkpoints.
+	 */
+	protected Worker(ISchedulerClient client) {
+		fMutex = new ReentrantLock();
+		fControl = null;
+		fCheckpoint = null;
+		fChkpClient = null;
+		fClient = client;
+		fStatus = new Properties();
+	}
+
 	@Override
 	public void run() {
 		fExecutor = new TaskExecutor(fCores, fCores + 1);
@@ -137,99 +238,198 @@ public abstract class Worker implements Runnable, Application, IWorker {
 			// TODO add worker-master error reporting code here.
 		} finally {
 			stopCheckpointing();
+			closeWriters();
 		}
 	}
 
 	private void run0() throws Exception {
-		IScheduleIterator schedule = schedule();
-		Integer row;
-		while ((row = (Integer) schedule.nextIfAvailable()) != IScheduleIterator.DONE) {
-			Serializable experimentData = load(row);
-			Object results = runTasks(row, experimentData);
-			outputResults(results);
-			taskDone();
+		fSlots = new Semaphore(Math.max(1, fRowsInFlight));
+		fExecutor.start(null, 0);
+
+		Thread loader = new Thread(new RowLoader(schedule()), "row loader");
+		Thread submitter = new Thread(new Submitter(), "task submitter");
+		loader.start();
+		submitter.start();
+
+		try {
+			Row row;
+			while ((row = fAdmitted.take()) != Row.END) {
+				if (row.error != null) {
+					throw row.error;
+				}
+				Object results = runTasks(row);
+				outputResults(results);
+				flushWriters();
+				taskDone(row);
+			}
+		} finally {
+			loader.interrupt();
+			submitter.interrupt();
 		}
 	}
 
-	private IScheduleIterator schedule() {
-		return fClient.iterator();
+	/**
+	 * Creates a writer for a table of results, in the format given by
+	 * <code>output.format</code>. Text tables go to the standard output, with
+	 * each line prefixed by <code>prefix:</code>. Columnar tables go to
+	 * <code>prefix-id.tcol</code> under <code>output.folder</code>, where
+	 * <code>id</code> is <code>output.id</code>. They are appended to, so
+	 * that a worker restarted with the same <code>output.id</code> keeps the
+	 * results it has already written, after dropping whatever block a crash
+	 * left half-written.<BR>
+	 * <BR>
+	 * Either way, the results of each row are written out before the row is
+	 * reported done, so that rows the scheduler takes as done are never lost.
+	 * Columnar writers therefore end their block after each row.
+	 */
+	protected ITableWriter resultWriter(String prefix, String... fields)
+			throws IOException {
+		if (fOutputFormat.equals("text")) {
+			TableWriter writer = new TableWriter(new PrefixedWriter(prefix
+					+ ":", System.out), fields);
+			fWriters.add(writer);
+			return writer;
+		} else if (fOutputFormat.equals("columnar")) {
+			String id = fOutputId != null ? fOutputId : ManagementFactory
+					.getRuntimeMXBean().getName();
+			File output = new File(fOutputFolder, prefix + "-" + id + ".tcol");
+			truncateTorn(output);
+			ColumnarTableWriter writer = new ColumnarTableWriter(
+					new BufferedOutputStream(new FileOutputStream(output, true)),
+					fields);
+			fWriters.add(writer);
+			return writer;
+		}
+
+		throw new IllegalArgumentException("Unknown output format "
+				+ fOutputFormat + ".");
 	}
 
-	private Object runTasks(final int id, final Serializable data)
-			throws Exception {
+	/**
+	 * Truncates a columnar table to its last complete block, so that what a
+	 * crashed worker left half-written does not hide the sections appended
+	 * after it.
+	 */
+	private void truncateTorn(File output) throws IOException {
+		if (!output.exists()) {
+			return;
+		}
+		long complete = ColumnarTableReader.completeLength(output);
+		if (complete == output.length()) {
+			return;
+		}
+		fLogger.warn("Dropping " + (output.length() - complete)
+				+ " bytes of incomplete results from " + output + ".");
+		RandomAccessFile file = new RandomAccessFile(output, "rw");
+		try {
+			file.setLength(complete);
+		} finally {
+			file.close();
+		}
+	}
 
-		startTask(id, data);
+	private void flushWriters() throws IOException {
+		for (Flushable writer : fWriters) {
+			if (writer instanceof ColumnarTableWriter) {
+				((ColumnarTableWriter) writer).endBlock();
+			} else {
+				writer.flush();
+			}
+		}
+	}
+
+	private void closeWriters() {
+		for (Flushable writer : fWriters) {
+			try {
+				if (writer instanceof Closeable) {
+					((Closeable) writer).close();
+				} else {
+					writer.flush();
+				}
+			} catch (IOException ex) {
+				fLogger.error("Error closing result writer.", ex);
+			}
+		}
+		fWriters.clear();
+	}
 
-		final int iterations = fRepeat - fState.iteration;
+	private IScheduleIterator schedule() {
+		return fClient.iterator();
+	}
 
-		fExecutor.start(quiet(id, data) ? null : label(id, data), iterations);
+	/**
+	 * Consumes results until a row is complete. Results for rows admitted
+	 * after it are aggregated as well, as they come.
+	 */
+	private Object runTasks(Row row) throws Exception {
+		IProgressTracker progress = quiet(row.id, row.data) ? Progress
+				.nullTracker() : Progress.newTracker(label(row.id, row.data),
+				row.iterations);
 
 		// Publishes the current progress of this worker as a property that
 		// can be consumed by remote clients.
-		StatusTracker tracker = new StatusTracker(taskTitle(data), iterations);
-		tracker.startTask();
+		StatusTracker tracker = new StatusTracker(taskTitle(row.data),
+				row.iterations);
 
-		// Thread that submits jobs.
-		Thread submitter = new Thread(new Runnable() {
-			@Override
-			public void run() {
-				for (int i = 0; i < iterations && !Thread.interrupted(); i++) {
-					try {
-						SimulationTask sTask = createTask(id, data);
-						fExecutor.submit(sTask);
-					} catch (InterruptedException e) {
-						break;
-					} catch (IllegalStateException e) {
-						// We might get this when the batch is suspended.
-						break;
-					} catch (Exception ex) {
-						fLogger.error(
-								"Problem creating/submitting task. Stopping"
-										+ " submission thread.", ex);
-						fExecutor.cancelBatchWithException(ex);
-					}
-				}
+		progress.startTask();
+		tracker.startTask();
+		progress.tick(row.received);
+		tracker.tick(row.received);
+
+		while (!row.done) {
+			Row owner = consume();
+			if (owner == row) {
+				progress.tick();
+				tracker.tick();
 			}
-		}, "task submitter");
+		}
 
-		submitter.start();
+		fCompleted++;
+		progress.done();
+		tracker.done();
 
-		// Consumes results as they become available.
-		for (int i = 0; i < iterations; i++) {
-			SimulationTask task = getTask(fExecutor);
-			tracker.tick();
-			if (task == null) {
-				continue;
-			}
+		return row.state.aggregate;
+	}
+
+	/**
+	 * Consumes the next result, and aggregates it into its row.
+	 * 
+	 * @return the row the result was aggregated into, or <code>null</code> if
+	 *         it was discarded.
+	 */
+	private Row consume() throws Exception {
+		RowTask rTask = getTask(fExecutor);
+		if (rTask == null) {
+			return null;
+		}
+
+		// Results of rows which got precise enough are discarded.
+		Row row = rTask.fRow;
+		if (row.done) {
+			return null;
+		}
 
-			// Locks the aggregate state so that it cannot be checkpointed
-			// while we change it.
-			fMutex.lock();
-			aggregate(fState.aggregate, i, task);
+		// Locks the aggregate state so that it cannot be checkpointed
+		// while we change it.
+		fMutex.lock();
+		try {
+			aggregate(row.state.aggregate, row.received++, rTask.fTask);
 
 			// If the result aggregate is "precise" enough, stop running
-			// experiments.
-			if (isPreciseEnough(fState.aggregate)) {
-				submitter.interrupt();
-				fMutex.unlock();
-				fExecutor.cancelBatch();
-				try {
-					submitter.join();
-				} catch (InterruptedException e) {
-					// Don't care.
-				}
-				break;
+			// experiments for this row. Its tasks which have not yet started
+			// will be skipped.
+			if (isPreciseEnough(row.state.aggregate)) {
+				row.done = true;
+			} else {
+				row.state.iteration++;
+				row.done = row.received == row.iterations;
 			}
-
-			fState.iteration++;
+		} finally {
 			fMutex.unlock();
-			updateTaskStatistics();
 		}
 
-		fCompleted++;
-		tracker.done();
-
-		return fState.aggregate;
+		updateTaskStatistics();
+		return row;
 	}
 
 	private void stopCheckpointing() {
@@ -255,7 +455,7 @@ public abstract class Worker implements Runnable, Application, IWorker {
 		updateStatus(PROP_TASK_STATS, sbuffer.toString());
 	}
 
-	private SimulationTask getTask(TaskExecutor executor) throws Exception {
+	private RowTask getTask(TaskExecutor executor) throws Exception {
 		Object value;
 		try {
 			value = executor.consume();
@@ -263,8 +463,12 @@ public abstract class Worker implements Runnable, Application, IWorker {
 			return null;
 		}
 
-		if (value instanceof SimulationTask) {
-			return (SimulationTask) value;
+		if (value instanceof RowTask) {
+			RowTask rTask = (RowTask) value;
+			if (rTask.fError == null) {
+				return rTask.fTask == null ? null : rTask;
+			}
+			value = rTask.fError;
 		}
 
 		if (value instanceof SimulationTaskException) {
@@ -283,34 +487,52 @@ public abstract class Worker implements Runnable, Application, IWorker {
 		return null;
 	}
 
-	private void startTask(int id, Object data) {
-		fMutex.lock();
-
-		Object chkp = fChkpClient != null ? fChkpClient.workUnit(id, "") : null;
+	private void startTask(Row row) {
+		Object chkp = fChkpClient != null ? fChkpClient.workUnit(row.id, "")
+				: null;
 
 		if (chkp != null) {
-			fLogger.info("Retrieved checkpoint for task " + id + ".");
-			fState = (SimulationState) chkp;
+			fLogger.info("Retrieved checkpoint for task " + row.id + ".");
+			row.state = (SimulationState) chkp;
 		} else {
-			fLogger.info("No checkpoint for task " + id + ".");
-			fState = new SimulationState();
-			fState.taskId = id;
-			fState.iteration = 0;
-			fState.aggregate = resultAggregate(id, data);
+			fLogger.info("No checkpoint for task " + row.id + ".");
+			row.state = new SimulationState();
+			row.state.taskId = row.id;
+			row.state.iteration = 0;
+			row.state.aggregate = resultAggregate(row.id, row.data);
 		}
 
-		fMutex.unlock();
+		row.iterations = fRepeat - row.state.iteration;
+		row.done = row.iterations <= 0;
 
 		updateTaskStatistics();
 	}
 
-	private void taskDone() {
+	/**
+	 * Hands a loaded row over to the submitter and to the worker thread.
+	 */
+	private void admit(Row row) {
+		fExecutor.expand(row.iterations);
+
+		fMutex.lock();
+		fRows.add(row);
+		fMutex.unlock();
+
+		fSubmissions.add(row);
+		fAdmitted.add(row);
+	}
+
+	private void taskDone(Row row) {
 		fMutex.lock();
 		if (fChkpClient != null) {
-			fChkpClient.taskDone(fState.taskId);
+			fChkpClient.taskDone(row.id);
 		}
-		fState = null;
+		fRows.remove(row);
 		fMutex.unlock();
+
+		fClient.experimentDone(row.id);
+
+		fSlots.release();
 	}
 
 	private synchronized void updateStatus(String key, String value) {
@@ -351,11 +573,16 @@ public abstract class Worker implements Runnable, Application, IWorker {
 		fMutex.lock();
 	}
 
-	public Pair<Integer, Serializable> state() {
-		if (fState != null) {
-			return new Pair<Integer, Serializable>(fState.taskId, fState);
+	public List<Pair<Integer, Serializable>> state() {
+		if (fRows.isEmpty()) {
+			return null;
 		}
-		return null;
+
+		List<Pair<Integer, Serializable>> states = new ArrayList<Pair<Integer, Serializable>>();
+		for (Row row : fRows) {
+			states.add(new Pair<Integer, Serializable>(row.id, row.state));
+		}
+		return states;
 	}
 
 	public void checkpointEnd() {
@@ -371,6 +598,139 @@ public abstract class Worker implements Runnable, Application, IWorker {
 		public volatile Object aggregate;
 	}
 
+	/**
+	 * An experiment row in flight.
+	 */
+	private static class Row {
+
+		static final Row END = new Row(-1, null);
+
+		final int id;
+
+		final Serializable data;
+
+		SimulationState state;
+
+		/**
+		 * Number of repetitions to run for this row.
+		 */
+		int iterations;
+
+		/**
+		 * Number of results aggregated so far.
+		 */
+		int received;
+
+		/**
+		 * Whether the row needs no more results. Read by the submitter and by
+		 * the executor threads to skip the remaining tasks.
+		 */
+		volatile boolean done;
+
+		/**
+		 * Error raised while loading this row, if any.
+		 */
+		Exception error;
+
+		Row(int id, Serializable data) {
+			this.id = id;
+			this.data = data;
+		}
+	}
+
+	/**
+	 * Wraps a {@link SimulationTask} so that its result, or its error, can be
+	 * routed back to the row it belongs to.
+	 */
+	private static class RowTask implements Callable<RowTask> {
+
+		final Row fRow;
+
+		final SimulationTask fTask;
+
+		Exception fError;
+
+		RowTask(Row row, SimulationTask task) {
+			fRow = row;
+			fTask = task;
+		}
+
+		@Override
+		public RowTask call() {
+			if (fTask != null && !fRow.done) {
+				try {
+					fTask.call();
+				} catch (Exception ex) {
+					fError = ex;
+				}
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Loads rows ahead of the worker thread, and admits them as rows in
+	 * flight complete.
+	 */
+	private class RowLoader implements Runnable {
+
+		private final IScheduleIterator fSchedule;
+
+		RowLoader(IScheduleIterator schedule) {
+			fSchedule = schedule;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Integer id;
+				while ((id = (Integer) fSchedule.nextIfAvailable()) != IScheduleIterator.DONE) {
+					Row row = new Row(id, load(id));
+					startTask(row);
+					fSlots.acquire();
+					admit(row);
+				}
+			} catch (InterruptedException ex) {
+				return;
+			} catch (Exception ex) {
+				Row failed = new Row(-1, null);
+				failed.error = ex;
+				fAdmitted.add(failed);
+				return;
+			}
+			fAdmitted.add(Row.END);
+		}
+	}
+
+	/**
+	 * Submits the tasks of admitted rows, oldest row first. Tasks of the next
+	 * row are therefore submitted as soon as the previous row has none left,
+	 * and fill the cores while its last repetitions complete.
+	 */
+	private class Submitter implements Runnable {
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					Row row = fSubmissions.take();
+					for (int i = 0; i < row.iterations; i++) {
+						SimulationTask sTask = row.done ? null : createTask(
+								row.id, row.data);
+						fExecutor.submit(new RowTask(row, sTask));
+					}
+				}
+			} catch (InterruptedException e) {
+				// Done.
+			} catch (IllegalStateException e) {
+				// We might get this when the batch is cancelled.
+			} catch (Exception ex) {
+				fLogger.error("Problem creating/submitting task. Stopping"
+						+ " submission thread.", ex);
+				fExecutor.cancelBatchWithException(ex);
+			}
+		}
+	}
+
 	private class StatusTracker extends ProgressTracker {
 
 		StatusTracker(String taskTitle, int totalTicks) {
@@ -0,0 +1,135 @@
+package it.unitn.disi.simulator.core;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Array-based binary heap {@link IEventQueue} which stores scheduling times
+ * inline, in a <code>double[]</code> which runs parallel to the element array.
+ * Sift operations therefore compare primitives only, and never call into
+ * {@link Schedulable#time()} or {@link Schedulable#compareTo(Schedulable)}.
+ *
+ * @author giuliano
+ */
+public class BinaryHeapEventQueue implements IEventQueue {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private double[] fTimes;
+
+	private Schedulable[] fItems;
+
+	private int fSize;
+
+	public BinaryHeapEventQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            the initial capacity for the heap. The heap grows as needed,
+	 *            but sizing it properly from the start avoids copies.
+	 */
+	public BinaryHeapEventQueue(int capacity) {
+		capacity = Math.max(capacity, 1);
+		fTimes = new double[capacity];
+		fItems = new Schedulable[capacity];
+	}
+
+	// -------------------------------------------------------------------------
+
+	@Override
+	public void add(Schedulable schedulable) {
+		if (fSize == fItems.length) {
+			grow();
+		}
+		siftUp(fSize++, schedulable.time(), schedulable);
+	}
+
+	// -------------------------------------------------------------------------
+
+	@Override
+	public Schedulable remove() {
+		if (fSize == 0) {
+			throw new NoSuchElementException();
+		}
+
+		Schedulable head = fItems[0];
+		int last = --fSize;
+		if (last > 0) {
+			siftDown(0, fTimes[last], fItems[last]);
+		}
+		fItems[last] = null;
+
+		return head;
+	}
+
+	// -------------------------------------------------------------------------
+
+	@Override
+	public int size() {
+		return fSize;
+	}
+
+	// -------------------------------------------------------------------------
+
+	@Override
+	public boolean isEmpty() {
+		return fSize == 0;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void siftUp(int hole, double time, Schedulable item) {
+		while (hole > 0) {
+			int parent = (hole - 1) >>> 1;
+			if (fTimes[parent] <= time) {
+				break;
+			}
+			fTimes[hole] = fTimes[parent];
+			fItems[hole] = fItems[parent];
+			hole = parent;
+		}
+		fTimes[hole] = time;
+		fItems[hole] = item;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void siftDown(int hole, double time, Schedulable item) {
+		int half = fSize >>> 1;
+		while (hole < half) {
+			int child = (hole << 1) + 1;
+			int right = child + 1;
+			if (right < fSize && fTimes[right] < fTimes[child]) {
+				child = right;
+			}
+
+			if (time <= fTimes[child]) {
+				break;
+			}
+
+			fTimes[hole] = fTimes[child];
+			fItems[hole] = fItems[child];
+			hole = child;
+		}
+		fTimes[hole] = time;
+		fItems[hole] = item;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void grow() {
+		int capacity = fItems.length + (fItems.length >> 1) + 1;
+
+		double[] times = new double[capacity];
+		System.arraycopy(fTimes, 0, times, 0, fSize);
+		fTimes = times;
+
+		Schedulable[] items = new Schedulable[capacity];
+		System.arraycopy(fItems, 0, items, 0, fSize);
+		fItems = items;
+	}
+
+}
@@ -0,0 +1,342 @@
+package it.unitn.disi.simulator.core;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Calendar queue (R. Brown, "Calendar queues: a fast O(1) priority queue
+ * implementation for the simulation event set problem", CACM 31(10), 1988)
+ * implementation of {@link IEventQueue}.<BR>
+ * <BR>
+ * Events are hashed by time into an array of "days" (buckets) of fixed width,
+ * each of which holds a sorted list of events. Dequeueing scans the days of
+ * the current "year" in order, so that both insertion and removal take
+ * constant expected time when the bucket width matches the event density. The
+ * calendar doubles or halves its number of buckets, and re-estimates the bucket
+ * width, as the number of events crosses the corresponding thresholds.<BR>
+ * <BR>
+ * Lists are not made of linked objects: nodes live in a pool of parallel
+ * primitive arrays (times and next pointers) indexed by <code>int</code>, with
+ * a free list for recycling. Events with equal times are dequeued in FIFO
+ * order.
+ *
+ * @author giuliano
+ */
+public class CalendarEventQueue implements IEventQueue {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int NIL = -1;
+
+	private static final int MIN_BUCKETS = 2;
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * Number of events dequeued to re-estimate the bucket width on resize.
+	 */
+	private static final int WIDTH_SAMPLE = 25;
+
+	// Node pool.
+
+	private double[] fTimes;
+
+	private Schedulable[] fItems;
+
+	private int[] fNext;
+
+	private int fFree;
+
+	// Calendar.
+
+	private int[] fBuckets;
+
+	private double fWidth;
+
+	/**
+	 * Bucket and virtual (unwrapped) bucket index at which the dequeue scan is
+	 * currently positioned.
+	 */
+	private int fCurrent;
+
+	private long fVirtual;
+
+	private int fSize;
+
+	public CalendarEventQueue() {
+		this(DEFAULT_CAPACITY, 1.0);
+	}
+
+	/**
+	 * @param capacity
+	 *            initial capacity for the node pool.
+	 * @param width
+	 *            initial bucket width. This gets re-estimated from the queue
+	 *            contents as soon as the calendar is first resized.
+	 */
+	public CalendarEventQueue(int capacity, double width) {
+		if (width <= 0) {
+			throw new IllegalArgumentException("Bucket width must be positive.");
+		}
+
+		capacity = Math.max(capacity, 1);
+		fTimes = new double[capacity];
+		fItems = new Schedulable[capacity];
+		fNext = new int[capacity];
+		chainFree(0, capacity);
+
+		fWidth = width;
+		fBuckets = new int[MIN_BUCKETS];
+		Arrays.fill(fBuckets, NIL);
+	}
+
+	// -------------------------------------------------------------------------
+
+	@Override
+	public void add(Schedulable schedulable) {
+		double time = schedulable.time();
+		int node = allocate();
+		fTimes[node] = time;
+		fItems[node] = schedulable;
+
+		long virtual = virtual(time);
+		if (fSize == 0 || virtual < fVirtual) {
+			fVirtual = virtual;
+			fCurrent = bucket(virtual);
+		}
+
+		link(node, bucket(virtual), false);
+		fSize++;
+
+		if (fSize > (fBuckets.length << 1)) {
+			resize(fBuckets.length << 1);
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	@Override
+	public Schedulable remove() {
+		if (fSize == 0) {
+			throw new NoSuchElementException();
+		}
+
+		int node = unlinkMin();
+		Schedulable item = fItems[node];
+		release(node);
+
+		if (fBuckets.length > MIN_BUCKETS
+				&& fSize < (fBuckets.length >> 1)) {
+			resize(fBuckets.length >> 1);
+		}
+
+		return item;
+	}
+
+	// -------------------------------------------------------------------------
+
+	@Override
+	public int size() {
+		return fSize;
+	}
+
+	// -------------------------------------------------------------------------
+
+	@Override
+	public boolean isEmpty() {
+		return fSize == 0;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private int unlinkMin() {
+		int buckets = fBuckets.length;
+
+		// Scans one year worth of days, starting from the current one.
+		int bucket = fCurrent;
+		long virtual = fVirtual;
+		for (int i = 0; i < buckets; i++) {
+			int head = fBuckets[bucket];
+			if (head != NIL && virtual(fTimes[head]) <= virtual) {
+				return unlinkHead(bucket, virtual);
+			}
+			bucket = (bucket + 1 == buckets) ? 0 : bucket + 1;
+			virtual++;
+		}
+
+		// Sparse calendar: no event within a year. Falls back to a direct
+		// search for the smallest head.
+		int min = NIL;
+		for (int i = 0; i < buckets; i++) {
+			int head = fBuckets[i];
+			if (head != NIL && (min == NIL || fTimes[head] < fTimes[fBuckets[min]])) {
+				min = i;
+			}
+		}
+
+		return unlinkHead(min, virtual(fTimes[fBuckets[min]]));
+	}
+
+	// -------------------------------------------------------------------------
+
+	private int unlinkHead(int bucket, long virtual) {
+		int head = fBuckets[bucket];
+		fBuckets[bucket] = fNext[head];
+		fCurrent = bucket;
+		fVirtual = virtual;
+		fSize--;
+		return head;
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Links a node into its bucket, after all nodes with smaller or equal
+	 * times or, if <code>ahead</code> is set, before the ones with equal times.
+	 */
+	private void link(int node, int bucket, boolean ahead) {
+		double time = fTimes[node];
+		int previous = NIL;
+		int current = fBuckets[bucket];
+		while (current != NIL
+				&& (ahead ? fTimes[current] < time : fTimes[current] <= time)) {
+			previous = current;
+			current = fNext[current];
+		}
+
+		fNext[node] = current;
+		if (previous == NIL) {
+			fBuckets[bucket] = node;
+		} else {
+			fNext[previous] = node;
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void resize(int buckets) {
+		double width = estimateWidth();
+
+		int[] old = fBuckets;
+		fBuckets = new int[buckets];
+		Arrays.fill(fBuckets, NIL);
+		fWidth = width;
+
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < old.length; i++) {
+			int node = old[i];
+			while (node != NIL) {
+				int next = fNext[node];
+				min = Math.min(min, fTimes[node]);
+				link(node, bucket(virtual(fTimes[node])), false);
+				node = next;
+			}
+		}
+
+		fVirtual = fSize == 0 ? 0 : virtual(min);
+		fCurrent = bucket(fVirtual);
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Estimates a new bucket width by dequeueing a few events from the head of
+	 * the queue, and taking three times the average separation among them
+	 * after discarding outliers (separations larger than twice the average).
+	 */
+	private double estimateWidth() {
+		int samples = Math.min(fSize, WIDTH_SAMPLE);
+		if (samples < 2) {
+			return fWidth;
+		}
+
+		int[] nodes = new int[samples];
+		for (int i = 0; i < samples; i++) {
+			nodes[i] = unlinkMin();
+		}
+
+		double average = (fTimes[nodes[samples - 1]] - fTimes[nodes[0]])
+				/ (samples - 1);
+		double total = 0;
+		int count = 0;
+		for (int i = 1; i < samples; i++) {
+			double separation = fTimes[nodes[i]] - fTimes[nodes[i - 1]];
+			if (separation <= 2 * average) {
+				total += separation;
+				count++;
+			}
+		}
+
+		// Puts the sampled events back in, in reverse so that ties keep their
+		// relative order.
+		for (int i = samples - 1; i >= 0; i--) {
+			long virtual = virtual(fTimes[nodes[i]]);
+			if (fSize == 0 || virtual < fVirtual) {
+				fVirtual = virtual;
+				fCurrent = bucket(virtual);
+			}
+			link(nodes[i], bucket(virtual), true);
+			fSize++;
+		}
+
+		double width = count == 0 ? 0 : 3 * (total / count);
+		return width > 0 ? width : fWidth;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private long virtual(double time) {
+		return (long) Math.floor(time / fWidth);
+	}
+
+	// -------------------------------------------------------------------------
+
+	private int bucket(long virtual) {
+		int bucket = (int) (virtual % fBuckets.length);
+		return bucket < 0 ? bucket + fBuckets.length : bucket;
+	}
+
+	// -------------------------------------------------------------------------
+	// Node pool management.
+	// -------------------------------------------------------------------------
+
+	private int allocate() {
+		if (fFree == NIL) {
+			grow();
+		}
+		int node = fFree;
+		fFree = fNext[node];
+		return node;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void release(int node) {
+		fItems[node] = null;
+		fNext[node] = fFree;
+		fFree = node;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void grow() {
+		int size = fItems.length;
+		int capacity = size + (size >> 1) + 1;
+
+		fTimes = Arrays.copyOf(fTimes, capacity);
+		fItems = Arrays.copyOf(fItems, capacity);
+		fNext = Arrays.copyOf(fNext, capacity);
+		chainFree(size, capacity);
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void chainFree(int from, int to) {
+		for (int i = from; i < to - 1; i++) {
+			fNext[i] = i + 1;
+		}
+		fNext[to - 1] = NIL;
+		fFree = from;
+	}
+
+}
@@ -6,7 +6,6 @@ import it.unitn.disi.utils.collections.Pair;
 import java.io.Serializable;
 import java.util.HashSet;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Set;
 
 /**
@@ -35,7 +34,7 @@ public class EDSimulationEngine implements Runnable, INetwork, IClockData,
 
 	private final IProcess[] fProcesses;
 
-	private final PriorityQueue<Schedulable> fQueue;
+	private final IEventQueue fQueue;
 
 	private final double fBurnin;
 
@@ -59,10 +58,11 @@ public class EDSimulationEngine implements Runnable, INetwork, IClockData,
 
 	// -------------------------------------------------------------------------
 
-	EDSimulationEngine(IProcess[] processes, Descriptor[] descriptors,
-			ILifecycleObserver[] lifecycle, int extraPermits, double burnin) {
+	EDSimulationEngine(IProcess[] processes, IEventQueue queue,
+			Descriptor[] descriptors, ILifecycleObserver[] lifecycle,
+			int extraPermits, double burnin) {
 
-		this(processes, burnin, extraPermits);
+		this(processes, queue, burnin, extraPermits);
 		setEventObservers(descriptors);
 		setLifecycleObservers(lifecycle);
 		setStopPermits(fBindingObservers.size() + extraPermits);
@@ -106,8 +106,15 @@ public class EDSimulationEngine implements Runnable, INetwork, IClockData,
 	@Deprecated
 	public EDSimulationEngine(IProcess[] processes, double burnin,
 			int stopPermits) {
+		this(processes, new PriorityEventQueue(), burnin, stopPermits);
+	}
+
+	// -------------------------------------------------------------------------
+
+	private EDSimulationEngine(IProcess[] processes, IEventQueue queue,
+			double burnin, int stopPermits) {
 		fProcesses = processes;
-		fQueue = new PriorityQueue<Schedulable>();
+		fQueue = queue;
 		fStopPermits = stopPermits;
 
 		// Counts initially live processes.
@@ -32,6 +32,8 @@ public class EngineBuilder {
 
 	private double fBurnin;
 
+	private IEventQueue fQueue;
+
 	private EDSimulationEngine fInstance;
 
 	/**
@@ -154,6 +156,21 @@ public class EngineBuilder {
 		fBurnin = burnin;
 	}
 
+	/**
+	 * Sets the {@link IEventQueue} to be used by the engine. If none is set,
+	 * the engine will use a {@link PriorityEventQueue}.
+	 * 
+	 * @param queue
+	 *            an empty {@link IEventQueue}, not shared with any other
+	 *            engine.
+	 */
+	public void setEventQueue(IEventQueue queue) {
+		if (!queue.isEmpty()) {
+			throw new IllegalArgumentException("Event queue must be empty.");
+		}
+		fQueue = queue;
+	}
+
 	/**
 	 * @param permits
 	 *            sets the number of extra permits for the engine to be built.
@@ -194,6 +211,7 @@ public class EngineBuilder {
 
 		fInstance = new EDSimulationEngine(
 				processes,
+				fQueue == null ? new PriorityEventQueue() : fQueue,
 				fEventObservers.toArray(new Descriptor[fEventObservers.size()]),
 				fLifecycleObservers
 						.toArray(new ILifecycleObserver[fLifecycleObservers
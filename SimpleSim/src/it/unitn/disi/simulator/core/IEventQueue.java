@@ -0,0 +1,48 @@
+package it.unitn.disi.simulator.core;
+
+import java.io.Serializable;
+
+/**
+ * {@link IEventQueue} is the priority queue through which
+ * {@link EDSimulationEngine} orders its {@link Schedulable}s. Implementations
+ * are free to cache {@link Schedulable#time()} at insertion, as the engine
+ * never changes the scheduling time of a {@link Schedulable} while it is
+ * queued.<BR>
+ * <BR>
+ * Queues are part of the engine state, and must therefore be
+ * {@link Serializable} so that checkpointing keeps working.
+ *
+ * @author giuliano
+ */
+public interface IEventQueue extends Serializable {
+
+	/**
+	 * Inserts a {@link Schedulable} into the queue.
+	 *
+	 * @param schedulable
+	 *            the {@link Schedulable} to be inserted.
+	 */
+	public void add(Schedulable schedulable);
+
+	/**
+	 * Removes the {@link Schedulable} with the smallest scheduling time from
+	 * the queue.
+	 *
+	 * @return the removed {@link Schedulable}.
+	 * @throws java.util.NoSuchElementException
+	 *             if the queue is empty.
+	 */
+	public Schedulable remove();
+
+	/**
+	 * @return the number of elements currently in the queue.
+	 */
+	public int size();
+
+	/**
+	 * @return <code>true</code> if the queue is empty, or <code>false</code>
+	 *         otherwise.
+	 */
+	public boolean isEmpty();
+
+}
@@ -0,0 +1,39 @@
+package it.unitn.disi.simulator.core;
+
+import java.util.PriorityQueue;
+
+/**
+ * Reference {@link IEventQueue} implementation, backed by a
+ * {@link PriorityQueue} which orders elements through
+ * {@link Schedulable#compareTo(Schedulable)}. This is what
+ * {@link EDSimulationEngine} uses by default.
+ *
+ * @author giuliano
+ */
+public class PriorityEventQueue implements IEventQueue {
+
+	private static final long serialVersionUID = 1L;
+
+	private final PriorityQueue<Schedulable> fQueue = new PriorityQueue<Schedulable>();
+
+	@Override
+	public void add(Schedulable schedulable) {
+		fQueue.add(schedulable);
+	}
+
+	@Override
+	public Schedulable remove() {
+		return fQueue.remove();
+	}
+
+	@Override
+	public int size() {
+		return fQueue.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return fQueue.isEmpty();
+	}
+
+}
@@ -7,6 +7,32 @@ import it.unitn.disi.simulator.core.Schedulable;
 import it.unitn.disi.simulator.core.ISimulationEngine;
 import it.unitn.disi.simulator.protocol.ICyclicProtocol.State;
 
+import java.util.BitSet;
+
+/**
+ * {@link CyclicProtocolRunner} calls {@link ICyclicProtocol#nextCycle} on the
+ * protocols of all processes, in order of id, every time it is triggered, and
+ * unbinds itself once all protocols are {@link State#DONE}.<BR>
+ * <BR>
+ * If constructed with <code>tracking</code> set, the runner keeps track of the
+ * states of protocols instead, and cycles only those which are neither
+ * {@link State#IDLE} nor {@link State#DONE}. This makes the cost of a cycle
+ * proportional to the number of protocols with something to do, but requires
+ * that:
+ * <ol>
+ * <li>{@link ICyclicProtocol#nextCycle} does nothing when the protocol is
+ * {@link State#IDLE} (and therefore does not need to be called);</li>
+ * <li>protocols call {@link #stateChanged(int, State)} whenever their state
+ * changes outside of {@link ICyclicProtocol#nextCycle}, or at least
+ * {@link #schedule(int)} whenever they get something to do while
+ * {@link State#IDLE}.</li>
+ * </ol>
+ * The first cycle always goes over all protocols. From then on, cycles happen
+ * in the same order, and end the run at the same cycle, as with tracking
+ * disabled.
+ *
+ * @author giuliano
+ */
 public class CyclicProtocolRunner<K extends ICyclicProtocol> implements
 		IEventObserver {
 
@@ -16,8 +42,54 @@ public class CyclicProtocolRunner<K extends ICyclicProtocol> implements
 
 	private boolean fDone;
 
+	// ----------------------------------------------------------------------
+	// Tracking state.
+	// ----------------------------------------------------------------------
+
+	private final boolean fTracking;
+
+	/**
+	 * Last known state of each protocol, or <code>null</code> before the
+	 * first cycle.
+	 */
+	private State[] fStates;
+
+	/**
+	 * Processes whose protocols have to be cycled.
+	 */
+	private BitSet fScheduled;
+
+	private int fActive;
+
+	private int fDoneCount;
+
+	/**
+	 * Id of the process being cycled, or -1 outside of a cycle.
+	 */
+	private int fCursor = -1;
+
+	/**
+	 * Processes which changed state after their turn in the current cycle,
+	 * and whether they were {@link State#DONE} on their turn.
+	 */
+	private BitSet fLate;
+
+	private BitSet fLateDone;
+
 	public CyclicProtocolRunner(int pid) {
+		this(pid, false);
+	}
+
+	/**
+	 * @param pid
+	 *            the protocol id of the {@link ICyclicProtocol}s to run.
+	 * @param tracking
+	 *            whether to keep track of protocol states, and cycle only
+	 *            the protocols which have something to do.
+	 */
+	public CyclicProtocolRunner(int pid, boolean tracking) {
 		fPid = pid;
+		fTracking = tracking;
 	}
 
 	@Override
@@ -26,33 +98,162 @@ public class CyclicProtocolRunner<K extends ICyclicProtocol> implements
 
 		INetwork network = engine.network();
 
+		if (fTracking) {
+			trackedCycle(engine, network);
+			return;
+		}
+
 		int done = 0;
 		for (int i = 0; i < network.size(); i++) {
 			IProcess process = network.process(i);
 			ICyclicProtocol protocol = (ICyclicProtocol) process
 					.getProtocol(fPid);
 			State protocolState = protocol.getState();
-			
+
 			if (protocolState != State.DONE) {
 				protocol.nextCycle(engine, process);
-			} 
-			
-			if (hasReachedEndState(engine, protocol)) {			
+			}
+
+			if (hasReachedEndState(engine, protocol)) {
+				done++;
+			}
+		}
+
+		if (done == network.size()) {
+			unbind(engine);
+		}
+	}
+
+	private void trackedCycle(ISimulationEngine engine, INetwork network) {
+		if (fStates == null) {
+			fStates = new State[network.size()];
+			fScheduled = new BitSet(network.size());
+			fScheduled.set(0, network.size());
+			fLate = new BitSet();
+			fLateDone = new BitSet();
+		}
+
+		for (int i = fScheduled.nextSetBit(0); i >= 0; i = fScheduled
+				.nextSetBit(i + 1)) {
+			fCursor = i;
+			IProcess process = network.process(i);
+			ICyclicProtocol protocol = (ICyclicProtocol) process
+					.getProtocol(fPid);
+			if (protocol.getState() != State.DONE) {
+				protocol.nextCycle(engine, process);
+			}
+			update(i, protocol.getState());
+		}
+		fCursor = -1;
+
+		// Counts protocols as done if they were done on their turn, as an
+		// untracked cycle would.
+		int done = fDoneCount;
+		for (int i = fLate.nextSetBit(0); i >= 0; i = fLate.nextSetBit(i + 1)) {
+			if (fStates[i] == State.DONE) {
+				done--;
+			}
+			if (fLateDone.get(i)) {
 				done++;
 			}
 		}
+		fLate.clear();
+		fLateDone.clear();
 
 		if (done == network.size()) {
-			fDone = true;
-			engine.unbound(this);
+			unbind(engine);
+		}
+	}
+
+	/**
+	 * Signals that the state of a protocol has changed. Only needed when
+	 * tracking is enabled, and ignored otherwise.
+	 *
+	 * @param id
+	 *            the id of the process running the protocol.
+	 * @param state
+	 *            the new state of the protocol.
+	 */
+	public void stateChanged(int id, State state) {
+		if (fStates == null) {
+			return;
+		}
+
+		// Changes of protocols which already had their turn in the current
+		// cycle.
+		if (id < fCursor && !fLate.get(id)) {
+			fLate.set(id);
+			fLateDone.set(id, fStates[id] == State.DONE);
+		}
+
+		update(id, state);
+	}
+
+	/**
+	 * Signals that a protocol has something to do, and must be cycled even if
+	 * {@link State#IDLE}. Only needed when tracking is enabled, and ignored
+	 * otherwise.
+	 *
+	 * @param id
+	 *            the id of the process running the protocol.
+	 */
+	public void schedule(int id) {
+		if (fStates == null) {
+			return;
+		}
+		fScheduled.set(id);
+	}
+
+	private void update(int id, State state) {
+		State previous = fStates[id];
+		if (previous == State.ACTIVE) {
+			fActive--;
+		} else if (previous == State.DONE) {
+			fDoneCount--;
+		}
+
+		if (state == State.ACTIVE) {
+			fActive++;
+		} else if (state == State.DONE) {
+			fDoneCount++;
 		}
+
+		fStates[id] = state;
+		fScheduled.set(id, state != State.IDLE && state != State.DONE);
+	}
+
+	/**
+	 * @return the number of protocols which are {@link State#ACTIVE}.
+	 */
+	protected int activeProtocols(INetwork network) {
+		if (fStates != null) {
+			return fActive;
+		}
+
+		int active = 0;
+		for (int i = 0; i < network.size(); i++) {
+			if (((ICyclicProtocol) network.process(i).getProtocol(fPid))
+					.getState() == State.ACTIVE) {
+				active++;
+			}
+		}
+		return active;
+	}
+
+	private void unbind(ISimulationEngine engine) {
+		fDone = true;
+		engine.unbound(this);
 	}
 
 	@Override
 	public boolean isDone() {
 		return fDone;
 	}
-	
+
+	/**
+	 * Decides whether a protocol counts as done. Not used when tracking is
+	 * enabled, where protocols are done when {@link State#DONE}.
+	 */
 	protected boolean hasReachedEndState(ISimulationEngine engine, ICyclicProtocol protocol) {
 		return protocol.getState() == State.DONE;
 	}
@@ -7,7 +7,6 @@ import it.unitn.disi.simulator.core.IEventObserver;
 import it.unitn.disi.simulator.core.IReference;
 import it.unitn.disi.simulator.core.Schedulable;
 import it.unitn.disi.simulator.core.ISimulationEngine;
-import it.unitn.disi.simulator.protocol.ICyclicProtocol.State;
 
 /**
  * {@link PausingCyclicProtocolRunner} stops scheduling the cyclic protocol when
@@ -15,7 +14,8 @@ import it.unitn.disi.simulator.protocol.ICyclicProtocol.State;
  * node logs in).
  * 
  * This {@link IEventObserver} pairs with the internal
- * {@link PausingSchedulable}.
+ * {@link PausingSchedulable}. With tracking enabled (see
+ * {@link CyclicProtocolRunner}), checking for quiescence takes constant time.
  * 
  * @author giuliano
  * 
@@ -30,7 +30,12 @@ public class PausingCyclicProtocolRunner<K extends ICyclicProtocol> extends
 
 	public PausingCyclicProtocolRunner(IReference<ISimulationEngine> engine,
 			double period, int type, int pid) {
-		super(pid);
+		this(engine, period, type, pid, false);
+	}
+
+	public PausingCyclicProtocolRunner(IReference<ISimulationEngine> engine,
+			double period, int type, int pid, boolean tracking) {
+		super(pid, tracking);
 		fSchedulable = new PausingSchedulable(engine, period, type);
 	}
 
@@ -52,14 +57,7 @@ public class PausingCyclicProtocolRunner<K extends ICyclicProtocol> extends
 	}
 
 	private void update(INetwork net) {
-		int active = 0;
-		for (int i = 0; i < net.size(); i++) {
-			if (((ICyclicProtocol) net.process(i).getProtocol(fPid)).getState() == State.ACTIVE) {
-				active++;
-			}
-		}
-
-		if (active == 0) {
+		if (activeProtocols(net) == 0) {
 			/**
 			 * Stops scheduling the cyclic protocol. It will only be scheduled
 			 * again once our IEventObserver is triggered, i.e, when some node
@@ -0,0 +1,29 @@
+package it.unitn.disi.simulator.replicated;
+
+/**
+ * Observer for the state transitions of the processes of a
+ * {@link ReplicatedRenewalEngine}. A single observer instance gets the events
+ * of all replicas, and is expected to keep per-replica state in flat arrays
+ * indexed by replica (or by {@link ReplicatedRenewalEngine#slot(int, int)})
+ * rather than in one object per replica.
+ *
+ * @author giuliano
+ */
+public interface IReplicaObserver {
+
+	/**
+	 * Called after a process in a given replica changes state.
+	 *
+	 * @param engine
+	 *            the engine running the replicas.
+	 * @param replica
+	 *            the replica in which the transition happened.
+	 * @param process
+	 *            the process that changed state.
+	 * @param nextShift
+	 *            the raw time at which this process will change state again.
+	 */
+	public void stateChanged(ReplicatedRenewalEngine engine, int replica,
+			int process, double nextShift);
+
+}
@@ -0,0 +1,438 @@
+package it.unitn.disi.simulator.replicated;
+
+import it.unitn.disi.simulator.core.EDSimulationEngine;
+import it.unitn.disi.simulator.core.IProcess.State;
+import it.unitn.disi.simulator.core.RenewalProcess;
+import it.unitn.disi.simulator.random.IDistribution;
+
+import java.util.ArrayList;
+
+/**
+ * {@link ReplicatedRenewalEngine} advances several independent replicas of the
+ * same set of renewal processes (as in {@link RenewalProcess}) in a single
+ * engine. Instead of one object graph per replica, process state lives in
+ * flat columns indexed by <b>slot</b>, where:
+ *
+ * <pre>
+ * slot = replica * processes() + process
+ * </pre>
+ *
+ * so that the state of a replica is contiguous in memory. Scheduling goes
+ * through a single binary heap of slots keyed by their next transition time;
+ * since each slot has exactly one pending event, every step is a single
+ * replace-top operation over primitives.<BR>
+ * <BR>
+ * Processes behave exactly as {@link RenewalProcess}es do: they start in the
+ * configured initial state, change state at time zero, and then alternate
+ * sampling their up and down times from the corresponding distributions.
+ * Distributions can either be shared by all replicas (one per process) or
+ * given per slot.<BR>
+ * <BR>
+ * Replicas stop independently: either when all of their binding observers call
+ * {@link #unbound(int)}, when {@link #stop(int)} is called for them, or when
+ * the simulation reaches the time set with {@link #stopAt(double)}. Like
+ * {@link EDSimulationEngine}, this class is not thread-safe.
+ *
+ * @author giuliano
+ */
+public class ReplicatedRenewalEngine implements Runnable {
+
+	private final int fReplicas;
+
+	private final int fProcesses;
+
+	private final IDistribution[] fUp;
+
+	private final IDistribution[] fDown;
+
+	private final double fBurnin;
+
+	// Per-slot state.
+
+	private final double[] fNext;
+
+	private final boolean[] fIsUp;
+
+	private final double[] fUptime;
+
+	// Per-replica state.
+
+	private final int[] fLive;
+
+	private final int[] fPermits;
+
+	private int fActiveReplicas;
+
+	// Scheduling.
+
+	private final int[] fHeap;
+
+	private int fHeapSize;
+
+	private double fStopAt = Double.POSITIVE_INFINITY;
+
+	private double fTime;
+
+	private final ArrayList<IReplicaObserver> fObserverList = new ArrayList<IReplicaObserver>();
+
+	private IReplicaObserver[] fObservers;
+
+	private int fBinding;
+
+	private boolean fStarted;
+
+	private boolean fDone;
+
+	/**
+	 * Creates a new {@link ReplicatedRenewalEngine}.
+	 *
+	 * @param replicas
+	 *            the number of replicas to run.
+	 * @param processes
+	 *            the number of processes in each replica.
+	 * @param up
+	 *            uptime distributions, either one per process (shared among
+	 *            replicas) or one per slot.
+	 * @param down
+	 *            downtime distributions, with the same layout as
+	 *            <code>up</code>.
+	 * @param initial
+	 *            the initial state for all processes.
+	 * @param burnin
+	 *            the burn-in period before which observers will not be
+	 *            notified.
+	 */
+	public ReplicatedRenewalEngine(int replicas, int processes,
+			IDistribution[] up, IDistribution[] down, State initial,
+			double burnin) {
+		if (replicas <= 0 || processes <= 0) {
+			throw new IllegalArgumentException("Invalid replica ("
+					+ replicas + ") or process (" + processes + ") count.");
+		}
+
+		if (up.length != down.length
+				|| (up.length != processes && up.length != processes
+						* replicas)) {
+			throw new IllegalArgumentException(
+					"There must be either one distribution per process, "
+							+ "or one per slot.");
+		}
+
+		fReplicas = replicas;
+		fProcesses = processes;
+		fUp = up;
+		fDown = down;
+		fBurnin = burnin;
+
+		int slots = fReplicas * fProcesses;
+		fNext = new double[slots];
+		fIsUp = new boolean[slots];
+		fUptime = new double[slots];
+		fHeap = new int[slots];
+
+		fLive = new int[fReplicas];
+		fPermits = new int[fReplicas];
+
+		boolean isUp = initial == State.up;
+		for (int i = 0; i < slots; i++) {
+			fIsUp[i] = isUp;
+			// All keys are zero, so the identity is a valid heap.
+			fHeap[i] = i;
+		}
+		fHeapSize = slots;
+
+		if (isUp) {
+			for (int i = 0; i < fReplicas; i++) {
+				fLive[i] = fProcesses;
+			}
+		}
+	}
+
+	// -------------------------------------------------------------------------
+	// Configuration.
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Adds an observer to all replicas.
+	 *
+	 * @param observer
+	 *            the observer to add.
+	 * @param binding
+	 *            if <code>true</code>, a replica will only stop once this
+	 *            observer has called {@link #unbound(int)} for it.
+	 */
+	public void addObserver(IReplicaObserver observer, boolean binding) {
+		checkNotStarted();
+		fObserverList.add(observer);
+		fBinding += binding ? 1 : 0;
+	}
+
+	/**
+	 * Stops all replicas at the given raw time. Transitions scheduled for
+	 * <code>time</code> or later are not performed.
+	 */
+	public void stopAt(double time) {
+		checkNotStarted();
+		fStopAt = time;
+	}
+
+	// -------------------------------------------------------------------------
+	// Control.
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Runs all replicas until they are either stopped, or the stop time is
+	 * reached.
+	 */
+	@Override
+	public void run() {
+		start();
+		while (step()) {
+			// Keep going.
+		}
+		fDone = true;
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Called by a binding observer when it no longer needs a replica to be
+	 * simulated. The replica stops once all binding observers are unbound.
+	 */
+	public void unbound(int replica) {
+		if (fPermits[replica] == 0) {
+			throw new IllegalStateException("Replica " + replica
+					+ " has no permits left.");
+		}
+
+		if (--fPermits[replica] == 0) {
+			fActiveReplicas--;
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Stops a replica, regardless of how many binding observers are still
+	 * bound to it.
+	 */
+	public void stop(int replica) {
+		if (fPermits[replica] != 0) {
+			fPermits[replica] = 0;
+			fActiveReplicas--;
+		}
+	}
+
+	// -------------------------------------------------------------------------
+
+	public boolean isDone() {
+		return fDone;
+	}
+
+	// -------------------------------------------------------------------------
+
+	public boolean isStopped(int replica) {
+		return fPermits[replica] == 0;
+	}
+
+	// -------------------------------------------------------------------------
+	// State access.
+	// -------------------------------------------------------------------------
+
+	public int replicas() {
+		return fReplicas;
+	}
+
+	// -------------------------------------------------------------------------
+
+	public int processes() {
+		return fProcesses;
+	}
+
+	// -------------------------------------------------------------------------
+
+	public int slot(int replica, int process) {
+		return replica * fProcesses + process;
+	}
+
+	// -------------------------------------------------------------------------
+
+	public boolean isUp(int replica, int process) {
+		return fIsUp[slot(replica, process)];
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the raw time of the next transition for a process.
+	 */
+	public double nextShift(int replica, int process) {
+		return fNext[slot(replica, process)];
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the number of processes that are currently up in a replica.
+	 */
+	public int live(int replica) {
+		return fLive[replica];
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * @return the actual uptime of a process up to the current time.
+	 * @see RenewalProcess#uptime(it.unitn.disi.simulator.core.IClockData)
+	 */
+	public double uptime(int replica, int process) {
+		int slot = slot(replica, process);
+		return fIsUp[slot] ? fUptime[slot] - (fNext[slot] - fTime)
+				: fUptime[slot];
+	}
+
+	// -------------------------------------------------------------------------
+
+	public double rawTime() {
+		return fTime;
+	}
+
+	// -------------------------------------------------------------------------
+
+	public double time() {
+		return Math.max(0, fTime - fBurnin);
+	}
+
+	// -------------------------------------------------------------------------
+
+	public boolean isBurningIn() {
+		return fTime < fBurnin;
+	}
+
+	// -------------------------------------------------------------------------
+	// Internals.
+	// -------------------------------------------------------------------------
+
+	private void start() {
+		checkNotStarted();
+
+		if (fBinding == 0 && fStopAt == Double.POSITIVE_INFINITY) {
+			throw new IllegalStateException("Engine has neither binding "
+					+ "observers nor a stop time, and would run forever.");
+		}
+
+		fStarted = true;
+		fObservers = fObserverList.toArray(new IReplicaObserver[fObserverList
+				.size()]);
+
+		// Replicas without binding observers run until the stop time.
+		int permits = Math.max(fBinding, 1);
+		for (int i = 0; i < fReplicas; i++) {
+			fPermits[i] = permits;
+		}
+		fActiveReplicas = fReplicas;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private boolean step() {
+		while (fActiveReplicas > 0 && fHeapSize > 0) {
+			int slot = fHeap[0];
+			double next = fNext[slot];
+			if (next >= fStopAt) {
+				return false;
+			}
+
+			int replica = slot / fProcesses;
+
+			// Stopped replicas leave the heap lazily.
+			if (fPermits[replica] == 0) {
+				int last = fHeap[--fHeapSize];
+				if (fHeapSize > 0) {
+					siftDown(last);
+				}
+				continue;
+			}
+
+			fTime = next;
+			int process = slot - replica * fProcesses;
+			transition(slot, replica, process);
+			siftDown(slot);
+
+			if (!isBurningIn()) {
+				for (IReplicaObserver observer : fObservers) {
+					observer.stateChanged(this, replica, process, fNext[slot]);
+				}
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void transition(int slot, int replica, int process) {
+		int index = fUp.length == fProcesses ? process : slot;
+		double increment;
+		if (fIsUp[slot]) {
+			fIsUp[slot] = false;
+			fLive[replica]--;
+			increment = fDown[index].sample();
+		} else {
+			fIsUp[slot] = true;
+			fLive[replica]++;
+			increment = fUp[index].sample();
+			// Overestimate of uptime, corrected in uptime().
+			fUptime[slot] += increment;
+		}
+		fNext[slot] += increment;
+	}
+
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Sifts a slot down from the root of the heap. Ties are broken by slot
+	 * number, so that runs are deterministic.
+	 */
+	private void siftDown(int slot) {
+		double key = fNext[slot];
+		int hole = 0;
+		int half = fHeapSize >>> 1;
+		while (hole < half) {
+			int child = (hole << 1) + 1;
+			int right = child + 1;
+			if (right < fHeapSize && less(fHeap[right], fHeap[child])) {
+				child = right;
+			}
+
+			int candidate = fHeap[child];
+			double cKey = fNext[candidate];
+			if (key < cKey || (key == cKey && slot < candidate)) {
+				break;
+			}
+
+			fHeap[hole] = candidate;
+			hole = child;
+		}
+		fHeap[hole] = slot;
+	}
+
+	// -------------------------------------------------------------------------
+
+	private boolean less(int s1, int s2) {
+		double k1 = fNext[s1];
+		double k2 = fNext[s2];
+		return k1 < k2 || (k1 == k2 && s1 < s2);
+	}
+
+	// -------------------------------------------------------------------------
+
+	private void checkNotStarted() {
+		if (fStarted) {
+			throw new IllegalStateException("Engine already started.");
+		}
+	}
+
+}
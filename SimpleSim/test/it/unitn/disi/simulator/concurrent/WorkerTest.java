@@ -0,0 +1,275 @@
+package it.unitn.disi.simulator.concurrent;
+
+import it.unitn.disi.distsim.scheduler.ISchedulerClient;
+import it.unitn.disi.distsim.scheduler.generators.IScheduleIterator;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkerTest {
+
+	private static final int ROWS = 6;
+
+	private static final int REPETITIONS = 6;
+
+	private static final int CORES = 4;
+
+	/**
+	 * What the worker did, in order: "output r" and "done r" for rows, and
+	 * "start r" and "end r" for their tasks.
+	 */
+	private List<String> fEvents;
+
+	private ErrorAppender fErrors;
+
+	@Before
+	public void setUp() {
+		fEvents = Collections.synchronizedList(new ArrayList<String>());
+		fErrors = new ErrorAppender();
+		Logger.getLogger(Worker.class).addAppender(fErrors);
+	}
+
+	@After
+	public void tearDown() {
+		Logger.getLogger(Worker.class).removeAppender(fErrors);
+	}
+
+	@Test
+	public void outputsRowsInScheduleOrder() throws Exception {
+		FakeWorker worker = new FakeWorker(-1, -1);
+		run(worker);
+
+		Assert.assertTrue(fErrors.errors.isEmpty());
+		Assert.assertEquals(expected(ROWS), rowEvents());
+		for (int i = 0; i < ROWS; i++) {
+			Assert.assertEquals(REPETITIONS, worker.fResults[i]);
+		}
+
+		// Later rows, which run faster, were started before earlier ones
+		// were done.
+		boolean overlap = false;
+		for (int i = 0; i < ROWS - 1; i++) {
+			overlap |= fEvents.indexOf("start " + (i + 1)) < fEvents
+					.lastIndexOf("end " + i);
+		}
+		Assert.assertTrue(overlap);
+	}
+
+	@Test
+	public void failingLoadPropagates() throws Exception {
+		run(new FakeWorker(3, -1));
+
+		// Rows admitted before the failing one are still output.
+		Assert.assertEquals(expected(3), rowEvents());
+		Assert.assertEquals(1, fErrors.errors.size());
+		Assert.assertEquals("load 3", fErrors.errors.get(0).getMessage());
+	}
+
+	@Test
+	public void failingTaskPropagates() throws Exception {
+		run(new FakeWorker(-1, 2));
+
+		// Earlier rows may or may not have been output, but the failed row
+		// and the ones after it must not be.
+		List<String> events = rowEvents();
+		Assert.assertTrue(events.size() <= 4);
+		Assert.assertEquals(expected(events.size() / 2), events);
+		Assert.assertEquals(1, fErrors.errors.size());
+		Assert.assertEquals("task 2", fErrors.errors.get(0).getMessage());
+	}
+
+	private void run(Worker worker) throws InterruptedException {
+		Thread thread = new Thread(worker, "worker");
+		thread.start();
+		thread.join(60000);
+		Assert.assertFalse("worker hangs", thread.isAlive());
+	}
+
+	private List<String> expected(int rows) {
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < rows; i++) {
+			expected.add("output " + i);
+			expected.add("done " + i);
+		}
+		return expected;
+	}
+
+	private List<String> rowEvents() {
+		List<String> events = new ArrayList<String>();
+		synchronized (fEvents) {
+			for (String event : fEvents) {
+				if (event.startsWith("output") || event.startsWith("done")) {
+					events.add(event);
+				}
+			}
+		}
+		return events;
+	}
+
+	private class FakeWorker extends Worker {
+
+		private final int fFailLoad;
+
+		private final int fFailTask;
+
+		final int[] fResults = new int[ROWS];
+
+		public FakeWorker(int failLoad, int failTask) {
+			super(new FakeScheduler());
+			fFailLoad = failLoad;
+			fFailTask = failTask;
+			fRepeat = REPETITIONS;
+			fCores = CORES;
+			fRowsInFlight = 3;
+		}
+
+		@Override
+		protected void initialize() {
+		}
+
+		@Override
+		protected Serializable load(Integer row) throws Exception {
+			if (row == fFailLoad) {
+				throw new IOException("load " + row);
+			}
+			return row;
+		}
+
+		@Override
+		protected SimulationTask createTask(int id, Serializable data) {
+			return new FakeTask(id, id == fFailTask);
+		}
+
+		@Override
+		protected Serializable resultAggregate(int id, Object data) {
+			return new int[] { id, 0 };
+		}
+
+		@Override
+		protected void aggregate(Object aggregate, int i, SimulationTask task) {
+			int[] counts = (int[]) aggregate;
+			Assert.assertEquals(counts[0], ((FakeTask) task).fRow);
+			counts[1]++;
+		}
+
+		@Override
+		protected boolean isPreciseEnough(Object aggregate) {
+			return false;
+		}
+
+		@Override
+		protected void outputResults(Object results) {
+			int[] counts = (int[]) results;
+			fResults[counts[0]] = counts[1];
+			fEvents.add("output " + counts[0]);
+		}
+
+		@Override
+		protected String taskTitle(Serializable data) {
+			return "row " + data;
+		}
+
+		@Override
+		protected boolean quiet(int id, Serializable data) {
+			return true;
+		}
+	}
+
+	private class FakeTask extends SimulationTask {
+
+		private static final long serialVersionUID = 1L;
+
+		final int fRow;
+
+		private final boolean fFail;
+
+		@SuppressWarnings("unchecked")
+		FakeTask(int row, boolean fail) {
+			super(row, null, null);
+			fRow = row;
+			fFail = fail;
+		}
+
+		@Override
+		public SimulationTask call() {
+			fEvents.add("start " + fRow);
+			try {
+				// Earlier rows take longer.
+				Thread.sleep((ROWS - fRow) * 10);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			fEvents.add("end " + fRow);
+			if (fFail) {
+				throw new IllegalStateException("task " + fRow);
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Hands out rows 0 to {@link #ROWS} - 1, and records their completion.
+	 */
+	private class FakeScheduler implements ISchedulerClient {
+
+		@Override
+		public IScheduleIterator iterator() {
+			return new IScheduleIterator() {
+				private int fNext;
+
+				@Override
+				public int remaining() {
+					return ROWS - fNext;
+				}
+
+				@Override
+				public Object nextIfAvailable() {
+					return fNext < ROWS ? fNext++ : DONE;
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return ROWS;
+		}
+
+		@Override
+		public void experimentDone(int id) {
+			fEvents.add("done " + id);
+		}
+	}
+
+	private static class ErrorAppender extends AppenderSkeleton {
+
+		final List<Throwable> errors = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+
+		@Override
+		protected void append(LoggingEvent event) {
+			if (event.getThrowableInformation() != null) {
+				errors.add(event.getThrowableInformation().getThrowable());
+			}
+		}
+
+		@Override
+		public boolean requiresLayout() {
+			return false;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package it.unitn.disi.simulator.core;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EventQueueTest {
+
+	private static final int ROUNDS = 200000;
+
+	@Test
+	public void testBinaryHeapMatchesReference() {
+		compare(new BinaryHeapEventQueue(), 42);
+	}
+
+	@Test
+	public void testCalendarMatchesReference() {
+		compare(new CalendarEventQueue(), 42);
+		compare(new CalendarEventQueue(4, 1000.0), 43);
+		compare(new CalendarEventQueue(4, 0.0001), 44);
+	}
+
+	@Test
+	public void testCalendarBreaksTiesInFIFOOrder() {
+		CalendarEventQueue queue = new CalendarEventQueue();
+		ArrayList<Event> events = new ArrayList<Event>();
+		for (int i = 0; i < 1000; i++) {
+			Event event = new Event(i % 3);
+			events.add(event);
+			queue.add(event);
+		}
+
+		for (int time = 0; time < 3; time++) {
+			for (int i = time; i < events.size(); i += 3) {
+				Assert.assertSame(events.get(i), queue.remove());
+			}
+		}
+
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	/**
+	 * Runs the queue under test side by side with a
+	 * {@link PriorityEventQueue}, in a hold model similar to what
+	 * {@link EDSimulationEngine} does: events are removed and rescheduled into
+	 * the future, while the queue size grows and shrinks.
+	 */
+	private void compare(IEventQueue queue, long seed) {
+		Random random = new Random(seed);
+		PriorityEventQueue reference = new PriorityEventQueue();
+		double now = 0;
+
+		for (int i = 0; i < ROUNDS; i++) {
+			int size = reference.size();
+			boolean grow = size < 100 || (i / 10000) % 2 == 0;
+			if (size == 0 || random.nextDouble() < (grow ? 0.6 : 0.4)) {
+				Event event = new Event(now + random.nextDouble()
+						* random.nextInt(100));
+				queue.add(event);
+				reference.add(event);
+			} else {
+				Schedulable expected = reference.remove();
+				Schedulable actual = queue.remove();
+				Assert.assertEquals(expected.time(), actual.time(), 0.0);
+				Assert.assertTrue(actual.time() >= now);
+				now = actual.time();
+			}
+			Assert.assertEquals(reference.size(), queue.size());
+		}
+
+		while (!reference.isEmpty()) {
+			Assert.assertEquals(reference.remove().time(), queue.remove()
+					.time(), 0.0);
+		}
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	private static class Event extends Schedulable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double fTime;
+
+		public Event(double time) {
+			fTime = time;
+		}
+
+		@Override
+		public boolean isExpired() {
+			return true;
+		}
+
+		@Override
+		public void scheduled(ISimulationEngine state) {
+		}
+
+		@Override
+		public double time() {
+			return fTime;
+		}
+
+		@Override
+		public int type() {
+			return UNTYPED;
+		}
+
+	}
+}
@@ -0,0 +1,149 @@
+package it.unitn.disi.simulator.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.unitn.disi.simulator.core.EDSimulationEngine;
+import it.unitn.disi.simulator.core.EngineBuilder;
+import it.unitn.disi.simulator.core.IProcess;
+import it.unitn.disi.simulator.core.ISimulationEngine;
+import it.unitn.disi.simulator.protocol.ICyclicProtocol.State;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CyclicProtocolRunnerTest {
+
+	private static final int PID = 0;
+
+	@Test
+	public void testTrackingMatchesFullScan() {
+		for (int size = 1; size < 40; size += 7) {
+			for (int seed = 0; seed < size; seed += 3) {
+				Assert.assertEquals(run(size, seed, false), run(size, seed, true));
+			}
+		}
+	}
+
+	@Test
+	public void testTrackingCountsActive() {
+		List<String> log = new ArrayList<String>();
+		EngineBuilder builder = new EngineBuilder();
+		CyclicProtocolRunner<Push> runner = new CyclicProtocolRunner<Push>(
+				PID, true);
+		Push[] protocols = network(builder, runner, log, 5);
+		protocols[0].infect();
+
+		builder.addObserver(runner, 1, true, true);
+		builder.preschedule(new CyclicSchedulable(1.0, 1));
+
+		EDSimulationEngine engine = builder.engine();
+		for (int i = 0; i < 3; i++) {
+			engine.step(1);
+			Assert.assertEquals(active(protocols),
+					runner.activeProtocols(engine));
+		}
+
+		engine.run();
+		Assert.assertTrue(runner.isDone());
+		Assert.assertEquals(0, runner.activeProtocols(engine));
+	}
+
+	private int active(Push[] protocols) {
+		int active = 0;
+		for (Push protocol : protocols) {
+			if (protocol.getState() == State.ACTIVE) {
+				active++;
+			}
+		}
+		return active;
+	}
+
+	private List<String> run(int size, int seed, boolean tracking) {
+		List<String> log = new ArrayList<String>();
+		EngineBuilder builder = new EngineBuilder();
+		CyclicProtocolRunner<Push> runner = new CyclicProtocolRunner<Push>(
+				PID, tracking);
+		Push[] protocols = network(builder, runner, log, size);
+		protocols[seed].infect();
+
+		builder.addObserver(runner, 1, true, true);
+		builder.preschedule(new CyclicSchedulable(1.0, 1));
+		builder.engine().run();
+
+		Assert.assertTrue(runner.isDone());
+		return log;
+	}
+
+	private Push[] network(EngineBuilder builder,
+			CyclicProtocolRunner<Push> runner, List<String> log, int size) {
+		Push[] protocols = new Push[size];
+		for (int i = 0; i < size; i++) {
+			IProcess process = new FixedProcess(i, IProcess.State.up);
+			protocols[i] = new Push(i, protocols, runner, log);
+			process.addProtocol(protocols[i]);
+			builder.addProcess(process);
+		}
+		return protocols;
+	}
+
+	/**
+	 * Pushes to two other protocols on a ring once infected, waits for a
+	 * cycle, and then stops. Infecting a protocol after its turn in a cycle
+	 * makes it start on the next one, as it would with a full scan.
+	 */
+	static class Push implements ICyclicProtocol {
+
+		private final int fId;
+
+		private final Push[] fProtocols;
+
+		private final CyclicProtocolRunner<Push> fRunner;
+
+		private final List<String> fLog;
+
+		private State fState = State.IDLE;
+
+		private int fPushes;
+
+		public Push(int id, Push[] protocols, CyclicProtocolRunner<Push> runner,
+				List<String> log) {
+			fId = id;
+			fProtocols = protocols;
+			fRunner = runner;
+			fLog = log;
+		}
+
+		@Override
+		public void nextCycle(ISimulationEngine engine, IProcess process) {
+			if (fState == State.IDLE) {
+				return;
+			}
+
+			fLog.add(engine.clock().rawTime() + ":" + fId + ":" + fState);
+			if (fState == State.WAITING) {
+				fState = State.DONE;
+				return;
+			}
+
+			int target = (fId + (fPushes == 0 ? 3 : 1)) % fProtocols.length;
+			fProtocols[target].infect();
+			if (++fPushes == 2) {
+				fState = State.WAITING;
+			}
+		}
+
+		public void infect() {
+			if (fState != State.IDLE) {
+				return;
+			}
+			fState = State.ACTIVE;
+			fRunner.stateChanged(fId, fState);
+		}
+
+		@Override
+		public State getState() {
+			return fState;
+		}
+	}
+}
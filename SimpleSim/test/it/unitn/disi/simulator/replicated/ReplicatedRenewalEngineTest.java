@@ -0,0 +1,156 @@
+package it.unitn.disi.simulator.replicated;
+
+import it.unitn.disi.simulator.core.EDSimulationEngine;
+import it.unitn.disi.simulator.core.EngineBuilder;
+import it.unitn.disi.simulator.core.IEventObserver;
+import it.unitn.disi.simulator.core.IProcess;
+import it.unitn.disi.simulator.core.IProcess.State;
+import it.unitn.disi.simulator.core.ISimulationEngine;
+import it.unitn.disi.simulator.core.RenewalProcess;
+import it.unitn.disi.simulator.core.Schedulable;
+import it.unitn.disi.simulator.random.IDistribution;
+import it.unitn.disi.simulator.util.Anchor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReplicatedRenewalEngineTest {
+
+	private static final int PROCESSES = 7;
+
+	private static final int REPLICAS = 5;
+
+	private static final double STOP = 50.05;
+
+	@Test
+	public void testMatchesRenewalProcesses() {
+		List<String> reference = reference();
+
+		ReplicatedRenewalEngine engine = new ReplicatedRenewalEngine(REPLICAS,
+				PROCESSES, uptimes(), downtimes(), State.down, 0.0);
+		final List<List<String>> transitions = new ArrayList<List<String>>();
+		for (int i = 0; i < REPLICAS; i++) {
+			transitions.add(new ArrayList<String>());
+		}
+
+		engine.addObserver(new IReplicaObserver() {
+			@Override
+			public void stateChanged(ReplicatedRenewalEngine engine,
+					int replica, int process, double nextShift) {
+				transitions.get(replica).add(
+						transition(process, engine.isUp(replica, process),
+								engine.rawTime()));
+			}
+		}, false);
+		engine.stopAt(STOP);
+		engine.run();
+
+		for (List<String> replica : transitions) {
+			Collections.sort(replica);
+			Assert.assertEquals(reference, replica);
+		}
+	}
+
+	@Test
+	public void testUnboundStopsReplica() {
+		ReplicatedRenewalEngine engine = new ReplicatedRenewalEngine(REPLICAS,
+				PROCESSES, uptimes(), downtimes(), State.down, 0.0);
+		final int[] events = new int[REPLICAS];
+		engine.addObserver(new IReplicaObserver() {
+			@Override
+			public void stateChanged(ReplicatedRenewalEngine engine,
+					int replica, int process, double nextShift) {
+				events[replica]++;
+				// Replica i stops after (i + 1) * 10 events.
+				if (events[replica] == (replica + 1) * 10) {
+					engine.unbound(replica);
+				}
+			}
+		}, true);
+		engine.run();
+
+		for (int i = 0; i < REPLICAS; i++) {
+			Assert.assertTrue(engine.isStopped(i));
+			Assert.assertEquals((i + 1) * 10, events[i]);
+		}
+	}
+
+	private List<String> reference() {
+		final List<String> transitions = new ArrayList<String>();
+		IDistribution[] up = uptimes();
+		IDistribution[] down = downtimes();
+
+		EngineBuilder builder = new EngineBuilder();
+		for (int i = 0; i < PROCESSES; i++) {
+			builder.addProcess(new RenewalProcess(i, up[i], down[i],
+					State.down));
+		}
+		builder.addObserver(new IEventObserver() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void eventPerformed(ISimulationEngine engine,
+					Schedulable schedulable, double nextShift) {
+				IProcess process = (IProcess) schedulable;
+				transitions.add(transition(process.id(), process.isUp(),
+						engine.clock().rawTime()));
+			}
+
+			@Override
+			public boolean isDone() {
+				return false;
+			}
+		}, IProcess.PROCESS_SCHEDULABLE_TYPE, false, true);
+		builder.preschedule(new Anchor(STOP, Schedulable.UNTYPED));
+		builder.setExtraPermits(1);
+
+		EDSimulationEngine engine = builder.engine();
+		engine.run();
+
+		Collections.sort(transitions);
+		return transitions;
+	}
+
+	private String transition(int process, boolean up, double time) {
+		return process + (up ? " up " : " down ") + time;
+	}
+
+	private IDistribution[] uptimes() {
+		IDistribution[] distributions = new IDistribution[PROCESSES];
+		for (int i = 0; i < PROCESSES; i++) {
+			distributions[i] = new Constant(1.0 + i * 0.25);
+		}
+		return distributions;
+	}
+
+	private IDistribution[] downtimes() {
+		IDistribution[] distributions = new IDistribution[PROCESSES];
+		for (int i = 0; i < PROCESSES; i++) {
+			distributions[i] = new Constant(0.5 + i * 0.125);
+		}
+		return distributions;
+	}
+
+	private static class Constant implements IDistribution {
+
+		private final double fValue;
+
+		public Constant(double value) {
+			fValue = value;
+		}
+
+		@Override
+		public double sample() {
+			return fValue;
+		}
+
+		@Override
+		public double expectation() {
+			return fValue;
+		}
+	}
+}